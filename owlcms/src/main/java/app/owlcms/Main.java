@@ -19,6 +19,7 @@ import java.util.Locale;
 import java.util.Properties;
 import java.util.TimeZone;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.beanutils.ConvertUtils;
 import org.apache.commons.beanutils.converters.DateConverter;
@@ -40,6 +41,7 @@ import app.owlcms.data.jpa.JPAService;
 import app.owlcms.data.jpa.ProdData;
 import app.owlcms.data.platform.PlatformRepository;
 import app.owlcms.data.records.RecordDefinitionReader;
+import app.owlcms.data.records.RecordDefinitionReader.RecordFile;
 import app.owlcms.i18n.Translator;
 import app.owlcms.init.InitialData;
 import app.owlcms.init.OwlcmsFactory;
@@ -48,6 +50,7 @@ import app.owlcms.servlet.EmbeddedJetty;
 import app.owlcms.uievents.AppEvent;
 import app.owlcms.utils.LoggerUtils;
 import app.owlcms.utils.ResourceWalker;
+import app.owlcms.utils.StartupPhases;
 import app.owlcms.utils.StartupUtils;
 import ch.qos.logback.classic.Logger;
 import io.moquette.BrokerConstants;
@@ -66,6 +69,7 @@ import io.moquette.interception.messages.InterceptPublishMessage;
 public class Main {
 
     private static final int WARNING_MINUTES = 5;
+    private static final int STARTUP_THREADS = 4;
 
     public final static Logger logger = (Logger) LoggerFactory.getLogger(Main.class);
 
@@ -105,22 +109,42 @@ public class Main {
 
     /**
      * This method is actually called from EmbeddedJetty immediately after starting the server
+     *
+     * The record spreadsheets, the translations and the MQTT broker do not depend on one another and are loaded in
+     * parallel. Parsing the record spreadsheets does not use the database; finding the files already loaded and
+     * inserting the others is done once the data is loaded. The per-phase durations are logged at the end.
      */
     public static void initData() {
         // Vaadin configs
         System.setProperty("vaadin.i18n.provider", Translator.class.getName());
-        if (demoResetDelay == null) {
-            startMQTT();
-        }
         //initConfig();
 
-        // read locale from database and override if needed
-        Locale l = overrideDisplayLanguage();
-        injectData(initialData, l);
-        overrideTimeZone();
-
-        // initialization, don't push out to browsers
-        OwlcmsFactory.initDefaultFOP();
+        AtomicReference<Locale> locale = new AtomicReference<>();
+        AtomicReference<List<RecordFile>> recordFiles = new AtomicReference<>();
+        new StartupPhases("owlcms", STARTUP_THREADS)
+                .setReportLogger(getStartupLogger())
+                // parsing only, the database is not used
+                .add("record files", () -> recordFiles.set(RecordDefinitionReader.readRecordFiles()))
+                .add("translations", Translator::getAllAvailableLocales)
+                .add("mqtt broker", () -> {
+                    if (demoResetDelay == null) {
+                        startMQTT();
+                    }
+                })
+                // read locale from database and override if needed
+                .add("display language", () -> locale.set(overrideDisplayLanguage()), "translations")
+                .add("data", () -> {
+                    injectData(initialData, locale.get());
+                    overrideTimeZone();
+                }, "display language")
+                // the records refer to the competition and the age groups
+                // the files already loaded are found in the database
+                .add("records", () -> RecordDefinitionReader.resetRecords(recordFiles.get()), "record files",
+                        "data")
+                // initialization, don't push out to browsers
+                // the devices connect to the broker as soon as the fields of play are created
+                .add("fields of play", OwlcmsFactory::initDefaultFOP, "data", "mqtt broker")
+                .run();
     }
 
     public static void injectSuppliers() {
@@ -284,7 +308,6 @@ public class Main {
 
                 PlatformRepository.checkPlatforms();
             }
-            RecordDefinitionReader.resetRecords();
         } finally {
             Translator.setForcedLocale(locale);
         }
@@ -126,7 +126,7 @@ public class AccessUtils {
                             pin,
                             pin != null ? pin.length() : 0,
                             storedSHA,
-                            doSHA, salt, LoggerUtils.whereFrom());
+                            doSHA, salt, LoggerUtils.caller());
                     return doSHA+"_"+salt;
                 } else if (Config.FAKE_PIN.contentEquals(storedPin)) {
                     // workaround for old bug.
@@ -142,7 +142,7 @@ public class AccessUtils {
                         pin,
                         pin != null ? pin.length() : 0,
                         storedPin,
-                        doSHA, salt, LoggerUtils.whereFrom());
+                        doSHA, salt, LoggerUtils.caller());
                 return doSHA+"_"+salt;
             }
         } else {
@@ -151,7 +151,7 @@ public class AccessUtils {
                 salt = config.computeSalt();
             }
             logger.debug("[encoding] encoding:{} length={} encoded={} salt={} (from {})", pin,
-                    pin.length(), doSHA, salt, LoggerUtils.whereFrom());
+                    pin.length(), doSHA, salt, LoggerUtils.caller());
             return doSHA + "_" + salt;
         }
     }
@@ -109,7 +109,7 @@ public interface FOPParameters extends HasUrlParameter<String> {
             newParameterMap.remove(GROUP);
         }
 
-        logger.debug("URL parsing: {} OwlcmsSession: fop={} group={}", LoggerUtils.whereFrom(),
+        logger.debug("URL parsing: {} OwlcmsSession: fop={} group={}", LoggerUtils.caller(),
                 (fop != null ? fop.getName() : null), (group != null ? group.getName() : null));
         return newParameterMap;
     }
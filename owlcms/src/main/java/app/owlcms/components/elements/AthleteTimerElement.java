@@ -45,7 +45,7 @@ public class AthleteTimerElement extends TimerElement {
     public AthleteTimerElement(Object origin) {
         super();
         this.setOrigin(origin);
-        logger.trace("### AthleteTimerElement new {} {}", origin, LoggerUtils.whereFrom());
+        logger.trace("### AthleteTimerElement new {} {}", origin, LoggerUtils.caller());
     }
 
     /**
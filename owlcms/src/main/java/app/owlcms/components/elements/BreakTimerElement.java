@@ -156,7 +156,7 @@ public class BreakTimerElement extends TimerElement implements SafeEventBusRegis
             milliseconds = e.isIndefinite() ? null : e.getTimeRemaining();
             if (!parentName.startsWith("BreakManagement")) {
                 uiEventLogger.trace("&&& breakTimerElement set {} {} {} {} {}", parentName,
-                        formatDuration(milliseconds), e.isIndefinite(), id, LoggerUtils.stackTrace());
+                        formatDuration(milliseconds), e.isIndefinite(), id, LoggerUtils.callStack());
             }
         }
         doSetTimer(milliseconds);
@@ -170,7 +170,7 @@ public class BreakTimerElement extends TimerElement implements SafeEventBusRegis
         Integer tr = e.isIndefinite() ? null : e.getMillis();
         if (!parentName.startsWith("BreakManagement")) {
             uiEventLogger.trace("&&& breakTimerElement start {} {} {} {}", parentName, tr, e.getOrigin(),
-                    LoggerUtils.whereFrom());
+                    LoggerUtils.caller());
         }
         if (Boolean.TRUE.equals(e.getPaused())) {
             doSetTimer(tr);
@@ -214,7 +214,7 @@ public class BreakTimerElement extends TimerElement implements SafeEventBusRegis
         OwlcmsSession.withFop(fop -> {
             // we listen on uiEventBus; this method ensures we stop when detached.
             if (!parentName.startsWith("BreakManagement")) {
-                uiEventLogger.trace("&&& breakTimerElement register {} {}", parentName, LoggerUtils.whereFrom());
+                uiEventLogger.trace("&&& breakTimerElement register {} {}", parentName, LoggerUtils.caller());
             }
             uiEventBusRegister(this, fop);
         });
@@ -6,12 +6,6 @@
  *******************************************************************************/
 package app.owlcms.components.elements;
 
-import java.nio.charset.StandardCharsets;
-
-import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
-import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
-import org.eclipse.paho.client.mqttv3.MqttException;
-import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.eventbus.EventBus;
@@ -26,12 +20,11 @@ import com.vaadin.flow.templatemodel.TemplateModel;
 
 import app.owlcms.data.config.Config;
 import app.owlcms.fieldofplay.FOPEvent;
-import app.owlcms.fieldofplay.MQTTMonitor;
+import app.owlcms.fieldofplay.MQTTConnection;
 import app.owlcms.init.OwlcmsSession;
 import app.owlcms.nui.lifting.UIEventProcessor;
 import app.owlcms.nui.shared.SafeEventBusRegistration;
 import app.owlcms.uievents.UIEvent;
-import app.owlcms.utils.StartupUtils;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 
@@ -58,36 +51,9 @@ public class DecisionElement extends PolymerTemplate<TemplateModel>
     private Boolean prevRef1;
     private Boolean prevRef2;
     private Boolean prevRef3;
-    private MqttAsyncClient client;
     private boolean juryMode;
 
     public DecisionElement() {
-        if (isMqttDecisions()) {
-            try {
-                client = MQTTMonitor.createMQTTClient();
-                String userName = StartupUtils.getStringParam("mqttUserName");
-                String password = StartupUtils.getStringParam("mqttPassword");
-                MqttConnectOptions connOpts = setUpConnectionOptions(userName != null ? userName : "",
-                        password != null ? password : "");
-                ;
-                client.connect(connOpts).waitForCompletion();
-            } catch (MqttException e) {
-            }
-        }
-    }
-
-    private MqttConnectOptions setUpConnectionOptions(String username, String password) {
-        MqttConnectOptions connOpts = new MqttConnectOptions();
-        connOpts.setCleanSession(true);
-        if (username != null) {
-            connOpts.setUserName(username);
-        }
-        if (password != null) {
-            connOpts.setPassword(password.toCharArray());
-        }
-        connOpts.setCleanSession(true);
-        // connOpts.setAutomaticReconnect(true);
-        return connOpts;
     }
 
     /**
@@ -145,11 +111,8 @@ public class DecisionElement extends PolymerTemplate<TemplateModel>
     }
 
     private void mqttPublish(String topic, String message) {
-        try {
-            client.publish(topic, new MqttMessage(message.getBytes(StandardCharsets.UTF_8)));
-        } catch (MqttException e) {
-            throw new RuntimeException(e);
-        }
+        // same connection as the fields of play, so the message comes back as if from a refbox
+        MQTTConnection.getInstance().publish(topic, message);
     }
 
     private boolean isMqttDecisions() {
@@ -98,7 +98,7 @@ public abstract class TimerElement extends PolymerTemplate<TemplateModel>
     }
 
     public void setSilenced(boolean b) {
-        logger.debug("{} silenced = {} from {}", this.getClass().getSimpleName(), b, LoggerUtils.whereFrom(1));
+        logger.debug("{} silenced = {} from {}", this.getClass().getSimpleName(), b, LoggerUtils.caller(1));
         silenced = b;
     }
 
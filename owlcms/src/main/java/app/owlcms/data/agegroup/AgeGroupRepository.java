@@ -27,6 +27,7 @@ import app.owlcms.data.athlete.AthleteRepository;
 import app.owlcms.data.athlete.Gender;
 import app.owlcms.data.category.AgeDivision;
 import app.owlcms.data.category.Category;
+import app.owlcms.data.category.CategoryRepository;
 import app.owlcms.data.category.Participation;
 import app.owlcms.data.competition.Competition;
 import app.owlcms.data.group.Group;
@@ -60,11 +61,12 @@ public class AgeGroupRepository {
             }
             return null;
         });
+        CategoryRepository.invalidateIndex();
         return nAgeGroup;
     }
 
     public static List<AgeDivision> allAgeDivisionsForAllAgeGroups() {
-        return JPAService.runInTransaction((em) -> {
+        return JPAService.runReadOnly((em) -> {
             TypedQuery<AgeDivision> q = em.createQuery(
                     "select distinct ag.ageDivision from Participation p join p.category c join c.ageGroup ag",
                     AgeDivision.class);
@@ -233,6 +235,7 @@ public class AgeGroupRepository {
             }
             return null;
         });
+        CategoryRepository.invalidateIndex();
     }
 
     @SuppressWarnings("unchecked")
@@ -253,7 +256,7 @@ public class AgeGroupRepository {
 
     public static List<String> findActiveAndUsed(AgeDivision ageDivisionValue) {
        
-        return JPAService.runInTransaction((em) -> {
+        return JPAService.runReadOnly((em) -> {
             if (ageDivisionValue == null) {
                 TypedQuery<String> q = em.createQuery(
                         "select distinct ag.code from Participation p join p.category c join c.ageGroup ag",
@@ -282,7 +285,7 @@ public class AgeGroupRepository {
         if (g == null) {
             return new ArrayList<>();
         } else {
-            return JPAService.runInTransaction((em) -> {
+            return JPAService.runReadOnly((em) -> {
                 TypedQuery<AgeGroup> q = em.createQuery(
                         "select distinct ag from Athlete a join a.group g join a.participations p join p.category c join c.ageGroup ag where g.id = :groupId order by ag.maxAge, ag.minAge",
                         AgeGroup.class);
@@ -298,11 +301,11 @@ public class AgeGroupRepository {
      * @return the list
      */
     public static List<AgeGroup> findAll() {
-        return JPAService.runInTransaction(em -> doFindAll(em));
+        return JPAService.runReadOnly(em -> doFindAll(em));
     }
 
     public static AgeGroup findByName(String name) {
-        return JPAService.runInTransaction(em -> {
+        return JPAService.runReadOnly(em -> {
             return doFindByName(name, em);
         });
     }
@@ -310,7 +313,7 @@ public class AgeGroupRepository {
     public static List<AgeGroup> findFiltered(String name, Gender gender, AgeDivision ageDivision, Integer age,
             boolean active, int offset, int limit) {
 
-        List<AgeGroup> findFiltered = JPAService.runInTransaction(em -> {
+        List<AgeGroup> findFiltered = JPAService.runReadOnly(em -> {
             String qlString = "select ag from AgeGroup ag"
                     + filteringSelection(name, gender, ageDivision, age, active)
                     + " order by ag.ageDivision, ag.gender, ag.minAge, ag.maxAge";
@@ -360,6 +363,7 @@ public class AgeGroupRepository {
         } catch (FileNotFoundException e1) {
             //ignore
         }
+        CategoryRepository.invalidateIndex();
     }
 
     public static void insertAgeGroups(EntityManager em, EnumSet<AgeDivision> es, String resourceName) {
@@ -368,6 +372,8 @@ public class AgeGroupRepository {
             AgeGroupDefinitionReader.doInsertAgeGroup(es, localizedName);
         } catch (FileNotFoundException e1) {
             throw new RuntimeException(e1);
+        } finally {
+            CategoryRepository.invalidateIndex();
         }
     }
 
@@ -395,6 +401,7 @@ public class AgeGroupRepository {
             return null;
         });
         AgeGroupDefinitionReader.doInsertAgeGroup(null, "/agegroups/" + localizedFileName);
+        CategoryRepository.invalidateIndex();
         AthleteRepository.resetParticipations();
     }
 
@@ -415,6 +422,7 @@ public class AgeGroupRepository {
             }
             return null;
         });
+        CategoryRepository.invalidateIndex();
 
         return nAgeGroup;
     }
@@ -51,7 +51,6 @@ import app.owlcms.data.category.AgeDivision;
 import app.owlcms.data.category.Category;
 import app.owlcms.data.category.CategoryRepository;
 import app.owlcms.data.category.Participation;
-import app.owlcms.data.category.RobiCategories;
 import app.owlcms.data.competition.Competition;
 import app.owlcms.data.config.Config;
 import app.owlcms.data.group.Group;
@@ -59,7 +58,6 @@ import app.owlcms.data.jpa.LocalDateAttributeConverter;
 import app.owlcms.fieldofplay.FOPState;
 import app.owlcms.fieldofplay.FieldOfPlay;
 import app.owlcms.fieldofplay.LiftOrderInfo;
-import app.owlcms.fieldofplay.LiftOrderReconstruction;
 import app.owlcms.init.OwlcmsSession;
 import app.owlcms.spreadsheet.RAthlete;
 import app.owlcms.utils.DateTimeUtils;
@@ -107,14 +105,6 @@ public class Athlete {
 
     private static final int YEAR = LocalDateTime.now().getYear();
 
-    @Transient
-    @JsonIgnore
-    private static SinclairCoefficients sinclairProperties2020 = new SinclairCoefficients(2020);
-
-    @Transient
-    @JsonIgnore
-    private static SinclairCoefficients sinclairProperties2024 = new SinclairCoefficients(2024);
-
     public static void conditionalCopy(Athlete dest, Athlete src, boolean copyResults) {
         boolean validation = dest.isValidation();
         Level prevSrcLevel = src.getLogger().getLevel();
@@ -413,7 +403,7 @@ public class Athlete {
 
     @Transient
     @JsonIgnore
-    private SinclairCoefficients sinclairProperties;
+    private int sinclairYear;
 
     private String federationCodes;
 
@@ -524,6 +514,14 @@ public class Athlete {
     }
 
     public void computeMainAndEligibleCategories() {
+        computeMainAndEligibleCategories(null);
+    }
+
+    /**
+     * @param activeCategories the active categories in registration preference order, when a bulk operation has
+     *                         already loaded them; if null, the database is queried.
+     */
+    public void computeMainAndEligibleCategories(List<Category> activeCategories) {
         Double weight = this.getBodyWeight();
         Integer age = this.getAge();
         if (weight == null || weight < 0.01) {
@@ -540,8 +538,9 @@ public class Athlete {
                     }
                 }
 
-                List<Category> categories = CategoryRepository.findByGenderAgeBW(
-                        this.getGender(), age, weight);
+                List<Category> categories = activeCategories != null
+                        ? CategoryRepository.filterByGenderAgeBW(activeCategories, this.getGender(), age, weight)
+                        : CategoryRepository.findByGenderAgeBW(this.getGender(), age, weight);
 
                 categories = categories.stream()
                         .filter(c -> this.getQualifyingTotal() >= c.getQualifyingTotal()).collect(Collectors.toList());
@@ -554,8 +553,9 @@ public class Athlete {
             }
         } else {
 //            logger.trace("weight {}", this.getShortName());
-            List<Category> categories = CategoryRepository.findByGenderAgeBW(
-                    this.getGender(), age, weight);
+            List<Category> categories = activeCategories != null
+                    ? CategoryRepository.filterByGenderAgeBW(activeCategories, this.getGender(), age, weight)
+                    : CategoryRepository.findByGenderAgeBW(this.getGender(), age, weight);
             categories = categories.stream()
 //                    .peek((c) -> {
 //                        logger.trace("a {} aq {} cq {}", this.getShortName(), this.getQualifyingTotal(),
@@ -1010,14 +1010,14 @@ public class Athlete {
         if (getGender() == Gender.M) { // $NON-NLS-1$
             if (categoryWeight < 55.0) {
                 categoryWeight = 55.0;
-            } else if (categoryWeight > getSinclairProperties().menMaxWeight()) {
-                categoryWeight = getSinclairProperties().menMaxWeight();
+            } else if (categoryWeight > ScoringTables.get().sinclairMaxWeight(getSinclairYear(), Gender.M)) {
+                categoryWeight = ScoringTables.get().sinclairMaxWeight(getSinclairYear(), Gender.M);
             }
         } else {
             if (categoryWeight < 45.0) {
                 categoryWeight = 45.0;
-            } else if (categoryWeight > getSinclairProperties().womenMaxWeight()) {
-                categoryWeight = getSinclairProperties().womenMaxWeight();
+            } else if (categoryWeight > ScoringTables.get().sinclairMaxWeight(getSinclairYear(), Gender.F)) {
+                categoryWeight = ScoringTables.get().sinclairMaxWeight(getSinclairYear(), Gender.F);
             }
         }
         return getSinclair(categoryWeight);
@@ -2013,15 +2013,13 @@ public class Athlete {
         Integer wr = c.getWr();
         if (wr == null || wr <= 0.000001) {
             // not an IWF category, find what the IWF Robi would be for age/body weight
-            Category robiC = RobiCategories.findRobiCategory(this);
-            if (robiC == null) {
+            Integer age = getAge();
+            wr = ScoringTables.get().robiWorldRecord(getGender(), getBodyWeight(), age);
+            if (wr < 0) {
                 return 0.0;
             }
-            Integer age = getAge();
-            if (age != null) {
-                wr = robiC.getWr(age);
-            } else {
-                return robiC.getWr(999) + 0.0D;
+            if (age == null) {
+                return wr + 0.0D;
             }
         }
 
@@ -2107,13 +2105,7 @@ public class Athlete {
     @Transient
     @JsonIgnore
     public Double getSinclairFactor() {
-        if (gender == Gender.M) {
-            return sinclairFactor(this.bodyWeight, getSinclairProperties().menCoefficient(),
-                    getSinclairProperties().menMaxWeight());
-        } else {
-            return sinclairFactor(this.bodyWeight, getSinclairProperties().womenCoefficient(),
-                    getSinclairProperties().womenMaxWeight());
-        }
+        return ScoringTables.get().sinclairFactor(getSinclairYear(), gender, this.bodyWeight);
     }
 
     /**
@@ -2154,7 +2146,7 @@ public class Athlete {
             return 0.0;
         }
         double d = getMastersSinclairForDelta()
-                * sinclairProperties2020.getAgeGenderCoefficient(YEAR - birthDate1, getGender());
+                * ScoringTables.get().smf(getGender(), YEAR - birthDate1);
         return d;
     }
 
@@ -2172,7 +2164,7 @@ public class Athlete {
             return 0.0;
         }
         double d = getMastersSinclair()
-                * sinclairProperties2020.getAgeGenderCoefficient(YEAR - birthDate1, getGender());
+                * ScoringTables.get().smf(getGender(), YEAR - birthDate1);
         return d;
     }
 
@@ -4580,17 +4572,15 @@ public class Athlete {
             getLogger().trace("{}weight at last start: {} request = {}", fopLoggingName, weightAtLastStart, newVal);
             // program has just been started, or first athlete in group, or moving down to clock value
             // compare with what the lifting order rules say.
-            LiftOrderReconstruction pastOrder = new LiftOrderReconstruction(getFop());
             LiftOrderInfo reference = null;
 
             Athlete clockOwner = getFop().getClockOwner();
             if (clockOwner != null) {
                 // if clock is running, reference becomes the clock owner instead of last good/bad lift.
                 reference = clockOwner.getRunningLiftOrderInfo();
-                pastOrder.shortDump("lastLift info clock running", getLogger());
             } else {
-                reference = pastOrder.getLastLift();
-                pastOrder.shortDump("lastLift info no clock", getLogger());
+                // maintained by the field of play each time the lifting order changes
+                reference = getFop().getPastLiftOrder().getLastLift();
             }
 
             if (reference != null) {
@@ -4660,13 +4650,7 @@ public class Athlete {
         if (bestCleanJerk == null || bestSnatch == null || total1 == null || total1 < 0.1 || (gender == null)) {
             return 0.0;
         }
-        if (gender == Gender.M) { // $NON-NLS-1$
-            return total1 * sinclairFactor(bodyWeight1, sinclairProperties2020.menCoefficient(),
-                    sinclairProperties2020.menMaxWeight());
-        } else {
-            return total1 * sinclairFactor(bodyWeight1, sinclairProperties2020.womenCoefficient(),
-                    sinclairProperties2020.womenMaxWeight());
-        }
+        return total1 * ScoringTables.get().sinclairFactor(2020, gender, bodyWeight1);
     }
 
     /**
@@ -4685,13 +4669,7 @@ public class Athlete {
         if (total1 == null || total1 < 0.1 || (gender == null)) {
             return 0.0;
         }
-        if (gender == Gender.M) { // $NON-NLS-1$
-            return total1 * sinclairFactor(bodyWeight1, sinclairProperties2020.menCoefficient(),
-                    sinclairProperties2020.menMaxWeight());
-        } else {
-            return total1 * sinclairFactor(bodyWeight1, sinclairProperties2020.womenCoefficient(),
-                    sinclairProperties2020.womenMaxWeight());
-        }
+        return total1 * ScoringTables.get().sinclairFactor(2020, gender, bodyWeight1);
     }
 
     @Transient
@@ -4738,21 +4716,14 @@ public class Athlete {
         if (total1 == null || total1 < 0.1 || (gender == null)) {
             return 0.0;
         }
-        if (gender == Gender.M) { // $NON-NLS-1$
-            return total1 * sinclairFactor(bodyWeight1, getSinclairProperties().menCoefficient(),
-                    getSinclairProperties().menMaxWeight());
-        } else {
-            return total1 * sinclairFactor(bodyWeight1, getSinclairProperties().womenCoefficient(),
-                    getSinclairProperties().womenMaxWeight());
-        }
+        return total1 * ScoringTables.get().sinclairFactor(getSinclairYear(), gender, bodyWeight1);
     }
 
-    private SinclairCoefficients getSinclairProperties() {
-        if (sinclairProperties == null) {
-            sinclairProperties = (Competition.getCurrent().getSinclairYear() == 2024 ? sinclairProperties2024
-                    : sinclairProperties2020);
+    private int getSinclairYear() {
+        if (sinclairYear == 0) {
+            sinclairYear = (Competition.getCurrent().getSinclairYear() == 2024 ? 2024 : 2020);
         }
-        return sinclairProperties;
+        return sinclairYear;
     }
 
     /**
@@ -4888,25 +4859,6 @@ public class Athlete {
         this.id = id;
     }
 
-    /**
-     * Compute the Sinclair formula given its parameters.
-     *
-     * @param coefficient
-     * @param maxWeight
-     */
-    @Transient
-    @JsonIgnore
-    private Double sinclairFactor(Double bodyWeight1, Double coefficient, Double maxWeight) {
-        if (bodyWeight1 == null) {
-            return 0.0;
-        }
-        if (bodyWeight1 >= maxWeight) {
-            return 1.0;
-        } else {
-            return Math.pow(10.0, coefficient * (Math.pow(Math.log10(bodyWeight1 / maxWeight), 2)));
-        }
-    }
-
     private int startingTotalDelta(Integer snatch1Request, Integer cleanJerk1Request, int qualTotal) {
         boolean enforce20kg = Competition.getCurrent().isEnforce20kgRule();
         if (!enforce20kg) {
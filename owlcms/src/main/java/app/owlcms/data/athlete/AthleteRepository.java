@@ -6,8 +6,15 @@
  *******************************************************************************/
 package app.owlcms.data.athlete;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
@@ -18,11 +25,14 @@ import org.slf4j.LoggerFactory;
 
 import app.owlcms.data.agegroup.AgeGroup;
 import app.owlcms.data.athleteSort.AthleteSorter;
+import app.owlcms.data.athleteSort.TopSinclairStore;
 import app.owlcms.data.category.AgeDivision;
 import app.owlcms.data.category.Category;
 import app.owlcms.data.competition.Competition;
 import app.owlcms.data.group.Group;
 import app.owlcms.data.jpa.JPAService;
+import app.owlcms.data.jpa.QueryCounter;
+import app.owlcms.data.team.TeamResultsStore;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 
@@ -36,6 +46,11 @@ public class AthleteRepository {
         logger.setLevel(Level.INFO);
     }
 
+    // ids of all the athletes, in registration order, and the values each one was sorted on
+    private static List<Long> registrationOrder;
+    private static Map<Long, List<Object>> registrationKeys;
+    private static Competition registrationOrderCompetition;
+
     public static void assignCategoryRanks() {
         JPAService.runInTransaction(em -> {
             // assign ranks to all groups.
@@ -74,16 +89,6 @@ public class AthleteRepository {
         });
     }
 
-    public static long countTeamMembers(String curTeamName, Gender gender) {
-        return JPAService.runInTransaction(em -> {
-            Query query = em.createQuery(
-                    "select count(distinct a.id) from Athlete a where a.team=:team and a.gender=:gender and a.eligibleForTeamRanking=true");
-            query.setParameter("team", curTeamName);
-            query.setParameter("gender", gender);
-            return (long) query.getFirstResult();
-        });
-    }
-
     /**
      * Delete an athlete
      *
@@ -95,11 +100,12 @@ public class AthleteRepository {
             Competition.getCurrent().setRankingsInvalid(true);
             return null;
         });
+        invalidateRegistrationOrder();
     }
 
     public static Integer doCountFiltered(String lastName, Group group, Category category, AgeGroup ageGroup,
             AgeDivision ageDivision, Gender gender, Boolean weighedIn, EntityManager em) {
-        if (group != null && group.getName() == "*") {
+        if (group != null && "*".equals(group.getName())) {
             group = null;
         }
         String selection = filteringSelection(lastName, group, category, ageGroup, ageDivision, gender, weighedIn);
@@ -119,7 +125,7 @@ public class AthleteRepository {
     public static List<Athlete> doFindAllByAgeroupGroupAndWeighIn(EntityManager em, AgeGroup ageGroup, Group group,
             Boolean weighedIn,
             Gender gender) {
-        if (group != null && group.getName() == "*") {
+        if (group != null && "*".equals(group.getName())) {
             group = null;
         }
         return doFindFiltered(em, (String) null, group, (Category) null, ageGroup, (AgeDivision) null, gender,
@@ -129,7 +135,7 @@ public class AthleteRepository {
 
     public static List<Athlete> doFindAllByGroupAndWeighIn(EntityManager em, Group group, Boolean weighedIn,
             Gender gender) {
-        if (group != null && group.getName() == "*") {
+        if (group != null && "*".equals(group.getName())) {
             group = null;
         }
         return doFindFiltered(em, (String) null, group, (Category) null, (AgeGroup) null, (AgeDivision) null, gender,
@@ -140,7 +146,7 @@ public class AthleteRepository {
     public static List<Athlete> doFindFiltered(EntityManager em, String lastName, Group group, Category category,
             AgeGroup ageGroup,
             AgeDivision ageDivision, Gender gender, Boolean weighedIn, int offset, int limit) {
-        if (group != null && group.getName() == "*") {
+        if (group != null && "*".equals(group.getName())) {
             group = null;
         }
         String qlString = "select a from Athlete a"
@@ -165,7 +171,7 @@ public class AthleteRepository {
      */
 
     public static List<Athlete> findAll() {
-        return JPAService.runInTransaction(em -> doFindAll(em));
+        return JPAService.runReadOnly(em -> doFindAll(em));
     }
 
     /**
@@ -176,15 +182,17 @@ public class AthleteRepository {
      * @return the list
      */
     public static List<Athlete> findAllByGroupAndWeighIn(Group group, Boolean weighedIn) {
-        List<Athlete> findFiltered = findFiltered((String) null, group, (Category) null, (AgeGroup) null,
-                (AgeDivision) null, (Gender) null, weighedIn,
-                -1, -1);
-        logger.debug("findFiltered found {}", findFiltered.size());
-        return findFiltered;
+        try (QueryCounter.Scope s = QueryCounter.scope("findAllByGroupAndWeighIn")) {
+            List<Athlete> findFiltered = findFiltered((String) null, group, (Category) null, (AgeGroup) null,
+                    (AgeDivision) null, (Gender) null, weighedIn,
+                    -1, -1);
+            logger.debug("findFiltered found {}", findFiltered.size());
+            return findFiltered;
+        }
     }
 
     public static List<Athlete> findAllByGroupAndWeighIn(Group group, Gender gender, boolean weighedIn) {
-        return JPAService.runInTransaction(em -> {
+        return JPAService.runReadOnly(em -> {
             return doFindAllByGroupAndWeighIn(em, group, weighedIn, gender);
         });
     }
@@ -196,7 +204,7 @@ public class AthleteRepository {
      * @return
      */
     public static List<Athlete> findAthletesForCategory(Category c) {
-        return JPAService.runInTransaction((em) -> {
+        return JPAService.runReadOnly((em) -> {
             TypedQuery<Athlete> q = em.createQuery(
                     "select distinct a from Athlete a join a.participations p join p.category c where c.id = :catId",
                     Athlete.class);
@@ -214,7 +222,7 @@ public class AthleteRepository {
      */
 
     public static List<Athlete> findAthletesForGlobalRanking(Group g) {
-        return JPAService.runInTransaction((em) -> {
+        return JPAService.runReadOnly((em) -> {
             return doFindAthletesForGlobalRanking(g, em);
         });
     }
@@ -250,11 +258,40 @@ public class AthleteRepository {
     }
 
     public static Athlete findById(long id) {
-        return JPAService.runInTransaction(em -> {
+        return JPAService.runReadOnly(em -> {
             return getById(id, em);
         });
     }
 
+    /**
+     * Fetch athletes by id, in a single query.
+     *
+     * @param ids
+     * @return the athletes that still exist, in the order of the ids
+     */
+    public static List<Athlete> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Athlete> found = JPAService.runReadOnly(em -> {
+            TypedQuery<Athlete> q = em.createQuery("select a from Athlete a where a.id in :ids", Athlete.class);
+            q.setParameter("ids", ids);
+            return q.getResultList();
+        });
+        Map<Long, Athlete> byId = new HashMap<>();
+        for (Athlete a : found) {
+            byId.put(a.getId(), a);
+        }
+        List<Athlete> ordered = new ArrayList<>(found.size());
+        for (Long id : ids) {
+            Athlete a = byId.get(id);
+            if (a != null) {
+                ordered.add(a);
+            }
+        }
+        return ordered;
+    }
+
     /**
      * Find filtered.
      *
@@ -268,12 +305,43 @@ public class AthleteRepository {
      */
     public static List<Athlete> findFiltered(String lastName, Group group, Category category, AgeGroup ageGroup,
             AgeDivision ageDivision, Gender gender, Boolean weighedIn, int offset, int limit) {
-        return JPAService.runInTransaction(em -> {
+        return JPAService.runReadOnly(em -> {
             return doFindFiltered(em, lastName, group, category, ageGroup, ageDivision, gender, weighedIn, offset,
                     limit);
         });
     }
 
+    /**
+     * Ids of the athletes that match the filters, in registration order.
+     *
+     * The filtering is done by the database, which only returns ids. The order comes from the ids of all the athletes
+     * sorted by {@link AthleteSorter#registrationOrder(List)}. That list is kept until an athlete is added or deleted,
+     * a save changes a value the athletes are sorted on, the competition is replaced, or
+     * {@link #invalidateRegistrationOrder()} is called; weigh-in saves and lifts do not sort the athletes again.
+     *
+     * @return the ids, in registration order
+     */
+    public static List<Long> findFilteredIds(String lastName, Group group, Category category, AgeGroup ageGroup,
+            AgeDivision ageDivision, Gender gender, Boolean weighedIn) {
+        Group g = (group != null && "*".equals(group.getName())) ? null : group;
+        List<Long> filtered = JPAService.runReadOnly(em -> {
+            Query query = em.createQuery("select a.id from Athlete a"
+                    + filteringSelection(lastName, g, category, ageGroup, ageDivision, gender, weighedIn));
+            setFilteringParameters(lastName, g, category, ageGroup, ageDivision, gender, query);
+            @SuppressWarnings("unchecked")
+            List<Long> resultList = query.getResultList();
+            return resultList;
+        });
+        Set<Long> matching = new HashSet<>(filtered);
+        List<Long> ordered = inRegistrationOrder(matching);
+        if (ordered.size() < matching.size()) {
+            // athletes created since the order was computed
+            invalidateRegistrationOrder();
+            ordered = inRegistrationOrder(matching);
+        }
+        return ordered;
+    }
+
     /**
      * Gets the by id.
      *
@@ -289,6 +357,15 @@ public class AthleteRepository {
         return (Athlete) query.getResultList().stream().findFirst().orElse(null);
     }
 
+    /**
+     * Sort the athletes again on next use of {@link #findFilteredIds}, for changes to the registration order not made
+     * through {@link #save(Athlete)} (lot draw, group weigh-in times, categories recomputed).
+     */
+    public static synchronized void invalidateRegistrationOrder() {
+        registrationOrder = null;
+        registrationKeys = null;
+    }
+
     /**
      * Use the athlete bodyweight (or presumed body weight if weigh-in has not taken place) to determine category.
      */
@@ -317,6 +394,7 @@ public class AthleteRepository {
             Competition.getCurrent().setRankingsInvalid(true);
             return null;
         });
+        invalidateRegistrationOrder();
         assignCategoryRanks();
     }
 
@@ -330,11 +408,14 @@ public class AthleteRepository {
         if (athlete == null) {
             return athlete;
         }
-        return JPAService.runInTransaction((em) -> {
-            Competition.getCurrent().setRankingsInvalid(true);
-            Athlete merged = em.merge(athlete);
-            return merged;
+        long resultsVersion = Competition.getCurrent().invalidateRankings();
+        Athlete merged = JPAService.runInTransaction((em) -> {
+            return em.merge(athlete);
         });
+        TeamResultsStore.athleteSaved(merged, resultsVersion);
+        TopSinclairStore.athleteSaved(merged, resultsVersion);
+        registrationSaved(merged);
+        return merged;
     }
 
     private static String filteringJoins(Group group, Category category, AgeGroup ageGroup, AgeDivision ageDivision) {
@@ -394,6 +475,59 @@ public class AthleteRepository {
         }
     }
 
+    private static synchronized List<Long> getRegistrationOrder() {
+        // the comparator depends on the competition (masters)
+        Competition competition = Competition.getCurrent();
+        if (registrationOrder != null && registrationOrderCompetition == competition) {
+            return registrationOrder;
+        }
+        long start = System.nanoTime();
+        Map<Long, List<Object>> keys = new HashMap<>();
+        registrationOrder = JPAService.runReadOnly(em -> {
+            List<Athlete> all = doFindAll(em);
+            AthleteSorter.registrationOrder(all);
+            for (Athlete a : all) {
+                keys.put(a.getId(), registrationKey(a));
+            }
+            return Collections.unmodifiableList(all.stream().map(Athlete::getId).collect(Collectors.toList()));
+        });
+        registrationKeys = keys;
+        registrationOrderCompetition = competition;
+        logger.debug("sorted {} athletes in registration order in {} ms", registrationOrder.size(),
+                (System.nanoTime() - start) / 1000000.0);
+        return registrationOrder;
+    }
+
+    private static List<Long> inRegistrationOrder(Set<Long> ids) {
+        List<Long> ordered = new ArrayList<>(ids.size());
+        for (Long id : getRegistrationOrder()) {
+            if (ids.contains(id)) {
+                ordered.add(id);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * @return the values of the athlete that {@link AthleteSorter#registrationOrder(List)} compares; the group and
+     *         category themselves are compared on values that are changed through their own repositories
+     */
+    private static List<Object> registrationKey(Athlete a) {
+        Group g = a.getGroup();
+        Category c = a.getCategory();
+        return Arrays.asList(g != null ? g.getId() : null, c != null ? c.getId() : null, a.getLotNumber(),
+                a.getLastName(), a.getFirstName());
+    }
+
+    /**
+     * Sort again if the athlete is new or a value it is sorted on has changed.
+     */
+    private static synchronized void registrationSaved(Athlete a) {
+        if (registrationKeys != null && !registrationKey(a).equals(registrationKeys.get(a.getId()))) {
+            invalidateRegistrationOrder();
+        }
+    }
+
     private static void setFilteringParameters(String lastName, Group group, Category category, AgeGroup ageGroup,
             AgeDivision ageDivision, Gender gender,
             Query query) {
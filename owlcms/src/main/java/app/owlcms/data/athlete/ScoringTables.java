@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.data.athlete;
+
+import java.util.List;
+
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.data.category.Category;
+import app.owlcms.data.category.RobiCategories;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Sinclair coefficients, SMF age factors and Robi reference records, loaded once into arrays.
+ *
+ * The values come from {@link SinclairCoefficients} and {@link RobiCategories}, and the lookups give the same results;
+ * they are used by the rankings, which compute these scores for every athlete on every recompute, and do not allocate.
+ *
+ * @author Jean-François Lamy
+ */
+public class ScoringTables {
+
+    /**
+     * Robi reference categories, in the order {@link RobiCategories} searches them.
+     */
+    private static class RobiTable {
+        final int[] gender;
+        final double[] min;
+        final double[] max;
+        final int[] wrYth;
+        final int[] wrJr;
+        final int[] wrSr;
+
+        RobiTable(List<Category> categories) {
+            int size = categories != null ? categories.size() : 0;
+            gender = new int[size];
+            min = new double[size];
+            max = new double[size];
+            wrYth = new int[size];
+            wrJr = new int[size];
+            wrSr = new int[size];
+            for (int i = 0; i < size; i++) {
+                Category c = categories.get(i);
+                gender[i] = c.getGender() != null ? c.getGender().ordinal() : -1;
+                min[i] = c.getMinimumWeight();
+                max[i] = c.getMaximumWeight();
+                wrYth[i] = zeroIfNull(c.getWrYth());
+                wrJr[i] = zeroIfNull(c.getWrJr());
+                wrSr[i] = zeroIfNull(c.getWrSr());
+            }
+        }
+
+        /**
+         * Same search, and same comparisons, as {@link RobiCategories#findRobiCategory(Athlete)}.
+         *
+         * @return index of the category, -1 if none
+         */
+        int find(int g, double bw) {
+            int low = 0;
+            int high = gender.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp;
+                if (gender[mid] != g) {
+                    // a missing gender sorts first
+                    cmp = g < gender[mid] ? 1 : -1;
+                } else if (bw >= min[mid] && bw <= max[mid]) {
+                    return mid;
+                } else if (bw > max[mid]) {
+                    cmp = -1;
+                } else {
+                    cmp = 1;
+                }
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Same as {@link Category#getWr(int)}
+         */
+        int wr(int i, int age) {
+            if (age <= 17) {
+                return wrYth[i];
+            } else if (age <= 20) {
+                return wrJr[i];
+            } else {
+                return wrSr[i];
+            }
+        }
+    }
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(ScoringTables.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    private static final int SMF_MIN_AGE = 30;
+    private static final int SMF_MAX_AGE_M = 90;
+    private static final int SMF_MAX_AGE_F = 80;
+
+    private static volatile ScoringTables current;
+
+    /**
+     * @return the tables, loaded on first use
+     */
+    public static ScoringTables get() {
+        ScoringTables t = current;
+        if (t == null) {
+            synchronized (ScoringTables.class) {
+                t = current;
+                if (t == null) {
+                    long start = System.nanoTime();
+                    t = new ScoringTables(new SinclairCoefficients(2020), new SinclairCoefficients(2024),
+                            RobiCategories.getJrSrReferenceCategories(), RobiCategories.getYthReferenceCategories());
+                    current = t;
+                    logger.debug("scoring tables loaded in {}ms", (System.nanoTime() - start) / 1000000.0);
+                }
+            }
+        }
+        return t;
+    }
+
+    private static int zeroIfNull(Integer i) {
+        return i != null ? i : 0;
+    }
+
+    // [0] is 2020, [1] is 2024; second index is the gender ordinal
+    private final double[][] sinclairCoefficient = new double[2][Gender.values().length];
+    private final double[][] sinclairMaxWeight = new double[2][Gender.values().length];
+    // indexed by gender ordinal, then age
+    private final float[][] smf = new float[Gender.values().length][];
+    private final RobiTable jrSrRobi;
+    private final RobiTable ythRobi;
+
+    ScoringTables(SinclairCoefficients s2020, SinclairCoefficients s2024, List<Category> jrSrReference,
+            List<Category> ythReference) {
+        SinclairCoefficients[] years = { s2020, s2024 };
+        for (int y = 0; y < years.length; y++) {
+            sinclairCoefficient[y][Gender.M.ordinal()] = years[y].menCoefficient();
+            sinclairMaxWeight[y][Gender.M.ordinal()] = years[y].menMaxWeight();
+            sinclairCoefficient[y][Gender.F.ordinal()] = years[y].womenCoefficient();
+            sinclairMaxWeight[y][Gender.F.ordinal()] = years[y].womenMaxWeight();
+        }
+        smf[Gender.M.ordinal()] = loadSmf(s2020, Gender.M, SMF_MAX_AGE_M);
+        smf[Gender.F.ordinal()] = loadSmf(s2020, Gender.F, SMF_MAX_AGE_F);
+        jrSrRobi = new RobiTable(jrSrReference);
+        ythRobi = new RobiTable(ythReference);
+    }
+
+    /**
+     * Robi reference world record for an athlete not in an IWF category.
+     *
+     * @param gender
+     * @param bodyWeight
+     * @param age        null if unknown
+     * @return the world record of the IWF category for the body weight and age (senior if age unknown), -1 if none
+     */
+    public int robiWorldRecord(Gender gender, Double bodyWeight, Integer age) {
+        if (bodyWeight == null || bodyWeight < 0.1) {
+            return -1;
+        }
+        RobiTable table = age != null && age <= 17 ? ythRobi : jrSrRobi;
+        int i = table.find(gender != null ? gender.ordinal() : -1, bodyWeight);
+        if (i < 0) {
+            return -1;
+        }
+        return table.wr(i, age != null ? age : 999);
+    }
+
+    /**
+     * @param gender
+     * @param age
+     * @return the Sinclair-Malone-Meltzer age factor (2020 coefficients), 0 if gender or age is unknown
+     */
+    public double smf(Gender gender, Integer age) {
+        if (gender == null || age == null) {
+            return 0.0F;
+        }
+        if (age <= SMF_MIN_AGE) {
+            return 1.0F;
+        }
+        float[] factors = smf[gender.ordinal()];
+        return factors[Math.min(age, factors.length - 1)];
+    }
+
+    /**
+     * @param year       Sinclair coefficients year, 2020 or 2024
+     * @param gender     men's coefficients for M, women's otherwise
+     * @param bodyWeight
+     * @return the Sinclair factor
+     */
+    public double sinclairFactor(int year, Gender gender, Double bodyWeight) {
+        if (bodyWeight == null) {
+            return 0.0;
+        }
+        int y = year == 2024 ? 1 : 0;
+        int g = gender == Gender.M ? Gender.M.ordinal() : Gender.F.ordinal();
+        double maxWeight = sinclairMaxWeight[y][g];
+        if (bodyWeight >= maxWeight) {
+            return 1.0;
+        } else {
+            return Math.pow(10.0, sinclairCoefficient[y][g] * (Math.pow(Math.log10(bodyWeight / maxWeight), 2)));
+        }
+    }
+
+    /**
+     * @param year   Sinclair coefficients year, 2020 or 2024
+     * @param gender men's coefficients for M, women's otherwise
+     * @return the body weight above which the Sinclair factor is 1
+     */
+    public double sinclairMaxWeight(int year, Gender gender) {
+        return sinclairMaxWeight[year == 2024 ? 1 : 0][gender == Gender.M ? Gender.M.ordinal() : Gender.F.ordinal()];
+    }
+
+    private float[] loadSmf(SinclairCoefficients coefficients, Gender gender, int maxAge) {
+        float[] factors = new float[maxAge + 1];
+        for (int age = 0; age <= maxAge; age++) {
+            Float f = coefficients.getAgeGenderCoefficient(age, gender);
+            if (f == null) {
+                logger.error("missing {} age factor for age {}", gender, age);
+                f = 0.0F;
+            }
+            factors[age] = f;
+        }
+        return factors;
+    }
+
+}
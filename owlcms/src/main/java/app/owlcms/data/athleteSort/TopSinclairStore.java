@@ -0,0 +1,407 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.data.athleteSort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.ObjectUtils;
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.AthleteRepository;
+import app.owlcms.data.athlete.Gender;
+import app.owlcms.data.competition.Competition;
+import app.owlcms.data.group.Group;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * The best Sinclair scores of each gender, kept in memory between changes.
+ *
+ * The weighed-in athletes are loaded once, in the same order as the global Sinclair ranking, keeping only those that
+ * {@link AthleteSorter#topSinclair(List, int)} would keep. When an athlete is saved, or when ranks are recomputed after
+ * a lift, only the athletes involved are moved. What the displays render from the top athletes is kept until one of
+ * them changes, so that all the displays share it. A change that is not reported here shows up as a new
+ * {@link Competition#getResultsVersion()} and causes a reload.
+ *
+ * @author Jean-François Lamy
+ */
+public class TopSinclairStore {
+
+    /**
+     * The first athletes of a gender, and the best score of the gender.
+     */
+    public static class Top {
+        private final List<Athlete> athletes;
+        private final double best;
+
+        Top(List<Athlete> athletes, double best) {
+            this.athletes = Collections.unmodifiableList(athletes);
+            this.best = best;
+        }
+
+        public List<Athlete> getAthletes() {
+            return athletes;
+        }
+
+        /**
+         * @return the best score, which is the tentative score for athletes that have not started clean and jerk
+         */
+        public double getBest() {
+            return best;
+        }
+    }
+
+    /**
+     * An athlete and the values used to rank it, as they were when the athlete was added. The athletes of a field of
+     * play keep changing, the entries must not.
+     */
+    private static class Entry {
+        final Athlete athlete;
+        final long id;
+        final double sinclair;
+        final double score;
+        final boolean hasGroup;
+        final LocalDateTime sessionTime;
+        final double bodyWeight;
+        final int bestCleanJerk;
+        final int bestCleanJerkAttemptNumber;
+        final Integer lotNumber;
+
+        Entry(Athlete a) {
+            this.athlete = a;
+            this.id = a.getId();
+            this.sinclair = valueOrZero(a.getSinclair());
+            this.score = valueOrZero(a.getAttemptsDone() <= 3 ? a.getSinclairForDelta() : a.getSinclair());
+            Group g = a.getGroup();
+            this.hasGroup = g != null;
+            this.sessionTime = g != null ? g.getCompetitionTime() : null;
+            this.bodyWeight = valueOrZero(a.getBodyWeight());
+            this.bestCleanJerk = a.getBestCleanJerk();
+            this.bestCleanJerkAttemptNumber = a.getBestCleanJerkAttemptNumber();
+            this.lotNumber = a.getLotNumber();
+        }
+
+        private static double valueOrZero(Double d) {
+            return d != null ? d : 0.0D;
+        }
+    }
+
+    /**
+     * The kept athletes of a gender, and what was rendered from the first ones.
+     */
+    private static class GenderTop {
+        final Gender gender;
+        final TreeSet<Entry> ranked = new TreeSet<>(RANKING_ORDER);
+        final TreeSet<Entry> byScore = new TreeSet<>(SCORE_ORDER);
+        final Map<Long, Entry> byId = new HashMap<>();
+        final Map<String, Object> rendered = new HashMap<>();
+        /**
+         * the largest number of athletes rendered since the last change.
+         */
+        int renderedSize = 0;
+        /**
+         * incremented when what was rendered is discarded, a rendering started before must not be kept.
+         */
+        long renderedGeneration = 0;
+
+        GenderTop(Gender gender) {
+            this.gender = gender;
+        }
+
+        void add(Entry e) {
+            ranked.add(e);
+            byScore.add(e);
+            byId.put(e.id, e);
+        }
+
+        boolean isShown(Entry e) {
+            if (e == null) {
+                return false;
+            }
+            Iterator<Entry> it = ranked.iterator();
+            for (int i = 0; i < renderedSize && it.hasNext(); i++) {
+                if (it.next() == e) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Entry remove(long id) {
+            Entry e = byId.remove(id);
+            if (e != null) {
+                ranked.remove(e);
+                byScore.remove(e);
+            }
+            return e;
+        }
+
+        double best() {
+            return byScore.isEmpty() ? 0.0D : byScore.first().score;
+        }
+
+        Top top(int nbAthletes) {
+            List<Athlete> athletes = new ArrayList<>(Math.min(nbAthletes, ranked.size()));
+            Iterator<Entry> it = ranked.iterator();
+            while (athletes.size() < nbAthletes && it.hasNext()) {
+                athletes.add(it.next().athlete);
+            }
+            return new Top(athletes, best());
+        }
+
+        void update(Athlete a) {
+            double previousBest = best();
+            Entry previous = byId.get(a.getId());
+            boolean wasShown = isShown(previous);
+            remove(a.getId());
+            Entry e = a.getGender() == gender && isKept(a) ? new Entry(a) : null;
+            if (e != null) {
+                add(e);
+            }
+            if (wasShown || isShown(e) || best() != previousBest) {
+                rendered.clear();
+                renderedSize = 0;
+                renderedGeneration++;
+            }
+        }
+    }
+
+    /**
+     * Same order as {@link WinningOrderComparator#compareSinclairResultOrder(Athlete, Athlete)} for athletes of the
+     * same gender, down to the lot number; the attempts before the best clean and jerk are not compared.
+     */
+    private static final Comparator<Entry> RANKING_ORDER = (e1, e2) -> {
+        // bigger sinclair comes first
+        int compare = Double.compare(e2.sinclair, e1.sinclair);
+        if (compare != 0) {
+            return compare;
+        }
+        // earlier group time wins
+        compare = Boolean.compare(e1.hasGroup, e2.hasGroup);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = ObjectUtils.compare(e1.sessionTime, e2.sessionTime);
+        if (compare != 0) {
+            return compare;
+        }
+        // smaller athlete wins
+        compare = Double.compare(e1.bodyWeight, e2.bodyWeight);
+        if (compare != 0) {
+            return compare;
+        }
+        // smaller cj means total was reached earlier
+        compare = Integer.compare(e1.bestCleanJerk, e2.bestCleanJerk);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = Integer.compare(e1.bestCleanJerkAttemptNumber, e2.bestCleanJerkAttemptNumber);
+        if (compare != 0) {
+            return compare;
+        }
+        compare = ObjectUtils.compare(e1.lotNumber, e2.lotNumber);
+        if (compare != 0) {
+            return compare;
+        }
+        return Long.compare(e1.id, e2.id);
+    };
+
+    private static final Comparator<Entry> SCORE_ORDER = (e1, e2) -> {
+        int compare = Double.compare(e2.score, e1.score);
+        if (compare != 0) {
+            return compare;
+        }
+        return Long.compare(e1.id, e2.id);
+    };
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(TopSinclairStore.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    private static Map<Gender, GenderTop> genders;
+    private static long version = -1;
+
+    /**
+     * Take into account an athlete just saved.
+     *
+     * @param a              the athlete as saved
+     * @param resultsVersion the results version produced by the save
+     */
+    public static synchronized void athleteSaved(Athlete a, long resultsVersion) {
+        if (a == null || genders == null) {
+            return;
+        }
+        if (version == resultsVersion - 1 || version == resultsVersion) {
+            update(a);
+            version = resultsVersion;
+        } else {
+            // another change took place in between, reload everything.
+            clear();
+        }
+    }
+
+    /**
+     * Take into account athletes whose results or requested weights have changed.
+     *
+     * @param athletes
+     * @param resultsVersion the results version the athletes reflect
+     */
+    public static synchronized void athletesUpdated(Collection<Athlete> athletes, long resultsVersion) {
+        if (genders == null) {
+            return;
+        }
+        if (version != resultsVersion - 1 && version != resultsVersion) {
+            // another change took place in between, reload everything.
+            clear();
+            return;
+        }
+        long start = System.nanoTime();
+        for (Athlete a : athletes) {
+            update(a);
+        }
+        version = resultsVersion;
+        logger.debug("updated {} athletes in {} ms", athletes.size(), (System.nanoTime() - start) / 1000000.0);
+    }
+
+    /**
+     * Discard everything, the next request loads from the database.
+     */
+    public static synchronized void clear() {
+        genders = null;
+    }
+
+    /**
+     * Something computed from the first athletes of a gender, such as the content of a display.
+     *
+     * @param gender
+     * @param nbAthletes how many athletes are shown
+     * @param key        identifies what is rendered, for example the locale
+     * @param renderer   computes the value from the first athletes
+     * @return the value, rendered again only when one of the first athletes, or the best score, has changed
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getRendered(Gender gender, int nbAthletes, String key, Function<Top, T> renderer) {
+        GenderTop gt = current().get(gender);
+        if (gt == null) {
+            return renderer.apply(new Top(Collections.emptyList(), 0.0D));
+        }
+        String renderedKey = nbAthletes + "/" + key;
+        Top top;
+        long generation;
+        synchronized (TopSinclairStore.class) {
+            Object value = gt.rendered.get(renderedKey);
+            if (value != null) {
+                return (T) value;
+            }
+            // from now on, a change to one of these athletes discards what is being rendered.
+            gt.renderedSize = Math.max(gt.renderedSize, nbAthletes);
+            top = gt.top(nbAthletes);
+            generation = gt.renderedGeneration;
+        }
+        // saves and rank updates do not wait for the rendering.
+        T value = renderer.apply(top);
+        synchronized (TopSinclairStore.class) {
+            if (value != null && gt.renderedGeneration == generation) {
+                Object previous = gt.rendered.putIfAbsent(renderedKey, value);
+                if (previous != null) {
+                    return (T) previous;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @param gender
+     * @param nbAthletes
+     * @return the first athletes of the gender in the global Sinclair ranking, as kept by
+     *         {@link AthleteSorter#topSinclair(List, int)}
+     */
+    public static Top getTop(Gender gender, int nbAthletes) {
+        GenderTop gt = current().get(gender);
+        synchronized (TopSinclairStore.class) {
+            return gt != null ? gt.top(nbAthletes) : new Top(Collections.emptyList(), 0.0D);
+        }
+    }
+
+    /**
+     * The athletes kept for the current results version. The database is read outside the lock, so that saves and
+     * rank updates do not wait for it; the result is kept unless a more recent one was kept in the meantime.
+     */
+    private static Map<Gender, GenderTop> current() {
+        long current;
+        synchronized (TopSinclairStore.class) {
+            current = Competition.getResultsVersion();
+            if (genders != null && version == current) {
+                return genders;
+            }
+        }
+        // the version is read first, a change made during the load causes another one.
+        Map<Gender, GenderTop> loaded = load();
+        synchronized (TopSinclairStore.class) {
+            if (genders == null || version < current) {
+                genders = loaded;
+                version = current;
+            }
+            return genders;
+        }
+    }
+
+    private static boolean isKept(Athlete a) {
+        if (a.getId() == null || (a.getGender() != Gender.M && a.getGender() != Gender.F)) {
+            return false;
+        }
+        // same condition as the weighed-in athletes of the global rankings
+        if (a.getBodyWeight() == null || a.getBodyWeight() <= 0) {
+            return false;
+        }
+        // same condition as AthleteSorter.topSinclair
+        Double score = a.getAttemptsDone() <= 3 ? a.getSinclairForDelta() : a.getSinclair();
+        return score != null && score > 0;
+    }
+
+    private static Map<Gender, GenderTop> load() {
+        long start = System.nanoTime();
+        Map<Gender, GenderTop> loaded = new EnumMap<>(Gender.class);
+        loaded.put(Gender.M, new GenderTop(Gender.M));
+        loaded.put(Gender.F, new GenderTop(Gender.F));
+        List<Athlete> athletes = AthleteRepository.findAllByGroupAndWeighIn(null, true);
+        for (Athlete a : athletes) {
+            if (isKept(a)) {
+                loaded.get(a.getGender()).add(new Entry(a));
+            }
+        }
+        logger.debug("loaded {} athletes in {} ms", athletes.size(), (System.nanoTime() - start) / 1000000.0);
+        return loaded;
+    }
+
+    private static void update(Athlete a) {
+        if (a.getId() == null) {
+            return;
+        }
+        // the gender may have been changed
+        for (GenderTop gt : genders.values()) {
+            if (gt.byId.containsKey(a.getId()) || gt.gender == a.getGender()) {
+                gt.update(a);
+            }
+        }
+    }
+
+}
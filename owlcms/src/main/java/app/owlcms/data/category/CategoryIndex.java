@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.data.category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import app.owlcms.data.agegroup.AgeGroup;
+import app.owlcms.data.athlete.Gender;
+
+/**
+ * Active categories indexed by gender and body weight, in registration preference order.
+ *
+ * The index is immutable and only keeps what the searches compare, with the category ids. Body weights are split in
+ * intervals between consecutive category limits; each interval lists the categories that contain it, so a body weight
+ * search is a binary search followed by a filter on age and age division. The matching rules are those of the queries
+ * in {@link CategoryRepository}: minimum weight excluded, maximum weight included, both age limits included.
+ *
+ * @author Jean-François Lamy
+ */
+class CategoryIndex {
+
+    private static class Entry {
+        final Long id;
+        final Gender gender;
+        final AgeDivision ageDivision;
+        final Integer minAge;
+        final Integer maxAge;
+        final Double minimumWeight;
+        final Double maximumWeight;
+
+        Entry(Category c) {
+            AgeGroup ag = c.getAgeGroup();
+            id = c.getId();
+            gender = c.getGender();
+            ageDivision = ag != null ? ag.getAgeDivision() : null;
+            minAge = ag != null ? ag.getMinAge() : null;
+            maxAge = ag != null ? ag.getMaxAge() : null;
+            minimumWeight = c.getMinimumWeight();
+            maximumWeight = c.getMaximumWeight();
+        }
+
+        boolean matches(AgeDivision ad, Integer age) {
+            if (ad != null && ageDivision != ad) {
+                return false;
+            }
+            if (age != null && (minAge == null || maxAge == null || minAge > age || maxAge < age)) {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The categories of one gender, or of all genders.
+     */
+    private static class Intervals {
+        final Entry[] all;
+        // bounds[j-1] < bodyWeight <= bounds[j] is served by slots[j]; slots[0] is not used
+        final double[] bounds;
+        final Entry[][] slots;
+
+        Intervals(List<Entry> entries) {
+            all = entries.toArray(new Entry[0]);
+            TreeSet<Double> limits = new TreeSet<>();
+            for (Entry e : all) {
+                if (e.minimumWeight != null && e.maximumWeight != null) {
+                    limits.add(e.minimumWeight);
+                    limits.add(e.maximumWeight);
+                }
+            }
+            bounds = new double[limits.size()];
+            int k = 0;
+            for (Double d : limits) {
+                bounds[k++] = d;
+            }
+            slots = new Entry[bounds.length][];
+            for (int j = 1; j < bounds.length; j++) {
+                List<Entry> slot = new ArrayList<>();
+                for (Entry e : all) {
+                    if (e.minimumWeight != null && e.maximumWeight != null
+                            && e.minimumWeight <= bounds[j - 1] && e.maximumWeight >= bounds[j]) {
+                        slot.add(e);
+                    }
+                }
+                slots[j] = slot.toArray(new Entry[0]);
+            }
+        }
+
+        Entry[] candidates(Double bodyWeight) {
+            if (bodyWeight == null) {
+                return all;
+            }
+            int j = Arrays.binarySearch(bounds, bodyWeight);
+            if (j < 0) {
+                j = -j - 1;
+            }
+            if (j == 0 || j >= bounds.length) {
+                return NONE;
+            }
+            return slots[j];
+        }
+    }
+
+    private static final Entry[] NONE = new Entry[0];
+
+    private final Intervals anyGender;
+    private final Map<Gender, Intervals> byGender = new EnumMap<>(Gender.class);
+
+    /**
+     * @param activeCategories in registration preference order
+     */
+    CategoryIndex(List<Category> activeCategories) {
+        List<Entry> entries = new ArrayList<>(activeCategories.size());
+        for (Category c : activeCategories) {
+            entries.add(new Entry(c));
+        }
+        anyGender = new Intervals(entries);
+        for (Gender g : Gender.values()) {
+            List<Entry> ge = new ArrayList<>();
+            for (Entry e : entries) {
+                if (e.gender == g) {
+                    ge.add(e);
+                }
+            }
+            byGender.put(g, new Intervals(ge));
+        }
+    }
+
+    /**
+     * @param gender      null for any
+     * @param ageDivision null for any
+     * @param age         null for any
+     * @param bodyWeight  null for any
+     * @return ids of the matching categories, in registration preference order
+     */
+    List<Long> find(Gender gender, AgeDivision ageDivision, Integer age, Double bodyWeight) {
+        Intervals intervals = gender != null ? byGender.get(gender) : anyGender;
+        List<Long> found = new ArrayList<>();
+        for (Entry e : intervals.candidates(bodyWeight)) {
+            if (e.matches(ageDivision, age)) {
+                found.add(e.id);
+            }
+        }
+        return found;
+    }
+
+}
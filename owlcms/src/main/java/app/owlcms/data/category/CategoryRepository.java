@@ -6,9 +6,13 @@
  *******************************************************************************/
 package app.owlcms.data.category;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
@@ -32,6 +36,10 @@ public class CategoryRepository {
         logger.setLevel(Level.INFO);
     }
 
+    private static final AtomicLong indexVersion = new AtomicLong();
+    private static CategoryIndex index;
+    private static long indexedVersion = -1;
+
     /**
      * Count filtered.
      *
@@ -66,6 +74,7 @@ public class CategoryRepository {
             em.remove(getById(Category.getId(), em));
             return null;
         });
+        invalidateIndex();
     }
 
     public static Integer doCountFiltered(String name, Gender gender, AgeDivision ageDivision, AgeGroup ageGroup,
@@ -122,21 +131,11 @@ public class CategoryRepository {
      * @return active categories
      */
     public static List<Category> findActive() {
-        List<Category> findFiltered = findFiltered((String) null, (Gender) null, (AgeDivision) null, (AgeGroup) null,
-                (Integer) null, (Double) null,
-                true, -1, -1);
-        findFiltered.sort(new RegistrationPreferenceComparator());
-        return findFiltered;
+        return findIndexed(null, null, null, null);
     }
 
     public static Collection<Category> findActive(Gender gender, Double bodyWeight) {
-        List<Category> findFiltered = findFiltered((String) null, gender, (AgeDivision) null, (AgeGroup) null,
-                (Integer) null,
-                bodyWeight, true, -1, -1);
-        // sort comparison to put more specific category age before. M30 before O21, O21 also before SR (MASTERS, then
-        // U, then IWF/other)
-        findFiltered.sort(new RegistrationPreferenceComparator());
-        return findFiltered;
+        return findIndexed(gender, null, null, bodyWeight);
     }
 
     /**
@@ -147,7 +146,7 @@ public class CategoryRepository {
     @SuppressWarnings("unchecked")
     public static List<Category> findAll() {
         return JPAService
-                .runInTransaction(em -> em.createQuery("select c from Category c order by c.name").getResultList());
+                .runReadOnly(em -> em.createQuery("select c from Category c order by c.name").getResultList());
     }
 
     /**
@@ -157,28 +156,48 @@ public class CategoryRepository {
      * @return the category
      */
     public static Category findByCode(String string) {
-        return JPAService.runInTransaction(em -> {
+        return JPAService.runReadOnly(em -> {
             return doFindByCode(string, em);
         });
     }
 
     public static List<Category> findByGenderAgeBW(Gender gender, Integer age, Double bodyWeight) {
-        Boolean active = true;
-        List<Category> findFiltered = findFiltered((String) null, gender, (AgeDivision) null, (AgeGroup) null, age,
-                bodyWeight, active, -1, -1);
-        // sort comparison to put more specific category age before. M30 before O21, O21 also before SR (MASTERS, then
-        // U, then IWF/other)
-        findFiltered.sort(new RegistrationPreferenceComparator());
-        return findFiltered;
+        return findIndexed(gender, null, age, bodyWeight);
+    }
+
+    /**
+     * In-memory equivalent of {@link #findByGenderAgeBW(Gender, Integer, Double)}, for bulk operations that have
+     * loaded the active categories once.
+     *
+     * @param activeCategories active categories, sorted as returned by {@link #findActive()}
+     * @param gender
+     * @param age
+     * @param bodyWeight
+     * @return the matching categories, in registration preference order
+     */
+    public static List<Category> filterByGenderAgeBW(List<Category> activeCategories, Gender gender, Integer age,
+            Double bodyWeight) {
+        List<Category> found = new ArrayList<>();
+        for (Category c : activeCategories) {
+            AgeGroup ag = c.getAgeGroup();
+            if (gender != null && c.getGender() != gender) {
+                continue;
+            }
+            if (age != null && (ag == null || ag.getMinAge() > age || ag.getMaxAge() < age)) {
+                continue;
+            }
+            if (bodyWeight != null
+                    && (c.getMinimumWeight() >= bodyWeight || c.getMaximumWeight() < bodyWeight)) {
+                continue;
+            }
+            found.add(c);
+        }
+        return found;
     }
 
     public static List<Category> findByGenderDivisionAgeBW(Gender gender, AgeDivision ageDivision, Integer age,
             Double bodyWeight) {
-        Boolean active = true;
-        List<Category> findFiltered = findFiltered((String) null, gender, ageDivision, (AgeGroup) null, age, bodyWeight,
-                active, -1, -1);
-        findFiltered.sort(new RegistrationPreferenceComparator());
-        return findFiltered;
+        return findIndexed(gender, ageDivision, age, bodyWeight);
     }
 
     /**
@@ -188,7 +207,7 @@ public class CategoryRepository {
      * @return the category
      */
     public static Category findByName(String string) {
-        return JPAService.runInTransaction(em -> {
+        return JPAService.runReadOnly(em -> {
             return doFindByName(string, em);
         });
     }
@@ -205,7 +224,7 @@ public class CategoryRepository {
      */
     public static List<Category> findFiltered(String name, Gender gender, AgeDivision ageDivision, AgeGroup ageGroup,
             Integer age, Double bodyWeight, Boolean active, int offset, int limit) {
-        return JPAService.runInTransaction(em -> {
+        return JPAService.runReadOnly(em -> {
             List<Category> doFindFiltered = doFindFiltered(em, name, gender, ageDivision, ageGroup, age, bodyWeight,
                     active, offset, limit);
             // logger.trace("found {} searching for {} {} {} {} {}", doFindFiltered.size(), gender, ageDivision, age,
@@ -239,6 +258,7 @@ public class CategoryRepository {
             em.flush();
             return null;
         });
+        invalidateIndex();
 
     }
 
@@ -257,6 +277,13 @@ public class CategoryRepository {
         return (Category) query.getResultList().stream().findFirst().orElse(null);
     }
 
+    /**
+     * The active categories are indexed in memory; any change to categories or age groups must call this.
+     */
+    public static void invalidateIndex() {
+        indexVersion.incrementAndGet();
+    }
+
     /**
      * Save.
      *
@@ -264,11 +291,32 @@ public class CategoryRepository {
      * @return the category
      */
     public static Category save(Category category) {
-        return JPAService.runInTransaction(em -> {
+        Category nCategory = JPAService.runInTransaction(em -> {
             // code must match inside info for string-based matches in db.
             category.setCode(category.getComputedCode());
             return em.merge(category);
         });
+        invalidateIndex();
+        return nCategory;
+    }
+
+    /**
+     * Active categories matching the criteria, sorted to put more specific category age before: M30 before O21, O21
+     * also before SR (MASTERS, then U, then IWF/other).
+     *
+     * The search is done on the in-memory index. The categories themselves are obtained by id, from the second-level
+     * cache, because callers attach participations to them and they must not be shared.
+     */
+    private static List<Category> findIndexed(Gender gender, AgeDivision ageDivision, Integer age,
+            Double bodyWeight) {
+        List<Long> ids = getIndex().find(gender, ageDivision, age, bodyWeight);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return JPAService.runReadOnly(em -> ids.stream()
+                .map(id -> em.find(Category.class, id))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(ArrayList::new)));
     }
 
     private static String filteringJoins(AgeGroup ag, Integer age) {
@@ -328,6 +376,20 @@ public class CategoryRepository {
         }
     }
 
+    private static synchronized CategoryIndex getIndex() {
+        // read the version before the query, a change made during the query will cause another read
+        long current = indexVersion.get();
+        if (index == null || indexedVersion != current) {
+            List<Category> active = findFiltered((String) null, (Gender) null, (AgeDivision) null, (AgeGroup) null,
+                    (Integer) null, (Double) null, true, -1, -1);
+            active.sort(new RegistrationPreferenceComparator());
+            index = new CategoryIndex(active);
+            indexedVersion = current;
+            logger.debug("indexed {} active categories, version {}", active.size(), current);
+        }
+        return index;
+    }
+
     private static void setFilteringParameters(String name, Gender gender, AgeDivision ageDivision, AgeGroup ageGroup,
             Integer age, Double bodyWeight, Boolean active, Query query) {
         if (name != null && name.trim().length() > 0) {
@@ -72,19 +72,13 @@ public class RobiCategories {
         if (a.getBodyWeight() == null || a.getBodyWeight() < 0.1) {
             return null;
         }
-        if (jrSrReferenceCategories == null) {
-            loadJrSrReferenceCategories();
-        }
-        if (ythReferenceCategories == null) {
-            loadYthReferenceCategories();
-        }
         RobiCategories x = new RobiCategories();
         List<Category> categories;
         Integer age = a.getAge();
         if (age != null && age <= 17) {
-            categories = ythReferenceCategories;
+            categories = getYthReferenceCategories();
         } else {
-            categories = jrSrReferenceCategories;
+            categories = getJrSrReferenceCategories();
         }
         int index = Collections.binarySearch(categories,
                 new Category(a.getBodyWeight(), a.getBodyWeight(), a.getGender(), true, 0, 0, 0, null, 0),
@@ -97,6 +91,26 @@ public class RobiCategories {
         }
     }
 
+    /**
+     * @return the IWF categories with a senior world record, sorted, loaded on first use
+     */
+    public static synchronized List<Category> getJrSrReferenceCategories() {
+        if (jrSrReferenceCategories == null) {
+            loadJrSrReferenceCategories();
+        }
+        return jrSrReferenceCategories;
+    }
+
+    /**
+     * @return the IWF categories with a youth world record, sorted, loaded on first use
+     */
+    public static synchronized List<Category> getYthReferenceCategories() {
+        if (ythReferenceCategories == null) {
+            loadYthReferenceCategories();
+        }
+        return ythReferenceCategories;
+    }
+
     @SuppressWarnings("unused")
     private static String dumpCat(Category c) {
         StringBuilder sb = new StringBuilder();
@@ -21,7 +21,9 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.persistence.Cacheable;
@@ -52,6 +54,7 @@ import app.owlcms.data.category.Participation;
 import app.owlcms.data.config.Config;
 import app.owlcms.data.group.Group;
 import app.owlcms.data.group.GroupRepository;
+import app.owlcms.data.jpa.QueryCounter;
 import app.owlcms.i18n.Translator;
 import app.owlcms.init.OwlcmsSession;
 import app.owlcms.spreadsheet.PAthlete;
@@ -72,6 +75,12 @@ public class Competition {
     public static final int SHORT_TEAM_LENGTH = 6;
     private static Competition competition;
 
+    /**
+     * Incremented every time the rankings are invalidated, i.e. whenever athlete data changes. Used as a validator by
+     * clients that only need to know whether results have changed.
+     */
+    private static final AtomicLong resultsVersion = new AtomicLong();
+
     @Transient
     final static private Logger logger = (Logger) LoggerFactory.getLogger(Competition.class);
 
@@ -92,8 +101,16 @@ public class Competition {
         return competition;
     }
 
+    /**
+     * @return a number that changes whenever athlete results may have changed
+     */
+    public static long getResultsVersion() {
+        return resultsVersion.get();
+    }
+
     public static void setCurrent(Competition c) {
         competition = c;
+        resultsVersion.incrementAndGet();
     }
 
     public static void splitByGender(List<Athlete> athletes, List<Athlete> sortedMen, List<Athlete> sortedWomen) {
@@ -169,7 +186,7 @@ public class Competition {
 
     @Transient
     @JsonIgnore
-    private HashMap<Group, TreeMap<Category, TreeSet<Athlete>>> medalsByGroup;
+    private MedalsStore medalsStore;
 
     private String medalsTemplateFileName;
 
@@ -253,7 +270,7 @@ public class Competition {
     private String teamsListTemplateFileName;
 
     public Competition() {
-        medalsByGroup = new HashMap<>();
+        medalsStore = new MedalsStore();
     }
 
     /**
@@ -261,8 +278,9 @@ public class Competition {
      * @return for each category represented in group g where all athletes have lifted, the medals
      */
     public TreeMap<Category, TreeSet<Athlete>> computeMedals(Group g) {
+        long resultsVersion = getResultsVersion();
         List<Athlete> rankedAthletes = AthleteRepository.findAthletesForGlobalRanking(g);
-        return computeMedals(g, rankedAthletes);
+        return computeMedals(g, rankedAthletes, resultsVersion);
     }
 
     /**
@@ -272,96 +290,39 @@ public class Competition {
      * @return for each category, medal-winnning athletes in snatch, clean & jerk and total.
      */
     public TreeMap<Category, TreeSet<Athlete>> computeMedals(Group g, List<Athlete> rankedAthletes) {
+        return computeMedals(g, rankedAthletes, getResultsVersion());
+    }
+
+    /**
+     * Compute the medals of a group and keep them for the displays.
+     *
+     * @param g
+     * @param rankedAthletes athletes participating in the group, plus athletes in the same category that have yet to
+     *                       compete
+     * @param resultsVersion the {@link #getResultsVersion()} read before fetching the athletes
+     * @return for each category, medal-winnning athletes in snatch, clean & jerk and total.
+     */
+    public TreeMap<Category, TreeSet<Athlete>> computeMedals(Group g, List<Athlete> rankedAthletes,
+            long resultsVersion) {
         if (g == null) {
             return new TreeMap<>();
         }
-        if (medalsByGroup == null) {
-            logger.error("no initialization !?");
-            medalsByGroup = new HashMap<>();
-        }
-        if (rankedAthletes == null || rankedAthletes.size() == 0) {
-            TreeMap<Category, TreeSet<Athlete>> treeMap = new TreeMap<>();
-            medalsByGroup.put(g, treeMap);
-            return treeMap;
-        }
-
-        // extract all categories
-        Set<Category> medalCategories = rankedAthletes.stream()
-                .map(a -> a.getEligibleCategories())
-                .flatMap(Collection::stream)
-                .collect(Collectors.toSet());
-
-        // exclude categories where athletes still have to lift
-        Set<Category> notDone = rankedAthletes.stream()
-                .filter(a -> a.getSnatch1AsInteger() == null)
-                .map(a -> a.getCategory())
-                .collect(Collectors.toSet());
-        // logger.debug("medalCategories: all {} notDone {}", medalCategories, notDone);
-        medalCategories.removeAll(notDone);
-
-        TreeMap<Category, TreeSet<Athlete>> medals = new TreeMap<>();
-
-        // iterate over the remaining categories
-        for (Category category : medalCategories) {
-
-            List<Athlete> currentCategoryAthletes = new ArrayList<>();
-            for (Athlete a : rankedAthletes) {
-                // fetch the participation that matches the current athlete registration category
-                Optional<Participation> matchingParticipation = a.getParticipations().stream()
-                        .filter(p -> p.getCategory().sameAs(category)).findFirst();
-                // get a PAthlete proxy wrapper that has the rankings for that participation
-                if (matchingParticipation.isPresent()) {
-                    currentCategoryAthletes.add(new PAthlete(matchingParticipation.get()));
-                }
-            }
-
-            // all rankings are from a PAthlete, i.e., for the current medal category
-            List<Athlete> snatchLeaders = null;
-            List<Athlete> cjLeaders = null;
-            if (isSnatchCJTotalMedals()) {
-                snatchLeaders = AthleteSorter.resultsOrderCopy(currentCategoryAthletes, Ranking.SNATCH)
-                        .stream().filter(a -> a.getBestSnatch() > 0 && a.isEligibleForIndividualRanking())
-                        .limit(3)
-                        .collect(Collectors.toList());
-                cjLeaders = AthleteSorter.resultsOrderCopy(currentCategoryAthletes, Ranking.CLEANJERK)
-                        .stream().filter(a -> a.getBestCleanJerk() > 0 && a.isEligibleForIndividualRanking())
-                        .limit(3)
-                        .collect(Collectors.toList());
-            }
-            List<Athlete> totalLeaders = AthleteSorter.resultsOrderCopy(currentCategoryAthletes, Ranking.TOTAL)
-                    .stream().filter(a -> a.getTotal() > 0 && a.isEligibleForIndividualRanking())
-                    .limit(3)
-                    .collect(Collectors.toList());
-
-            // Athletes excluded from Total due to bombing out can still win medals, so we add them
-            TreeSet<Athlete> medalists = new TreeSet<>(new WinningOrderComparator(Ranking.TOTAL, false));
-            medalists.addAll(totalLeaders);
-            if (isSnatchCJTotalMedals()) {
-                medalists.addAll(cjLeaders);
-                medalists.addAll(snatchLeaders);
-            }
-            medals.put(category, medalists);
-
-//            logger.debug("medalists for {}", category);
-//            for (Athlete medalist : medalists) {
-//                logger.debug("{}\t{} {} {} S {}", medalist.getShortName(), medalist.getSnatchRank(),
-//                        medalist.getCleanJerkRank(), medalist.getTotalRank(), medalist.getSinclairRank());
-//            }
-        }
-        medalsByGroup.put(g, medals);
+        TreeMap<Category, TreeSet<Athlete>> medals = doComputeMedals(rankedAthletes);
+        getMedalsStore().put(g, medals, resultsVersion);
         return medals;
     }
 
     synchronized public HashMap<String, Object> computeReportingInfo() {
-        List<Athlete> athletes = AgeGroupRepository.allWeighedInPAthletesForAgeGroupAgeDivision(null, null);
-        doComputeReportingInfo(true, athletes, (String) null, null);
-        return reportingBeans;
+        return computeReportingInfo((String) null, (AgeDivision) null);
     }
 
     synchronized public HashMap<String, Object> computeReportingInfo(String ageGroupPrefix, AgeDivision ad) {
-        List<Athlete> athletes = AgeGroupRepository.allWeighedInPAthletesForAgeGroupAgeDivision(ageGroupPrefix, ad);
-        doComputeReportingInfo(true, athletes, ageGroupPrefix, ad);
-        return reportingBeans;
+        try (QueryCounter.Scope s = QueryCounter.scope("computeReportingInfo")) {
+            List<Athlete> athletes = AgeGroupRepository.allWeighedInPAthletesForAgeGroupAgeDivision(ageGroupPrefix,
+                    ad);
+            doComputeReportingInfo(true, athletes, ageGroupPrefix, ad);
+            return reportingBeans;
+        }
     }
 
     @Override
@@ -656,7 +617,8 @@ public class Competition {
     synchronized public List<Athlete> getListOrElseRecompute(String listName) {
         List<Athlete> athletes = (List<Athlete>) reportingBeans.get(listName);
         if (isRankingsInvalid() || athletes == null) {
-            setRankingsInvalid(true);
+            // reading does not change the results, the version must not move.
+            this.rankingsInvalid = true;
             while (isRankingsInvalid()) { // could be made invalid again while we compute
                 setRankingsInvalid(false);
                 // recompute because an athlete has been saved (new weight requested, good/bad lift, etc.)
@@ -701,22 +663,36 @@ public class Competition {
         return isMasters();
     }
 
+    /**
+     * @param g
+     * @return the medals of the group, computed once per results version
+     */
     public TreeMap<Category, TreeSet<Athlete>> getMedals(Group g) {
-        TreeMap<Category, TreeSet<Athlete>> medals;
-        if (medalsByGroup == null || (medals = medalsByGroup.get(g)) == null) {
-            medals = computeMedals(g);
+        if (g == null) {
+            return new TreeMap<>();
         }
-        return medals;
-
+        return getMedalsStore().get(g, () -> doComputeMedals(AthleteRepository.findAthletesForGlobalRanking(g)));
     }
 
     public TreeSet<Athlete> getMedals(Group g, Category c) {
-        TreeMap<Category, TreeSet<Athlete>> medals;
-        if (medalsByGroup == null || (medals = medalsByGroup.get(g)) == null) {
-            medals = computeMedals(g);
-        }
-        return medals.get(c);
+        return getMedals(g).get(c);
+    }
 
+    /**
+     * A value computed from the medals of a group, such as a medals display, shared by all the displays that ask for
+     * it until the results change.
+     *
+     * @param g        the group
+     * @param key      identifies what is rendered
+     * @param renderer computes the value from the medals
+     * @return the value for the current medals of the group
+     */
+    public <T> T getMedalsRendering(Group g, String key, Function<TreeMap<Category, TreeSet<Athlete>>, T> renderer) {
+        if (g == null) {
+            return renderer.apply(new TreeMap<>());
+        }
+        return getMedalsStore().getRendered(g, key,
+                () -> doComputeMedals(AthleteRepository.findAthletesForGlobalRanking(g)), renderer);
     }
 
     @Transient
@@ -1063,8 +1039,21 @@ public class Competition {
         this.protocolTemplateFileName = protocolFileName;
     }
 
+    /**
+     * Same as {@link #setRankingsInvalid(boolean)} with true, for a change that is reported separately.
+     *
+     * @return the results version that identifies this change
+     */
+    synchronized public long invalidateRankings() {
+        this.rankingsInvalid = true;
+        return resultsVersion.incrementAndGet();
+    }
+
     synchronized public void setRankingsInvalid(boolean invalid) {
         this.rankingsInvalid = invalid;
+        if (invalid) {
+            resultsVersion.incrementAndGet();
+        }
     }
 
     public void setRefereeWakeUpDelay(int refereeWakeUpDelay) {
@@ -1224,6 +1213,82 @@ public class Competition {
         getOrCreateBean("mwCustom" + suffix).clear();
     }
 
+    /**
+     * @param rankedAthletes athletes participating in a group, plus athletes in the same category that have yet to
+     *                       compete
+     * @return for each category where all athletes have lifted, the medal-winning athletes
+     */
+    private TreeMap<Category, TreeSet<Athlete>> doComputeMedals(List<Athlete> rankedAthletes) {
+        if (rankedAthletes == null || rankedAthletes.size() == 0) {
+            return new TreeMap<>();
+        }
+
+        // extract all categories
+        Set<Category> medalCategories = rankedAthletes.stream()
+                .map(a -> a.getEligibleCategories())
+                .flatMap(Collection::stream)
+                .collect(Collectors.toSet());
+
+        // exclude categories where athletes still have to lift
+        Set<Category> notDone = rankedAthletes.stream()
+                .filter(a -> a.getSnatch1AsInteger() == null)
+                .map(a -> a.getCategory())
+                .collect(Collectors.toSet());
+        // logger.debug("medalCategories: all {} notDone {}", medalCategories, notDone);
+        medalCategories.removeAll(notDone);
+
+        TreeMap<Category, TreeSet<Athlete>> medals = new TreeMap<>();
+
+        // iterate over the remaining categories
+        for (Category category : medalCategories) {
+
+            List<Athlete> currentCategoryAthletes = new ArrayList<>();
+            for (Athlete a : rankedAthletes) {
+                // fetch the participation that matches the current athlete registration category
+                Optional<Participation> matchingParticipation = a.getParticipations().stream()
+                        .filter(p -> p.getCategory().sameAs(category)).findFirst();
+                // get a PAthlete proxy wrapper that has the rankings for that participation
+                if (matchingParticipation.isPresent()) {
+                    currentCategoryAthletes.add(new PAthlete(matchingParticipation.get()));
+                }
+            }
+
+            // all rankings are from a PAthlete, i.e., for the current medal category
+            List<Athlete> snatchLeaders = null;
+            List<Athlete> cjLeaders = null;
+            if (isSnatchCJTotalMedals()) {
+                snatchLeaders = AthleteSorter.resultsOrderCopy(currentCategoryAthletes, Ranking.SNATCH)
+                        .stream().filter(a -> a.getBestSnatch() > 0 && a.isEligibleForIndividualRanking())
+                        .limit(3)
+                        .collect(Collectors.toList());
+                cjLeaders = AthleteSorter.resultsOrderCopy(currentCategoryAthletes, Ranking.CLEANJERK)
+                        .stream().filter(a -> a.getBestCleanJerk() > 0 && a.isEligibleForIndividualRanking())
+                        .limit(3)
+                        .collect(Collectors.toList());
+            }
+            List<Athlete> totalLeaders = AthleteSorter.resultsOrderCopy(currentCategoryAthletes, Ranking.TOTAL)
+                    .stream().filter(a -> a.getTotal() > 0 && a.isEligibleForIndividualRanking())
+                    .limit(3)
+                    .collect(Collectors.toList());
+
+            // Athletes excluded from Total due to bombing out can still win medals, so we add them
+            TreeSet<Athlete> medalists = new TreeSet<>(new WinningOrderComparator(Ranking.TOTAL, false));
+            medalists.addAll(totalLeaders);
+            if (isSnatchCJTotalMedals()) {
+                medalists.addAll(cjLeaders);
+                medalists.addAll(snatchLeaders);
+            }
+            medals.put(category, medalists);
+
+//            logger.debug("medalists for {}", category);
+//            for (Athlete medalist : medalists) {
+//                logger.debug("{}\t{} {} {} S {}", medalist.getShortName(), medalist.getSnatchRank(),
+//                        medalist.getCleanJerkRank(), medalist.getTotalRank(), medalist.getSinclairRank());
+//            }
+        }
+        return medals;
+    }
+
     private void doComputeReportingInfo(boolean full, List<Athlete> athletes, String ageGroupPrefix,
             AgeDivision ad) {
         // reporting does many database queries. fork a low-priority thread.
@@ -1314,6 +1379,14 @@ public class Competition {
         AthleteSorter.teamPointsOrder(sortedWomen, Ranking.BW_SINCLAIR);
     }
 
+    private MedalsStore getMedalsStore() {
+        if (medalsStore == null) {
+            logger.error("no initialization !?");
+            medalsStore = new MedalsStore();
+        }
+        return medalsStore;
+    }
+
     private String getMedalsTemplateFileName() {
         return medalsTemplateFileName;
     }
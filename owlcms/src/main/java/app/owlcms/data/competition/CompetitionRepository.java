@@ -13,7 +13,9 @@ import javax.persistence.Query;
 
 import org.slf4j.LoggerFactory;
 
+import app.owlcms.data.category.CategoryRepository;
 import app.owlcms.data.jpa.JPAService;
+import app.owlcms.data.records.RecordRepository;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 
@@ -71,7 +73,7 @@ public class CompetitionRepository {
      */
     @SuppressWarnings("unchecked")
     public static List<Competition> findAll() {
-        return JPAService.runInTransaction(em -> em.createQuery("select c from Competition c").getResultList());
+        return JPAService.runReadOnly(em -> em.createQuery("select c from Competition c").getResultList());
     }
 
     /**
@@ -94,6 +96,8 @@ public class CompetitionRepository {
             doRemoveAll(em);
             return null;
         });
+        RecordRepository.invalidateCache();
+        CategoryRepository.invalidateIndex();
     }
 
     /**
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.data.competition;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.category.Category;
+import app.owlcms.data.group.Group;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * The medals of each group, and what the displays render from them, kept until the results change.
+ *
+ * Each entry is stamped with the {@link Competition#getResultsVersion()} read before its athletes were fetched. An
+ * entry from an older version is computed again on next use, once, however many displays ask for it at the same time.
+ * The field of play replaces the entry of its group whenever it recomputes ranks, so the displays of the group being
+ * lifted are served from memory.
+ *
+ * @author Jean-François Lamy
+ */
+class MedalsStore {
+
+    private static class Entry {
+        final long version;
+        final TreeMap<Category, TreeSet<Athlete>> medals;
+        final Map<String, Object> rendered = new ConcurrentHashMap<>();
+
+        Entry(long version, TreeMap<Category, TreeSet<Athlete>> medals) {
+            this.version = version;
+            this.medals = medals;
+        }
+    }
+
+    /**
+     * The medals of a group being computed for a results version. Whoever asks for that version, or an older one,
+     * waits for the same result.
+     */
+    private static class Computation {
+        final long version;
+        final CompletableFuture<Entry> result = new CompletableFuture<>();
+
+        Computation(long version) {
+            this.version = version;
+        }
+    }
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(MedalsStore.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    // keyed by group id, groups all have the same hash code.
+    private final Map<Long, Entry> byGroup = new ConcurrentHashMap<>();
+    private final Map<Long, Computation> computing = new ConcurrentHashMap<>();
+
+    /**
+     * @param g        the group
+     * @param computer computes the medals from the database
+     * @return the medals of the group, computed if the results have changed since last time
+     */
+    TreeMap<Category, TreeSet<Athlete>> get(Group g, Supplier<TreeMap<Category, TreeSet<Athlete>>> computer) {
+        if (g.getId() == null) {
+            return computer.get();
+        }
+        return current(g, computer).medals;
+    }
+
+    /**
+     * Something computed from the medals of a group, such as the content of a medals display.
+     *
+     * @param g        the group
+     * @param key      identifies what is rendered
+     * @param computer computes the medals from the database
+     * @param renderer computes the value from the medals of the group
+     * @return the value computed from the current medals, rendered once per results version
+     */
+    @SuppressWarnings("unchecked")
+    <T> T getRendered(Group g, String key, Supplier<TreeMap<Category, TreeSet<Athlete>>> computer,
+            Function<TreeMap<Category, TreeSet<Athlete>>, T> renderer) {
+        if (g.getId() == null) {
+            return renderer.apply(computer.get());
+        }
+        Entry entry = current(g, computer);
+        return (T) entry.rendered.computeIfAbsent(key, (k) -> renderer.apply(entry.medals));
+    }
+
+    /**
+     * Replace the medals of a group.
+     *
+     * @param g
+     * @param medals
+     * @param resultsVersion the results version read before the athletes were fetched
+     */
+    void put(Group g, TreeMap<Category, TreeSet<Athlete>> medals, long resultsVersion) {
+        if (g.getId() == null) {
+            return;
+        }
+        keep(g.getId(), new Entry(resultsVersion, medals));
+    }
+
+    private Entry current(Group g, Supplier<TreeMap<Category, TreeSet<Athlete>>> computer) {
+        Long id = g.getId();
+        long version = Competition.getResultsVersion();
+        Entry entry = byGroup.get(id);
+        if (entry != null && entry.version >= version) {
+            return entry;
+        }
+        // the database is read outside the map, callers wanting the same version wait for the first one.
+        Computation mine = new Computation(version);
+        Computation c = computing.merge(id, mine, (old, n) -> old.version >= n.version ? old : n);
+        if (c == mine) {
+            try {
+                entry = byGroup.get(id);
+                if (entry == null || entry.version < version) {
+                    // not computed while we were getting here.
+                    long start = System.nanoTime();
+                    entry = keep(id, new Entry(version, computer.get()));
+                    logger.debug("medals for group {} computed in {}ms", g.getName(),
+                            (System.nanoTime() - start) / 1000000.0);
+                }
+                mine.result.complete(entry);
+            } catch (RuntimeException e) {
+                mine.result.completeExceptionally(e);
+                throw e;
+            } finally {
+                computing.remove(id, mine);
+            }
+        }
+        try {
+            return c.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the entry kept for the group, which is the most recent of the new one and the one already there
+     */
+    private Entry keep(Long id, Entry entry) {
+        return byGroup.merge(id, entry, (old, e) -> old.version > e.version ? old : e);
+    }
+
+}
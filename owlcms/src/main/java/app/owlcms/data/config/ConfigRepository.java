@@ -48,7 +48,7 @@ public class ConfigRepository {
     @SuppressWarnings("unchecked")
     public static List<Config> findAll() {
         List<Config> configList = JPAService
-                .runInTransaction(em -> em.createQuery("select c from Config c").getResultList());
+                .runReadOnly(em -> em.createQuery("select c from Config c").getResultList());
         if (configList.size() < 1) {
             logger.debug("found {} config", configList.size());
         } else if (configList.size() > 1) {
@@ -6,25 +6,54 @@
  *******************************************************************************/
 package app.owlcms.data.export;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import javax.persistence.EntityManager;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.ObjectIdResolver;
+import com.fasterxml.jackson.annotation.SimpleObjectIdResolver;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.KeyDeserializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.cfg.HandlerInstantiator;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.jsontype.TypeIdResolver;
+import com.fasterxml.jackson.databind.jsontype.TypeResolverBuilder;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import app.owlcms.data.agegroup.AgeGroup;
 import app.owlcms.data.agegroup.AgeGroupRepository;
 import app.owlcms.data.athlete.Athlete;
 import app.owlcms.data.athlete.AthleteRepository;
+import app.owlcms.data.category.CategoryRepository;
 import app.owlcms.data.competition.Competition;
 import app.owlcms.data.competition.CompetitionRepository;
 import app.owlcms.data.config.Config;
@@ -37,11 +66,83 @@ import app.owlcms.data.records.RecordEvent;
 import app.owlcms.data.records.RecordRepository;
 import app.owlcms.i18n.Translator;
 import app.owlcms.init.OwlcmsFactory;
+import app.owlcms.utils.LoggerUtils;
 import app.owlcms.utils.ResourceWalker;
 import ch.qos.logback.classic.Logger;
 
+/**
+ * Export and import of the whole database.
+ *
+ * The export is written section by section (config, competition, platforms, groups, age groups, athletes, records)
+ * directly to the output stream; athletes and records are read from the database in pages so the whole object graph is
+ * never held in memory. The import reads the same sections one entity at a time and persists each one as it is read,
+ * with batched inserts.
+ *
+ * The file is either plain JSON or, when compressed, the Smile binary encoding of the same content, gzipped. The import
+ * recognizes both, as well as files exported by earlier versions.
+ */
 public class CompetitionData {
 
+    /**
+     * Keeps the object ids seen during an import across the sections, which are deserialized separately: athletes
+     * refer to the groups and to the categories read earlier in the file.
+     */
+    private static class SharedObjectIdResolver extends SimpleObjectIdResolver {
+        @Override
+        public ObjectIdResolver newForDeserialization(Object context) {
+            return this;
+        }
+    }
+
+    /**
+     * Provides the shared resolver to the deserializers; everything else is created as usual.
+     */
+    private static class SharedResolverInstantiator extends HandlerInstantiator {
+        private ObjectIdResolver resolver = new SharedObjectIdResolver();
+
+        @Override
+        public JsonDeserializer<?> deserializerInstance(DeserializationConfig config, Annotated annotated,
+                Class<?> deserClass) {
+            return null;
+        }
+
+        @Override
+        public KeyDeserializer keyDeserializerInstance(DeserializationConfig config, Annotated annotated,
+                Class<?> keyDeserClass) {
+            return null;
+        }
+
+        @Override
+        public ObjectIdResolver resolverIdGeneratorInstance(MapperConfig<?> config, Annotated annotated,
+                Class<?> implClass) {
+            return resolver;
+        }
+
+        @Override
+        public JsonSerializer<?> serializerInstance(SerializationConfig config, Annotated annotated,
+                Class<?> serClass) {
+            return null;
+        }
+
+        @Override
+        public TypeIdResolver typeIdResolverInstance(MapperConfig<?> config, Annotated annotated,
+                Class<?> resolverClass) {
+            return null;
+        }
+
+        @Override
+        public TypeResolverBuilder<?> typeResolverBuilderInstance(MapperConfig<?> config, Annotated annotated,
+                Class<?> builderClass) {
+            return null;
+        }
+    }
+
+    /**
+     * Inserts are flushed, and the entities detached, every BATCH_SIZE entities.
+     */
+    private static final int BATCH_SIZE = 50;
+    private static final int PAGE_SIZE = 200;
+
     final static Logger logger = (Logger) LoggerFactory.getLogger(CompetitionData.class);
 
     private List<AgeGroup> ageGroups;
@@ -55,26 +156,50 @@ public class CompetitionData {
     public CompetitionData() {
     }
 
-    public InputStream exportData() {
-        ObjectMapper mapper = new ObjectMapper();
+    /**
+     * Write the database content to the stream, section by section.
+     *
+     * @param out        receives the export; closed when done
+     * @param compressed true for gzipped Smile, false for JSON
+     * @throws IOException
+     */
+    public void exportData(OutputStream out, boolean compressed) throws IOException {
+        long start = System.currentTimeMillis();
+        ObjectMapper mapper = compressed ? new ObjectMapper(new SmileFactory()) : new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
-        try {
-            ObjectWriter writerWithDefaultPrettyPrinter = mapper.writerWithDefaultPrettyPrinter();
-
-            PipedOutputStream out = new PipedOutputStream();
-            PipedInputStream in = new PipedInputStream(out);
-            new Thread(() -> {
+        mapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        ObjectWriter writer = mapper.writer();
+        Config config = Config.getCurrent();
+        Competition competition = Competition.getCurrent();
+
+        OutputStream target = compressed ? new GZIPOutputStream(out, 64 * 1024) : out;
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(target)) {
+            int[] counts = JPAService.runInTransaction(em -> {
                 try {
-                    writerWithDefaultPrettyPrinter.writeValue(out, this.fromDatabase());
-                    out.flush();
-                    out.close();
-                } catch (Throwable e) {
-                    e.printStackTrace();
+                    generator.writeStartObject();
+                    generator.writeFieldName("config");
+                    writer.writeValue(generator, config);
+                    generator.writeFieldName("competition");
+                    writer.writeValue(generator, competition);
+                    writeAll(generator, writer, "platforms",
+                            em.createQuery("select p from Platform p", Platform.class).getResultList());
+                    writeAll(generator, writer, "groups",
+                            em.createQuery("select g from CompetitionGroup g", Group.class).getResultList());
+                    writeAll(generator, writer, "ageGroups",
+                            em.createQuery("select ag from AgeGroup ag", AgeGroup.class).getResultList());
+                    em.clear();
+                    int nbAthletes = writeAthletes(generator, writer, em);
+                    int nbRecords = writeRecords(generator, writer, em);
+                    generator.writeEndObject();
+                    return new int[] { nbAthletes, nbRecords };
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-            }).start();
-            return in;
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            });
+            logger.info("exported {} athletes, {} records in {} ms", counts[0], counts[1],
+                    System.currentTimeMillis() - start);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
 
@@ -172,55 +297,30 @@ public class CompetitionData {
         return newData;
     }
 
+    /**
+     * Replace the database content with an export. Each entity is persisted as soon as it is read.
+     *
+     * @param inputStream a JSON or compressed export
+     */
     public void restore(InputStream inputStream) {
         this.removeAll();
-        JPAService.runInTransaction(em -> {
-            try {
+        long start = System.currentTimeMillis();
+        int[] counts = JPAService.runInTransaction(em -> {
+            try (JsonParser parser = createParser(inputStream)) {
                 Athlete.setSkipValidationsDuringImport(true);
-
-                CompetitionData updated = this.importData(inputStream);
-                Config config = updated.getConfig();
-                ResourceWalker.initLocalDir();
-
-                Locale defaultLocale = config.getDefaultLocale();
-                Translator.reset();
-                Translator.setForcedLocale(defaultLocale);
-
-                Competition competition = updated.getCompetition();
-
-                for (AgeGroup ag : updated.getAgeGroups()) {
-                    em.persist(ag);
-                }
-
-                for (Athlete a : updated.getAthletes()) {
-                    em.persist(a);
-                }
-
-                for (Group g : updated.getGroups()) {
-                    em.merge(g);
-                }
-
-                if (updated.getRecords() != null) {
-                    for (RecordEvent r : updated.getRecords()) {
-                        em.merge(r);
-                    }
-                }
-
-                if (updated.getPlatforms() != null) {
-                    for (Platform p : updated.getPlatforms()) {
-                        em.merge(p);
-                    }
-                }
-                
-                em.merge(competition);
-                em.flush();
-            } catch (Exception e) {
-                e.printStackTrace();
+                em.unwrap(Session.class).setJdbcBatchSize(BATCH_SIZE);
+                return readSections(parser, em);
+            } catch (IOException e) {
+                LoggerUtils.logError(logger, e);
+                throw new UncheckedIOException(e);
             } finally {
                 Athlete.setSkipValidationsDuringImport(false);
             }
-            return null;
         });
+        logger.info("restored {} athletes, {} records in {} ms", counts[0], counts[1],
+                System.currentTimeMillis() - start);
+        RecordRepository.invalidateCache();
+        CategoryRepository.invalidateIndex();
         // register the new FOPs for events and MQTT
         OwlcmsFactory.initFOPByName();
     }
@@ -270,42 +370,136 @@ public class CompetitionData {
         this.records = records;
     }
 
+    /**
+     * The bulk deletes empty all the tables; nothing needs to be loaded.
+     */
     private void removeAll() {
         JPAService.runInTransaction(em -> {
             CompetitionRepository.doRemoveAll(em);
-            try {
-                this.fromDatabase();
-                for (Athlete a : this.getAthletes()) {
-                    Athlete aX = em.find(Athlete.class, a.getId());
-                    if (aX != null) {
-                        em.remove(aX);
-                    }
-                }
-                for (Group g : this.getGroups()) {
-                    Group gX = em.find(Group.class, g.getId());
-                    if (gX != null) {
-                        em.remove(gX);
-                    }
-                }
-                for (AgeGroup ag : this.getAgeGroups()) {
-                    AgeGroup agX = em.find(AgeGroup.class, ag.getId());
-                    if (agX != null) {
-                        em.remove(agX);
-                    }
-                }
-                for (Platform p : this.getPlatforms()) {
-                    Platform pX = em.find(Platform.class, p.getId());
-                    if (pX != null) {
-                        em.remove(pX);
-                    }
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
             return null;
         });
     }
 
+    /**
+     * Gzip and Smile are recognized from their first bytes; anything else is read as JSON.
+     */
+    private JsonParser createParser(InputStream inputStream) throws IOException {
+        InputStream in = new BufferedInputStream(inputStream, 64 * 1024);
+        if (startsWith(in, (byte) 0x1f, (byte) 0x8b)) {
+            in = new BufferedInputStream(new GZIPInputStream(in, 64 * 1024), 64 * 1024);
+        }
+        ObjectMapper mapper = startsWith(in, (byte) ':', (byte) ')', (byte) '\n')
+                ? new ObjectMapper(new SmileFactory())
+                : new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.setHandlerInstantiator(new SharedResolverInstantiator());
+        return mapper.getFactory().createParser(in);
+    }
+
+    /**
+     * Send the pending inserts and forget the entities, so the persistence context only keeps the platforms, groups,
+     * age groups and categories that the athletes refer to.
+     */
+    private void flushAndDetach(EntityManager em, List<Object> pending) {
+        em.flush();
+        for (Object o : pending) {
+            em.detach(o);
+        }
+        pending.clear();
+    }
+
+    private void persistInBatch(EntityManager em, Object entity, List<Object> pending) {
+        em.persist(entity);
+        pending.add(entity);
+        if (pending.size() >= BATCH_SIZE) {
+            flushAndDetach(em, pending);
+        }
+    }
+
+    /**
+     * Apply an array section to each of its elements.
+     *
+     * @return the number of elements
+     */
+    private <T> int readArray(JsonParser parser, Class<T> type, Consumer<T> consumer) throws IOException {
+        int nb = 0;
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            // null section
+            return nb;
+        }
+        ObjectMapper mapper = (ObjectMapper) parser.getCodec();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            consumer.accept(mapper.readValue(parser, type));
+            nb++;
+        }
+        return nb;
+    }
+
+    /**
+     * Sections are expected in the order written by {@link #exportData(OutputStream, boolean)}: the entities
+     * referenced by id (platforms, groups, categories) are read and persisted before the athletes.
+     */
+    private int[] readSections(JsonParser parser, EntityManager em) throws IOException {
+        int nbAthletes = 0;
+        int nbRecords = 0;
+        Competition competition = null;
+        List<Object> pending = new ArrayList<>(BATCH_SIZE);
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("not a database export");
+        }
+        ObjectMapper mapper = (ObjectMapper) parser.getCodec();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String section = parser.getCurrentName();
+            switch (section) {
+            case "config":
+                parser.nextToken();
+                setConfig(mapper.readValue(parser, Config.class));
+                ResourceWalker.initLocalDir();
+                Locale defaultLocale = getConfig().getDefaultLocale();
+                Translator.reset();
+                Translator.setForcedLocale(defaultLocale);
+                break;
+            case "competition":
+                parser.nextToken();
+                competition = mapper.readValue(parser, Competition.class);
+                setCompetition(competition);
+                break;
+            case "platforms":
+                readArray(parser, Platform.class, p -> em.persist(p));
+                break;
+            case "groups":
+                readArray(parser, Group.class, g -> em.persist(g));
+                break;
+            case "ageGroups":
+                readArray(parser, AgeGroup.class, ag -> em.persist(ag));
+                break;
+            case "athletes":
+                nbAthletes = readArray(parser, Athlete.class, a -> persistInBatch(em, a, pending));
+                flushAndDetach(em, pending);
+                break;
+            case "records":
+                nbRecords = readArray(parser, RecordEvent.class, r -> {
+                    // the id is generated on insert
+                    r.setId(null);
+                    persistInBatch(em, r, pending);
+                });
+                flushAndDetach(em, pending);
+                break;
+            default:
+                parser.nextToken();
+                parser.skipChildren();
+                logger.warn("ignoring unknown section {}", section);
+            }
+        }
+
+        if (competition != null) {
+            em.merge(competition);
+        }
+        em.flush();
+        return new int[] { nbAthletes, nbRecords };
+    }
+
     /**
      * @param competition the competition to set
      */
@@ -320,4 +514,67 @@ public class CompetitionData {
     private void setConfigForExport(Config config) {
         this.config = config;
     }
+
+    private boolean startsWith(InputStream in, byte... expected) throws IOException {
+        in.mark(expected.length);
+        try {
+            for (byte b : expected) {
+                if (in.read() != (b & 0xff)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+
+    private void writeAll(JsonGenerator generator, ObjectWriter writer, String section, List<?> values)
+            throws IOException {
+        generator.writeArrayFieldStart(section);
+        for (Object value : values) {
+            writer.writeValue(generator, value);
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * The athletes are fetched a page at a time, with their participations, and forgotten once written.
+     */
+    private int writeAthletes(JsonGenerator generator, ObjectWriter writer, EntityManager em) throws IOException {
+        List<Long> ids = em.createQuery("select a.id from Athlete a order by a.id", Long.class).getResultList();
+        generator.writeArrayFieldStart("athletes");
+        for (int i = 0; i < ids.size(); i += PAGE_SIZE) {
+            List<Athlete> page = em.createQuery(
+                    "select distinct a from Athlete a left join fetch a.participations where a.id in :ids order by a.id",
+                    Athlete.class)
+                    .setParameter("ids", ids.subList(i, Math.min(i + PAGE_SIZE, ids.size())))
+                    .getResultList();
+            for (Athlete a : page) {
+                writer.writeValue(generator, a);
+            }
+            em.clear();
+        }
+        generator.writeEndArray();
+        return ids.size();
+    }
+
+    private int writeRecords(JsonGenerator generator, ObjectWriter writer, EntityManager em) throws IOException {
+        int nbRecords = 0;
+        Session session = em.unwrap(Session.class);
+        generator.writeArrayFieldStart("records");
+        try (ScrollableResults results = session.createQuery("select r from RecordEvent r", RecordEvent.class)
+                .setReadOnly(true)
+                .setFetchSize(PAGE_SIZE)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                writer.writeValue(generator, results.get(0));
+                if (++nbRecords % PAGE_SIZE == 0) {
+                    session.clear();
+                }
+            }
+        }
+        generator.writeEndArray();
+        return nbRecords;
+    }
 }
@@ -35,6 +35,7 @@ import com.google.common.collect.Iterables;
 
 import app.owlcms.data.athlete.AthleteRepository;
 import app.owlcms.data.platform.Platform;
+import app.owlcms.data.team.TeamResultsStore;
 import app.owlcms.utils.DateTimeUtils;
 import app.owlcms.utils.IdUtils;
 import app.owlcms.utils.LoggerUtils;
@@ -194,10 +195,11 @@ public class Group implements Comparable<Group> {
 
     public void doDone(boolean b) {
         logger.debug("done? {} previous={} done={} {} [{}]", getName(), this.done, b, System.identityHashCode(this),
-                LoggerUtils.whereFrom());
+                LoggerUtils.caller());
         if (this.done != b) {
             this.setDone(b);
             GroupRepository.save(this);
+            TeamResultsStore.groupDoneChanged(this);
         }
     }
 
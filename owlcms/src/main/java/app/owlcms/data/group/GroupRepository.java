@@ -15,7 +15,9 @@ import javax.persistence.TypedQuery;
 import org.slf4j.LoggerFactory;
 
 import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.AthleteRepository;
 import app.owlcms.data.category.Category;
+import app.owlcms.data.competition.Competition;
 import app.owlcms.data.jpa.JPAService;
 import app.owlcms.utils.LoggerUtils;
 import ch.qos.logback.classic.Logger;
@@ -62,6 +64,9 @@ public class GroupRepository {
                 for (Athlete a : aL) {
                     a.setGroup(null);
                 }
+                if (!aL.isEmpty()) {
+                    Competition.getCurrent().setRankingsInvalid(true);
+                }
                 em.flush();
                 em.remove(em.contains(groupe) ? groupe : em.merge(groupe));
                 em.flush();
@@ -91,12 +96,12 @@ public class GroupRepository {
      */
     @SuppressWarnings("unchecked")
     public static List<Group> findAll() {
-        return JPAService.runInTransaction(
+        return JPAService.runReadOnly(
                 em -> em.createQuery("select c from CompetitionGroup c order by c.name").getResultList());
     }
 
     public static Group findByName(String name) {
-        return JPAService.runInTransaction(em -> {
+        return JPAService.runReadOnly(em -> {
             return doFindByName(name, em);
         });
     }
@@ -122,11 +127,14 @@ public class GroupRepository {
      * @return the group
      */
     public static Group save(Group Group) {
-        return JPAService.runInTransaction(em -> em.merge(Group));
+        Group saved = JPAService.runInTransaction(em -> em.merge(Group));
+        // weigh-in time and platform determine the registration order
+        AthleteRepository.invalidateRegistrationOrder();
+        return saved;
     }
 
     public List<Category> allCategories(Group g) {
-        return JPAService.runInTransaction((em) -> {
+        return JPAService.runReadOnly((em) -> {
             TypedQuery<Category> q = em.createQuery(
                     "select distinct c from Athlete a join a.group g join a.participations p join p.category c where g.id = :groupId",
                     Category.class);
@@ -136,7 +144,7 @@ public class GroupRepository {
     }
 
     public List<Athlete> getAthletes(Group g) {
-        return JPAService.runInTransaction((em) -> {
+        return JPAService.runReadOnly((em) -> {
             // this is the only case where group needs to know its athletes, so we do a
             // query instead of adding a relationship.
             TypedQuery<Athlete> aQ = em.createQuery("select a from Athlete a join a.group g where g.id = :groupId",
@@ -147,7 +155,7 @@ public class GroupRepository {
     }
 
     public static Group getById(Long id) {
-        return JPAService.runInTransaction((em) -> {
+        return JPAService.runReadOnly((em) -> {
             return getById(id,em);
         });
     }
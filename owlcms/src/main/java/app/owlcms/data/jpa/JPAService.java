@@ -14,9 +14,11 @@ import static org.hibernate.cfg.AvailableSettings.JPA_JDBC_DRIVER;
 import static org.hibernate.cfg.AvailableSettings.JPA_JDBC_PASSWORD;
 import static org.hibernate.cfg.AvailableSettings.JPA_JDBC_URL;
 import static org.hibernate.cfg.AvailableSettings.JPA_JDBC_USER;
+import static org.hibernate.cfg.AvailableSettings.ORDER_INSERTS;
 import static org.hibernate.cfg.AvailableSettings.QUERY_STARTUP_CHECKING;
 import static org.hibernate.cfg.AvailableSettings.SHOW_SQL;
 import static org.hibernate.cfg.AvailableSettings.STATEMENT_BATCH_SIZE;
+import static org.hibernate.cfg.AvailableSettings.STATEMENT_INSPECTOR;
 import static org.hibernate.cfg.AvailableSettings.USE_QUERY_CACHE;
 import static org.hibernate.cfg.AvailableSettings.USE_REFLECTION_OPTIMIZER;
 import static org.hibernate.cfg.AvailableSettings.USE_SECOND_LEVEL_CACHE;
@@ -35,6 +37,8 @@ import javax.persistence.EntityManagerFactory;
 import javax.persistence.spi.PersistenceUnitInfo;
 
 import org.h2.tools.Server;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
 import org.hibernate.dialect.H2Dialect;
 import org.hibernate.hikaricp.internal.HikariCPConnectionProvider;
 import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
@@ -64,6 +68,12 @@ import ch.qos.logback.classic.Logger;
  */
 public class JPAService {
 
+    /**
+     * Number of inserts or updates sent to the database in one JDBC batch. Bulk loads flush and clear the persistence
+     * context at the same interval.
+     */
+    public static final int BATCH_SIZE = 20;
+
     private static EntityManagerFactory factory;
 
     private static final Logger logger = (Logger) LoggerFactory.getLogger(JPAService.class);
@@ -229,9 +239,43 @@ public class JPAService {
 
         try {
             if (getFactory() == null) {
-                logger.debug("JPAService {}", LoggerUtils./**/stackTrace());
+                logger.debug("JPAService {}", LoggerUtils./**/callStack());
+            }
+            entityManager = getFactory().createEntityManager();
+            entityManager.getTransaction().begin();
+
+            T result = function.apply(entityManager);
+
+            entityManager.getTransaction().commit();
+            return result;
+
+        } finally {
+            if (entityManager != null) {
+                entityManager.close();
+            }
+        }
+    }
+
+    /**
+     * Run a query-only function. The session is read-only and never flushed: loaded entities get no snapshot and are
+     * not dirty-checked at commit. The entities returned are detached as usual; changes must be saved with a regular
+     * {@link #runInTransaction(Function)} (merge).
+     *
+     * @param <T>      the generic type
+     * @param function the function, must not modify entities
+     * @return the result of the function
+     */
+    public static <T> T runReadOnly(Function<EntityManager, T> function) {
+        EntityManager entityManager = null;
+
+        try {
+            if (getFactory() == null) {
+                logger.debug("JPAService {}", LoggerUtils./**/callStack());
             }
             entityManager = getFactory().createEntityManager();
+            Session session = entityManager.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
             entityManager.getTransaction().begin();
 
             T result = function.apply(entityManager);
@@ -281,7 +325,7 @@ public class JPAService {
 
         try {
             if (getFactory() == null) {
-                logger.debug("JPAService {}", LoggerUtils./**/stackTrace());
+                logger.debug("JPAService {}", LoggerUtils./**/callStack());
             }
             entityManager = getFactory().createEntityManager();
             entityManager.getTransaction().begin();
@@ -425,7 +469,8 @@ public class JPAService {
                 .put(SHOW_SQL, false)
                 .put(QUERY_STARTUP_CHECKING, false).put(GENERATE_STATISTICS, false)
                 .put(USE_REFLECTION_OPTIMIZER, false).put(USE_SECOND_LEVEL_CACHE, true).put(USE_QUERY_CACHE, false)
-                .put(USE_STRUCTURED_CACHE, false).put(STATEMENT_BATCH_SIZE, 20)
+                .put(USE_STRUCTURED_CACHE, false).put(STATEMENT_BATCH_SIZE, BATCH_SIZE).put(ORDER_INSERTS, true)
+                .put(STATEMENT_INSPECTOR, QueryCounter.class.getName())
                 .put(CACHE_REGION_FACTORY, "org.hibernate.cache.jcache.JCacheRegionFactory")
                 .put("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider")
                 .put("hibernate.javax.cache.missing_cache_strategy", "create")
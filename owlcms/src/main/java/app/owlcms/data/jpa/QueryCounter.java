@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.data.jpa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Counts the SQL statements prepared by Hibernate, per thread.
+ *
+ * Registered as the session factory {@link StatementInspector}, so every statement is seen, including the ones issued
+ * by lazy loading outside of a transaction (hibernate.enable_lazy_load_no_trans).
+ *
+ * A {@link Scope} measures a code path:
+ *
+ * <pre>
+ * try (QueryCounter.Scope s = QueryCounter.scope("recomputeOrderAndRanks")) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * logs the number of statements at DEBUG level when closed. Tests use {@link #expectAtMost(int, String)} or
+ * {@link #expectAtMost(int, Supplier)} to fail when a path issues more statements than expected (N+1 selects).
+ *
+ * @author Jean-François Lamy
+ */
+public class QueryCounter implements StatementInspector {
+
+    /**
+     * Statements issued by the current thread while the scope is open. Scopes nest.
+     */
+    public static class Scope implements AutoCloseable {
+        private final String name;
+        private final Counter counter;
+        private final Scope enclosing;
+        private final long startCount;
+        private final long startTime;
+        private final int maxStatements;
+        private final int startRecorded;
+
+        private Scope(String name, int maxStatements) {
+            this.name = name;
+            this.counter = counters.get();
+            this.enclosing = counter.scope;
+            this.startCount = counter.statements;
+            this.startTime = System.nanoTime();
+            this.maxStatements = maxStatements;
+            if (maxStatements >= 0) {
+                counter.recording++;
+            }
+            this.startRecorded = counter.recorded.size();
+            counter.scope = this;
+        }
+
+        @Override
+        public void close() {
+            long count = getCount();
+            counter.scope = enclosing;
+            List<String> statements = List.of();
+            if (maxStatements >= 0) {
+                statements = new ArrayList<>(counter.recorded.subList(startRecorded, counter.recorded.size()));
+                if (--counter.recording == 0) {
+                    counter.recorded.clear();
+                }
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("{}: {} statements in {} ms", name, count, (System.nanoTime() - startTime) / 1000000.0);
+            }
+            if (maxStatements >= 0 && count > maxStatements) {
+                throw new AssertionError(name + ": expected at most " + maxStatements + " statements, got " + count
+                        + "\n  " + String.join("\n  ", statements));
+            }
+        }
+
+        /**
+         * @return the number of statements issued by this thread since the scope was opened
+         */
+        public long getCount() {
+            return counter.statements - startCount;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static class Counter {
+        private long statements;
+        private Scope scope;
+        private int recording;
+        private List<String> recorded = new ArrayList<>();
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Statements kept for the failure message of {@link #expectAtMost(int, String)}.
+     */
+    private static final int MAX_RECORDED = 50;
+
+    private static final ThreadLocal<Counter> counters = ThreadLocal.withInitial(Counter::new);
+    private static final LongAdder total = new LongAdder();
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(QueryCounter.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    /**
+     * Open a scope that fails on close if more than maxStatements statements were issued.
+     *
+     * @param maxStatements the maximum number of statements
+     * @param name          for the log and the failure message
+     * @return the scope, to be closed by try-with-resources
+     */
+    public static Scope expectAtMost(int maxStatements, String name) {
+        return new Scope(name, maxStatements);
+    }
+
+    /**
+     * Run a code path and fail if it issues more than maxStatements statements.
+     *
+     * @param <T>           the result type
+     * @param maxStatements the maximum number of statements
+     * @param supplier      the code path
+     * @return the result of the supplier
+     */
+    public static <T> T expectAtMost(int maxStatements, Supplier<T> supplier) {
+        try (Scope s = expectAtMost(maxStatements, "expectAtMost")) {
+            return supplier.get();
+        }
+    }
+
+    /**
+     * @return the number of statements issued by the current thread
+     */
+    public static long getCount() {
+        return counters.get().statements;
+    }
+
+    /**
+     * @return the innermost open scope of the current thread, or null
+     */
+    public static Scope getCurrentScope() {
+        return counters.get().scope;
+    }
+
+    /**
+     * @return the number of statements issued by all threads
+     */
+    public static long getTotalCount() {
+        return total.sum();
+    }
+
+    public static Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * Open a scope that logs the number of statements at DEBUG level when closed.
+     *
+     * @param name for the log
+     * @return the scope, to be closed by try-with-resources
+     */
+    public static Scope scope(String name) {
+        return new Scope(name, -1);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Counter counter = counters.get();
+        counter.statements++;
+        if (counter.recording > 0 && counter.recorded.size() < MAX_RECORDED) {
+            counter.recorded.add(sql);
+        }
+        total.increment();
+        if (logger.isTraceEnabled()) {
+            Scope scope = counter.scope;
+            logger.trace("{}: {}", scope != null ? scope.getName() : "", sql);
+        }
+        return sql;
+    }
+
+}
@@ -679,7 +679,7 @@ public class Platform implements Serializable, Comparable<Platform> {
      */
     public void setSoundMixerName(String soundMixerName) {
         logger.debug("setSoundMixerName {} {} {}", System.identityHashCode(this), soundMixerName,
-                LoggerUtils.whereFrom());
+                LoggerUtils.caller());
         this.soundMixerName = soundMixerName;
         if (soundMixerName == null) {
             mixerChecked = true;
@@ -135,7 +135,7 @@ public class PlatformRepository {
     @SuppressWarnings("unchecked")
     public static List<Platform> findAll() {
         return JPAService
-                .runInTransaction(em -> em.createQuery("select c from Platform c order by c.id").getResultList());
+                .runReadOnly(em -> em.createQuery("select c from Platform c order by c.id").getResultList());
     }
 
     /**
@@ -146,7 +146,7 @@ public class PlatformRepository {
      */
     @SuppressWarnings("unchecked")
     public static Platform findByName(String string) {
-        return JPAService.runInTransaction(em -> {
+        return JPAService.runReadOnly(em -> {
             Query query = em.createQuery("select c from Platform c where lower(name) = lower(:string)");
             query.setParameter("string", string);
             List<Platform> resultList = query.getResultList();
@@ -6,21 +6,43 @@
  *******************************************************************************/
 package app.owlcms.data.records;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 
+import javax.persistence.CacheStoreMode;
+import javax.xml.parsers.SAXParserFactory;
+
 import org.apache.commons.io.FilenameUtils;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
 
 import app.owlcms.Main;
 import app.owlcms.data.athlete.Gender;
@@ -40,204 +62,464 @@ import ch.qos.logback.classic.Logger;
  * Records for snatch, clean&jerk and total are read. All available tabs are scanned. Reading stops at first empty line.
  * Header line is skipped.
  *
+ * .xlsx files are read as a stream of rows from the sheet XML, without building a workbook in memory. Several files are
+ * parsed in parallel, without using the database; the records are then inserted in JDBC batches. The records of a file
+ * whose content is unchanged since they were loaded are kept instead of being inserted again.
+ *
  * @author Jean-François Lamy
  *
  */
 public class RecordDefinitionReader {
 
-    private final static Logger logger = (Logger) LoggerFactory.getLogger(RecordDefinitionReader.class);
-    private final static Logger startupLogger = Main.getStartupLogger();
+    /**
+     * The records parsed from one file.
+     */
+    public static class RecordFile {
+        private final String name;
+        private final String fileName;
+        /** hash of the path relative to the records folder and of the content, null for a file from a zip */
+        private final String hash;
+        private final List<RecordEvent> records;
+
+        RecordFile(String name, String fileName, String hash, List<RecordEvent> records) {
+            this.name = name;
+            this.fileName = fileName;
+            this.hash = hash;
+            this.records = records;
+        }
 
-    public static int createRecords(Workbook workbook, String name, String baseName) {
+        public String getFileName() {
+            return fileName;
+        }
 
-        return JPAService.runInTransaction(em -> {
-            int iRecord = 0;
+        public String getHash() {
+            return hash;
+        }
 
-            for (Sheet sheet : workbook) {
-                processSheet: for (Row row : sheet) {
-                    int iRow = row.getRowNum();
-                    if (iRow == 0) {
-                        iRow++;
-                        continue;
-                    }
+        public String getName() {
+            return name;
+        }
 
-                    RecordEvent rec = new RecordEvent();
-                    rec.setFileName(baseName);
+        public List<RecordEvent> getRecords() {
+            return records;
+        }
+    }
 
-                    // beware: on a truly empty row we will not enter this loop.
-                    boolean error = false;
-                    for (Cell cell : row) {
-                        try {
-                            int iColumn = cell.getAddress().getColumn();
-
-                            // logger.debug("[" + sheet.getSheetName() + "," + cell.getAddress() + "]");
-                            switch (iColumn) {
-                            case 0: { // A
-                                String cellValue = cell.getStringCellValue();
-                                String trim = cellValue.trim();
-                                if (trim.isEmpty()) {
-                                    // stop processing sheet on first row with an empty first cell
-                                    break processSheet;
-                                }
-                                rec.setRecordFederation(trim);
-                                break;
-                            }
+    /**
+     * The cell accessors used by the parser, with the POI semantics: asking a numeric cell for a string (or the
+     * reverse) throws IllegalStateException, a blank cell is "" or 0.
+     */
+    private interface RecordCell {
+        String getAddress();
 
-                            case 1: { // B
-                                String cellValue = cell.getStringCellValue();
-                                cellValue = cellValue != null ? cellValue.trim() : cellValue;
-                                rec.setRecordName(cellValue);
-                                break;
-                            }
+        int getColumn();
 
-                            case 2: { // C
-                                String cellValue = cell.getStringCellValue();
-                                cellValue = cellValue != null ? cellValue.trim() : cellValue;
-                                rec.setAgeGrp(cellValue);
-                                break;
-                            }
+        double getNumericCellValue();
 
-                            case 3: { // D
-                                String cellValue = cell.getStringCellValue();
-                                cellValue = cellValue != null ? cellValue.trim().toUpperCase() : cellValue;
-                                rec.setGender(Gender.valueOf(cellValue));
-                                break;
-                            }
+        String getStringCellValue();
+    }
 
-                            case 4: { // E
-                                long cellValue = Math.round(cell.getNumericCellValue());
-                                rec.setAgeGrpLower(Math.toIntExact(cellValue));
-                                break;
-                            }
+    /**
+     * A cell of a workbook loaded in memory (.xls files, and workbooks given by the caller).
+     */
+    private static class WorkbookCell implements RecordCell {
+        private final Cell cell;
 
-                            case 5: { // F
-                                long cellValue = Math.round(cell.getNumericCellValue());
-                                rec.setAgeGrpUpper(Math.toIntExact(cellValue));
-                                break;
-                            }
+        WorkbookCell(Cell cell) {
+            this.cell = cell;
+        }
 
-                            case 6: { // G
-                                long cellValue = Math.round(cell.getNumericCellValue());
-                                rec.setBwCatLower(Math.toIntExact(cellValue));
-                                break;
-                            }
+        @Override
+        public String getAddress() {
+            return cell.getAddress().formatAsString();
+        }
 
-                            case 7: { // H
-                                try {
-                                    String cellValue = cell.getStringCellValue();
-                                    rec.setBwCatString(cellValue);
-                                    try {
-                                        rec.setBwCatUpper(
-                                                cellValue.startsWith(">") ? 999 : Integer.parseInt(cellValue));
-                                    } catch (NumberFormatException e) {
-                                        if (cellValue != null && !cellValue.isBlank()) {
-                                            startupLogger.error("[" + sheet.getSheetName() + "," + cell.getAddress() + "]");
-                                            logger.error("[" + sheet.getSheetName() + "," + cell.getAddress() + "]");
-                                        }
-                                    }
-                                } catch (IllegalStateException e) {
-                                    long cellValue = Math.round(cell.getNumericCellValue());
-                                    rec.setBwCatString(Long.toString(cellValue));
-                                    rec.setBwCatUpper(Math.toIntExact(cellValue));
-                                }
-                                break;
-                            }
+        @Override
+        public int getColumn() {
+            return cell.getColumnIndex();
+        }
 
-                            case 8: { // I
-                                String cellValue = cell.getStringCellValue();
-                                cellValue = cellValue != null ? cellValue.trim() : cellValue;
-                                rec.setRecordLift(cellValue);
-                                break;
-                            }
+        @Override
+        public double getNumericCellValue() {
+            return cell.getNumericCellValue();
+        }
 
-                            case 9: { // J
-                                rec.setRecordValue(cell.getNumericCellValue());
-                                break;
-                            }
+        @Override
+        public String getStringCellValue() {
+            return cell.getStringCellValue();
+        }
+    }
 
-                            case 10: { // K
-                                String cellValue = cell.getStringCellValue();
-                                cellValue = cellValue != null ? cellValue.trim() : cellValue;
-                                rec.setAthleteName(cellValue);
-                                break;
-                            }
+    /**
+     * A cell as found in the sheet XML: its type attribute and its raw value.
+     */
+    private static class StreamedCell implements RecordCell {
+        private final String address;
+        private final int column;
+        private final String type;
+        private final String value;
+        private final SharedStrings strings;
+
+        StreamedCell(String address, int column, String type, String value, SharedStrings strings) {
+            this.address = address;
+            this.column = column;
+            this.type = type;
+            this.value = value;
+            this.strings = strings;
+        }
 
-                            case 11: { // L
-                                long cellValue = Math.round(cell.getNumericCellValue());
-                                int intExact = Math.toIntExact(cellValue);
-                                if (cellValue < 3000) {
-                                    rec.setRecordYear(intExact);
-                                } else {
-                                    LocalDate epoch = LocalDate.of(1900, 1, 1);
-                                    LocalDate plusDays = epoch.plusDays(intExact - 2);
-                                    // Excel quirks: 1 is 1900-01-01 and mistakenly assumes 1900-02-29 existed
-                                    rec.setBirthDate(plusDays);
-                                }
-                                break;
-                            }
+        @Override
+        public String getAddress() {
+            return address;
+        }
 
-                            case 12: { // M
-                                String cellValue = cell.getStringCellValue();
-                                cellValue = cellValue != null ? cellValue.trim() : cellValue;
-                                rec.setNation(cellValue);
-                                break;
-                            }
+        @Override
+        public int getColumn() {
+            return column;
+        }
 
-                            case 13: { // N
-                                long cellValue = Math.round(cell.getNumericCellValue());
-                                int intExact = Math.toIntExact(cellValue);
-                                if (cellValue < 3000) {
-                                    rec.setRecordYear(intExact);
-                                } else {
-                                    LocalDate epoch = LocalDate.of(1900, 1, 1);
-                                    LocalDate plusDays = epoch.plusDays(intExact - 2);
-                                    // Excel quirks: 1 is 1900-01-01 and mistakenly assumes 1900-02-29 existed
-                                    rec.setRecordDate(plusDays);
-                                }
-                                break;
-                            }
+        @Override
+        public double getNumericCellValue() {
+            if (isNumeric()) {
+                return value.isEmpty() ? 0.0 : Double.parseDouble(value);
+            }
+            throw new IllegalStateException("Cannot get a NUMERIC value from a " + type + " cell");
+        }
 
-                            }
+        @Override
+        public String getStringCellValue() {
+            if ("s".equals(type)) {
+                return strings.getItemAt(Integer.parseInt(value)).getString();
+            } else if ("inlineStr".equals(type) || "str".equals(type)) {
+                return value;
+            } else if (isNumeric() && value.isEmpty()) {
+                // blank
+                return "";
+            }
+            throw new IllegalStateException("Cannot get a STRING value from a " + (isNumeric() ? "n" : type) + " cell");
+        }
 
-                            iColumn++;
-                        } catch (Exception e) {
-                            // do not report errors on empty rows
-                            if (!isEmptyRow(rec)) {
-                                startupLogger.error("{}[{}] {} ", sheet.getSheetName(), cell.getAddress(), e.getMessage());
-                                logger.error("{}[{}] {} ", sheet.getSheetName(), cell.getAddress(), e.getMessage());
-                                error = true;
-                            }
+        private boolean isNumeric() {
+            return type == null || "n".equals(type);
+        }
+    }
+
+    /**
+     * Fills the list with the records of a file.
+     */
+    @FunctionalInterface
+    private interface RecordsParser {
+        void parse(List<RecordEvent> records) throws Exception;
+    }
+
+    /**
+     * Turns rows into records, stops at the first row with an empty first cell.
+     */
+    private static class SheetParser {
+        private final String sheetName;
+        private final String fileName;
+        private final List<RecordEvent> records;
+        private boolean done;
+
+        SheetParser(String sheetName, String fileName, List<RecordEvent> records) {
+            this.sheetName = sheetName;
+            this.fileName = fileName;
+            this.records = records;
+        }
+
+        void row(int iRow, List<? extends RecordCell> cells) {
+            if (done || iRow == 0) {
+                return;
+            }
+
+            RecordEvent rec = new RecordEvent();
+            rec.setFileName(fileName);
+
+            // beware: on a truly empty row we will not enter this loop.
+            boolean error = false;
+            for (RecordCell cell : cells) {
+                try {
+                    int iColumn = cell.getColumn();
+
+                    // logger.debug("[" + sheetName + "," + cell.getAddress() + "]");
+                    switch (iColumn) {
+                    case 0: { // A
+                        String cellValue = cell.getStringCellValue();
+                        String trim = cellValue.trim();
+                        if (trim.isEmpty()) {
+                            // stop processing sheet on first row with an empty first cell
+                            done = true;
+                            return;
                         }
+                        rec.setRecordFederation(trim);
+                        break;
+                    }
+
+                    case 1: { // B
+                        String cellValue = cell.getStringCellValue();
+                        cellValue = cellValue != null ? cellValue.trim() : cellValue;
+                        rec.setRecordName(cellValue);
+                        break;
+                    }
+
+                    case 2: { // C
+                        String cellValue = cell.getStringCellValue();
+                        cellValue = cellValue != null ? cellValue.trim() : cellValue;
+                        rec.setAgeGrp(cellValue);
+                        break;
+                    }
+
+                    case 3: { // D
+                        String cellValue = cell.getStringCellValue();
+                        cellValue = cellValue != null ? cellValue.trim().toUpperCase() : cellValue;
+                        rec.setGender(Gender.valueOf(cellValue));
+                        break;
+                    }
+
+                    case 4: { // E
+                        long cellValue = Math.round(cell.getNumericCellValue());
+                        rec.setAgeGrpLower(Math.toIntExact(cellValue));
+                        break;
+                    }
+
+                    case 5: { // F
+                        long cellValue = Math.round(cell.getNumericCellValue());
+                        rec.setAgeGrpUpper(Math.toIntExact(cellValue));
+                        break;
+                    }
+
+                    case 6: { // G
+                        long cellValue = Math.round(cell.getNumericCellValue());
+                        rec.setBwCatLower(Math.toIntExact(cellValue));
+                        break;
                     }
 
-                    if (!error && !isEmptyRow(rec)) {
-                        // if row was empty, we get no cells but rec was created.
+                    case 7: { // H
                         try {
-                            rec.fillDefaults();
-                        } catch (MissingAgeGroup | MissingGender | UnknownIWFBodyWeightCategory e1) {
-                            throw new RuntimeException(e1 + " row " + iRow);
+                            String cellValue = cell.getStringCellValue();
+                            rec.setBwCatString(cellValue);
+                            try {
+                                rec.setBwCatUpper(
+                                        cellValue.startsWith(">") ? 999 : Integer.parseInt(cellValue));
+                            } catch (NumberFormatException e) {
+                                if (cellValue != null && !cellValue.isBlank()) {
+                                    startupLogger.error("[" + sheetName + "," + cell.getAddress() + "]");
+                                    logger.error("[" + sheetName + "," + cell.getAddress() + "]");
+                                }
+                            }
+                        } catch (IllegalStateException e) {
+                            long cellValue = Math.round(cell.getNumericCellValue());
+                            rec.setBwCatString(Long.toString(cellValue));
+                            rec.setBwCatUpper(Math.toIntExact(cellValue));
                         }
+                        break;
+                    }
 
-                        try {
-                            em.persist(rec);
-                            iRecord++;
-                        } catch (Exception e) {
-                            logger.error("could not persist RecordEvent {}", LoggerUtils./**/stackTrace(e));
+                    case 8: { // I
+                        String cellValue = cell.getStringCellValue();
+                        cellValue = cellValue != null ? cellValue.trim() : cellValue;
+                        rec.setRecordLift(cellValue);
+                        break;
+                    }
+
+                    case 9: { // J
+                        rec.setRecordValue(cell.getNumericCellValue());
+                        break;
+                    }
+
+                    case 10: { // K
+                        String cellValue = cell.getStringCellValue();
+                        cellValue = cellValue != null ? cellValue.trim() : cellValue;
+                        rec.setAthleteName(cellValue);
+                        break;
+                    }
+
+                    case 11: { // L
+                        long cellValue = Math.round(cell.getNumericCellValue());
+                        int intExact = Math.toIntExact(cellValue);
+                        if (cellValue < 3000) {
+                            rec.setRecordYear(intExact);
+                        } else {
+                            LocalDate epoch = LocalDate.of(1900, 1, 1);
+                            LocalDate plusDays = epoch.plusDays(intExact - 2);
+                            // Excel quirks: 1 is 1900-01-01 and mistakenly assumes 1900-02-29 existed
+                            rec.setBirthDate(plusDays);
                         }
+                        break;
+                    }
+
+                    case 12: { // M
+                        String cellValue = cell.getStringCellValue();
+                        cellValue = cellValue != null ? cellValue.trim() : cellValue;
+                        rec.setNation(cellValue);
+                        break;
+                    }
+
+                    case 13: { // N
+                        long cellValue = Math.round(cell.getNumericCellValue());
+                        int intExact = Math.toIntExact(cellValue);
+                        if (cellValue < 3000) {
+                            rec.setRecordYear(intExact);
+                        } else {
+                            LocalDate epoch = LocalDate.of(1900, 1, 1);
+                            LocalDate plusDays = epoch.plusDays(intExact - 2);
+                            // Excel quirks: 1 is 1900-01-01 and mistakenly assumes 1900-02-29 existed
+                            rec.setRecordDate(plusDays);
+                        }
+                        break;
+                    }
+
+                    }
+
+                } catch (Exception e) {
+                    // do not report errors on empty rows
+                    if (!isEmptyRow(rec)) {
+                        startupLogger.error("{}[{}] {} ", sheetName, cell.getAddress(), e.getMessage());
+                        logger.error("{}[{}] {} ", sheetName, cell.getAddress(), e.getMessage());
+                        error = true;
                     }
                 }
             }
-            Competition comp = Competition.getCurrent();
-            Competition comp2 = em.contains(comp) ? comp : em.merge(comp);
-            comp2.setAgeGroupsFileName(name);
-            startupLogger.info("inserted {} record entries.", iRecord);
-            logger.info("inserted {} record entries.", iRecord);
-            return iRecord;
-        });
+
+            if (!error && !isEmptyRow(rec)) {
+                // if row was empty, we get no cells but rec was created.
+                try {
+                    rec.fillDefaults();
+                } catch (MissingAgeGroup | MissingGender | UnknownIWFBodyWeightCategory e1) {
+                    throw new RuntimeException(e1 + " row " + iRow);
+                }
+                records.add(rec);
+            }
+        }
     }
 
-    private static boolean isEmptyRow(RecordEvent rec) {
-        return rec.getRecordFederation() == null || rec.getRecordFederation().isBlank();
+    /**
+     * Collects the cells of each row of the sheet XML and hands the row to the parser.
+     */
+    private static class SheetHandler extends DefaultHandler {
+        private final SharedStrings strings;
+        private final SheetParser parser;
+        private final StringBuilder value = new StringBuilder();
+        private List<StreamedCell> cells = new ArrayList<>();
+        private int rowNum = -1;
+        private int column;
+        private String address;
+        private String type;
+        private boolean inValue;
+
+        SheetHandler(SharedStrings strings, SheetParser parser) {
+            this.strings = strings;
+            this.parser = parser;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue) {
+                value.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+            case "v":
+            case "t":
+                inValue = false;
+                break;
+            case "c":
+                cells.add(new StreamedCell(address, column, type, value.toString(), strings));
+                break;
+            case "row":
+                parser.row(rowNum, cells);
+                break;
+            }
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+            case "row":
+                String r = attributes.getValue("r");
+                rowNum = r != null ? Integer.parseInt(r) - 1 : rowNum + 1;
+                cells = new ArrayList<>();
+                column = -1;
+                break;
+            case "c":
+                address = attributes.getValue("r");
+                column = address != null ? columnIndex(address) : column + 1;
+                type = attributes.getValue("t");
+                value.setLength(0);
+                break;
+            case "v":
+            case "t": // text of an inline string
+                inValue = true;
+                break;
+            }
+        }
+
+        private int columnIndex(String cellReference) {
+            int col = 0;
+            for (char c : cellReference.toCharArray()) {
+                if (!Character.isLetter(c)) {
+                    break;
+                }
+                col = col * 26 + (Character.toUpperCase(c) - 'A' + 1);
+            }
+            return col - 1;
+        }
+    }
+
+    private final static Logger logger = (Logger) LoggerFactory.getLogger(RecordDefinitionReader.class);
+    // prefix of the hash of records inserted but not yet committed
+    private final static String PENDING = "pending:";
+    private final static Logger startupLogger = Main.getStartupLogger();
+
+    public static int createRecords(Workbook workbook, String name, String fileName) {
+        List<RecordEvent> records = new ArrayList<>();
+        readWorkbook(workbook, fileName, records);
+        return insertRecords(name, records);
+    }
+
+    /**
+     * Parse the record definition files in local/records, in parallel. The database is not used, so this can run while
+     * the database is initialized; {@link #resetRecords(List)} finds the files that are already loaded.
+     *
+     * @return the files, to be given to {@link #resetRecords(List)}; null if there is no records folder
+     */
+    public static List<RecordFile> readRecordFiles() {
+        Path recordsPath;
+        try {
+            recordsPath = ResourceWalker.getFileOrResourcePath("/records");
+        } catch (FileNotFoundException e1) {
+            logger.error("cannot find records {}", LoggerUtils.stackTrace(e1));
+            return null;
+        }
+        if (recordsPath == null || !Files.exists(recordsPath)) {
+            logger.info("no record definition files in local/records");
+            return new ArrayList<>();
+        }
+        List<Path> paths;
+        try (Stream<Path> files = Files.walk(recordsPath)) {
+            paths = files.filter(f -> f.toString().endsWith(".xls") || f.toString().endsWith(".xlsx"))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            logger.error("cannot process records {}", e);
+            return new ArrayList<>();
+        }
+        return paths.parallelStream()
+                .map(f -> {
+                    try {
+                        return readRecordFile(f, relativePath(recordsPath, f));
+                    } catch (IOException e1) {
+                        logger.error("could not open record definition file {}\n{}", f.toString(),
+                                LoggerUtils./**/stackTrace(e1));
+                        startupLogger.error("could not open record definition file {}.  See log files for details.",
+                                f.toString());
+                        return null;
+                    }
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     public static void readZip(InputStream source) throws IOException {
@@ -245,78 +527,248 @@ public class RecordDefinitionReader {
         final ZipUtils.NoCloseInputStream zipStream = new ZipUtils.NoCloseInputStream(source);
         RecordRepository.clearLoadedRecords();
 
+        Map<String, byte[]> contents = new LinkedHashMap<>();
         ZipEntry nextEntry;
         while ((nextEntry = zipStream.getNextEntry()) != null) {
             String name = nextEntry.getName();
             if (!name.endsWith("/")) {
-                Logger startupLogger = (Logger) LoggerFactory.getLogger(Main.class);
                 logger.info("unzipping {}", name);
                 startupLogger.info("unzipping {}", name);
                 // read the current zip entry
-                try (Workbook workbook = WorkbookFactory.create(zipStream)) {
-                    logger.info("loading record definition file {} {}", name, FilenameUtils.removeExtension(name));
-                    startupLogger.info("loading record definition file {}", name);
-                    createRecords(workbook, name, FilenameUtils.removeExtension(name));
-                } catch (Exception e) {
-                    logger.error("could not process record definition file {}\n{}", name,
-                            LoggerUtils./**/stackTrace(e));
-                    startupLogger.error("could not process record definition file {}. See log files for details.", name);
-                }
+                contents.put(name, zipStream.readAllBytes());
             }
         }
         zipStream.doClose(); // a real close
+
+        List<RecordFile> files = contents.entrySet().parallelStream()
+                .map(e -> readRecordFile(e.getKey(), e.getValue()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        for (RecordFile f : files) {
+            insertRecords(f.getName(), f.getRecords());
+        }
     }
-    
+
     public static void resetRecords() {
-        Path recordsPath;
-        try {
-            recordsPath = ResourceWalker.getFileOrResourcePath("/records");
-            try {
-                RecordRepository.clearLoadedRecords();
-                if (recordsPath != null && Files.exists(recordsPath)) {
-                    RecordDefinitionReader.readFolder(recordsPath);
-                } else {
-                    logger.info("no record definition files in local/records");
+        resetRecords(readRecordFiles());
+    }
+
+    /**
+     * Replace the records loaded from files with those that were read. The records of unchanged files are kept.
+     *
+     * The records of a file are inserted with a pending hash, replaced by the hash of the file once they are all
+     * committed, so a file is skipped only if it was fully loaded.
+     *
+     * @param files from {@link #readRecordFiles()}
+     * @return the number of files whose records were already loaded
+     */
+    public static int resetRecords(List<RecordFile> files) {
+        if (files == null) {
+            return 0;
+        }
+        List<String> loaded = new ArrayList<>();
+        for (RecordFile f : files) {
+            if (f.getHash() != null && RecordRepository.isLoaded(f.getHash())) {
+                logger.info("record definition file {} unchanged", f.getName());
+                startupLogger.info("record definition file {} unchanged", f.getName());
+                loaded.add(f.getHash());
+            }
+        }
+        RecordRepository.clearLoadedRecordsExcept(loaded);
+        for (RecordFile f : files) {
+            if (loaded.contains(f.getHash())) {
+                continue;
+            }
+            String pending = PENDING + f.getHash();
+            for (RecordEvent rec : f.getRecords()) {
+                rec.setFileHash(pending);
+            }
+            if (insertRecords(f.getName(), f.getRecords()) == f.getRecords().size()) {
+                RecordRepository.setFileHash(pending, f.getHash());
+            }
+        }
+        return loaded.size();
+    }
+
+    /**
+     * @return the hash of the path of the file and of its content, so that two files with the same content in
+     *         different folders are told apart
+     */
+    private static String hash(String path, Path f) throws IOException {
+        try (InputStream is = Files.newInputStream(f)) {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(path.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = is.read(buffer)) != -1) {
+                md.update(buffer, 0, n);
+            }
+            byte[] digest = md.digest();
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Persist the records in one transaction. The persistence context is flushed and cleared after each JDBC batch,
+     * so its size does not depend on the number of records.
+     */
+    private static int insertRecords(String name, List<RecordEvent> records) {
+        int inserted = JPAService.runInTransaction(em -> {
+            // nothing is read back in this transaction, do not fill the second-level cache
+            em.setProperty("javax.persistence.cache.storeMode", CacheStoreMode.BYPASS);
+            int iRecord = 0;
+            int i = 0;
+            for (RecordEvent rec : records) {
+                try {
+                    em.persist(rec);
+                    iRecord++;
+                } catch (Exception e) {
+                    logger.error("could not persist RecordEvent {}", LoggerUtils./**/stackTrace(e));
+                }
+                if (++i % JPAService.BATCH_SIZE == 0) {
+                    em.flush();
+                    em.clear();
                 }
-            } catch (IOException e) {
-                logger.error("cannot process records {}");
             }
-        } catch (FileNotFoundException e1) {
-            logger.error("cannot find records {}", LoggerUtils.stackTrace(e1));
+            Competition comp = Competition.getCurrent();
+            Competition comp2 = em.contains(comp) ? comp : em.merge(comp);
+            comp2.setAgeGroupsFileName(name);
+            startupLogger.info("inserted {} record entries.", iRecord);
+            logger.info("inserted {} record entries.", iRecord);
+            return iRecord;
+        });
+        RecordRepository.invalidateCache();
+        return inserted;
+    }
+
+    private static boolean isEmptyRow(RecordEvent rec) {
+        return rec.getRecordFederation() == null || rec.getRecordFederation().isBlank();
+    }
+
+    private static boolean isXlsx(byte[] header) {
+        // .xlsx files are zip archives
+        return header.length > 1 && header[0] == 'P' && header[1] == 'K';
+    }
+
+    /**
+     * Parse a file from a records folder. A file on disk is opened in place, without copying it to memory.
+     *
+     * @param path the path of the file relative to the records folder
+     * @return the file and its records, null if the file cannot be parsed
+     */
+    private static RecordFile readRecordFile(Path f, String path) throws IOException {
+        String name = f.toString();
+        String fileName = FilenameUtils.removeExtension(f.getFileName().toString());
+        String hash = hash(path, f);
+        boolean xlsx;
+        try (InputStream is = Files.newInputStream(f)) {
+            xlsx = isXlsx(is.readNBytes(2));
         }
+        return readRecordFile(name, fileName, hash, records -> {
+            if (f.getFileSystem() != FileSystems.getDefault()) {
+                // inside a jar, there is no file to open
+                try (InputStream is = Files.newInputStream(f)) {
+                    readRecords(is, xlsx, fileName, records);
+                }
+            } else if (xlsx) {
+                readXlsx(OPCPackage.open(f.toFile(), PackageAccess.READ), fileName, records);
+            } else {
+                try (Workbook workbook = WorkbookFactory.create(f.toFile(), null, true)) {
+                    readWorkbook(workbook, fileName, records);
+                }
+            }
+        });
+    }
 
+    /**
+     * Parse a file from a zip. The whole zip is replaced, so there is no hash to compare.
+     *
+     * @return the file and its records, null if the file cannot be parsed
+     */
+    private static RecordFile readRecordFile(String name, byte[] content) {
+        String fileName = FilenameUtils.removeExtension(name);
+        return readRecordFile(name, fileName, null,
+                records -> readRecords(new ByteArrayInputStream(content), isXlsx(content), fileName, records));
     }
 
-    public static void readFolder(Path recordsPath) throws IOException {
-        if (recordsPath == null || !Files.exists(recordsPath)) {
-            return;
+    private static RecordFile readRecordFile(String name, String fileName, String hash, RecordsParser parser) {
+        try {
+            logger.info("loading record definition file {} {}", name, fileName);
+            startupLogger.info("loading record definition file {}", name);
+            List<RecordEvent> records = new ArrayList<>();
+            parser.parse(records);
+            return new RecordFile(name, fileName, hash, records);
+        } catch (Exception e) {
+            logger.error("could not process record definition file {}\n{}", name,
+                    LoggerUtils./**/stackTrace(e));
+            startupLogger.error("could not process record definition file {}. See log files for details.", name);
+            return null;
         }
-        Files.walk(recordsPath).filter(f -> f.toString().endsWith(".xls") || f.toString().endsWith(".xlsx"))
-                .forEach(f -> {
-                    InputStream is;
-                    try {
-                        is = Files.newInputStream(f);
-                        try (Workbook workbook = WorkbookFactory.create(is)) {
-                            logger.info("loading record definition file {} {}", f.toString(),
-                                    FilenameUtils.removeExtension(f.getFileName().toString()));
-                            startupLogger.info("loading record definition file {}", f.toString());
-                            createRecords(workbook, f.toString(),
-                                    FilenameUtils.removeExtension(f.getFileName().toString()));
-                        } catch (Exception e) {
-                            logger.error("could not process record definition file {}\n{}", f.toString(),
-                                    LoggerUtils./**/stackTrace(e));
-                            startupLogger.error("could not process record definition file {}. See log files for details.",
-                                    f.toString());
-                        }
-                    } catch (IOException e1) {
-                        logger.error("could not open record definition file {}\n{}", f.toString(),
-                                LoggerUtils./**/stackTrace(e1));
-                        startupLogger.error("could not open record definition file {}.  See log files for details.",
-                                f.toString());
-                    }
+    }
+
+    private static void readRecords(InputStream is, boolean xlsx, String fileName, List<RecordEvent> records)
+            throws Exception {
+        if (xlsx) {
+            readXlsx(OPCPackage.open(is), fileName, records);
+        } else {
+            try (Workbook workbook = WorkbookFactory.create(is)) {
+                readWorkbook(workbook, fileName, records);
+            }
+        }
+    }
 
-                });
+    /**
+     * @return the path of the file relative to the records folder, with / separators
+     */
+    private static String relativePath(Path recordsPath, Path f) {
+        List<String> names = new ArrayList<>();
+        for (Path name : recordsPath.relativize(f)) {
+            names.add(name.toString());
+        }
+        return String.join("/", names);
+    }
 
+    private static void readWorkbook(Workbook workbook, String fileName, List<RecordEvent> records) {
+        for (Sheet sheet : workbook) {
+            SheetParser parser = new SheetParser(sheet.getSheetName(), fileName, records);
+            for (Row row : sheet) {
+                List<RecordCell> cells = new ArrayList<>();
+                for (Cell cell : row) {
+                    cells.add(new WorkbookCell(cell));
+                }
+                parser.row(row.getRowNum(), cells);
+            }
+        }
+    }
+
+    /**
+     * Read the sheets of an .xlsx file as SAX events: only the current row is in memory.
+     */
+    private static void readXlsx(OPCPackage pkg, String fileName, List<RecordEvent> records) throws Exception {
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    SheetParser parser = new SheetParser(sheets.getSheetName(), fileName, records);
+                    factory.newSAXParser().parse(sheet, new SheetHandler(strings, parser));
+                }
+            }
+        } finally {
+            // read-only use, do not save the package
+            pkg.revert();
+        }
     }
 
 }
@@ -104,6 +104,8 @@ public class RecordEvent {
     private String recordName;
     private int recordYear;
     private String fileName;
+    /** hash of the path and content of the file the record was loaded from, see RecordDefinitionReader */
+    private String fileHash;
     private String bwCatString;
     private String groupNameString;
     private String categoryString;
@@ -193,6 +195,10 @@ public class RecordEvent {
         return eventLocation;
     }
 
+    public String getFileHash() {
+        return fileHash;
+    }
+
     public String getFileName() {
         return fileName;
     }
@@ -332,6 +338,10 @@ public class RecordEvent {
         this.eventLocation = eventLocation;
     }
 
+    public void setFileHash(String fileHash) {
+        this.fileHash = fileHash;
+    }
+
     public void setFileName(String fileName) {
         this.fileName = fileName;
     }
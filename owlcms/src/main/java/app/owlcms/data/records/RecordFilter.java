@@ -7,8 +7,10 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -27,10 +29,42 @@ import elemental.json.JsonObject;
 import elemental.json.JsonValue;
 
 public class RecordFilter {
-    
-    @SuppressWarnings("unused")
+
+    /**
+     * The record table for a set of displayed records, and where each record appears in it.
+     */
+    private static class RecordTable {
+        private static class Cell {
+            final RecordEvent rec;
+            final int column;
+            final int row;
+
+            Cell(RecordEvent rec, int column, int row) {
+                this.rec = rec;
+                this.column = column;
+                this.row = row;
+            }
+        }
+
+        final JsonObject json;
+        final List<Cell> cells;
+
+        RecordTable(JsonObject json, List<Cell> cells) {
+            this.json = json;
+            this.cells = cells;
+        }
+    }
+
     private static Logger logger = (Logger)LoggerFactory.getLogger(RecordFilter.class);
-    
+
+    /**
+     * Tables without highlights, by displayed records. The records shown for an athlete depend only on the age
+     * group, body weight category and gender, so the entries are shared by all the athletes of a category and are
+     * built once per change to the records.
+     */
+    private static Map<String, RecordTable> recordTables = new ConcurrentHashMap<>();
+    private static long recordTablesVersion = -1;
+
     public static JsonValue buildRecordJson(List<RecordEvent> displayedRecords, Set<RecordEvent> challengedRecords,
             Integer snatchRequest, Integer cjRequest,
             Integer totalRequest) {
@@ -39,6 +73,62 @@ public class RecordFilter {
             return Json.createNull();
         }
 
+        RecordTable table = getRecordTable(displayedRecords);
+        JsonObject recordInfo = null;
+        for (RecordTable.Cell c : table.cells) {
+            RecordEvent rec = c.rec;
+            if (challengedRecords.stream().anyMatch(cr -> cr.sameAs(rec))) {
+                //logger.debug("rec found {}", rec);
+                Double recordValue = rec.getRecordValue();
+                String highlight = null;
+                if (rec.getRecordLift() == Ranking.SNATCH && snatchRequest != null && recordValue != null
+                        && snatchRequest > recordValue) {
+                    highlight = "snatchHighlight";
+                } else if (rec.getRecordLift() == Ranking.CLEANJERK && cjRequest != null && recordValue != null
+                        && cjRequest > +recordValue) {
+                    highlight = "cjHighlight";
+                } else if (rec.getRecordLift() == Ranking.TOTAL && totalRequest != null && recordValue != null
+                        && totalRequest > +recordValue) {
+                    highlight = "totalHighlight";
+                }
+                if (highlight != null) {
+                    if (recordInfo == null) {
+                        // the shared table is never modified
+                        recordInfo = Json.parse(table.json.toJson());
+                    }
+                    recordInfo.getArray("recordTable").getObject(c.column).getArray("records").getObject(c.row)
+                            .put(highlight, "highlight");
+                }
+            } else {
+                //logger.debug("rec {} not found in {}", rec, challengedRecords);
+            }
+        }
+        return recordInfo != null ? recordInfo : table.json;
+    }
+
+    private static RecordTable getRecordTable(List<RecordEvent> displayedRecords) {
+        if (displayedRecords.stream().anyMatch(r -> r.getId() == null)) {
+            // not persisted, no stable key
+            return createRecordTable(displayedRecords);
+        }
+        long version = RecordRepository.getVersion();
+        synchronized (RecordFilter.class) {
+            if (recordTablesVersion != version) {
+                recordTables.clear();
+                recordTablesVersion = version;
+            }
+        }
+        String key = version + "/" + Translator.getLocaleSupplier().get() + "/" + Translator.getResetTimeStamp()
+                + "/" + displayedRecords.stream().map(RecordEvent::getId).filter(Objects::nonNull).distinct()
+                        .sorted().map(String::valueOf).collect(Collectors.joining(","));
+        return recordTables.computeIfAbsent(key, (k) -> {
+            logger.debug("building record table {}", k);
+            return createRecordTable(displayedRecords);
+        });
+    }
+
+    private static RecordTable createRecordTable(List<RecordEvent> displayedRecords) {
+        List<RecordTable.Cell> cells = new ArrayList<>();
         Multimap<Integer, RecordEvent> recordsByAgeWeight = ArrayListMultimap.create();
         TreeMap<String, String> rowOrder = new TreeMap<>();
         for (RecordEvent re : displayedRecords) {
@@ -108,22 +198,7 @@ public class RecordFilter {
                     }
                     Double recordValue = rec.getRecordValue();
                     cell.put(rec.getRecordLift().name(), recordValue != null ? recordValue : 999.0D);
-
-                    if (challengedRecords.stream().anyMatch(cr -> cr.sameAs(rec))) {
-                        //logger.debug("rec found {}", rec);
-                        if (rec.getRecordLift() == Ranking.SNATCH && snatchRequest != null && recordValue != null
-                                && snatchRequest > recordValue) {
-                            cell.put("snatchHighlight", "highlight");
-                        } else if (rec.getRecordLift() == Ranking.CLEANJERK && cjRequest != null && recordValue != null
-                                && cjRequest > +recordValue) {
-                            cell.put("cjHighlight", "highlight");
-                        } else if (rec.getRecordLift() == Ranking.TOTAL && totalRequest != null && recordValue != null
-                                && totalRequest > +recordValue) {
-                            cell.put("totalHighlight", "highlight");
-                        }
-                    } else {
-                        //logger.debug("rec {} not found in {}", rec, challengedRecords);
-                    }
+                    cells.add(new RecordTable.Cell(rec, j, i));
                 }
                 columnCells.set(i, cell);
             }
@@ -136,7 +211,7 @@ public class RecordFilter {
         recordInfo.put("recordTable", columns);
         recordInfo.put("nbRecords", Json.create(recordTable[0].length + 1));
 
-        return recordInfo;
+        return new RecordTable(recordInfo, cells);
     }
 
     public static List<RecordEvent> computeChallengedRecords(List<RecordEvent> eligibleRecords, Integer snatchRequest,
@@ -166,8 +241,8 @@ public class RecordFilter {
 
     public static List<RecordEvent> computeEligibleRecordsForAthlete(Athlete curAthlete) {
 
-        List<RecordEvent> records = RecordRepository.findFiltered(curAthlete.getGender(), curAthlete.getAge(),
-                curAthlete.getBodyWeight(), null, null);
+        List<RecordEvent> records = RecordRepository.findCachedFiltered(curAthlete.getGender(), curAthlete.getAge(),
+                curAthlete.getBodyWeight());
 
         // remove duplicates for each kind of record, keep largest
         Map<String, RecordEvent> cleanMap = records.stream().collect(
@@ -8,8 +8,13 @@ package app.owlcms.data.records;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
@@ -25,12 +30,24 @@ import ch.qos.logback.classic.Logger;
 /**
  * RecordRepository.
  *
+ * The records change only when a record is set or cancelled and when the definition files are loaded, so all the
+ * records are kept in memory for the lookups done on each attempt. Every write goes through this class and
+ * increments {@link #getVersion()}, which discards the copy.
  */
 public class RecordRepository {
 
     static Logger logger = (Logger) LoggerFactory.getLogger(RecordRepository.class);
 
+    private static final Comparator<RecordEvent> FILTERED_ORDER = Comparator
+            .comparing(RecordEvent::getGender, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(RecordEvent::getAgeGrpLower)
+            .thenComparingInt(RecordEvent::getAgeGrpUpper)
+            .thenComparing(RecordEvent::getBwCatUpper, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(RecordEvent::getRecordValue, Comparator.nullsLast(Comparator.reverseOrder()));
 
+    private static final AtomicLong version = new AtomicLong();
+    private static List<RecordEvent> cachedRecords;
+    private static long cachedVersion = -1;
 
     /**
      * @throws IOException
@@ -49,6 +66,36 @@ public class RecordRepository {
             }
             return null;
         });
+        invalidateCache();
+    }
+
+    /**
+     * Delete the records loaded from files, except those fully loaded from the files given.
+     *
+     * @param keptFileHashes hashes of the files whose records are kept
+     */
+    public static void clearLoadedRecordsExcept(Collection<String> keptFileHashes) {
+        JPAService.runInTransaction(em -> {
+            try {
+                // do not delete records set in the current competition.
+                Query query;
+                if (keptFileHashes.isEmpty()) {
+                    query = em.createQuery("DELETE FROM RecordEvent rec WHERE rec.groupNameString IS NULL");
+                } else {
+                    query = em.createQuery("DELETE FROM RecordEvent rec WHERE rec.groupNameString IS NULL"
+                            + " AND (rec.fileHash IS NULL OR rec.fileHash NOT IN :kept)");
+                    query.setParameter("kept", keptFileHashes);
+                }
+                int deletedCount = query.executeUpdate();
+                if (deletedCount > 0) {
+                    logger.info("deleted {} record entries", deletedCount);
+                }
+            } catch (Exception e) {
+                LoggerUtils.logError(logger, e);
+            }
+            return null;
+        });
+        invalidateCache();
     }
 
     /**
@@ -68,6 +115,7 @@ public class RecordRepository {
             }
             return null;
         });
+        invalidateCache();
     }
 
 //    public static JsonValue computeRecords(Gender gender, Integer age, Double bw, Integer snatchRequest,
@@ -97,6 +145,7 @@ public class RecordRepository {
             }
             return null;
         });
+        invalidateCache();
     }
 
     @SuppressWarnings("unchecked")
@@ -112,18 +161,36 @@ public class RecordRepository {
      * @return the list
      */
     public static List<RecordEvent> findAll() {
-        return JPAService.runInTransaction(em -> doFindAll(em));
+        return JPAService.runReadOnly(em -> doFindAll(em));
+    }
+
+    /**
+     * Same selection and order as {@link #findFiltered(Gender, Integer, Double, String, Boolean)} without group
+     * criteria, from the records in memory.
+     *
+     * @param gender null for all
+     * @param age    null for all
+     * @param bw     null for all
+     * @return the matching records, a new list
+     */
+    public static List<RecordEvent> findCachedFiltered(Gender gender, Integer age, Double bw) {
+        return getCachedRecords().stream()
+                .filter(rec -> gender == null || rec.getGender() == gender)
+                .filter(rec -> age == null || (rec.getAgeGrpLower() <= age && rec.getAgeGrpUpper() >= age))
+                .filter(rec -> bw == null
+                        || (rec.getBwCatLower() < bw && rec.getBwCatUpper() != null && rec.getBwCatUpper() >= bw))
+                .collect(Collectors.toList());
     }
 
     public static RecordEvent findByName(String name) {
-        return JPAService.runInTransaction(em -> {
+        return JPAService.runReadOnly(em -> {
             return doFindByName(name, em);
         });
     }
 
     public static List<RecordEvent> findFiltered(Gender gender, Integer age, Double bw, String groupName,
             Boolean newRecords) {
-        List<RecordEvent> findFiltered = JPAService.runInTransaction(em -> {
+        List<RecordEvent> findFiltered = JPAService.runReadOnly(em -> {
             String qlString = "select rec from RecordEvent rec "
                     + filteringSelection(gender, age, bw, groupName, newRecords)
                     + " order by rec.gender, rec.ageGrpLower, rec.ageGrpUpper, rec.bwCatUpper, rec.recordValue desc";
@@ -152,10 +219,54 @@ public class RecordRepository {
         return (RecordEvent) query.getResultList().stream().findFirst().orElse(null);
     }
 
+    /**
+     * @return incremented on every change to the records
+     */
+    public static long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Discard the records kept in memory. Called after a change to the records has been committed.
+     */
+    public static void invalidateCache() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * @param fileHash hash of the path and content of a record definition file
+     * @return true if the records of this file were all loaded, see {@link #setFileHash(String, String)}
+     */
+    public static boolean isLoaded(String fileHash) {
+        return JPAService.runReadOnly(em -> {
+            Long count = (Long) em.createQuery("select count(rec) from RecordEvent rec where rec.groupNameString is null"
+                    + " and rec.fileHash = :fileHash")
+                    .setParameter("fileHash", fileHash)
+                    .getSingleResult();
+            return count > 0;
+        });
+    }
+
     public static void reloadDefinitions(String localizedFileName) throws IOException {
         clearLoadedRecords();
         InputStream is = ResourceWalker.getResourceAsStream(localizedFileName);
         RecordDefinitionReader.readZip(is);
+        invalidateCache();
+    }
+
+    /**
+     * Remove records, such as new records cancelled by the jury.
+     *
+     * @param records
+     */
+    public static void removeRecords(List<RecordEvent> records) {
+        JPAService.runInTransaction(em -> {
+            for (RecordEvent re : records) {
+                em.remove(em.merge(re));
+            }
+            return null;
+        });
+        invalidateCache();
     }
 
     /**
@@ -176,10 +287,48 @@ public class RecordRepository {
             }
             return null;
         });
-
+        invalidateCache();
         return nRecord;
     }
 
+    /**
+     * Persist the records set during the competition, in one transaction.
+     *
+     * @param records
+     */
+    public static void saveNewRecords(List<RecordEvent> records) {
+        JPAService.runInTransaction(em -> {
+            for (RecordEvent re : records) {
+                em.persist(re);
+            }
+            return null;
+        });
+        invalidateCache();
+    }
+
+    /**
+     * Mark the records loaded from a file as complete. Called once all the records of the file are committed, so that
+     * an interrupted load is not mistaken for a loaded file.
+     *
+     * @param pendingHash the hash the records were inserted with
+     * @param fileHash    hash of the path and content of the file
+     */
+    public static void setFileHash(String pendingHash, String fileHash) {
+        JPAService.runInTransaction(em -> {
+            try {
+                em.createQuery("UPDATE RecordEvent rec SET rec.fileHash = :fileHash"
+                        + " WHERE rec.groupNameString IS NULL AND rec.fileHash = :pendingHash")
+                        .setParameter("fileHash", fileHash)
+                        .setParameter("pendingHash", pendingHash)
+                        .executeUpdate();
+            } catch (Exception e) {
+                LoggerUtils.logError(logger, e);
+            }
+            return null;
+        });
+        invalidateCache();
+    }
+
     @SuppressWarnings("unchecked")
     private static List<RecordEvent> doFindAll(EntityManager em) {
         return em.createQuery(
@@ -187,6 +336,22 @@ public class RecordRepository {
                 .getResultList();
     }
 
+    /**
+     * @return all the records, read again after a change
+     */
+    private static synchronized List<RecordEvent> getCachedRecords() {
+        // read the version before the query, a change made during the query will cause another read
+        long current = version.get();
+        if (cachedRecords == null || cachedVersion != current) {
+            List<RecordEvent> all = new ArrayList<>(findAll());
+            all.sort(FILTERED_ORDER);
+            cachedRecords = all;
+            cachedVersion = current;
+            logger.debug("loaded {} records, version {}", all.size(), current);
+        }
+        return cachedRecords;
+    }
+
     private static String filteringSelection(Gender gender, Integer age, Double bw, String groupName,
             Boolean newRecords) {
         String joins = null;
@@ -50,6 +50,17 @@ public class Team {
         this.gender = gender;
     }
 
+    public Team(Team other) {
+        this.counted = other.counted;
+        this.gender = other.gender;
+        this.name = other.name;
+        this.points = other.points;
+        this.sinclairScore = other.sinclairScore;
+        this.size = other.size;
+        this.smfScore = other.smfScore;
+        this.robi = other.robi;
+    }
+
     public int getCounted() {
         return counted;
     }
@@ -0,0 +1,413 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.data.team;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.data.agegroup.AgeGroup;
+import app.owlcms.data.agegroup.AgeGroupRepository;
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.Gender;
+import app.owlcms.data.athleteSort.AthleteSorter;
+import app.owlcms.data.athleteSort.Ranking;
+import app.owlcms.data.category.AgeDivision;
+import app.owlcms.data.category.Category;
+import app.owlcms.data.category.Participation;
+import app.owlcms.data.competition.Competition;
+import app.owlcms.data.group.Group;
+import app.owlcms.data.group.GroupRepository;
+import app.owlcms.spreadsheet.PAthlete;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Team scores kept in memory between changes.
+ *
+ * The team members of an age group, or of all the age groups of an age division, are loaded once and grouped by team
+ * and gender. When an athlete is saved, or when ranks are recomputed after a lift, only the participations of the
+ * athletes involved are replaced, and only the teams they leave or join are summed again, on next use. A change that
+ * is not reported here shows up as a new {@link Competition#getResultsVersion()} and causes a reload.
+ *
+ * @author Jean-François Lamy
+ */
+public class TeamResultsStore {
+
+    /**
+     * A team member, as a participation in one category, and whether the member's group is done.
+     */
+    public static class Member {
+        private final Athlete athlete;
+        private final boolean done;
+
+        Member(Athlete athlete, boolean done) {
+            this.athlete = athlete;
+            this.done = done;
+        }
+
+        public Athlete getAthlete() {
+            return athlete;
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+    }
+
+    /**
+     * The sums for a team of one gender, and its members in ranking order. Not modified once computed.
+     */
+    public static class TeamResult {
+        private final Team team;
+        private final List<Member> members;
+
+        TeamResult(Team team, List<Member> members) {
+            this.team = team;
+            this.members = Collections.unmodifiableList(members);
+        }
+
+        public List<Member> getMembers() {
+            return members;
+        }
+
+        /**
+         * @return a copy of the sums
+         */
+        public Team getTeam() {
+            return new Team(team);
+        }
+    }
+
+    /**
+     * The team members of an age group or age division.
+     */
+    private static class Division {
+        final String ageGroupPrefix;
+        final AgeDivision ageDivision;
+        /**
+         * categories already part of the division, when it covers an age division.
+         */
+        final Set<Long> categoryIds = new HashSet<>();
+        /**
+         * the teams where each athlete is present, so an athlete can be removed even if the team name has changed.
+         */
+        final Map<Long, Set<TeamMembers>> teamsByAthlete = new HashMap<>();
+        final Map<Gender, Map<String, TeamMembers>> teams = new EnumMap<>(Gender.class);
+
+        Division(String ageGroupPrefix, AgeDivision ageDivision) {
+            this.ageGroupPrefix = ageGroupPrefix;
+            this.ageDivision = ageDivision;
+        }
+
+        void add(Athlete pa) {
+            Gender gender = pa.getGender();
+            if (!pa.isTeamMember() || (gender != Gender.M && gender != Gender.F)) {
+                return;
+            }
+            TeamMembers t = teams
+                    .computeIfAbsent(gender, (g) -> new TreeMap<>(Comparator.nullsLast(Comparator.naturalOrder())))
+                    .computeIfAbsent(pa.getTeam(), (n) -> new TeamMembers(n, gender));
+            t.add(pa);
+            teamsByAthlete.computeIfAbsent(pa.getId(), (id) -> new HashSet<>()).add(t);
+        }
+
+        /**
+         * The participations of the athlete that belong to the division, as they would have been loaded.
+         */
+        List<Athlete> participationsOf(Athlete a) {
+            List<Athlete> pAthletes = new ArrayList<>();
+            for (Participation p : a.getParticipations()) {
+                Category c = p.getCategory();
+                AgeGroup ag = c != null ? c.getAgeGroup() : null;
+                if (ag == null) {
+                    continue;
+                }
+                if (ageGroupPrefix != null) {
+                    if (!ageGroupPrefix.equals(ag.getCode())
+                            || (ageDivision != null && ageDivision != ag.getAgeDivision())) {
+                        continue;
+                    }
+                    PAthlete pa = new PAthlete(p);
+                    // only weighed-in athletes count for a single age group
+                    if (pa.getBodyWeight() != null && pa.getBodyWeight() > 0.1) {
+                        pAthletes.add(pa);
+                    }
+                } else {
+                    if (ageDivision != ag.getAgeDivision()) {
+                        continue;
+                    }
+                    // the categories of the age division are those where athletes have been assigned a group
+                    if (!categoryIds.contains(c.getId()) && a.getGroup() == null) {
+                        continue;
+                    }
+                    categoryIds.add(c.getId());
+                    pAthletes.add(new PAthlete(p));
+                }
+            }
+            return pAthletes;
+        }
+
+        void update(Athlete a) {
+            if (a.getId() == null) {
+                return;
+            }
+            Set<TeamMembers> previous = teamsByAthlete.remove(a.getId());
+            if (previous != null) {
+                for (TeamMembers t : previous) {
+                    t.remove(a.getId());
+                    if (t.isEmpty()) {
+                        teams.get(t.gender).remove(t.name);
+                    }
+                }
+            }
+            for (Athlete pa : participationsOf(a)) {
+                add(pa);
+            }
+        }
+    }
+
+    /**
+     * The members of a team of one gender, and the sums computed for each ranking since the last change.
+     */
+    private static class TeamMembers {
+        final String name;
+        final Gender gender;
+        final List<Athlete> athletes = new ArrayList<>();
+        final Map<Ranking, TeamResult> results = new EnumMap<>(Ranking.class);
+
+        TeamMembers(String name, Gender gender) {
+            this.name = name;
+            this.gender = gender;
+        }
+
+        void add(Athlete pa) {
+            athletes.add(pa);
+            results.clear();
+        }
+
+        boolean contains(Group g) {
+            return athletes.stream().anyMatch(a -> a.getGroup() != null && a.getGroup().getId().equals(g.getId()));
+        }
+
+        boolean isEmpty() {
+            return athletes.isEmpty();
+        }
+
+        void remove(Long athleteId) {
+            athletes.removeIf(a -> athleteId.equals(a.getId()));
+            results.clear();
+        }
+
+        TeamResult result(Ranking ranking, Set<Long> doneGroupIds) {
+            TeamResult result = results.get(ranking);
+            if (result != null) {
+                return result;
+            }
+            // the size is the number of members in the division, counted below
+            Team team = new Team(name != null ? name : "-", gender);
+
+            List<Athlete> ordered = new ArrayList<>(athletes);
+            AthleteSorter.teamPointsOrder(ordered, ranking);
+            boolean combinedTotal = Competition.getCurrent().isSnatchCJTotalMedals();
+            List<Member> members = new ArrayList<>(ordered.size());
+            for (Athlete a : ordered) {
+                // "best n results" team competitions can have a different n for men and women
+                Integer maxCount = getTopNTeamSize(a.getGender());
+                boolean groupIsDone = a.getGroup() != null && doneGroupIds.contains(a.getGroup().getId());
+                Integer curPoints = combinedTotal ? a.getCombinedPoints() : a.getTotalPoints();
+
+                boolean b = team.getCounted() < maxCount;
+                boolean c = curPoints != null && curPoints > 0;
+                if (groupIsDone && b && c) {
+                    team.setPoints(team.getPoints() + Math.round(curPoints));
+                }
+                if (b) {
+                    team.setSinclairScore(team.getSinclairScore() + a.getSinclairForDelta());
+                    team.setSmfScore(team.getSmfScore() + a.getSmfForDelta());
+                    team.setCounted(team.getCounted() + 1);
+                    team.setRobi(team.getRobi() + a.getRobi());
+                }
+                members.add(new Member(a, groupIsDone));
+                team.setSize(team.getSize() + 1);
+            }
+            result = new TeamResult(team, members);
+            results.put(ranking, result);
+            return result;
+        }
+    }
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(TeamResultsStore.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    private static Map<String, Division> divisions = new HashMap<>();
+    private static Set<Long> doneGroupIds;
+    private static long version = -1;
+
+    /**
+     * Take into account an athlete just saved.
+     *
+     * @param a              the athlete as saved
+     * @param resultsVersion the results version produced by the save
+     */
+    public static synchronized void athleteSaved(Athlete a, long resultsVersion) {
+        if (a == null) {
+            return;
+        }
+        if (version == resultsVersion - 1 || version == resultsVersion) {
+            for (Division d : divisions.values()) {
+                d.update(a);
+            }
+            version = resultsVersion;
+        } else {
+            // another change took place in between, reload everything.
+            clear();
+        }
+    }
+
+    /**
+     * Take into account athletes whose ranks have been recomputed.
+     *
+     * @param athletes
+     * @param resultsVersion the results version the athletes reflect
+     */
+    public static synchronized void athletesUpdated(Collection<Athlete> athletes, long resultsVersion) {
+        if (divisions.isEmpty()) {
+            return;
+        }
+        if (version != resultsVersion - 1 && version != resultsVersion) {
+            // another change took place in between, reload everything.
+            clear();
+            return;
+        }
+        long start = System.nanoTime();
+        for (Division d : divisions.values()) {
+            for (Athlete a : athletes) {
+                d.update(a);
+            }
+        }
+        version = resultsVersion;
+        logger.debug("updated {} athletes in {} divisions in {} ms", athletes.size(), divisions.size(),
+                (System.nanoTime() - start) / 1000000.0);
+    }
+
+    /**
+     * Discard everything, the next request loads from the database.
+     */
+    public static synchronized void clear() {
+        divisions.clear();
+        doneGroupIds = null;
+    }
+
+    /**
+     * Take into account a group that is now done, or no longer done.
+     *
+     * @param g
+     */
+    public static synchronized void groupDoneChanged(Group g) {
+        if (doneGroupIds == null || g.getId() == null) {
+            return;
+        }
+        if (g.isDone()) {
+            doneGroupIds.add(g.getId());
+        } else {
+            doneGroupIds.remove(g.getId());
+        }
+        // only the points of the teams with members in the group change
+        for (Division d : divisions.values()) {
+            for (Map<String, TeamMembers> genderTeams : d.teams.values()) {
+                for (TeamMembers t : genderTeams.values()) {
+                    if (t.contains(g)) {
+                        t.results.clear();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param ageGroupPrefix an age group code, or null for all the age groups of the age division
+     * @param ageDivision
+     * @param gender
+     * @param ranking        determines which members are counted first
+     * @return the teams in alphabetical order, empty if there is no age division
+     */
+    public static synchronized List<TeamResult> getTeams(String ageGroupPrefix, AgeDivision ageDivision,
+            Gender gender, Ranking ranking) {
+        if (ageDivision == null) {
+            return Collections.emptyList();
+        }
+        long current = Competition.getResultsVersion();
+        if (current != version) {
+            clear();
+            version = current;
+        }
+        if (doneGroupIds == null) {
+            doneGroupIds = GroupRepository.findAll().stream().filter(g -> g.isDone()).map(g -> g.getId())
+                    .collect(Collectors.toCollection(HashSet::new));
+        }
+        String prefix = ageGroupPrefix != null && !ageGroupPrefix.isBlank() ? ageGroupPrefix : null;
+        Division d = divisions.computeIfAbsent(prefix + "/" + ageDivision, (k) -> load(prefix, ageDivision));
+
+        Map<String, TeamMembers> genderTeams = d.teams.get(gender);
+        if (genderTeams == null) {
+            return Collections.emptyList();
+        }
+        return genderTeams.values().stream().map(t -> t.result(ranking, doneGroupIds)).collect(Collectors.toList());
+    }
+
+    private static Integer getTopNTeamSize(Gender gender) {
+        Integer maxCount = null;
+        Competition comp = Competition.getCurrent();
+
+        switch (gender) {
+        case M:
+            maxCount = comp.getMensTeamSize() != null ? comp.getMensTeamSize() : Integer.MAX_VALUE;
+            break;
+        case F:
+            maxCount = comp.getWomensTeamSize() != null ? comp.getWomensTeamSize() : Integer.MAX_VALUE;
+            break;
+        }
+        return maxCount;
+    }
+
+    private static Division load(String ageGroupPrefix, AgeDivision ageDivision) {
+        long start = System.nanoTime();
+        Division d = new Division(ageGroupPrefix, ageDivision);
+        List<Athlete> pAthletes;
+        if (ageGroupPrefix != null) {
+            pAthletes = AgeGroupRepository.allWeighedInPAthletesForAgeGroupAgeDivision(ageGroupPrefix, ageDivision);
+        } else {
+            // iterate over all age groups present in the age division
+            pAthletes = new ArrayList<>();
+            for (String curAGPrefix : AgeGroupRepository.findActiveAndUsed(ageDivision)) {
+                pAthletes.addAll(AgeGroupRepository.allPAthletesForAgeGroup(curAGPrefix));
+            }
+        }
+        for (Athlete pa : pAthletes) {
+            d.categoryIds.add(((PAthlete) pa)._getOriginalParticipation().getCategory().getId());
+            d.add(pa);
+        }
+        logger.debug("loaded {} {}: {} participations in {} ms", ageGroupPrefix, ageDivision, pAthletes.size(),
+                (System.nanoTime() - start) / 1000000.0);
+        return d;
+    }
+
+}
@@ -74,6 +74,17 @@ public class TeamTreeItem {
         this.combinedPoints = Competition.getCurrent().isSnatchCJTotalMedals();
     }
 
+    /**
+     * A team node with precomputed sums.
+     *
+     * @param team
+     */
+    public TeamTreeItem(Team team) {
+        this.setTeam(team);
+        this.teamMembers = new ArrayList<>();
+        this.combinedPoints = Competition.getCurrent().isSnatchCJTotalMedals();
+    }
+
     public void addTreeItemChild(Athlete a, boolean done) {
         TeamTreeItem child = new TeamTreeItem(null, a.getGender(), a, done);
         child.setParent(this);
@@ -6,7 +6,6 @@
  *******************************************************************************/
 package app.owlcms.displays.attemptboard;
 
-import java.io.FileNotFoundException;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Timer;
@@ -142,19 +141,8 @@ public class AttemptBoard extends PolymerTemplate<TemplateModel> implements Disp
     }
 
     protected void checkImages() {
-        try {
-            ResourceWalker.getFileOrResourcePath("pictures");
-            athletePictures = true;
-        } catch (FileNotFoundException e) {
-            athletePictures = false;
-        }
-
-        try {
-            ResourceWalker.getFileOrResourcePath("flags");
-            teamFlags = true;
-        } catch (FileNotFoundException e) {
-            teamFlags = false;
-        }
+        athletePictures = ResourceWalker.findFileOrResourcePath("pictures") != null;
+        teamFlags = ResourceWalker.findFileOrResourcePath("flags") != null;
     }
 
     protected void doAthleteUpdate(Athlete a) {
@@ -540,13 +528,7 @@ public class AttemptBoard extends PolymerTemplate<TemplateModel> implements Disp
     }
 
     private boolean setProp(String propertyName, String prefix, String name, String suffix) {
-        boolean found;
-        try {
-            ResourceWalker.getFileOrResourcePath(prefix + name + suffix);
-            found = true;
-        } catch (FileNotFoundException e) {
-            found = false;
-        }
+        boolean found = ResourceWalker.findFileOrResourcePath(prefix + name + suffix) != null;
         if (found) {
             this.getElement().setProperty(propertyName, "<img src='local/" + prefix + name + suffix + "'></img>");
         } else {
@@ -399,7 +399,7 @@ public class CurrentAthlete extends PolymerTemplate<TemplateModel>
 
     public void uiLog(UIEvent e) {
         uiEventLogger.debug("### {} {} {} {} {}", this.getClass().getSimpleName(), e.getClass().getSimpleName(),
-                this.getOrigin(), e.getOrigin(), LoggerUtils.whereFrom());
+                this.getOrigin(), e.getOrigin(), LoggerUtils.caller());
     }
 
     protected void doEmpty() {
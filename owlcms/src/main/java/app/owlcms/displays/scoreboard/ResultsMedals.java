@@ -89,6 +89,21 @@ public class ResultsMedals extends PolymerTemplate<TemplateModel>
         implements DisplayParameters, SafeEventBusRegistration, UIEventProcessor, BreakDisplay, HasDynamicTitle,
         RequireDisplayLogin {
 
+    /**
+     * The medal categories as sent to the template, rendered once per group or category and results version.
+     */
+    private static class MedalsJson {
+        final String json;
+        final boolean empty;
+        final boolean wideTeamNames;
+
+        MedalsJson(String json, boolean empty, boolean wideTeamNames) {
+            this.json = json;
+            this.empty = empty;
+            this.wideTeamNames = wideTeamNames;
+        }
+    }
+
     JsonArray cattempts;
 
     JsonArray sattempts;
@@ -306,7 +321,7 @@ public class ResultsMedals extends PolymerTemplate<TemplateModel>
             newParameterMap.remove("cat");
         }
 
-        FOPParameters.logger.debug("URL parsing: {} OwlcmsSession: fop={} group={}", LoggerUtils.whereFrom(),
+        FOPParameters.logger.debug("URL parsing: {} OwlcmsSession: fop={} group={}", LoggerUtils.caller(),
                 (fop != null ? fop.getName() : null), (cat != null ? cat.getName() : null));
         HashMap<String, List<String>> params = newParameterMap;
 
@@ -529,50 +544,21 @@ public class ResultsMedals extends PolymerTemplate<TemplateModel>
     private void computeCategoryMedalsJson() {
         // logger.trace("computeCategoryMedalsJson = {} {}", getCategory(), LoggerUtils.whereFrom(1));
         OwlcmsSession.withFop(fop -> {
-            medals = Competition.getCurrent().getMedals(getGroup() != null ? getGroup() : fop.getGroup());
-            TreeSet<Athlete> medalists = medals.get(getCategory());
-
-            JsonArray jsonMCArray = Json.createArray();
-            JsonObject jMC = Json.createObject();
-            int mcX = 0;
-            if (medalists != null && !medalists.isEmpty()) {
-                jMC.put("categoryName", getCategory().getName());
-                jMC.put("leaders", getAthletesJson(new ArrayList<>(medalists), fop));
-                // logger.debug("medalCategory: {}", jMC.toJson());
-                jsonMCArray.set(mcX, jMC);
-                mcX++;
-            }
-
-            // logger.debug("medalCategories {}", jsonMCArray.toJson());
-            this.getElement().setPropertyJson("medalCategories", jsonMCArray);
-            if (mcX == 0) {
-                this.getElement().setProperty("noCategories", true);
-            }
+            Category cat = getCategory();
+            MedalsJson medalsJson = Competition.getCurrent().getMedalsRendering(
+                    getGroup() != null ? getGroup() : fop.getGroup(), "category " + cat.getId(),
+                    (medals) -> renderMedals(Collections.singletonMap(cat, medals.get(cat)), fop));
+            showMedals(medalsJson);
         });
     }
 
     private void computeGroupMedalsJson() {
         OwlcmsSession.withFop(fop -> {
             // logger.trace("computeGroupMedalsJson = {} {}", getGroup(), LoggerUtils.stackTrace());
-            medals = Competition.getCurrent().getMedals(getGroup() != null ? getGroup() : fop.getGroup());
-            JsonArray jsonMCArray = Json.createArray();
-            int mcX = 0;
-            for (Entry<Category, TreeSet<Athlete>> medalCat : medals.entrySet()) {
-                JsonObject jMC = Json.createObject();
-                TreeSet<Athlete> medalists = medalCat.getValue();
-                if (medalists != null && !medalists.isEmpty()) {
-                    jMC.put("categoryName", medalCat.getKey().getName());
-                    jMC.put("leaders", getAthletesJson(new ArrayList<>(medalists), fop));
-                    // logger.debug("medalCategory: {}", jMC.toJson());
-                    jsonMCArray.set(mcX, jMC);
-                    mcX++;
-                }
-            }
-            // logger.debug("medalCategories {}", jsonMCArray.toJson());
-            this.getElement().setPropertyJson("medalCategories", jsonMCArray);
-            if (mcX == 0) {
-                this.getElement().setProperty("noCategories", true);
-            }
+            MedalsJson medalsJson = Competition.getCurrent().getMedalsRendering(
+                    getGroup() != null ? getGroup() : fop.getGroup(), "group",
+                    (medals) -> renderMedals(medals, fop));
+            showMedals(medalsJson);
         });
     }
 
@@ -677,11 +663,6 @@ public class ResultsMedals extends PolymerTemplate<TemplateModel>
 //            }
             // no blinking = 0
             getAthleteJson(a, ja, curCat, 0);
-            String team = a.getTeam();
-            if (team != null && team.trim().length() > Competition.SHORT_TEAM_LENGTH) {
-                logger.trace("long team {}", team);
-                setWideTeamNames(true);
-            }
             jath.set(athx, ja);
             athx++;
         }
@@ -762,6 +743,37 @@ public class ResultsMedals extends PolymerTemplate<TemplateModel>
         setTranslationMap();
     }
 
+    /**
+     * @param medals medalists by category
+     * @param fop
+     * @return the medal categories for the template, shared by the displays showing the same medals
+     */
+    private MedalsJson renderMedals(Map<Category, TreeSet<Athlete>> medals, FieldOfPlay fop) {
+        JsonArray jsonMCArray = Json.createArray();
+        int mcX = 0;
+        boolean wideTeamNames = false;
+        for (Entry<Category, TreeSet<Athlete>> medalCat : medals.entrySet()) {
+            JsonObject jMC = Json.createObject();
+            TreeSet<Athlete> medalists = medalCat.getValue();
+            if (medalists != null && !medalists.isEmpty()) {
+                jMC.put("categoryName", medalCat.getKey().getName());
+                jMC.put("leaders", getAthletesJson(new ArrayList<>(medalists), fop));
+                // logger.debug("medalCategory: {}", jMC.toJson());
+                jsonMCArray.set(mcX, jMC);
+                mcX++;
+                for (Athlete a : medalists) {
+                    String team = a.getTeam();
+                    if (team != null && team.trim().length() > Competition.SHORT_TEAM_LENGTH) {
+                        logger.trace("long team {}", team);
+                        wideTeamNames = true;
+                    }
+                }
+            }
+        }
+        // logger.debug("medalCategories {}", jsonMCArray.toJson());
+        return new MedalsJson(jsonMCArray.toJson(), mcX == 0, wideTeamNames);
+    }
+
     private void retrieveFromSessionStorage(String key, SerializableConsumer<String> resultHandler) {
         getElement().executeJs("return window.sessionStorage.getItem($0);", key)
                 .then(String.class, resultHandler);
@@ -783,6 +795,16 @@ public class ResultsMedals extends PolymerTemplate<TemplateModel>
         this.getElement().setProperty("teamWidthClass", (wide ? "wideTeams" : "narrowTeams"));
     }
 
+    private void showMedals(MedalsJson medalsJson) {
+        this.getElement().setPropertyJson("medalCategories", Json.parse(medalsJson.json));
+        if (medalsJson.empty) {
+            this.getElement().setProperty("noCategories", true);
+        }
+        if (medalsJson.wideTeamNames) {
+            setWideTeamNames(true);
+        }
+    }
+
     private void syncWithFOP(UIEvent.SwitchGroup e) {
         // logger.debug("sync {}", e.getState());
         switch (e.getState()) {
@@ -805,7 +827,7 @@ public class ResultsMedals extends PolymerTemplate<TemplateModel>
 
     private void uiLog(UIEvent e) {
         uiEventLogger.debug("### {} {} {} {} {}", this.getClass().getSimpleName(), e.getClass().getSimpleName(),
-                this.getOrigin(), e.getOrigin(), LoggerUtils.whereFrom());
+                this.getOrigin(), e.getOrigin(), LoggerUtils.caller());
     }
 
     private void updateBottom(String liftType, FieldOfPlay fop) {
@@ -6,10 +6,9 @@
  *******************************************************************************/
 package app.owlcms.displays.topathletes;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Locale;
 import java.util.Timer;
 
 import org.slf4j.LoggerFactory;
@@ -35,7 +34,7 @@ import app.owlcms.data.athlete.Gender;
 import app.owlcms.data.athlete.LiftDefinition.Changes;
 import app.owlcms.data.athlete.LiftInfo;
 import app.owlcms.data.athlete.XAthlete;
-import app.owlcms.data.athleteSort.AthleteSorter;
+import app.owlcms.data.athleteSort.TopSinclairStore;
 import app.owlcms.data.competition.Competition;
 import app.owlcms.displays.options.DisplayOptions;
 import app.owlcms.fieldofplay.FieldOfPlay;
@@ -78,6 +77,23 @@ public class TopSinclair extends PolymerTemplate<TemplateModel> implements Displ
         uiEventLogger.setLevel(Level.INFO);
     }
 
+    /**
+     * What is shown for the top athletes of a gender, the same for all the displays with the same locale.
+     */
+    private static class TopJson {
+        final String title;
+        final String json;
+        final boolean wide;
+
+        TopJson(String title, String json, boolean wide) {
+            this.title = title;
+            this.json = json;
+            this.wide = wide;
+        }
+    }
+
+    private static final int NB_ATHLETES = 5;
+
     JsonArray cattempts;
 
     JsonArray sattempts;
@@ -86,10 +102,8 @@ public class TopSinclair extends PolymerTemplate<TemplateModel> implements Displ
     private boolean initializationNeeded;
     private Location location;
     private UI locationUI;
-    private List<Athlete> sortedMen;
-    private List<Athlete> sortedWomen;
-    private double topManSinclair;
-    private double topWomanSinclair;
+    private TopJson topMen;
+    private TopJson topWomen;
     private EventBus uiEventBus;
     private Timer dialogTimer;
 
@@ -136,17 +150,12 @@ public class TopSinclair extends PolymerTemplate<TemplateModel> implements Displ
     public void doUpdate(Competition competition) {
         this.getElement().callJsFunction("reset");
 
-        // create copies because we want to change the list
-        AthleteSorter.TopSinclair topSinclair;
-        List<Athlete> sortedMen2 = new ArrayList<Athlete>(competition.getGlobalSinclairRanking(Gender.M));
-        topSinclair = (AthleteSorter.topSinclair(sortedMen2, 5));
-        setSortedMen(topSinclair.topAthletes);
-        topManSinclair = topSinclair.best;
-
-        List<Athlete> sortedWomen2 = new ArrayList<Athlete>(competition.getGlobalSinclairRanking(Gender.F));
-        topSinclair = (AthleteSorter.topSinclair(sortedWomen2, 5));
-        setSortedWomen(topSinclair.topAthletes);
-        topWomanSinclair = topSinclair.best;
+        // rendered by the first display that asks, until the top athletes change
+        Locale locale = getLocale();
+        topMen = TopSinclairStore.getRendered(Gender.M, NB_ATHLETES, locale.toString(),
+                (top) -> renderTop(top, "Scoreboard.TopSinclairMen", locale));
+        topWomen = TopSinclairStore.getRendered(Gender.F, NB_ATHLETES, locale.toString(),
+                (top) -> renderTop(top, "Scoreboard.TopSinclairWomen", locale));
 
         updateBottom();
     }
@@ -295,10 +304,10 @@ public class TopSinclair extends PolymerTemplate<TemplateModel> implements Displ
 
     public void uiLog(UIEvent e) {
         if (e == null) {
-            uiEventLogger.debug("### {} {}", this.getClass().getSimpleName(), LoggerUtils.whereFrom());
+            uiEventLogger.debug("### {} {}", this.getClass().getSimpleName(), LoggerUtils.caller());
         } else {
             uiEventLogger.debug("### {} {} {}", this.getClass().getSimpleName(), e.getClass().getSimpleName(),
-                    LoggerUtils.whereFrom());
+                    LoggerUtils.caller());
         }
     }
 
@@ -434,33 +443,13 @@ public class TopSinclair extends PolymerTemplate<TemplateModel> implements Displ
                 : (total.startsWith("-") ? "(" + total.substring(1) + ")" : total);
     }
 
-    private JsonValue getAthletesJson(List<Athlete> list2, boolean overrideTeamWidth) {
+    private JsonValue getAthletesJson(List<Athlete> athletes, double best) {
         JsonArray jath = Json.createArray();
         int athx = 0;
-        List<Athlete> list3 = list2 != null ? Collections.unmodifiableList(list2) : Collections.emptyList();
-        if (overrideTeamWidth) {
-            // when we are called for the second time, and there was a wide team in the top section.
-            // we use the wide team setting for the remaining sections.
-            setWide(false);
-        }
-
-        for (Athlete a : list3) {
+        for (Athlete a : athletes) {
             JsonObject ja = Json.createObject();
-            Gender curGender = a.getGender();
-
-            int needed;
-            if (curGender == Gender.F) {
-                needed = (int) Math
-                        .round(Math.ceil((topWomanSinclair - a.getSinclairForDelta()) / a.getSinclairFactor()));
-            } else {
-                needed = (int) Math
-                        .round(Math.ceil((topManSinclair - a.getSinclairForDelta()) / a.getSinclairFactor()));
-            }
-            getAthleteJson(a, ja, curGender, needed);
-            String team = a.getTeam();
-            if (team != null && team.length() > Competition.SHORT_TEAM_LENGTH) {
-                setWide(true);
-            }
+            int needed = (int) Math.round(Math.ceil((best - a.getSinclairForDelta()) / a.getSinclairFactor()));
+            getAthleteJson(a, ja, a.getGender(), needed);
             jath.set(athx, ja);
             athx++;
         }
@@ -472,22 +461,13 @@ public class TopSinclair extends PolymerTemplate<TemplateModel> implements Displ
         return this;
     }
 
-    private List<Athlete> getSortedMen() {
-        return this.sortedMen;
-    }
-
-    private List<Athlete> getSortedWomen() {
-        return this.sortedWomen;
-    }
-
-    private void setSortedMen(List<Athlete> sortedMen) {
-        this.sortedMen = sortedMen;
-        logger.debug("sortedMen = {} -- {}", getSortedMen(), LoggerUtils.whereFrom());
-    }
-
-    private void setSortedWomen(List<Athlete> sortedWomen) {
-        this.sortedWomen = sortedWomen;
-        logger.debug("sortedWomen = {} -- {}", getSortedWomen(), LoggerUtils.whereFrom());
+    private TopJson renderTop(TopSinclairStore.Top top, String titleKey, Locale locale) {
+        List<Athlete> athletes = top.getAthletes();
+        boolean wide = athletes.stream()
+                .anyMatch(a -> a.getTeam() != null && a.getTeam().length() > Competition.SHORT_TEAM_LENGTH);
+        String title = athletes.size() > 0 ? Translator.translate(titleKey, locale) : "";
+        logger.debug("renderTop {} {}", titleKey, athletes);
+        return new TopJson(title, getAthletesJson(athletes, top.getBest()).toJson(), wide);
     }
 
     private void setWide(boolean b) {
@@ -496,17 +476,15 @@ public class TopSinclair extends PolymerTemplate<TemplateModel> implements Displ
 
     private void updateBottom() {
         getElement().setProperty("fullName", getTranslation("Scoreboard.TopSinclair"));
-        List<Athlete> sortedMen2 = getSortedMen();
-        this.getElement().setProperty("topSinclairMen",
-                sortedMen2 != null && sortedMen2.size() > 0 ? getTranslation("Scoreboard.TopSinclairMen") : "");
-        this.getElement().setPropertyJson("sortedMen", getAthletesJson(sortedMen2, true));
-
-        List<Athlete> sortedWomen2 = getSortedWomen();
-        this.getElement().setProperty("topSinclairWomen",
-                sortedWomen2 != null && sortedWomen2.size() > 0 ? getTranslation("Scoreboard.TopSinclairWomen") : "");
-        this.getElement().setPropertyJson("sortedWomen", getAthletesJson(sortedWomen2, false));
-
-        logger.debug("updateBottom {} {}", sortedWomen2, sortedMen2);
+        if (topMen == null || topWomen == null) {
+            return;
+        }
+        // a wide team name in either section widens both
+        setWide(topMen.wide || topWomen.wide);
+        this.getElement().setProperty("topSinclairMen", topMen.title);
+        this.getElement().setPropertyJson("sortedMen", Json.parse(topMen.json));
+        this.getElement().setProperty("topSinclairWomen", topWomen.title);
+        this.getElement().setPropertyJson("sortedWomen", Json.parse(topWomen.json));
     }
 
     @Override
@@ -407,10 +407,10 @@ public class TopTeams extends PolymerTemplate<TemplateModel> implements DisplayP
 
     public void uiLog(UIEvent e) {
         if (e == null) {
-            uiEventLogger.debug("### {} {}", this.getClass().getSimpleName(), LoggerUtils.whereFrom());
+            uiEventLogger.debug("### {} {}", this.getClass().getSimpleName(), LoggerUtils.caller());
         } else {
             uiEventLogger.debug("### {} {} {}", this.getClass().getSimpleName(), e.getClass().getSimpleName(),
-                    LoggerUtils.whereFrom());
+                    LoggerUtils.caller());
         }
     }
 
@@ -6,7 +6,9 @@
  *******************************************************************************/
 package app.owlcms.fieldofplay;
 
+import java.lang.StackWalker.StackFrame;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Objects;
 
 import org.slf4j.LoggerFactory;
@@ -323,7 +325,7 @@ public class FOPEvent {
         }
 
         private void trace(Boolean ref1, Boolean ref2, Boolean ref3, boolean immediate) {
-            logger.trace("decision full update {} {} {} {}", ref1, ref2, ref3, LoggerUtils.whereFrom(2));
+            logger.trace("decision full update {} {} {} {}", ref1, ref2, ref3, LoggerUtils.caller(2));
         }
         public void trace() {
             trace(ref1, ref2, ref3, immediate);
@@ -687,7 +689,10 @@ public class FOPEvent {
 
     private FieldOfPlay fop;
 
-    private String stackTrace;
+    /**
+     * Where the event was created; formatted only when needed.
+     */
+    private List<StackFrame> stackFrames;
 
     private long timestamp;
 
@@ -696,7 +701,7 @@ public class FOPEvent {
 //        if (this.fop == null) {
 //            logger.error("no fop  {}",LoggerUtils.stackTrace());
 //        }
-        this.stackTrace = LoggerUtils.stackTrace();
+        this.stackFrames = LoggerUtils.stackFrames(0);
         this.athlete = athlete;
         this.origin = origin;
         this.timestamp = System.currentTimeMillis();
@@ -734,7 +739,14 @@ public class FOPEvent {
     }
 
     public String getStackTrace() {
-        return stackTrace;
+        return LoggerUtils.format(stackFrames);
+    }
+
+    /**
+     * @return the location that created the event, skipping the event constructors
+     */
+    public String getWhereFrom() {
+        return stackFrames.size() > 3 ? stackFrames.get(3).toStackTraceElement().toString() : "?";
     }
 
     @Override
@@ -49,15 +49,19 @@ import app.owlcms.data.athlete.AthleteRepository;
 import app.owlcms.data.athlete.LiftDefinition;
 import app.owlcms.data.athleteSort.AthleteSorter;
 import app.owlcms.data.athleteSort.Ranking;
+import app.owlcms.data.athleteSort.TopSinclairStore;
 import app.owlcms.data.category.Category;
 import app.owlcms.data.category.Participation;
 import app.owlcms.data.competition.Competition;
 import app.owlcms.data.config.Config;
 import app.owlcms.data.group.Group;
 import app.owlcms.data.jpa.JPAService;
+import app.owlcms.data.jpa.QueryCounter;
 import app.owlcms.data.platform.Platform;
 import app.owlcms.data.records.RecordEvent;
 import app.owlcms.data.records.RecordFilter;
+import app.owlcms.data.records.RecordRepository;
+import app.owlcms.data.team.TeamResultsStore;
 import app.owlcms.fieldofplay.FOPEvent.BarbellOrPlatesChanged;
 import app.owlcms.fieldofplay.FOPEvent.CeremonyDone;
 import app.owlcms.fieldofplay.FOPEvent.CeremonyStarted;
@@ -79,6 +83,8 @@ import app.owlcms.fieldofplay.FOPEvent.WeightChange;
 import app.owlcms.i18n.Translator;
 import app.owlcms.init.OwlcmsSession;
 import app.owlcms.sound.Sound;
+import app.owlcms.init.OwlcmsFactory;
+import app.owlcms.sound.SoundPlayer;
 import app.owlcms.sound.Tone;
 import app.owlcms.spreadsheet.PAthlete;
 import app.owlcms.uievents.BreakType;
@@ -172,8 +178,11 @@ public class FieldOfPlay {
 
     private int liftsDoneAtLastStart;
 
+    private MQTTMonitor mqttMonitor;
+
     final private Logger logger = (Logger) LoggerFactory.getLogger(FieldOfPlay.class);
     private TreeMap<Category, TreeSet<Athlete>> medals;
+    private PastLiftOrder pastLiftOrder = new PastLiftOrder();
 
     private String name;
 
@@ -247,7 +256,8 @@ public class FieldOfPlay {
         String paramMqttServer = Config.getCurrent().getParamMqttServer();
         boolean mqttInternal = Config.getCurrent().getParamMqttInternal();
         if (mqttInternal || paramMqttServer != null) {
-            new Thread(() -> new MQTTMonitor(this)).start();
+            // does not block, the shared MQTT connection is established in the background
+            mqttMonitor = new MQTTMonitor(this);
         }
 
         this.athleteTimer = null;
@@ -270,6 +280,16 @@ public class FieldOfPlay {
         wakeUpRef = null;
     }
 
+    /**
+     * Stop listening to the MQTT refereeing devices, when the field of play is replaced or removed.
+     */
+    public void closeMQTTMonitor() {
+        if (mqttMonitor != null) {
+            mqttMonitor.close();
+            mqttMonitor = null;
+        }
+    }
+
     public boolean computeShowAllGroupRecords() {
         boolean forced = Config.getCurrent().featureSwitch("forceAllGroupRecords");
         return forced || showAllGroupRecords;
@@ -541,7 +561,7 @@ public class FieldOfPlay {
     }
 
     private void emitDown(FOPEvent e) {
-        logger.debug("{}Emitting down {}", getLoggingName(), LoggerUtils.whereFrom(2));
+        logger.debug("{}Emitting down {}", getLoggingName(), LoggerUtils.caller(2));
         getAthleteTimer().stop(); // paranoia
         this.setPreviousAthlete(getCurAthlete()); // would be safer to use past lifting order
         setClockOwner(null); // athlete has lifted, time does not keep running for them
@@ -756,6 +776,13 @@ public class FieldOfPlay {
         return newRecords;
     }
 
+    /**
+     * @return the lifts done so far, in the order the rules say they were done
+     */
+    public PastLiftOrder getPastLiftOrder() {
+        return pastLiftOrder;
+    }
+
     /**
      * @return the platform
      */
@@ -793,6 +820,11 @@ public class FieldOfPlay {
         return refereeTime;
     }
 
+    private Mixer.Info mixerInfo(Platform platform) {
+        Mixer mixer = platform == null ? null : platform.getMixer();
+        return mixer == null ? null : mixer.getMixerInfo();
+    }
+
     private Mixer getSoundMixer() {
         Platform platform2 = getPlatform();
         return platform2 == null ? null : platform2.getMixer();
@@ -861,18 +893,6 @@ public class FieldOfPlay {
         return weightAtLastStart;
     }
 
-    private String getWhereFrom(String stackTrace) {
-        if (stackTrace != null) {
-            String sep = System.lineSeparator();
-            int start = stackTrace.indexOf(sep);
-            start = stackTrace.indexOf(sep, start + 1);
-            start = stackTrace.indexOf(sep, start + 1);
-            return stackTrace.substring(start + 3, stackTrace.indexOf(sep, start + 1));
-        } else {
-            return "?";
-        }
-    }
-
     /**
      * Handle field of play events.
      *
@@ -894,20 +914,19 @@ public class FieldOfPlay {
      */
     @Subscribe
     public synchronized void handleFOPEvent(FOPEvent e) {
-        String stackTrace = e.getStackTrace();
         if (e.getFop() != this) {
-            logger./**/error("wrong event subscription {} {}\n{}", e, e.getFop(), this, stackTrace);
+            logger./**/error("wrong event subscription {} {}\n{}", e, e.getFop(), this, e.getStackTrace());
             return;
             // throw new RuntimeException("wrong event subscription");
         }
         int newHash = e.hashCode();
         if (prevHash != null && newHash == prevHash) {
             logger.debug("{}state {}, DUPLICATE event received {} {} {}", getLoggingName(), stateName(this.getState()),
-                    e, getWhereFrom(stackTrace));
+                    e, e.getWhereFrom());
             return;
         } else {
             logger.info("{}state {}, event received {} from {}", getLoggingName(), stateName(this.getState()),
-                    e, getWhereFrom(stackTrace));
+                    e, e.getWhereFrom());
             prevHash = newHash;
         }
 
@@ -1357,7 +1376,7 @@ public class FieldOfPlay {
                         loadGroupName,
                         alreadyLoaded,
                         forceLoad,
-                        LoggerUtils.whereFrom());
+                        LoggerUtils.caller());
             }
             List<Athlete> groupAthletes = AthleteRepository.findAllByGroupAndWeighIn(group, true);
             if (groupAthletes.stream().map(Athlete::getStartNumber).anyMatch(sn -> sn == 0)) {
@@ -1398,6 +1417,9 @@ public class FieldOfPlay {
         if (isEmitSoundsOnServer()) {
             try {
                 downSignal = new Tone(getSoundMixer(), 1100, 1200, 1.0);
+                // decode and open the lines now, not when the clock runs out
+                SoundPlayer.forMixer(getSoundMixer()).preload("down.wav", "initialWarning.wav", "finalWarning.wav",
+                        "timeOver.wav");
             } catch (IllegalArgumentException | LineUnavailableException e) {
                 logger.error("{}\n{}", e.getCause(), LoggerUtils./**/stackTrace(e));
                 broadcast("SoundSystemProblem");
@@ -1610,7 +1632,7 @@ public class FieldOfPlay {
                 getPreviousAthlete() != null ? getPreviousAthlete().getFullName() : "",
                 timeAllowed,
                 attemptsDone,
-                LoggerUtils.whereFrom());
+                LoggerUtils.caller());
         if (currentDisplayAffected) {
             getAthleteTimer().setTimeRemaining(timeAllowed, false);
         } else {
@@ -1632,8 +1654,16 @@ public class FieldOfPlay {
      * @param recomputeRanks true if a result has changed and ranks need to be recomputed
      */
     private void recomputeOrderAndRanks(boolean recomputeRanks) {
+        try (QueryCounter.Scope s = QueryCounter.scope(getLoggingName() + "recomputeOrderAndRanks")) {
+            doRecomputeOrderAndRanks(recomputeRanks);
+        }
+    }
+
+    private void doRecomputeOrderAndRanks(boolean recomputeRanks) {
         Group g = getGroup();
         List<Athlete> athletes;
+        // what is computed from the athletes fetched below reflects at least this version of the results
+        long resultsVersion = Competition.getResultsVersion();
 
         long startAssignRanks = System.nanoTime();
         long endAssignRanks = 0;
@@ -1657,6 +1687,16 @@ public class FieldOfPlay {
                 em.flush();
                 return nl;
             });
+            if (athletes != null) {
+                // the new ranks are a change of results. What is computed from these athletes reflects the new
+                // version, unless another change took place since they were read.
+                long rankedVersion = Competition.getCurrent().invalidateRankings();
+                if (rankedVersion == resultsVersion + 1) {
+                    resultsVersion = rankedVersion;
+                }
+                // ranks, and therefore team points, have changed for these athletes only.
+                TeamResultsStore.athletesUpdated(athletes, resultsVersion);
+            }
         } else {
             athletes = JPAService.runInTransaction(em -> {
                 List<Athlete> l = AthleteRepository.findAthletesForGlobalRanking(em, g);
@@ -1673,6 +1713,10 @@ public class FieldOfPlay {
                 return nl;
             });
         }
+        if (athletes != null) {
+            // results or requested weights may have changed, the top sinclair displays show both.
+            TopSinclairStore.athletesUpdated(athletes, resultsVersion);
+        }
         endAssignRanks = System.nanoTime();
 
         if (athletes == null) {
@@ -1682,7 +1726,7 @@ public class FieldOfPlay {
         } else {
 
             if (recomputeRanks) {
-                setMedals(Competition.getCurrent().computeMedals(g, athletes));
+                setMedals(Competition.getCurrent().computeMedals(g, athletes, resultsVersion));
             }
             endMedals = System.nanoTime();
 
@@ -1796,7 +1840,7 @@ public class FieldOfPlay {
         // time will be restarted anyway
         setWeightAtLastStart(0);
         logger.trace("resumeLifting {} {} from:{}", e.getAthlete(),
-                LoggerUtils.whereFrom());
+                LoggerUtils.caller());
 
         boolean resumed = false;
         if (getCurAthlete() != null) {
@@ -1979,6 +2023,7 @@ public class FieldOfPlay {
 
     private void setLiftingOrder(List<Athlete> liftingOrder) {
         this.liftingOrder = liftingOrder;
+        this.pastLiftOrder.update(liftingOrder);
     }
 
     /**
@@ -2003,7 +2048,7 @@ public class FieldOfPlay {
 
     public void setNewRecords(List<RecordEvent> newRecords) {
         if (newRecords == null || newRecords.isEmpty()) {
-            logger.debug("{} + clearing records {}", getLoggingName(), LoggerUtils.whereFrom());
+            logger.debug("{} + clearing records {}", getLoggingName(), LoggerUtils.caller());
         }
         this.newRecords = newRecords;
     }
@@ -2014,7 +2059,15 @@ public class FieldOfPlay {
      * @param platform the platform to set
      */
     public void setPlatform(Platform platform) {
+        Platform previous = this.platform;
         this.platform = platform;
+        if (previous != null && !Objects.equals(mixerInfo(previous), mixerInfo(platform))) {
+            // the lines of the previous mixer are closed, the down signal goes to the new one
+            OwlcmsFactory.closeUnselectedMixers();
+            if (downSignal != null) {
+                prepareDownSignal();
+            }
+        }
     }
 
     private void setPreviousAthlete(Athlete athlete) {
@@ -2457,15 +2510,13 @@ public class FieldOfPlay {
         boolean downEmitted2 = isDownEmitted();
         uiEventLogger.debug("showDownSignalOnSlaveDisplays server={} emitted={}", emitSoundsOnServer2, downEmitted2);
         if (emitSoundsOnServer2 && !downEmitted2) {
-            // sound is synchronous, we don't want to wait.
-            new Thread(() -> {
-                try {
-                    new Sound(getSoundMixer(), "down.wav").emit();
-                    // downSignal.emit();
-                } catch (IllegalArgumentException /* | LineUnavailableException */ e) {
-                    broadcast("SoundSystemProblem");
-                }
-            }).start();
+            // sound is queued on an open line, we don't wait.
+            try {
+                new Sound(getSoundMixer(), "down.wav").emit();
+                // downSignal.emit();
+            } catch (IllegalArgumentException /* | LineUnavailableException */ e) {
+                broadcast("SoundSystemProblem");
+            }
             setDownEmitted(true);
         }
         pushOutUIEvent(new UIEvent.DownSignal(origin2));
@@ -2525,7 +2576,7 @@ public class FieldOfPlay {
         if (a == null) {
             return newRecords;
         }
-        logger.debug("{}updateRecords {} {} {}", getLoggingName(), a.getShortName(), success, LoggerUtils.whereFrom());
+        logger.debug("{}updateRecords {} {} {}", getLoggingName(), a.getShortName(), success, LoggerUtils.caller());
         if (success) {
             for (RecordEvent rec : challengedRecords) {
                 Double value = rec.getRecordValue();
@@ -2552,28 +2603,22 @@ public class FieldOfPlay {
                     break;
                 }
             }
-            JPAService.runInTransaction(em -> {
-                // create the new records.
-                // do not remove obsolete records, in case jury reverses new record
-                // we always use the largest record, so no harm done by keeping the old ones.
-                for (RecordEvent re : newRecords) {
-                    logger.info("new record: {}", re);
-                    em.persist(re);
-                }
-                return null;
-            });
+            // create the new records.
+            // do not remove obsolete records, in case jury reverses new record
+            // we always use the largest record, so no harm done by keeping the old ones.
+            for (RecordEvent re : newRecords) {
+                logger.info("new record: {}", re);
+            }
+            RecordRepository.saveNewRecords(newRecords);
             recomputeRecordsMap(displayOrder);
             return newRecords;
         } else {
             // remove records just established as they are invalid.
             if (voidableRecords != null) {
-                JPAService.runInTransaction(em -> {
-                    for (RecordEvent re : voidableRecords) {
-                        logger.info("cancelled record: {}", re);
-                        em.remove(em.merge(re));
-                    }
-                    return null;
-                });
+                for (RecordEvent re : voidableRecords) {
+                    logger.info("cancelled record: {}", re);
+                }
+                RecordRepository.removeRecords(voidableRecords);
                 recomputeRecordsMap(displayOrder);
             }
             return new ArrayList<>();
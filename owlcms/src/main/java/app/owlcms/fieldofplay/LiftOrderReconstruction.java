@@ -6,6 +6,7 @@
  *******************************************************************************/
 package app.owlcms.fieldofplay;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.TreeSet;
@@ -20,7 +21,14 @@ public class LiftOrderReconstruction {
     private TreeSet<LiftOrderInfo> pastOrder;
 
     public LiftOrderReconstruction(FieldOfPlay fop) {
-        computePastOrder(fop);
+        computePastOrder(fop.getLiftingOrder());
+    }
+
+    /**
+     * @param athletes in lifting order
+     */
+    public LiftOrderReconstruction(List<Athlete> athletes) {
+        computePastOrder(athletes);
     }
 
     public LiftOrderInfo getLastLift() {
@@ -55,56 +63,68 @@ public class LiftOrderReconstruction {
 //        }
     }
 
+    /**
+     * Past lifts of one athlete, in attempt order.
+     *
+     * @param a
+     * @return the lifts actually attempted
+     */
+    static List<LiftOrderInfo> pastLifts(Athlete a) {
+        List<LiftOrderInfo> lifts = new ArrayList<>(6);
+        int prevweight = 0;
+        for (int liftNo = 0; liftNo < 6; liftNo++) {
+            LiftOrderInfo ali = new LiftOrderInfo();
+            int w;
+            switch (liftNo) {
+            case 0:
+                w = Math.abs(Athlete.zeroIfInvalid(a.getSnatch1ActualLift()));
+                prevweight = w;
+                ali.setWeight(w);
+                break;
+            case 1:
+                ali.setWeight(Math.abs(Athlete.zeroIfInvalid(a.getSnatch2ActualLift())));
+                break;
+            case 2:
+                ali.setWeight(Math.abs(Athlete.zeroIfInvalid(a.getSnatch3ActualLift())));
+                break;
+            case 3:
+                w = Math.abs(Athlete.zeroIfInvalid(a.getCleanJerk1ActualLift()));
+                prevweight = w;
+                ali.setWeight(w);
+                break;
+            case 4:
+                ali.setWeight(Math.abs(Athlete.zeroIfInvalid(a.getCleanJerk2ActualLift())));
+                break;
+            case 5:
+                ali.setWeight(Math.abs(Athlete.zeroIfInvalid(a.getCleanJerk3ActualLift())));
+                break;
+            }
+            ali.setAthlete(a);
+            ali.setAttemptNo(liftNo + 1);
+            ali.setProgression(ali.getWeight() - prevweight);
+            prevweight = Math.abs(ali.getWeight());
+            ali.setStartNumber(a.getStartNumber());
+            ali.setLotNumber(a.getLotNumber());
+
+            if (ali.getWeight() > 0) {
+                lifts.add(ali);
+            }
+        }
+        return lifts;
+    }
+
     /**
      * Reconstructed lifting order according to rules
      *
-     * @param fop
+     * @param athletes
      */
-    private Collection<LiftOrderInfo> computePastOrder(FieldOfPlay fop) {
+    private Collection<LiftOrderInfo> computePastOrder(List<Athlete> athletes) {
         this.pastOrder = new TreeSet<>();
-        List<Athlete> athletes = fop.getLiftingOrder();
-
+        if (athletes == null) {
+            return this.pastOrder;
+        }
         for (Athlete a : athletes) {
-            int prevweight = 0;
-            for (int liftNo = 0; liftNo < 6; liftNo++) {
-                LiftOrderInfo ali = new LiftOrderInfo();
-                int w;
-                switch (liftNo) {
-                case 0:
-                    w = Math.abs(Athlete.zeroIfInvalid(a.getSnatch1ActualLift()));
-                    prevweight = w;
-                    ali.setWeight(w);
-                    break;
-                case 1:
-                    ali.setWeight(Math.abs(Athlete.zeroIfInvalid(a.getSnatch2ActualLift())));
-                    break;
-                case 2:
-                    ali.setWeight(Math.abs(Athlete.zeroIfInvalid(a.getSnatch3ActualLift())));
-                    break;
-                case 3:
-                    w = Math.abs(Athlete.zeroIfInvalid(a.getCleanJerk1ActualLift()));
-                    prevweight = w;
-                    ali.setWeight(w);
-                    break;
-                case 4:
-                    ali.setWeight(Math.abs(Athlete.zeroIfInvalid(a.getCleanJerk2ActualLift())));
-                    break;
-                case 5:
-                    ali.setWeight(Math.abs(Athlete.zeroIfInvalid(a.getCleanJerk3ActualLift())));
-                    break;
-                }
-                ali.setAthlete(a);
-                ali.setAttemptNo(liftNo + 1);
-                ali.setProgression(ali.getWeight() - prevweight);
-                prevweight = Math.abs(ali.getWeight());
-                ali.setStartNumber(a.getStartNumber());
-                ali.setLotNumber(a.getLotNumber());
-
-                if (ali.getWeight() > 0) {
-                    this.pastOrder.add(ali);
-                }
-
-            }
+            this.pastOrder.addAll(pastLifts(a));
         }
         return this.pastOrder;
     }
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.fieldofplay;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.Main;
+import app.owlcms.data.config.Config;
+import app.owlcms.utils.LoggerUtils;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * The single connection to the MQTT server, shared by all the fields of play.
+ *
+ * The device topics of every platform are covered by a few wildcard subscriptions. Each incoming message is routed to
+ * the {@link MQTTMonitor} of its field of play by an exact lookup of the topic, from the topics each monitor registered.
+ *
+ * Connecting, reconnecting and publishing all take place on one thread. Messages published in a burst (LEDs, summons,
+ * decision requests) are sent back-to-back as one batch, in order.
+ *
+ * @author Jean-François Lamy
+ */
+public class MQTTConnection implements MqttCallback {
+
+    private static class Outbound {
+        final String topic;
+        final byte[] payload;
+
+        Outbound(String topic, String payload) {
+            this.topic = topic;
+            this.payload = payload.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Everything the devices publish. The server's own topics (owlcms/fop/...) are deliberately not matched, so that
+     * our publications do not come back to us.
+     */
+    private static final String[] DEVICE_SUBSCRIPTIONS = {
+            "owlcms/decision/+", "owlcms/clock/+", "owlcms/refbox/#", "owlcms/jurybox/#" };
+
+    private static final int MAX_INFLIGHT = 100;
+    private static final int RETRY_SECONDS = 1;
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(MQTTConnection.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    private static MQTTConnection instance;
+
+    public static MqttAsyncClient createMQTTClient() throws MqttException {
+        String server = Config.getCurrent().getParamMqttServer();
+        server = (server != null ? server : "127.0.0.1");
+        String port = Config.getCurrent().getParamMqttPort();
+        port = (port != null ? port : "1883");
+        String string = port.startsWith("8") ? "ssl://" : "tcp://";
+        Main.getStartupLogger().info("connecting to MQTT {}{}:{}", string, server, port);
+
+        MqttAsyncClient client = new MqttAsyncClient(
+                string + server + ":" + port,
+                MqttClient.generateClientId(), // ClientId
+                new MemoryPersistence()); // Persistence
+        return client;
+    }
+
+    /**
+     * @return the connection, created and connecting in the background on first use
+     */
+    public static synchronized MQTTConnection getInstance() {
+        if (instance == null) {
+            instance = new MQTTConnection();
+            instance.start();
+        }
+        return instance;
+    }
+
+    private MqttAsyncClient client;
+    private final Map<String, MQTTMonitor> monitorsByTopic = new ConcurrentHashMap<>();
+    private final Set<MQTTMonitor> monitors = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<Outbound> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean sendScheduled = new AtomicBoolean(false);
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "mqtt-connection");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private MQTTConnection() {
+    }
+
+    @Override
+    public void connectionLost(Throwable cause) {
+        logger.info("lost connection to MQTT: {}", cause.getLocalizedMessage());
+        executor.execute(this::connect);
+    }
+
+    @Override
+    public void deliveryComplete(IMqttDeliveryToken token) {
+        // required by interface
+    }
+
+    public boolean isConnected() {
+        return client != null && client.isConnected();
+    }
+
+    @Override
+    public void messageArrived(String topic, MqttMessage message) {
+        MQTTMonitor monitor = monitorsByTopic.get(topic);
+        if (monitor == null) {
+            logger.debug("no field of play for MQTT topic {}", topic);
+            return;
+        }
+        monitor.messageArrived(topic, new String(message.getPayload(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Queue a message for publication. Messages queued together are sent in one batch.
+     *
+     * @param topic
+     * @param payload
+     */
+    public void publish(String topic, String payload) {
+        outbound.add(new Outbound(topic, payload));
+        if (sendScheduled.compareAndSet(false, true)) {
+            executor.execute(this::sendQueued);
+        }
+    }
+
+    /**
+     * Route the device topics of a field of play to its monitor.
+     *
+     * @param monitor
+     */
+    void register(MQTTMonitor monitor) {
+        for (String topic : monitor.getDeviceTopics()) {
+            monitorsByTopic.put(topic, monitor);
+        }
+        monitors.add(monitor);
+        if (isConnected()) {
+            executor.execute(() -> flashLeds(Set.of(monitor)));
+        }
+    }
+
+    /**
+     * Stop routing the device topics to a monitor whose field of play is replaced or removed.
+     *
+     * @param monitor
+     */
+    void unregister(MQTTMonitor monitor) {
+        for (String topic : monitor.getDeviceTopics()) {
+            // the topic may already be routed to the monitor of the new field of play
+            monitorsByTopic.remove(topic, monitor);
+        }
+        monitors.remove(monitor);
+    }
+
+    private void connect() {
+        if (client == null || client.isConnected()) {
+            return;
+        }
+        try {
+            String userName;
+            String password;
+            if (Config.getCurrent().getParamMqttInternal() && Config.getCurrent().getParamMqttServer() == null) {
+                userName = Config.getCurrent().getMqttUserName();
+                password = Main.mqttStartup;
+            } else {
+                userName = Config.getCurrent().getParamMqttUserName();
+                password = Config.getCurrent().getParamMqttPassword();
+            }
+            client.connect(setUpConnectionOptions(userName, password)).waitForCompletion();
+            client.subscribe(DEVICE_SUBSCRIPTIONS, new int[DEVICE_SUBSCRIPTIONS.length]).waitForCompletion();
+            logger.info("MQTT subscribe {} {}", DEVICE_SUBSCRIPTIONS, client.getCurrentServerURI());
+            flashLeds(monitors);
+        } catch (Exception e) {
+            Main.logger.error("MQTT refereeing device server: {}",
+                    e.getCause() != null ? e.getCause().getMessage() : e);
+            executor.schedule(this::connect, RETRY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Tell the devices of these fields of play that the server is up: LEDs on, and off one second later.
+     */
+    private void flashLeds(Set<MQTTMonitor> fops) {
+        for (MQTTMonitor m : fops) {
+            m.publishMqttLedOnOff(true);
+        }
+        executor.schedule(() -> {
+            for (MQTTMonitor m : fops) {
+                m.publishMqttLedOnOff(false);
+            }
+        }, 1, TimeUnit.SECONDS);
+    }
+
+    private void sendQueued() {
+        sendScheduled.set(false);
+        int nbSent = 0;
+        Outbound o;
+        while ((o = outbound.poll()) != null) {
+            if (!isConnected()) {
+                // device state is transient, nothing to replay after reconnecting
+                logger.debug("not connected, dropping {}", o.topic);
+                continue;
+            }
+            try {
+                client.publish(o.topic, o.payload, 0, false);
+                nbSent++;
+            } catch (MqttException e) {
+                logger.error("could not publish {} {}", o.topic, e.getCause() != null ? e.getCause() : e);
+            }
+        }
+        logger.trace("sent batch of {}", nbSent);
+    }
+
+    private MqttConnectOptions setUpConnectionOptions(String username, String password) {
+        MqttConnectOptions connOpts = new MqttConnectOptions();
+        connOpts.setCleanSession(true);
+        connOpts.setUserName(username != null ? username : "");
+        connOpts.setPassword(password != null ? password.toCharArray() : new char[0]);
+        connOpts.setMaxInflight(MAX_INFLIGHT);
+        // connOpts.setAutomaticReconnect(true);
+        return connOpts;
+    }
+
+    private void start() {
+        try {
+            client = createMQTTClient();
+            client.setCallback(this);
+            executor.execute(this::connect);
+        } catch (MqttException e) {
+            logger.error("cannot initialize MQTT: {}", LoggerUtils.stackTrace(e));
+        }
+    }
+
+}
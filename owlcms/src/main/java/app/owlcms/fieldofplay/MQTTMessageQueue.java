@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.fieldofplay;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.utils.LoggerUtils;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Inbound MQTT messages for one field of play, processed one at a time in arrival order by a single thread.
+ *
+ * The MQTT client thread only enqueues, so a device that bounces its buttons cannot create threads or apply
+ * decisions out of order. For idempotent topics (e.g. the clock), a message replaces the one still waiting for the
+ * same topic, and is placed at the end of the queue. When the queue is full, the {@link OverflowPolicy} decides which
+ * message is lost.
+ *
+ * @author Jean-François Lamy
+ */
+public class MQTTMessageQueue {
+
+    public enum OverflowPolicy {
+        /** keep what is queued, lose the message that arrives */
+        DROP_NEWEST,
+        /** lose the message that has waited the longest */
+        DROP_OLDEST
+    }
+
+    private static class Message {
+        final String topic;
+        final String payload;
+        final long arrivalNanos;
+
+        Message(String topic, String payload) {
+            this.topic = topic;
+            this.payload = payload;
+            this.arrivalNanos = System.nanoTime();
+        }
+    }
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(MQTTMessageQueue.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    private final String name;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Predicate<String> coalescing;
+    private final BiConsumer<String, String> handler;
+
+    private final ArrayDeque<Message> queue = new ArrayDeque<>();
+    private final Map<String, Message> pendingByTopic = new HashMap<>();
+    private Thread consumer;
+    private boolean closed;
+
+    private long received;
+    private long processed;
+    private long coalesced;
+    private long dropped;
+    private int maxDepth;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    /**
+     * @param name           used for the thread name and the logs
+     * @param capacity       maximum number of waiting messages
+     * @param overflowPolicy what to do when the queue is full
+     * @param coalescing     true for the topics where only the latest waiting message matters
+     * @param handler        called with the topic and the payload, on the queue thread
+     */
+    public MQTTMessageQueue(String name, int capacity, OverflowPolicy overflowPolicy, Predicate<String> coalescing,
+            BiConsumer<String, String> handler) {
+        this.name = name;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.coalescing = coalescing;
+        this.handler = handler;
+    }
+
+    /**
+     * Stop the queue thread. Waiting messages are discarded, and those that arrive later are dropped.
+     */
+    public synchronized void close() {
+        closed = true;
+        queue.clear();
+        pendingByTopic.clear();
+        if (consumer != null) {
+            consumer.interrupt();
+            consumer = null;
+        }
+    }
+
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    public synchronized int getDepth() {
+        return queue.size();
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return average time from arrival to end of processing, in milliseconds
+     */
+    public synchronized double getLatencyAverageMs() {
+        return processed == 0 ? 0.0 : totalLatencyNanos / (processed * 1000000.0);
+    }
+
+    /**
+     * @return longest time from arrival to end of processing, in milliseconds
+     */
+    public synchronized double getLatencyMaxMs() {
+        return maxLatencyNanos / 1000000.0;
+    }
+
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public synchronized long getProcessed() {
+        return processed;
+    }
+
+    public synchronized long getReceived() {
+        return received;
+    }
+
+    /**
+     * Queue a message. Does not block.
+     *
+     * @param topic
+     * @param payload
+     * @return false if the message was dropped
+     */
+    public synchronized boolean offer(String topic, String payload) {
+        if (closed) {
+            return false;
+        }
+        received++;
+        boolean coalesce = coalescing.test(topic);
+        Message pending = coalesce ? pendingByTopic.get(topic) : null;
+        if (pending != null) {
+            queue.remove(pending);
+            coalesced++;
+        } else if (queue.size() >= capacity) {
+            dropped++;
+            if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                logger.warn("{} MQTT queue full, dropping {} {}", name, topic, payload);
+                return false;
+            }
+            Message oldest = queue.removeFirst();
+            pendingByTopic.remove(oldest.topic, oldest);
+            logger.warn("{} MQTT queue full, dropping {} {}", name, oldest.topic, oldest.payload);
+        }
+        Message m = new Message(topic, payload);
+        queue.addLast(m);
+        if (coalesce) {
+            pendingByTopic.put(topic, m);
+        }
+        if (queue.size() > maxDepth) {
+            maxDepth = queue.size();
+        }
+        if (consumer == null) {
+            consumer = new Thread(this::processMessages, "mqtt-" + name);
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+        notifyAll();
+        return true;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(
+                "%s received=%d processed=%d coalesced=%d dropped=%d depth=%d maxDepth=%d latency avg=%.1fms max=%.1fms",
+                name, received, processed, coalesced, dropped, queue.size(), maxDepth, getLatencyAverageMs(),
+                getLatencyMaxMs());
+    }
+
+    private void processMessages() {
+        while (true) {
+            Message m;
+            synchronized (this) {
+                while (queue.isEmpty()) {
+                    if (closed) {
+                        return;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                m = queue.removeFirst();
+                pendingByTopic.remove(m.topic, m);
+            }
+            try {
+                handler.accept(m.topic, m.payload);
+            } catch (Throwable t) {
+                LoggerUtils.logError(logger, t);
+            }
+            synchronized (this) {
+                long latency = System.nanoTime() - m.arrivalNanos;
+                processed++;
+                totalLatencyNanos += latency;
+                if (latency > maxLatencyNanos) {
+                    maxLatencyNanos = latency;
+                }
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("{}", this);
+            }
+        }
+    }
+
+}
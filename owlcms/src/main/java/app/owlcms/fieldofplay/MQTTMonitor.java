@@ -1,29 +1,17 @@
 package app.owlcms.fieldofplay;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
-import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
-import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
-import org.eclipse.paho.client.mqttv3.MqttCallback;
-import org.eclipse.paho.client.mqttv3.MqttClient;
-import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
-import org.eclipse.paho.client.mqttv3.MqttException;
-import org.eclipse.paho.client.mqttv3.MqttMessage;
-import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
-import org.eclipse.paho.client.mqttv3.MqttSecurityException;
-import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.eventbus.Subscribe;
 
-import app.owlcms.Main;
 import app.owlcms.data.athlete.Athlete;
-import app.owlcms.data.config.Config;
+import app.owlcms.fieldofplay.MQTTMessageQueue.OverflowPolicy;
 import app.owlcms.uievents.BreakType;
 import app.owlcms.uievents.UIEvent;
-import app.owlcms.utils.LoggerUtils;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 
@@ -34,6 +22,8 @@ import ch.qos.logback.classic.Logger;
  * other devices. They listen to MQTT events that come from the field of play. These events are of the form
  * (owlcms/fop). The field of play is always the last element in the topic.
  *
+ * All the monitors share the {@link MQTTConnection}, which routes the device topics of this field of play here.
+ *
  * @author Jean-François Lamy
  */
 public class MQTTMonitor {
@@ -41,7 +31,7 @@ public class MQTTMonitor {
     /**
      * This inner class contains the routines executed when an MQTT message is received.
      */
-    private class MQTTCallback implements MqttCallback {
+    private class MQTTCallback {
         Athlete athleteUnderReview;
         String juryBreakTopicName;
         String juryMemberDecisionTopicName;
@@ -64,43 +54,9 @@ public class MQTTMonitor {
             this.jurySummonTopicName = "owlcms/jurybox/summon/" + fop.getName();
         }
 
-        @Override
-        public void connectionLost(Throwable cause) {
-            logger.debug("{}lost connection to MQTT: {}", fop.getLoggingName(), cause.getLocalizedMessage());
-            // Called when the client lost the connection to the broker
-            connectionLoop(client);
-        }
-
-        @Override
-        public void deliveryComplete(IMqttDeliveryToken token) {
-            // required by abstract class
-        }
-
-        @Override
-        public void messageArrived(String topic, MqttMessage message) throws Exception {
-            new Thread(() -> {
-                String messageStr = new String(message.getPayload(), StandardCharsets.UTF_8);
-                logger.info("{}{} : {}", fop.getLoggingName(), topic, messageStr.trim());
-
-                if (topic.endsWith(decisionTopicName) || topic.endsWith(deprecatedDecisionTopicName)) {
-                    postFopEventRefereeDecisionUpdate(topic, messageStr);
-                } else if (topic.endsWith(downEmittedTopicName)) {
-                    postFopEventDownEmitted(topic, messageStr);
-                } else if (topic.endsWith(clockTopicName)) {
-                    postFopTimeEvents(topic, messageStr);
-                } else if (topic.endsWith(juryBreakTopicName)) {
-                    postFopJuryBreakEvents(topic, messageStr);
-                } else if (topic.endsWith(juryMemberDecisionTopicName)) {
-                    postFopEventJuryMemberDecisionUpdate(topic, messageStr);
-                } else if (topic.endsWith(juryDecisionTopicName)) {
-                    postFopEventJuryDecision(topic, messageStr);
-                } else if (topic.endsWith(jurySummonTopicName)) {
-                    postFopEventSummonReferee(topic, messageStr);
-                } else {
-                    logger.error("{}Malformed MQTT unrecognized topic message topic='{}' message='{}'",
-                            fop.getLoggingName(), topic, messageStr);
-                }
-            }).start();
+        List<String> getDeviceTopics() {
+            return List.of(deprecatedDecisionTopicName, decisionTopicName, downEmittedTopicName, clockTopicName,
+                    juryBreakTopicName, juryMemberDecisionTopicName, juryDecisionTopicName, jurySummonTopicName);
         }
 
         /**
@@ -110,6 +66,29 @@ public class MQTTMonitor {
             this.athleteUnderReview = athleteUnderReview;
         }
 
+        void processMessage(String topic, String messageStr) {
+            logger.info("{}{} : {}", fop.getLoggingName(), topic, messageStr.trim());
+
+            if (topic.endsWith(decisionTopicName) || topic.endsWith(deprecatedDecisionTopicName)) {
+                postFopEventRefereeDecisionUpdate(topic, messageStr);
+            } else if (topic.endsWith(downEmittedTopicName)) {
+                postFopEventDownEmitted(topic, messageStr);
+            } else if (topic.endsWith(clockTopicName)) {
+                postFopTimeEvents(topic, messageStr);
+            } else if (topic.endsWith(juryBreakTopicName)) {
+                postFopJuryBreakEvents(topic, messageStr);
+            } else if (topic.endsWith(juryMemberDecisionTopicName)) {
+                postFopEventJuryMemberDecisionUpdate(topic, messageStr);
+            } else if (topic.endsWith(juryDecisionTopicName)) {
+                postFopEventJuryDecision(topic, messageStr);
+            } else if (topic.endsWith(jurySummonTopicName)) {
+                postFopEventSummonReferee(topic, messageStr);
+            } else {
+                logger.error("{}Malformed MQTT unrecognized topic message topic='{}' message='{}'",
+                        fop.getLoggingName(), topic, messageStr);
+            }
+        }
+
         /**
          * Tell others that the refbox has given the down signal
          * 
@@ -220,52 +199,45 @@ public class MQTTMonitor {
         }
     }
 
-    private MqttAsyncClient client;
+    private MQTTConnection connection;
     private FieldOfPlay fop;
     private static Logger logger = (Logger) LoggerFactory.getLogger(MQTTMonitor.class);
-    private String password;
 
-    private String userName;
+    /**
+     * Inbound messages waiting for the field of play. Enough for a burst from every device; anything beyond is bounce.
+     */
+    private static final int INBOUND_CAPACITY = 64;
+
     private MQTTCallback callback;
     private Long prevRefereeTimeStamp = 0L;
+    private MQTTMessageQueue inbound;
 
     MQTTMonitor(FieldOfPlay fop) {
         logger.setLevel(Level.DEBUG);
         this.setFop(fop);
+        // clock and down signal commands are idempotent, only the latest one waiting matters
+        inbound = new MQTTMessageQueue(fop.getName(), INBOUND_CAPACITY, OverflowPolicy.DROP_NEWEST,
+                topic -> topic.startsWith("owlcms/clock/") || topic.startsWith("owlcms/refbox/downEmitted/"),
+                (topic, messageStr) -> callback.processMessage(topic, messageStr));
+        callback = new MQTTCallback();
         fop.getUiEventBus().register(this);
         fop.getFopEventBus().register(this);
 
-        try {
-            if (Config.getCurrent().getParamMqttInternal() || Config.getCurrent().getParamMqttServer() != null) {
-                client = createMQTTClient();
-                connectionLoop(client);
-            } else {
-                logger.info("no MQTT server configured, skipping");
-            }
-        } catch (MqttException e) {
-            logger.error("cannot initialize MQTT: {}", LoggerUtils.stackTrace(e));
-        }
-    }
-
-    public static MqttAsyncClient createMQTTClient() throws MqttException {
-        String server = Config.getCurrent().getParamMqttServer();
-        server = (server != null ? server : "127.0.0.1");
-        String port = Config.getCurrent().getParamMqttPort();
-        port = (port != null ? port : "1883");
-        String string = port.startsWith("8") ? "ssl://" : "tcp://";
-        Main.getStartupLogger().info("connecting to MQTT {}{}:{}", string, server, port);
-
-        MqttAsyncClient client = new MqttAsyncClient(
-                string + server + ":" + port                        ,
-                MqttClient.generateClientId(), // ClientId
-                new MemoryPersistence()); // Persistence
-        return client;
+        connection = MQTTConnection.getInstance();
+        connection.register(this);
     }
 
     public FieldOfPlay getFop() {
         return fop;
     }
 
+    /**
+     * @return the inbound queue, for its counters
+     */
+    public MQTTMessageQueue getInboundQueue() {
+        return inbound;
+    }
+
     public void setFop(FieldOfPlay fop) {
         this.fop = fop;
     }
@@ -283,10 +255,7 @@ public class MQTTMonitor {
      */
     @Subscribe
     public void slaveDownSignal(UIEvent.DownSignal d) {
-        try {
-            publishMqttDownSignal();
-        } catch (MqttException e) {
-        }
+        publishMqttDownSignal();
     }
 
     @Subscribe
@@ -342,73 +311,45 @@ public class MQTTMonitor {
         publishMqttWakeUpRef(ref, e.on);
     }
 
-    private void connectionLoop(MqttAsyncClient mqttAsyncClient) {
-        while (!mqttAsyncClient.isConnected()) {
-            try {
-                // doConnect will generate a new client Id, and wait for completion
-                // client.reconnect() and automaticReconnection do not work as I expect.
-                doConnect();
-            } catch (Exception e1) {
-                Main.logger.error("{}MQTT refereeing device server: {}", fop.getLoggingName(),
-                        e1.getCause() != null ? e1.getCause().getMessage() : e1);
-            }
-            sleep(1000);
-        }
+    /**
+     * Device-initiated topics for this field of play.
+     */
+    List<String> getDeviceTopics() {
+        return callback.getDeviceTopics();
     }
 
-    private void doConnect() throws MqttSecurityException, MqttException {
-        if (Config.getCurrent().getParamMqttInternal() && Config.getCurrent().getParamMqttServer() == null) {
-            userName = Config.getCurrent().getMqttUserName();
-            password = Main.mqttStartup;
-        } else {
-            userName = Config.getCurrent().getParamMqttUserName();
-            password = Config.getCurrent().getParamMqttPassword();
+    /**
+     * Stop listening to the devices and to the field of play, which is being replaced or removed.
+     */
+    void close() {
+        connection.unregister(this);
+        inbound.close();
+        try {
+            fop.getUiEventBus().unregister(this);
+            fop.getFopEventBus().unregister(this);
+        } catch (IllegalArgumentException e) {
+            // already unregistered
         }
-        MqttConnectOptions connOpts = setupMQTTClient(userName, password);
-        client.connect(connOpts).waitForCompletion();
-
-        publishMqttLedOnOff();
-
-        client.subscribe(callback.deprecatedDecisionTopicName, 0);
-        logger.info("{}MQTT subscribe {} {}", fop.getLoggingName(), callback.deprecatedDecisionTopicName,
-                client.getCurrentServerURI());
-        client.subscribe(callback.decisionTopicName, 0);
-        logger.info("{}MQTT subscribe {} {}", fop.getLoggingName(), callback.decisionTopicName,
-                client.getCurrentServerURI());
-        client.subscribe(callback.downEmittedTopicName, 0);
-        logger.info("{}MQTT subscribe {} {}", fop.getLoggingName(), callback.downEmittedTopicName,
-                client.getCurrentServerURI());
-        client.subscribe(callback.juryBreakTopicName, 0);
-        logger.info("{}MQTT subscribe {} {}", fop.getLoggingName(), callback.juryBreakTopicName,
-                client.getCurrentServerURI());
-        client.subscribe(callback.juryMemberDecisionTopicName, 0);
-        logger.info("{}MQTT subscribe {} {}", fop.getLoggingName(), callback.juryMemberDecisionTopicName,
-                client.getCurrentServerURI());
-        client.subscribe(callback.juryDecisionTopicName, 0);
-        logger.info("{}MQTT subscribe {} {}", fop.getLoggingName(), callback.juryDecisionTopicName,
-                client.getCurrentServerURI());
-        client.subscribe(callback.jurySummonTopicName, 0);
-        logger.info("{}MQTT subscribe {} {}", fop.getLoggingName(), callback.jurySummonTopicName,
-                client.getCurrentServerURI());
-        client.subscribe(callback.clockTopicName, 0);
-        logger.info("{}MQTT subscribe {} {}", fop.getLoggingName(), callback.clockTopicName,
-                client.getCurrentServerURI());
     }
 
-    private void publishMqttDownSignal() throws MqttException, MqttPersistenceException {
-        String topic = "owlcms/fop/down/" + fop.getName();
-        client.publish(topic, new MqttMessage("on".getBytes(StandardCharsets.UTF_8)));
+    /**
+     * Called on the MQTT client thread; processed in arrival order on the queue thread.
+     */
+    void messageArrived(String topic, String messageStr) {
+        inbound.offer(topic, messageStr);
     }
 
-    private void publishMqttLedOnOff() throws MqttException, MqttPersistenceException {
-        //logger.debug("{}MQTT LedOnOff", fop.getLoggingName());
+    void publishMqttLedOnOff(boolean on) {
+        // logger.debug("{}MQTT LedOnOff", fop.getLoggingName());
         String topic = "owlcms/fop/startup/" + fop.getName();
         String deprecatedTopic = "owlcms/led/" + fop.getName();
-        client.publish(topic, new MqttMessage("on".getBytes(StandardCharsets.UTF_8)));
-        client.publish(deprecatedTopic, new MqttMessage("on".getBytes(StandardCharsets.UTF_8)));
-        sleep(1000);
-        client.publish(topic, new MqttMessage("off".getBytes(StandardCharsets.UTF_8)));
-        client.publish(deprecatedTopic, new MqttMessage("off".getBytes(StandardCharsets.UTF_8)));
+        connection.publish(topic, on ? "on" : "off");
+        connection.publish(deprecatedTopic, on ? "on" : "off");
+    }
+
+    private void publishMqttDownSignal() {
+        String topic = "owlcms/fop/down/" + fop.getName();
+        connection.publish(topic, "on");
     }
 
     private void publishMqttRefereeUpdates(Boolean ref1, Boolean ref2, Boolean ref3, Long ref1Time, Long ref2Time,
@@ -423,20 +364,14 @@ public class MQTTMonitor {
                 && curRefereeUpdateTimeStamp.get() >= prevRefereeTimeStamp) {
             logger.debug("{}MQTT publishMqttRefereeUpdates {}({}) {}({}) {}({})", fop.getLoggingName(), ref1, ref1Time,
                     ref2, ref2Time, ref3, ref3Time);
-            try {
-                if (ref1 != null) {
-                    client.publish("owlcms/fop/decision/" + fop.getName(),
-                            new MqttMessage((1 + " " + (ref1 ? "good" : "bad")).getBytes(StandardCharsets.UTF_8)));
-                }
-                if (ref2 != null) {
-                    client.publish("owlcms/fop/decision/" + fop.getName(),
-                            new MqttMessage((2 + " " + (ref2 ? "good" : "bad")).getBytes(StandardCharsets.UTF_8)));
-                }
-                if (ref3 != null) {
-                    client.publish("owlcms/fop/decision/" + fop.getName(),
-                            new MqttMessage((3 + " " + (ref3 ? "good" : "bad")).getBytes(StandardCharsets.UTF_8)));
-                }
-            } catch (MqttException e1) {
+            if (ref1 != null) {
+                connection.publish("owlcms/fop/decision/" + fop.getName(), 1 + " " + (ref1 ? "good" : "bad"));
+            }
+            if (ref2 != null) {
+                connection.publish("owlcms/fop/decision/" + fop.getName(), 2 + " " + (ref2 ? "good" : "bad"));
+            }
+            if (ref3 != null) {
+                connection.publish("owlcms/fop/decision/" + fop.getName(), 3 + " " + (ref3 ? "good" : "bad"));
             }
         } else {
             logger.debug("{}MQTT skipping out-of-date publishMqttRefereeUpdates {}({}) {}({}) {}({})",
@@ -448,96 +383,48 @@ public class MQTTMonitor {
 
     private void publishMqttResetAllDecisions() {
         logger.debug("{}MQTT resetDecisions", fop.getLoggingName());
-        try {
-            client.publish("owlcms/fop/resetDecisions/" + fop.getName(),
-                    new MqttMessage("reset".getBytes(StandardCharsets.UTF_8)));
-        } catch (MqttException e1) {
-
-        }
+        connection.publish("owlcms/fop/resetDecisions/" + fop.getName(), "reset");
     }
 
     private void publishMqttSummonRef(int ref) {
         logger.debug("{}MQTT summon {}", fop.getLoggingName(), ref);
-        try {
-            if (ref > 0 && ref <= 4) {
-                doPublishMQTTSummon(ref);
-            } else if (ref == 0) {
-                // 0 = all referees
-                for (int i = 1; i <= 3; i++) {
-                    doPublishMQTTSummon(i);
-                }
+        if (ref > 0 && ref <= 4) {
+            doPublishMQTTSummon(ref);
+        } else if (ref == 0) {
+            // 0 = all referees, sent as one batch
+            for (int i = 1; i <= 3; i++) {
+                doPublishMQTTSummon(i);
             }
-        } catch (MqttException e1) {
-            logger.error("could not publish summon {}", e1.getCause());
         }
     }
 
-    private void doPublishMQTTSummon(int ref) throws MqttException, MqttPersistenceException {
+    private void doPublishMQTTSummon(int ref) {
         String topic = "owlcms/fop/summon/" + fop.getName();
-        client.publish(topic, new MqttMessage(Integer.toString(ref).getBytes(StandardCharsets.UTF_8)));
+        connection.publish(topic, Integer.toString(ref));
         String deprecatedTopic = "owlcms/summon/" + fop.getName() + "/" + ref;
-        client.publish(deprecatedTopic, new MqttMessage(("on").getBytes(StandardCharsets.UTF_8)));
+        connection.publish(deprecatedTopic, "on");
     }
 
     private void publishMqttWakeUpRef(int ref, boolean on) {
         logger.debug("{}MQTT decisionRequest {} {}", fop.getLoggingName(), ref, on);
-        try {
-            FOPState state = fop.getState();
-            if (state != FOPState.DOWN_SIGNAL_VISIBLE
-                    && state != FOPState.TIME_RUNNING
-                    && state != FOPState.TIME_STOPPED) {
-                // boundary condition where the wait thread to remind referee is not cancelled
-                // in time; should not happen, this is defensive.
-                return;
-            }
-            String topic = "owlcms/fop/decisionRequest/" + fop.getName();
-            if (on) {
-                client.publish(topic, new MqttMessage(Integer.toString(ref).getBytes(StandardCharsets.UTF_8)));
-            } else {
-                // off is not sent in modern mode.
-            }
-
-            // Legacy : specific referee is added at the end of the topic.
-            String deprecatedTopic = "owlcms/decisionRequest/" + fop.getName() + "/" + ref;
-            if (on) {
-                client.publish(deprecatedTopic,
-                        new MqttMessage(("on").getBytes(StandardCharsets.UTF_8)));
-            } else {
-                client.publish(deprecatedTopic,
-                        new MqttMessage(("off").getBytes(StandardCharsets.UTF_8)));
-            }
-        } catch (MqttException e1) {
-            logger.error("could not publish decisionRequest {}", e1.getCause());
+        FOPState state = fop.getState();
+        if (state != FOPState.DOWN_SIGNAL_VISIBLE
+                && state != FOPState.TIME_RUNNING
+                && state != FOPState.TIME_STOPPED) {
+            // boundary condition where the wait thread to remind referee is not cancelled
+            // in time; should not happen, this is defensive.
+            return;
         }
-    }
-
-    private MqttConnectOptions setUpConnectionOptions(String username, String password) {
-        MqttConnectOptions connOpts = new MqttConnectOptions();
-        connOpts.setCleanSession(true);
-        if (username != null) {
-            connOpts.setUserName(username);
-        }
-        if (password != null) {
-            connOpts.setPassword(password.toCharArray());
+        String topic = "owlcms/fop/decisionRequest/" + fop.getName();
+        if (on) {
+            connection.publish(topic, Integer.toString(ref));
+        } else {
+            // off is not sent in modern mode.
         }
-        connOpts.setCleanSession(true);
-        // connOpts.setAutomaticReconnect(true);
-        return connOpts;
-    }
-
-    private MqttConnectOptions setupMQTTClient(String userName, String password) {
-        MqttConnectOptions connOpts = setUpConnectionOptions(userName != null ? userName : "",
-                password != null ? password : "");
-        callback = new MQTTCallback();
-        client.setCallback(callback);
-        return connOpts;
-    }
 
-    private void sleep(int ms) {
-        try {
-            Thread.sleep(ms);
-        } catch (InterruptedException e) {
-        }
+        // Legacy : specific referee is added at the end of the topic.
+        String deprecatedTopic = "owlcms/decisionRequest/" + fop.getName() + "/" + ref;
+        connection.publish(deprecatedTopic, on ? "on" : "off");
     }
 
 }
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.fieldofplay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import app.owlcms.data.athlete.Athlete;
+
+/**
+ * Order of the lifts done so far, kept up to date as the lifting order changes.
+ *
+ * Same content as a {@link LiftOrderReconstruction}, but only the athletes whose lifts, start number or lot number
+ * have changed since the previous lifting order are recomputed, so reading the last lift does not walk the group.
+ *
+ * @author Jean-François Lamy
+ */
+public class PastLiftOrder {
+
+    private static class AthleteLifts {
+        int[] signature;
+        List<LiftOrderInfo> lifts;
+    }
+
+    /**
+     * Lifts that compare equal (same weight, attempt, progression, start and lot numbers) share a key.
+     */
+    private TreeMap<LiftOrderInfo, List<LiftOrderInfo>> pastOrder = new TreeMap<>();
+    private Map<Object, AthleteLifts> byAthlete = new HashMap<>();
+
+    /**
+     * @return the last lift done, null if none
+     */
+    public synchronized LiftOrderInfo getLastLift() {
+        Entry<LiftOrderInfo, List<LiftOrderInfo>> last = pastOrder.lastEntry();
+        return last != null ? last.getValue().get(0) : null;
+    }
+
+    /**
+     * Bring the past order in line with a new lifting order.
+     *
+     * @param liftingOrder the athletes of the group, null for none
+     */
+    public synchronized void update(List<Athlete> liftingOrder) {
+        if (liftingOrder == null || liftingOrder.isEmpty()) {
+            pastOrder.clear();
+            byAthlete.clear();
+            return;
+        }
+        Map<Object, AthleteLifts> previous = byAthlete;
+        byAthlete = new HashMap<>(liftingOrder.size() * 2);
+        for (Athlete a : liftingOrder) {
+            Object key = keyOf(a);
+            int[] signature = signature(a);
+            AthleteLifts al = previous.remove(key);
+            if (al != null && Arrays.equals(al.signature, signature)) {
+                // same lifts, possibly a fresh copy of the athlete
+                for (LiftOrderInfo li : al.lifts) {
+                    li.setAthlete(a);
+                }
+            } else {
+                if (al != null) {
+                    remove(al);
+                }
+                al = new AthleteLifts();
+                al.signature = signature;
+                al.lifts = LiftOrderReconstruction.pastLifts(a);
+                for (LiftOrderInfo li : al.lifts) {
+                    pastOrder.computeIfAbsent(li, (k) -> new ArrayList<>(1)).add(li);
+                }
+            }
+            byAthlete.put(key, al);
+        }
+        // athletes no longer in the group
+        for (AthleteLifts al : previous.values()) {
+            remove(al);
+        }
+    }
+
+    /**
+     * Athletes not yet saved (tests) have no id and are compared by identity.
+     */
+    private Object keyOf(Athlete a) {
+        return a.getId() != null ? a.getId() : a;
+    }
+
+    private void remove(AthleteLifts al) {
+        for (LiftOrderInfo li : al.lifts) {
+            List<LiftOrderInfo> same = pastOrder.get(li);
+            if (same == null) {
+                continue;
+            }
+            for (Iterator<LiftOrderInfo> it = same.iterator(); it.hasNext();) {
+                if (it.next() == li) {
+                    it.remove();
+                    break;
+                }
+            }
+            if (same.isEmpty()) {
+                pastOrder.remove(li);
+            }
+        }
+    }
+
+    private int[] signature(Athlete a) {
+        return new int[] {
+                Athlete.zeroIfInvalid(a.getSnatch1ActualLift()),
+                Athlete.zeroIfInvalid(a.getSnatch2ActualLift()),
+                Athlete.zeroIfInvalid(a.getSnatch3ActualLift()),
+                Athlete.zeroIfInvalid(a.getCleanJerk1ActualLift()),
+                Athlete.zeroIfInvalid(a.getCleanJerk2ActualLift()),
+                Athlete.zeroIfInvalid(a.getCleanJerk3ActualLift()),
+                a.getStartNumber(),
+                a.getLotNumber() };
+    }
+
+}
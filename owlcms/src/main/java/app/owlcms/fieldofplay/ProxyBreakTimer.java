@@ -134,19 +134,19 @@ public class ProxyBreakTimer implements IProxyTimer, IBreakTimer {
             int until = (int) LocalDateTime.now().until(getEnd(), ChronoUnit.MILLIS);
             logger.debug("liveTimeRemaining target {} {}",
                     until >= 0 ? DurationFormatUtils.formatDurationHMS(until) : until,
-                    LoggerUtils.whereFrom());
+                    LoggerUtils.caller());
             return until;
         } else if (isRunning()) {
             stopMillis = System.currentTimeMillis();
             long elapsed = stopMillis - startMillis;
             int tr = (int) (getTimeRemaining() - elapsed);
             logger.debug("liveTimeRemaining running {} {}", tr >= 0 ? DurationFormatUtils.formatDurationHMS(tr) : tr,
-                    LoggerUtils.whereFrom());
+                    LoggerUtils.caller());
             return tr;
         } else {
             int tr = getTimeRemaining();
             logger.debug("liveTimeRemaining stopped {} {}", tr >= 0 ? DurationFormatUtils.formatDurationHMS(tr) : tr,
-                    LoggerUtils.whereFrom());
+                    LoggerUtils.caller());
             return tr;
         }
     }
@@ -283,7 +283,7 @@ public class ProxyBreakTimer implements IProxyTimer, IBreakTimer {
                 return;
             }
             // should emit sound at end of break
-            logger.debug("timeOver \n{}",LoggerUtils.stackTrace());
+            logger.debug("timeOver \n{}",LoggerUtils.callStack());
             getFop().pushOutUIEvent(new UIEvent.BreakDone(origin, getFop().getBreakType()));
             getFop().fopEventPost(new FOPEvent.BreakDone(getFop().getBreakType(), origin));
         } else {
@@ -13,8 +13,10 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
 
 import org.slf4j.LoggerFactory;
 
@@ -27,6 +29,7 @@ import app.owlcms.fieldofplay.FieldOfPlay;
 import app.owlcms.fieldofplay.ProxyAthleteTimer;
 import app.owlcms.fieldofplay.ProxyBreakTimer;
 import app.owlcms.i18n.Translator;
+import app.owlcms.sound.SoundPlayer;
 import app.owlcms.utils.LoggerUtils;
 import app.owlcms.utils.StartupUtils;
 import ch.qos.logback.classic.Level;
@@ -99,6 +102,17 @@ public class OwlcmsFactory {
         return latch;
     }
 
+    /**
+     * Close the sound lines of the mixers that no field of play uses anymore.
+     */
+    public static void closeUnselectedMixers() {
+        if (getFopByName() == null) {
+            return;
+        }
+        SoundPlayer.closeUnselected(getFopByName().values().stream().map(FieldOfPlay::getPlatform)
+                .filter(Objects::nonNull).map(Platform::getMixer).collect(Collectors.toList()));
+    }
+
     public static String getVersion() {
         return StartupUtils.getVersion();
     }
@@ -107,7 +121,7 @@ public class OwlcmsFactory {
      * @return first field of play, sorted alphabetically
      */
     public static synchronized FieldOfPlay initDefaultFOP() {
-        logger.trace("initDefaultFOP {} {}", getFopByName() != null ? getFopByName().size() : null, LoggerUtils.stackTrace());
+        logger.trace("initDefaultFOP {} {}", getFopByName() != null ? getFopByName().size() : null, LoggerUtils.callStack());
         initFOPByName();
         setFirstFOPAsDefault();
         return getDefaultFOP();
@@ -119,7 +133,11 @@ public class OwlcmsFactory {
         logger.trace("{} Initialized", fop.getLoggingName());
         // no group selected, no athletes, announcer will need to pick a group.
         fop.init(new LinkedList<Athlete>(), new ProxyAthleteTimer(fop), new ProxyBreakTimer(fop), true);
-        getFopByName().put(name, fop);
+        FieldOfPlay previous = getFopByName().put(name, fop);
+        if (previous != null) {
+            previous.closeMQTTMonitor();
+            closeUnselectedMixers();
+        }
         return fop;
     }
 
@@ -130,6 +148,7 @@ public class OwlcmsFactory {
                 Entry<String, FieldOfPlay> f = it.next();
 
                 FieldOfPlay fop = f.getValue();
+                fop.closeMQTTMonitor();
                 EventBus fopEventBus = fop.getFopEventBus();
                 if (fopEventBus != null) {
                     try {
@@ -167,13 +186,17 @@ public class OwlcmsFactory {
         if (name == null) {
             throw new RuntimeException("can't happen, platform with no name");
         }
-        try {
-            FieldOfPlay fop = getFopByName().get(name);
-            fop.getFopEventBus().unregister(fop);
-        } catch (IllegalArgumentException e) {
+        FieldOfPlay fop = getFopByName().get(name);
+        if (fop != null) {
+            fop.closeMQTTMonitor();
+            try {
+                fop.getFopEventBus().unregister(fop);
+            } catch (IllegalArgumentException e) {
+            }
         }
         logger.trace("unregistering and unmapping fop {}", name);
         getFopByName().remove(name);
+        closeUnselectedMixers();
     }
 
     public static void waitDBInitialized() {
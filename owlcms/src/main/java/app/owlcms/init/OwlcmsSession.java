@@ -61,7 +61,7 @@ public class OwlcmsSession {
         if (currentVaadinSession != null) {
             OwlcmsSession owlcmsSession = (OwlcmsSession) currentVaadinSession.getAttribute("owlcmsSession");
             if (owlcmsSession == null) {
-                logger.trace("creating new OwlcmsSession {}", LoggerUtils.whereFrom());
+                logger.trace("creating new OwlcmsSession {}", LoggerUtils.caller());
                 owlcmsSession = new OwlcmsSession();
                 currentVaadinSession.setAttribute("owlcmsSession", owlcmsSession);
             }
@@ -196,7 +196,7 @@ public class OwlcmsSession {
     }
 
     public static void setFop(FieldOfPlay fop) {
-        logger.trace("setFop {} from {}", (fop != null ? fop.getName() : null), LoggerUtils.whereFrom());
+        logger.trace("setFop {} from {}", (fop != null ? fop.getName() : null), LoggerUtils.caller());
         setAttribute(FOP, fop);
     }
 
@@ -187,7 +187,7 @@ public abstract class OwlcmsCrudFormFactory<T> extends DefaultCrudFormFactory<T>
             }
             if (!isValid()) {
                 logger.debug("validationStatusHandler updateFieldErrors={} {}", showErrorsOnFields,
-                        LoggerUtils.whereFrom());
+                        LoggerUtils.caller());
                 if (errorLabel != null) {
                     setErrorLabel(s, showErrorsOnFields);
                 }
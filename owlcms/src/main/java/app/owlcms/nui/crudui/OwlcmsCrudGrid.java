@@ -23,6 +23,7 @@ import com.vaadin.flow.component.grid.Grid.SelectionMode;
 import com.vaadin.flow.component.grid.GridSortOrder;
 import com.vaadin.flow.component.icon.VaadinIcon;
 import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.data.provider.BackEndDataProvider;
 
 import app.owlcms.utils.LoggerUtils;
 import ch.qos.logback.classic.Logger;
@@ -46,6 +47,8 @@ public class OwlcmsCrudGrid<T> extends GridCrud<T> {
 
     private long clicked = 0L;
 
+    private BackEndDataProvider<T, Void> lazyDataProvider;
+
     /**
      * Instantiates a new owlcms crudGrid crudGrid.
      *
@@ -70,10 +73,34 @@ public class OwlcmsCrudGrid<T> extends GridCrud<T> {
         return clickable;
     }
 
+    /**
+     * Refresh the grid by resetting the lazy data provider, if one was set.
+     *
+     * @see org.vaadin.crudui.crud.impl.GridCrud#refreshGrid()
+     */
+    @Override
+    public void refreshGrid() {
+        if (lazyDataProvider != null) {
+            lazyDataProvider.refreshAll();
+        } else {
+            super.refreshGrid();
+        }
+    }
+
     public void setClickable(boolean clickable) {
         this.clickable = clickable;
     }
 
+    /**
+     * Fetch only the visible rows, instead of the collection returned by the crud listener.
+     *
+     * @param lazyDataProvider
+     */
+    public void setLazyDataProvider(BackEndDataProvider<T, Void> lazyDataProvider) {
+        this.lazyDataProvider = lazyDataProvider;
+        grid.setItems(lazyDataProvider);
+    }
+
     public void sort(List<GridSortOrder<T>> sortOrder) {
         grid.sort(sortOrder);
     }
@@ -115,7 +115,7 @@ public class AnnouncerContent extends AthleteGridContent implements HasDynamicTi
         if (fop != null) {
             logger.trace("{}findAll {} {}", fop.getLoggingName(),
                     fop.getGroup() == null ? null : fop.getGroup().getName(),
-                    LoggerUtils.whereFrom());
+                    LoggerUtils.caller());
             final String filterValue;
             if (lastNameFilter.getValue() != null) {
                 filterValue = lastNameFilter.getValue().toLowerCase();
@@ -243,7 +243,7 @@ public class AnnouncerContent extends AthleteGridContent implements HasDynamicTi
      */
     @Override
     protected FlexLayout createInitialBar() {
-        logger.debug("AnnouncerContent creating top bar {}", LoggerUtils.whereFrom());
+        logger.debug("AnnouncerContent creating top bar {}", LoggerUtils.caller());
         topBar = new FlexLayout();
         initialBar = true;
 
@@ -430,7 +430,7 @@ public class AnnouncerContent extends AthleteGridContent implements HasDynamicTi
 
         OwlcmsSession.withFop((fop) -> {
             Group group = fop.getGroup();
-            logger.trace("initial setting group to {} {}", group, LoggerUtils.whereFrom());
+            logger.trace("initial setting group to {} {}", group, LoggerUtils.caller());
             getGroupFilter().setValue(group);
         });
 
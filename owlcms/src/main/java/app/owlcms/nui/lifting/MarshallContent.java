@@ -64,7 +64,7 @@ public class MarshallContent extends AthleteGridContent implements HasDynamicTit
         if (fop != null) {
             logger.trace("{}findAll {} {} {}", fop.getLoggingName(),
                     fop.getGroup() == null ? null : fop.getGroup().getName(),
-                    LoggerUtils.whereFrom());
+                    LoggerUtils.caller());
             final String filterValue;
             if (lastNameFilter.getValue() != null) {
                 filterValue = lastNameFilter.getValue().toLowerCase();
@@ -343,7 +343,7 @@ public class TimekeeperContent extends AthleteGridContent implements HasDynamicT
     protected void syncWithFOP(boolean refreshGrid) {
         OwlcmsSession.withFop((fop) -> {
             Group fopGroup = fop.getGroup();
-            logger.debug("syncing FOP, group = {}, {}", fopGroup, LoggerUtils.whereFrom(2));
+            logger.debug("syncing FOP, group = {}, {}", fopGroup, LoggerUtils.caller(2));
 
             Athlete curAthlete2 = fop.getCurAthlete();
             FOPState state = fop.getState();
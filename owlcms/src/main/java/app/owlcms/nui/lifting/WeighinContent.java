@@ -70,6 +70,7 @@ import app.owlcms.nui.crudui.OwlcmsComboBoxProvider;
 import app.owlcms.nui.crudui.OwlcmsCrudFormFactory;
 import app.owlcms.nui.crudui.OwlcmsCrudGrid;
 import app.owlcms.nui.crudui.OwlcmsGridLayout;
+import app.owlcms.nui.shared.AthleteRegistrationDataProvider;
 import app.owlcms.nui.shared.AthleteRegistrationFormFactory;
 import app.owlcms.nui.shared.OwlcmsContent;
 import app.owlcms.nui.shared.OwlcmsLayout;
@@ -181,7 +182,7 @@ public class WeighinContent extends VerticalLayout implements CrudListener<Athle
     }
 
     /**
-     * The refresh button on the toolbar calls this.
+     * The athletes listed in the grid, when sorted on a column.
      *
      * @see org.vaadin.crudui.crud.CrudListener#findAll()
      */
@@ -409,6 +410,7 @@ public class WeighinContent extends VerticalLayout implements CrudListener<Athle
         },
                 crudFormFactory, grid);
         crudGrid.setCrudListener(this);
+        crudGrid.setLazyDataProvider(new AthleteRegistrationDataProvider(this::findFilteredIds, this::findAll));
         crudGrid.setClickRowToUpdate(true);
         return crudGrid;
     }
@@ -422,7 +424,8 @@ public class WeighinContent extends VerticalLayout implements CrudListener<Athle
 
         lastNameFilter.setPlaceholder(getTranslation("LastName"));
         lastNameFilter.setClearButtonVisible(true);
-        lastNameFilter.setValueChangeMode(ValueChangeMode.EAGER);
+        // refresh once typing pauses
+        lastNameFilter.setValueChangeMode(ValueChangeMode.LAZY);
         lastNameFilter.addValueChangeListener(e -> {
             crudGrid.refreshGrid();
         });
@@ -734,6 +737,12 @@ public class WeighinContent extends VerticalLayout implements CrudListener<Athle
         ui.getPage().getHistory().replaceState(null, new Location(location.getPath(), new QueryParameters(URLUtils.cleanParams(params))));
     }
 
+    private List<Long> findFilteredIds() {
+        return AthleteRepository.findFilteredIds(lastNameFilter.getValue(), groupFilter.getValue(),
+                categoryFilter.getValue(), ageGroupFilter.getValue(), ageDivisionFilter.getValue(),
+                genderFilter.getValue(), weighedInFilter.getValue());
+    }
+
     private Group getCurrentGroup() {
         return currentGroup;
     }
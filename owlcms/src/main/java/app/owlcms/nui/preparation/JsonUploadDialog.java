@@ -42,7 +42,7 @@ public class JsonUploadDialog extends Dialog {
         MemoryBuffer buffer = new MemoryBuffer();
         Upload upload = new Upload(buffer);
         upload.setWidth("40em");
-        upload.setAcceptedFileTypes("application/json");
+        upload.setAcceptedFileTypes("application/json", ".json", ".gz");
 
         TextArea ta = new TextArea(getTranslation("Errors"));
         ta.setHeight("20ex");
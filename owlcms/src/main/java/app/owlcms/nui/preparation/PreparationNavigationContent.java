@@ -122,7 +122,13 @@ public class PreparationNavigationContent extends BaseNavigationContent implemen
         Optional<Component> exportJsonButton = exportJsonDiv.getChildren().findFirst();
         exportJsonButton.ifPresent(c -> ((Button) c).setWidth("100%"));
         exportJsonDiv.setWidthFull();
-        FlexibleGridLayout grid4 = HomeNavigationContent.navigationGrid(exportJsonDiv, uploadJson/* , clearDatabase */);
+        Div exportCompressedDiv = DownloadButtonFactory.createDynamicJsonDownloadButton("owlcmsDatabase",
+                getTranslation("ExportDatabase.DownloadCompressed"), true);
+        Optional<Component> exportCompressedButton = exportCompressedDiv.getChildren().findFirst();
+        exportCompressedButton.ifPresent(c -> ((Button) c).setWidth("100%"));
+        exportCompressedDiv.setWidthFull();
+        FlexibleGridLayout grid4 = HomeNavigationContent.navigationGrid(exportJsonDiv, exportCompressedDiv,
+                uploadJson/* , clearDatabase */);
         doGroup(getTranslation("ExportDatabase.ExportImport"), grid4, this);
 
 
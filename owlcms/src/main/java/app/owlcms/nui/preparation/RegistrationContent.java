@@ -73,6 +73,7 @@ import app.owlcms.nui.crudui.OwlcmsComboBoxProvider;
 import app.owlcms.nui.crudui.OwlcmsCrudFormFactory;
 import app.owlcms.nui.crudui.OwlcmsCrudGrid;
 import app.owlcms.nui.crudui.OwlcmsGridLayout;
+import app.owlcms.nui.shared.AthleteRegistrationDataProvider;
 import app.owlcms.nui.shared.AthleteRegistrationFormFactory;
 import app.owlcms.nui.shared.OwlcmsContent;
 import app.owlcms.nui.shared.OwlcmsLayout;
@@ -209,7 +210,7 @@ public class RegistrationContent extends VerticalLayout implements CrudListener<
     }
 
     /**
-     * The refresh button on the toolbar; also called by refreshGrid when the group is changed.
+     * The athletes listed in the grid, when sorted on a column.
      *
      * @see org.vaadin.crudui.crud.CrudListener#findAll()
      */
@@ -445,6 +446,7 @@ public class RegistrationContent extends VerticalLayout implements CrudListener<
         },
                 crudFormFactory, grid);
         crudGrid.setCrudListener(this);
+        crudGrid.setLazyDataProvider(new AthleteRegistrationDataProvider(this::findFilteredIds, this::findAll));
         crudGrid.setClickRowToUpdate(true);
         return crudGrid;
     }
@@ -459,7 +461,8 @@ public class RegistrationContent extends VerticalLayout implements CrudListener<
 
         lastNameFilter.setPlaceholder(getTranslation("LastName"));
         lastNameFilter.setClearButtonVisible(true);
-        lastNameFilter.setValueChangeMode(ValueChangeMode.EAGER);
+        // refresh once typing pauses
+        lastNameFilter.setValueChangeMode(ValueChangeMode.LAZY);
         lastNameFilter.addValueChangeListener(e -> {
             crudGrid.refreshGrid();
         });
@@ -579,6 +582,7 @@ public class RegistrationContent extends VerticalLayout implements CrudListener<
                 em.merge(a);
             }
             em.flush();
+            Competition.getCurrent().setRankingsInvalid(true);
             return null;
         });
     }
@@ -723,6 +727,7 @@ public class RegistrationContent extends VerticalLayout implements CrudListener<
             em.flush();
             return null;
         });
+        AthleteRepository.invalidateRegistrationOrder();
         refreshCrudGrid();
     }
 
@@ -749,6 +754,12 @@ public class RegistrationContent extends VerticalLayout implements CrudListener<
         ui.getPage().getHistory().replaceState(null, new Location(location.getPath(), new QueryParameters(URLUtils.cleanParams(params))));
     }
 
+    private List<Long> findFilteredIds() {
+        return AthleteRepository.findFilteredIds(lastNameFilter.getValue(), groupFilter.getValue(),
+                categoryFilter.getValue(), ageGroupFilter.getValue(), ageDivisionFilter.getValue(),
+                genderFilter.getValue(), weighedInFilter.getValue());
+    }
+
     private Group getCurrentGroup() {
         return currentGroup;
     }
@@ -9,23 +9,27 @@ package app.owlcms.nui.preparation;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import org.apache.commons.beanutils.BeanUtils;
-import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.hibernate.Session;
 import org.slf4j.LoggerFactory;
-import org.xml.sax.SAXException;
 
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.dialog.Dialog;
 import com.vaadin.flow.component.html.H3;
 import com.vaadin.flow.component.html.H5;
+import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.progressbar.ProgressBar;
 import com.vaadin.flow.component.textfield.TextArea;
 import com.vaadin.flow.component.upload.Upload;
 import com.vaadin.flow.component.upload.receivers.MemoryBuffer;
@@ -42,30 +46,36 @@ import app.owlcms.data.platform.Platform;
 import app.owlcms.data.platform.PlatformRepository;
 import app.owlcms.i18n.Translator;
 import app.owlcms.init.OwlcmsFactory;
+import app.owlcms.init.OwlcmsSession;
 import app.owlcms.spreadsheet.RAthlete;
 import app.owlcms.spreadsheet.RCompetition;
 import app.owlcms.spreadsheet.RGroup;
+import app.owlcms.spreadsheet.RegistrationStreamReader;
 import app.owlcms.utils.LoggerUtils;
-import app.owlcms.utils.ResourceWalker;
-import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
-import net.sf.jxls.reader.ReaderBuilder;
-import net.sf.jxls.reader.ReaderConfig;
-import net.sf.jxls.reader.XLSReadMessage;
-import net.sf.jxls.reader.XLSReadStatus;
-import net.sf.jxls.reader.XLSReader;
 
+/**
+ * Upload of the registration spreadsheet.
+ *
+ * The file is read with a streaming reader that converts and validates each row as it goes, reporting progress. The
+ * athletes are then inserted in JDBC batches, in a single transaction. Processing takes place outside of the UI thread
+ * so the progress can be shown.
+ */
 @SuppressWarnings("serial")
 public class RegistrationFileUploadDialog extends Dialog {
 
-    final static Logger jxlsLogger = (Logger) LoggerFactory.getLogger("net.sf.jxls.reader.SimpleBlockReaderImpl");
     final static Logger logger = (Logger) LoggerFactory.getLogger(RegistrationFileUploadDialog.class);
 
-    private static final String GROUPS_READER_SPEC = "/templates/registration/GroupsReader.xml";
-    private static final String REGISTRATION_READER_SPEC = "/templates/registration/RegistrationReader.xml";
-    static {
-        jxlsLogger.setLevel(Level.ERROR);
-    }
+    private static final int BATCH_SIZE = 50;
+
+    /**
+     * Uploads are processed one at a time, since each one replaces all the athletes and groups.
+     */
+    private static final ExecutorService uploadExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "registration-upload");
+        t.setDaemon(true);
+        return t;
+    });
 
     static public void listGroups(String msg) {
 //        JPAService.runInTransaction(em -> {
@@ -80,6 +90,8 @@ public class RegistrationFileUploadDialog extends Dialog {
     }
 
     private boolean keepParticipations;
+    private ProgressBar progressBar;
+    private Span progressText;
 
     public RegistrationFileUploadDialog() {
 
@@ -97,8 +109,21 @@ public class RegistrationFileUploadDialog extends Dialog {
         ta.setWidth("80em");
         ta.setVisible(false);
 
+        progressBar = new ProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setWidth("40em");
+        progressBar.setVisible(false);
+        progressText = new Span();
+
         upload.addSucceededListener(event -> {
-            processInput(event.getFileName(), buffer.getInputStream(), ta);
+            UI ui = UI.getCurrent();
+            Locale locale = OwlcmsSession.getLocale();
+            InputStream inputStream = buffer.getInputStream();
+            progressBar.setVisible(true);
+            progressText.setText("");
+            uploadExecutor.execute(() -> {
+                processInput(event.getFileName(), inputStream, ta, ui, locale);
+            });
         });
 
         upload.addStartedListener(event -> {
@@ -107,157 +132,74 @@ public class RegistrationFileUploadDialog extends Dialog {
         });
 
         H3 title = new H3(getTranslation("UploadRegistrationFile"));
-        VerticalLayout vl = new VerticalLayout(title, label, upload, ta);
+        VerticalLayout vl = new VerticalLayout(title, label, upload, progressBar, progressText, ta);
         add(vl);
     }
 
-    public String cleanMessage(String localizedMessage) {
-        localizedMessage = localizedMessage.replace("Can't read cell ", "");
-        String cell = localizedMessage.substring(0, localizedMessage.indexOf(" "));
-        String ss = "spreadsheet";
-        int ix = localizedMessage.indexOf(ss) + ss.length();
-        localizedMessage = localizedMessage.substring(ix);
-        if (localizedMessage.trim().contentEquals("text")) {
-            localizedMessage = "Empty or invalid.";
-        }
-        String cleanMessage = getTranslation("Cell") + " " + cell + ": " + localizedMessage;
-        return cleanMessage;
-    }
+    private void processInput(String fileName, InputStream inputStream, TextArea ta, UI ui, Locale locale) {
+        long start = System.currentTimeMillis();
+        StringBuffer sb = new StringBuffer();
+        RegistrationStreamReader reader = new RegistrationStreamReader(locale,
+                (nbRead) -> ui.access(() -> progressText.setText(Translator.translate("Upload.AthletesRead", locale,
+                        nbRead))));
+        int nbAthletes = 0;
+        try {
+            // clear athletes to be able to clear groups
+            resetAthletes();
 
-    private void appendErrors(TextArea ta, StringBuffer sb, XLSReadStatus status) {
-        @SuppressWarnings("unchecked")
-        List<XLSReadMessage> errors = status.getReadMessages();
-        for (XLSReadMessage m : errors) {
-            String cleanMessage = cleanMessage(m.getMessage());
-            sb.append(cleanMessage);
-            Exception e = m.getException();
-            if (e != null) {
-                Throwable cause = e.getCause();
-                String causeMessage = cause != null ? cause.getLocalizedMessage() : e.getLocalizedMessage();
-                // causeMessage = LoggerUtils.stackTrace(cause);
-                causeMessage = causeMessage != null ? causeMessage : e.toString();
-                if (causeMessage.contentEquals("text")) {
-                    causeMessage = "Empty or invalid.";
-                }
-                sb.append(causeMessage);
-                logger.debug(cleanMessage + causeMessage);
+            inputStream.reset();
+            List<RGroup> groups = reader.readGroups(inputStream);
+            logger.info("Read {} groups.", groups.size());
+            if (groups.size() > 0) {
+                // new format, reset groups from spreadsheet
+                resetGroups();
+                updatePlatformsAndGroups(groups);
             }
-            sb.append(System.lineSeparator());
-        }
-        if (sb.length() > 0) {
-            ta.setValue(sb.toString());
-            ta.setVisible(true);
-        }
-    }
 
-    private int processAthletes(InputStream inputStream, TextArea ta, boolean dryRun) {
-        StringBuffer sb = new StringBuffer();
-        try (InputStream xmlInputStream = ResourceWalker.getResourceAsStream(REGISTRATION_READER_SPEC)) {
+            // process athletes now that groups have been adjusted
+            RCompetition c = new RCompetition();
+            RCompetition.resetActiveCategories();
+            RCompetition.resetActiveGroups();
+            RCompetition.resetAthleteToEligibles();
+            RCompetition.resetAthleteToTeams();
+
             inputStream.reset();
-            ReaderConfig readerConfig = ReaderConfig.getInstance();
-            readerConfig.setUseDefaultValuesForPrimitiveTypes(true);
-            readerConfig.setSkipErrors(true);
-            XLSReader reader = ReaderBuilder.buildFromXML(xmlInputStream);
-
-            try (InputStream xlsInputStream = inputStream) {
-                RCompetition c = new RCompetition();
-                RCompetition.resetActiveCategories();
-                RCompetition.resetActiveGroups();
-                RCompetition.resetAthleteToEligibles();
-                RCompetition.resetAthleteToTeams();
-
-                List<RAthlete> athletes = new ArrayList<>();
-
-                Map<String, Object> beans = new HashMap<>();
-                beans.put("competition", c);
-                beans.put("athletes", athletes);
-
-                XLSReadStatus status = reader.read(inputStream, beans);
-
-                // we created a batch of new athletes. the ones that have exact matches for a
-                // category have had their eligibility and team memberships set in during the reader processing.
-                keepParticipations = beans.values().stream()
-                        .filter(r -> ((RAthlete) r).getAthlete().getEligibleCategories() != null).findFirst()
-                        .isPresent();
-
-                logger.info(getTranslation("DataRead") + " " + athletes.size() + " athletes");
-                if (dryRun) {
-                    return athletes.size();
+            List<RAthlete> athletes = reader.readAthletes(inputStream, c);
+            nbAthletes = athletes.size();
+            logger.info(Translator.translate("DataRead", locale) + " " + athletes.size() + " athletes");
+
+            // athletes given explicit categories in the spreadsheet have had their eligibility and team
+            // memberships recorded during the reading.
+            keepParticipations = !RCompetition.getAthleteToEligibles().isEmpty();
+            if (athletes.size() > 0) {
+                updateAthletes(sb, c, athletes);
+            }
+            if (!keepParticipations) {
+                AthleteRepository.resetParticipations();
+            }
+        } catch (IOException | RuntimeException e) {
+            LoggerUtils.logError(logger, e);
+            sb.append(e.getLocalizedMessage());
+            sb.append(System.lineSeparator());
+        } finally {
+            logger.info("{}: {} athletes processed in {} ms", fileName, nbAthletes,
+                    System.currentTimeMillis() - start);
+            int nbRead = nbAthletes;
+            ui.access(() -> {
+                progressBar.setVisible(false);
+                for (String error : reader.getErrors()) {
+                    sb.append(error);
+                    sb.append(System.lineSeparator());
                 }
-
-                if (athletes.size() > 0) {
-                    updateAthletes(sb, c, athletes);
-                    appendErrors(ta, sb, status);
-                } else {
+                if (sb.length() > 0) {
+                    ta.setValue(sb.toString());
+                    ta.setVisible(true);
+                } else if (nbRead == 0) {
                     ta.setValue(Translator.translate("NoAthletes"));
+                    ta.setVisible(true);
                 }
-                return athletes.size();
-            } catch (InvalidFormatException | IOException e) {
-                LoggerUtils.stackTrace(e);
-                LoggerUtils.logError(logger, e);
-            }
-        } catch (IOException | SAXException e1) {
-            LoggerUtils.stackTrace(e1);
-            LoggerUtils.logError(logger, e1);
-        }
-        return 0;
-    }
-
-    private int processGroups(InputStream inputStream, TextArea ta, boolean dryRun) {
-        StringBuffer sb = new StringBuffer();
-        try (InputStream xmlInputStream = ResourceWalker.getResourceAsStream(GROUPS_READER_SPEC)) {
-            inputStream.reset();
-            ReaderConfig readerConfig = ReaderConfig.getInstance();
-            readerConfig.setUseDefaultValuesForPrimitiveTypes(true);
-            readerConfig.setSkipErrors(true);
-            XLSReader reader = ReaderBuilder.buildFromXML(xmlInputStream);
-
-            try (InputStream xlsInputStream = inputStream) {
-                List<RGroup> groups = new ArrayList<>();
-
-                Map<String, Object> beans = new HashMap<>();
-                beans.put("groups", groups);
-
-                // logger.info(getTranslation("ReadingData_"));
-                XLSReadStatus status = reader.read(inputStream, beans);
-                logger.info("Read {} groups.", groups.size());
-                if (!dryRun) {
-                    updatePlatformsAndGroups(groups);
-                }
-
-                appendErrors(ta, sb, status);
-                return groups.size();
-            } catch (InvalidFormatException | IOException e) {
-                LoggerUtils.logError(logger, e);
-            }
-        } catch (IOException | SAXException e1) {
-            LoggerUtils.logError(logger, e1);
-        }
-        return 0;
-    }
-
-    private void processInput(String fileName, InputStream inputStream, TextArea ta) {
-        // clear athletes to be able to clear groups
-        resetAthletes();
-        listGroups("after reset athletes");
-
-        // dry run to count groups
-        int nbGroups = processGroups(inputStream, ta, true);
-        listGroups("after processGroups dryRun");
-        if (nbGroups > 0) {
-            // new format, reset groups from spreadsheet
-            resetGroups();
-            processGroups(inputStream, ta, false);
-            listGroups("after processGroups real");
-        }
-
-        // process athletes now that groups have been adjusted
-        processAthletes(inputStream, ta, false);
-        if (!keepParticipations) {
-            AthleteRepository.resetParticipations();
+            });
         }
-        listGroups("after processAthletes real");
-        return;
     }
 
     private void resetAthletes() {
@@ -284,10 +226,36 @@ public class RegistrationFileUploadDialog extends Dialog {
         });
     }
 
+    /**
+     * Apply the categories and team memberships read from the spreadsheet, if any were given explicitly.
+     *
+     * @param a
+     */
+    private void setEligibility(Athlete a) {
+        LinkedHashSet<Category> eligibles = (LinkedHashSet<Category>) RCompetition
+                .getAthleteToEligibles()
+                .get(a.getId());
+        LinkedHashSet<Category> teams = (LinkedHashSet<Category>) RCompetition
+                .getAthleteToTeams()
+                .get(a.getId());
+        if (eligibles != null) {
+            Category first = eligibles.stream().findFirst().orElse(null);
+            a.setCategory(first);
+            a.setEligibleCategories(eligibles);
+            List<Participation> participations2 = a.getParticipations();
+            for (Participation p : participations2) {
+                if (teams.contains(p.getCategory())) {
+                    p.setTeamMember(true);
+                } else {
+                    logger.info("Excluding {} as team member for {}", a.getShortName(),
+                            p.getCategory().getComputedCode());
+                    p.setTeamMember(false);
+                }
+            }
+        }
+    }
+
     private void updateAthletes(StringBuffer sb, RCompetition c, List<RAthlete> athletes) {
-//      for (Category c1: athlete.getEligibleCategories()) {
-//      em.merge(c1);
-//  }
         JPAService.runInTransaction(em -> {
             Competition curC = Competition.getCurrent();
             try {
@@ -302,11 +270,20 @@ public class RegistrationFileUploadDialog extends Dialog {
                 // update in database and set current to result of JPA merging.
                 Competition.setCurrent(em.merge(curC));
 
-                // Create the new athletes.
-                athletes.stream().forEach(r -> {
+                // Create the new athletes. Their ids are assigned on creation, so persist (unlike merge) does not
+                // need to check the database first, and the inserts are sent in batches.
+                em.unwrap(Session.class).setJdbcBatchSize(BATCH_SIZE);
+                Map<Long, Group> managedGroups = new HashMap<>();
+                for (RAthlete r : athletes) {
                     Athlete athlete = r.getAthlete();
-                    em.merge(athlete);
-                });
+                    setEligibility(athlete);
+                    Group g = athlete.getGroup();
+                    if (g != null) {
+                        // persist cascades to the group, it must be managed by this entity manager.
+                        athlete.setGroup(managedGroups.computeIfAbsent(g.getId(), (id) -> em.find(Group.class, id)));
+                    }
+                    em.persist(athlete);
+                }
                 em.flush();
             } catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
                 LoggerUtils.stackTrace(e);
@@ -315,35 +292,7 @@ public class RegistrationFileUploadDialog extends Dialog {
 
             return null;
         });
-
-        JPAService.runInTransaction(em -> {
-            AthleteRepository.findAll().stream().forEach(a2 -> {
-                LinkedHashSet<Category> eligibles = (LinkedHashSet<Category>) RCompetition
-                        .getAthleteToEligibles()
-                        .get(a2.getId());
-                LinkedHashSet<Category> teams = (LinkedHashSet<Category>) RCompetition
-                        .getAthleteToTeams()
-                        .get(a2.getId());
-                if (eligibles != null) {
-                    Category first = eligibles.stream().findFirst().orElse(null);
-                    a2.setCategory(first);
-                    a2.setEligibleCategories(eligibles);
-                    List<Participation> participations2 = a2.getParticipations();
-                    for (Participation p : participations2) {
-                        if (teams.contains(p.getCategory())) {
-                            p.setTeamMember(true);
-                        } else {
-                            logger.info("Excluding {} as team member for {}", a2.getShortName(),
-                                    p.getCategory().getComputedCode());
-                            p.setTeamMember(false);
-                        }
-                    }
-                    em.merge(a2);
-                }
-            });
-            em.flush();
-            return null;
-        });
+        Competition.getCurrent().setRankingsInvalid(true);
     }
 
     private void updatePlatformsAndGroups(List<RGroup> groups) {
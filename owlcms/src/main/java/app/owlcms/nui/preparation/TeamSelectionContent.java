@@ -453,6 +453,7 @@ public class TeamSelectionContent extends VerticalLayout
                             p.getAthlete().getShortName(), p.getCategory().getName());
                     p.setTeamMember(Boolean.TRUE.equals(value));
                     em.merge(p);
+                    Competition.getCurrent().setRankingsInvalid(true);
                     return null;
                 });
                 // crudGrid.getGrid().getDataProvider().refreshItem(p);
@@ -493,6 +494,7 @@ public class TeamSelectionContent extends VerticalLayout
                             });
                         }
                         em.flush();
+                        Competition.getCurrent().setRankingsInvalid(true);
                         return null;
                     });
                     refresh();
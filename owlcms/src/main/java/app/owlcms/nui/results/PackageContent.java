@@ -29,6 +29,7 @@ import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.combobox.ComboBox;
 import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.notification.Notification;
 import com.vaadin.flow.component.notification.Notification.Position;
 import com.vaadin.flow.component.orderedlayout.FlexComponent;
@@ -60,8 +61,10 @@ import app.owlcms.nui.crudui.OwlcmsCrudFormFactory;
 import app.owlcms.nui.crudui.OwlcmsGridLayout;
 import app.owlcms.nui.shared.AthleteCrudGrid;
 import app.owlcms.nui.shared.AthleteGridContent;
+import app.owlcms.nui.shared.DownloadButtonFactory;
 import app.owlcms.nui.shared.OwlcmsLayout;
 import app.owlcms.spreadsheet.JXLSCompetitionBook;
+import app.owlcms.spreadsheet.JXLSFinalPackage;
 import app.owlcms.spreadsheet.JXLSResultSheet;
 import app.owlcms.utils.URLUtils;
 import ch.qos.logback.classic.Level;
@@ -100,6 +103,7 @@ public class PackageContent extends AthleteGridContent implements HasDynamicTitl
     private DownloadDialog downloadDialog;
 //    private JXLSCompetitionBook xlsWriter;
     private List<AgeDivision> adItems;
+    private JXLSFinalPackage packageWriter;
 
     /**
      * Instantiates a new announcer content. Does nothing. Content is created in
@@ -133,8 +137,15 @@ public class PackageContent extends AthleteGridContent implements HasDynamicTitl
 
         Button finalPackageDownloadButton = createFinalPackageDownloadButton();
         Button categoryResultsDownloadButton = createCategoryResultsDownloadButton();
-
-        HorizontalLayout buttons = new HorizontalLayout(finalPackageDownloadButton, categoryResultsDownloadButton);
+        packageWriter = new JXLSFinalPackage();
+        packageWriter.setAgeDivision(ageDivision);
+        packageWriter.setAgeGroupPrefix(ageGroupPrefix);
+        packageWriter.setCategory(categoryValue);
+        Div zipDownloadDiv = DownloadButtonFactory.createDynamicZipDownloadButton("finalPackage",
+                Translator.translate("FinalResultsPackageZip"), packageWriter);
+
+        HorizontalLayout buttons = new HorizontalLayout(finalPackageDownloadButton, categoryResultsDownloadButton,
+                zipDownloadDiv);
         buttons.getStyle().set("margin-left", "5em");
         buttons.setAlignItems(FlexComponent.Alignment.BASELINE);
         buttons.setPadding(false);
@@ -285,6 +296,9 @@ public class PackageContent extends AthleteGridContent implements HasDynamicTitl
 
     public void setCategoryValue(Category category) {
         this.categoryValue = category;
+        if (packageWriter != null) {
+            packageWriter.setCategory(category);
+        }
     }
 
     @Override
@@ -643,10 +657,16 @@ public class PackageContent extends AthleteGridContent implements HasDynamicTitl
     private void setAgeDivision(AgeDivision ageDivision) {
         //logger.debug("setAgeDivision to {} from {}",ageDivision, LoggerUtils.whereFrom());
         this.ageDivision = ageDivision;
+        if (packageWriter != null) {
+            packageWriter.setAgeDivision(ageDivision);
+        }
     }
 
     private void setAgeGroupPrefix(String value) {
         this.ageGroupPrefix = value;
+        if (packageWriter != null) {
+            packageWriter.setAgeGroupPrefix(value);
+        }
     }
 
     private void updateFilters(AgeDivision ageDivision2, String ageGroupPrefix2) {
@@ -234,7 +234,7 @@ public class ResultsContent extends AthleteGridContent implements HasDynamicTitl
         groups.sort((Comparator<Group>) new NaturalOrderComparator<Group>());
 
         OwlcmsSession.withFop(fop -> {
-            logger.trace("initial setting group to {} {}", currentGroup, LoggerUtils.whereFrom());
+            logger.trace("initial setting group to {} {}", currentGroup, LoggerUtils.caller());
             getGroupFilter().setValue(currentGroup);
             // switching to group "*" is understood to mean all groups
             topBarMenu = new GroupSelectionMenu(groups, currentGroup,
@@ -11,6 +11,7 @@ import org.slf4j.LoggerFactory;
 import com.github.appreciated.layout.FlexibleGridLayout;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.html.Anchor;
 import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.router.HasDynamicTitle;
@@ -58,11 +59,13 @@ public class ResultsNavigationContent extends BaseNavigationContent implements N
         Div newRecords = DownloadButtonFactory.createDynamicXLSDownloadButton("records",
                 getTranslation("Results.NewRecords"), new JXLSExportRecords(UI.getCurrent()));
         ((Button) newRecords.getComponentAt(0)).setWidth("100%");
+        Anchor csvExport = exportAnchor("csv", getTranslation("ResultsExportCSV"));
+        Anchor jsonExport = exportAnchor("json", getTranslation("ResultsExportJSON"));
 
         FlexibleGridLayout grid1 = HomeNavigationContent.navigationGrid(groupResults, medals);
         FlexibleGridLayout grid2 = HomeNavigationContent.navigationGrid(teamResults, teams);
         FlexibleGridLayout grid3 = HomeNavigationContent.navigationGrid(finalPackage, categoryResults, newRecords,
-                timingStats);
+                timingStats, csvExport, jsonExport);
 
         doGroup(getTranslation("ForEachCompetitionGroup"), grid1, this);
         doGroup(getTranslation("TeamResults.Title"), grid2, this);
@@ -71,6 +74,18 @@ public class ResultsNavigationContent extends BaseNavigationContent implements N
         DebugUtils.gc();
     }
 
+    /**
+     * Link to the streaming results export (see {@link app.owlcms.servlet.ResultsExportServlet})
+     */
+    private Anchor exportAnchor(String format, String label) {
+        Button button = new Button(label);
+        button.setWidth("100%");
+        Anchor anchor = new Anchor("export/results?format=" + format, "");
+        anchor.setTarget("_blank");
+        anchor.add(button);
+        return anchor;
+    }
+
     @Override
     public Location getLocation() {
         return this.location;
@@ -387,7 +387,7 @@ public abstract class AthleteGridContent extends VerticalLayout
         if (fop != null) {
             logger.trace("{}findAll {} {}", fop.getLoggingName(),
                     fop.getGroup() == null ? null : fop.getGroup().getName(),
-                    LoggerUtils.whereFrom());
+                    LoggerUtils.caller());
             final String filterValue;
             if (lastNameFilter.getValue() != null) {
                 filterValue = lastNameFilter.getValue().toLowerCase();
@@ -766,7 +766,7 @@ public abstract class AthleteGridContent extends VerticalLayout
         if (crudGrid == null) {
             return;
         }
-        logger.debug("{} {}", e.getOrigin(), LoggerUtils.whereFrom());
+        logger.debug("{} {}", e.getOrigin(), LoggerUtils.caller());
         UIEventProcessor.uiAccess(crudGrid, uiEventBus, e, () -> {
             crudGrid.refreshGrid();
         });
@@ -1116,7 +1116,7 @@ public abstract class AthleteGridContent extends VerticalLayout
 
         OwlcmsSession.withFop((fop) -> {
             Group group = fop.getGroup();
-            logger.trace("initial setting group to {} {}", group, LoggerUtils.whereFrom());
+            logger.trace("initial setting group to {} {}", group, LoggerUtils.caller());
             try {
                 getGroupFilter().setValue(group);
             } catch (Exception e) {
@@ -1449,7 +1449,7 @@ public abstract class AthleteGridContent extends VerticalLayout
                         decisions.setVisible(true);
                     }
                     if (breakButton == null) {
-                        logger.debug("breakButton is null\n{}", LoggerUtils.stackTrace());
+                        logger.debug("breakButton is null\n{}", LoggerUtils.callStack());
                     }
                     if (breakButton != null) {
                         breakButton.setText("");
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.nui.shared;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.ObjectUtils;
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.data.binder.BeanPropertySet;
+import com.vaadin.flow.data.binder.PropertyDefinition;
+import com.vaadin.flow.data.binder.PropertySet;
+import com.vaadin.flow.data.provider.AbstractBackEndDataProvider;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.provider.QuerySortOrder;
+import com.vaadin.flow.data.provider.SortDirection;
+import com.vaadin.flow.function.SerializableSupplier;
+
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.AthleteRepository;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Lazy data provider for the registration and weigh-in grids.
+ *
+ * The ids of the athletes that match the filters are obtained once per refresh, in registration order (see
+ * {@link AthleteRepository#findFilteredIds}); the grid then only loads the athletes of the rows it shows. When a column
+ * is sorted, the filtered athletes are loaded and sorted on that column, and only their ids are kept.
+ *
+ * @author Jean-François Lamy
+ */
+@SuppressWarnings("serial")
+public class AthleteRegistrationDataProvider extends AbstractBackEndDataProvider<Athlete, Void> {
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(AthleteRegistrationDataProvider.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    private static final PropertySet<Athlete> properties = BeanPropertySet.get(Athlete.class);
+
+    private SerializableSupplier<List<Long>> filteredIds;
+    private SerializableSupplier<Collection<Athlete>> filteredAthletes;
+
+    // ids for the current filters and sort orders, until the next refresh
+    private List<Long> ids;
+    private String idsSortOrders;
+
+    /**
+     * @param filteredIds      ids of the athletes that match the filters, in registration order
+     * @param filteredAthletes the athletes that match the filters, used when a column is sorted
+     */
+    public AthleteRegistrationDataProvider(SerializableSupplier<List<Long>> filteredIds,
+            SerializableSupplier<Collection<Athlete>> filteredAthletes) {
+        this.filteredIds = filteredIds;
+        this.filteredAthletes = filteredAthletes;
+    }
+
+    /**
+     * Filters have changed, or athletes were edited.
+     *
+     * @see com.vaadin.flow.data.provider.DataProvider#refreshAll()
+     */
+    @Override
+    public void refreshAll() {
+        ids = null;
+        super.refreshAll();
+    }
+
+    @Override
+    protected Stream<Athlete> fetchFromBackEnd(Query<Athlete, Void> query) {
+        List<Long> ordered = getIds(query.getSortOrders());
+        int from = Math.min(query.getOffset(), ordered.size());
+        int to = from + Math.min(query.getLimit(), ordered.size() - from);
+        return AthleteRepository.findByIds(ordered.subList(from, to)).stream();
+    }
+
+    @Override
+    protected int sizeInBackEnd(Query<Athlete, Void> query) {
+        return getIds(query.getSortOrders()).size();
+    }
+
+    private Comparator<Athlete> comparator(List<QuerySortOrder> sortOrders) {
+        Comparator<Athlete> comparator = (a, b) -> 0;
+        for (QuerySortOrder so : sortOrders) {
+            Optional<PropertyDefinition<Athlete, ?>> property = properties.getProperty(so.getSorted());
+            if (!property.isPresent()) {
+                logger.warn("cannot sort on {}", so.getSorted());
+                continue;
+            }
+            PropertyDefinition<Athlete, ?> p = property.get();
+            Comparator<Athlete> c = (a, b) -> compareValues(p.getGetter().apply(a), p.getGetter().apply(b));
+            comparator = comparator.thenComparing(so.getDirection() == SortDirection.DESCENDING ? c.reversed() : c);
+        }
+        return comparator;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private int compareValues(Object v1, Object v2) {
+        if (v1 instanceof Comparable && v2 instanceof Comparable) {
+            return ObjectUtils.compare((Comparable) v1, (Comparable) v2, true);
+        }
+        return ObjectUtils.compare(v1 != null ? v1.toString() : null, v2 != null ? v2.toString() : null, true);
+    }
+
+    private List<Long> getIds(List<QuerySortOrder> sortOrders) {
+        String sortKey = sortOrders.stream().map(so -> so.getSorted() + " " + so.getDirection())
+                .collect(Collectors.joining(","));
+        if (ids != null && sortKey.equals(idsSortOrders)) {
+            return ids;
+        }
+        long start = System.nanoTime();
+        if (sortOrders.isEmpty()) {
+            ids = filteredIds.get();
+        } else {
+            List<Athlete> athletes = new ArrayList<>(filteredAthletes.get());
+            athletes.sort(comparator(sortOrders));
+            ids = athletes.stream().map(Athlete::getId).collect(Collectors.toList());
+        }
+        idsSortOrders = sortKey;
+        logger.debug("{} athletes listed in {} ms", ids.size(), (System.nanoTime() - start) / 1000000.0);
+        return ids;
+    }
+
+}
@@ -122,6 +122,7 @@ public final class AthleteRegistrationFormFactory extends OwlcmsCrudFormFactory<
     @Override
     public Athlete add(Athlete athlete) {
         Athlete nAthlete = JPAService.runInTransaction((em) -> {
+            Competition.getCurrent().setRankingsInvalid(true);
             return em.merge(athlete);
         });
         enablePrint(nAthlete);
@@ -604,7 +605,7 @@ public final class AthleteRegistrationFormFactory extends OwlcmsCrudFormFactory<
     }
 
     private void checkOther20kgFields(String prop1, String prop2) {
-        logger.debug("entering checkOther20kgFields {} {}", isCheckOther20kgFields(), LoggerUtils.whereFrom());
+        logger.debug("entering checkOther20kgFields {} {}", isCheckOther20kgFields(), LoggerUtils.caller());
         if (isCheckOther20kgFields()) {
             setCheckOther20kgFields(false); // prevent recursion
             Binding<Athlete, ?> prop1Binding = binder.getBinding(prop1).get();
@@ -924,7 +925,7 @@ public final class AthleteRegistrationFormFactory extends OwlcmsCrudFormFactory<
     }
 
     private void setCheckOther20kgFields(boolean checkOther20kgFields) {
-        logger.debug("checkOther20kgFields={} {}", checkOther20kgFields, LoggerUtils.whereFrom());
+        logger.debug("checkOther20kgFields={} {}", checkOther20kgFields, LoggerUtils.caller());
         this.checkOther20kgFields = checkOther20kgFields;
     }
 
@@ -189,7 +189,7 @@ public class BreakManagement extends VerticalLayout implements SafeEventBusRegis
                 return;
             }
             logger.debug("bt new value {} {} {} {}", event.getValue(), ignoreBreakTypeValueChange, ignoreListeners,
-                    LoggerUtils.whereFrom());
+                    LoggerUtils.caller());
 
             BreakType bType = event.getValue();
             if (bType == BEFORE_INTRODUCTION) {
@@ -315,7 +315,7 @@ public class BreakManagement extends VerticalLayout implements SafeEventBusRegis
         datePicker.setWidth("16ch");
         timePicker.setValue(LocalTime.of(nextHr, nextStepMin));
         timePicker.setWidth("11ch");
-        logger.debug("setting default duration as default {}", LoggerUtils.whereFrom());
+        logger.debug("setting default duration as default {}", LoggerUtils.caller());
         setDurationField(DEFAULT_DURATION);
     }
 
@@ -850,7 +850,7 @@ public class BreakManagement extends VerticalLayout implements SafeEventBusRegis
     }
 
     private void setDurationField(Duration duration) {
-        logger.debug("{} {}", duration, LoggerUtils.whereFrom());
+        logger.debug("{} {}", duration, LoggerUtils.caller());
         try {
             ignoreDurationValueChange = true;
             durationField.setValue(duration);
@@ -860,7 +860,7 @@ public class BreakManagement extends VerticalLayout implements SafeEventBusRegis
     }
 
     private void setDurationValue(CountdownType ct2) {
-        logger.debug("setting durationRadios {}  from {}", ct2, LoggerUtils.whereFrom());
+        logger.debug("setting durationRadios {}  from {}", ct2, LoggerUtils.caller());
         durationRadios.setValue(ct2);
     }
 
@@ -15,6 +15,7 @@ import org.slf4j.LoggerFactory;
 import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.icon.Icon;
 import com.vaadin.flow.component.icon.VaadinIcon;
+import com.vaadin.flow.server.StreamResourceWriter;
 
 import app.owlcms.components.elements.LazyDownloadButton;
 import app.owlcms.data.export.CompetitionData;
@@ -30,6 +31,18 @@ public class DownloadButtonFactory {
     final private static Logger logger = (Logger) LoggerFactory.getLogger(DownloadButtonFactory.class);
 
     public static Div createDynamicJsonDownloadButton(String prefix, String label) {
+        return createDynamicJsonDownloadButton(prefix, label, false);
+    }
+
+    /**
+     * Creates a new DownloadButton object for a database export.
+     *
+     * @param prefix     the prefix
+     * @param label      the label
+     * @param compressed true for the compressed binary export, false for JSON
+     * @return the div
+     */
+    public static Div createDynamicJsonDownloadButton(String prefix, String label, boolean compressed) {
         final LazyDownloadButton downloadButton = new LazyDownloadButton(
                 label,
                 new Icon(VaadinIcon.DOWNLOAD_ALT),
@@ -37,11 +50,9 @@ public class DownloadButtonFactory {
                     LocalDateTime now = LocalDateTime.now().withNano(0);
                     return prefix
                             + "_" + now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH'h'mm"))
-                            + ".json";
+                            + (compressed ? ".smile.gz" : ".json");
                 },
-                () -> {
-                    return new CompetitionData().exportData();
-                });
+                (stream, session) -> new CompetitionData().exportData(stream, compressed));
 
         return new Div(downloadButton);
     }
@@ -86,4 +97,27 @@ public class DownloadButtonFactory {
         return new Div(downloadButton);
     }
 
+    /**
+     * Creates a new DownloadButton object for a zip file produced on demand.
+     *
+     * @param prefix the prefix
+     * @param label  the label
+     * @param writer the writer that produces the zip content
+     * @return the div
+     */
+    public static Div createDynamicZipDownloadButton(String prefix, String label, StreamResourceWriter writer) {
+        final LazyDownloadButton downloadButton = new LazyDownloadButton(
+                label,
+                new Icon(VaadinIcon.DOWNLOAD_ALT),
+                () -> {
+                    LocalDateTime now = LocalDateTime.now().withNano(0);
+                    return prefix
+                            + "_" + now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH'h'mm';'ss"))
+                            + ".zip";
+                },
+                writer);
+
+        return new Div(downloadButton);
+    }
+
 }
@@ -58,7 +58,7 @@ public interface SafeEventBusRegistration {
 
 		EventBus uiEventBus = fop.getUiEventBus();
 		uiEventBus.register(c);
-	    logger.trace("registering {} on bus {} {}",c, uiEventBus.identifier(), LoggerUtils.whereFrom());
+	    logger.trace("registering {} on bus {} {}",c, uiEventBus.identifier(), LoggerUtils.caller());
 
         UnloadObserver unloadObserver = UnloadObserver.get(false);
         unloadObserver.addUnloadListener((e) -> {
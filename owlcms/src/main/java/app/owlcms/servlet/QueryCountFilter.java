@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.servlet;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+
+import app.owlcms.data.jpa.QueryCounter;
+
+/**
+ * Per-request summary of the SQL statements issued, when {@link QueryCounter} logs at DEBUG level. UI actions arrive
+ * as Vaadin UIDL requests, so each one gets its own line. Does nothing otherwise.
+ *
+ * @author Jean-François Lamy
+ */
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
+public class QueryCountFilter implements Filter {
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!QueryCounter.getLogger().isDebugEnabled() || !(request instanceof HttpServletRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        String query = httpRequest.getQueryString();
+        try (QueryCounter.Scope s = QueryCounter.scope(httpRequest.getMethod() + " " + httpRequest.getRequestURI()
+                + (query != null ? "?" + query : ""))) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+    }
+
+}
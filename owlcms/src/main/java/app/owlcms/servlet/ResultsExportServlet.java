@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.servlet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.slf4j.LoggerFactory;
+import org.supercsv.io.CsvListWriter;
+import org.supercsv.prefs.CsvPreference;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import app.owlcms.data.category.Participation;
+import app.owlcms.data.competition.Competition;
+import app.owlcms.data.jpa.JPAService;
+import app.owlcms.init.OwlcmsFactory;
+import app.owlcms.spreadsheet.PAthlete;
+import app.owlcms.utils.LoggerUtils;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Read-only machine-readable results, for aggregators that would otherwise scrape the Excel protocol.
+ *
+ * <pre>
+ * GET /export/results?format=csv|json[&amp;group=name]
+ * </pre>
+ *
+ * The athletes are read through a forward-only database cursor and written as they are read (CSV, or one JSON object
+ * per line). The ETag is derived from {@link Competition#getResultsVersion()}, so an unchanged competition is answered
+ * with 304 without touching the database. The version restarts at 0 with the server, so the ETag also identifies the
+ * server run.
+ *
+ * @author Jean-François Lamy
+ */
+@WebServlet("/export/results")
+public class ResultsExportServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final List<String> HEADERS = Arrays.asList(
+            "id", "startNumber", "lastName", "firstName", "gender", "team", "category", "group", "bodyWeight",
+            "snatch1", "snatch2", "snatch3", "cleanJerk1", "cleanJerk2", "cleanJerk3",
+            "bestSnatch", "bestCleanJerk", "total", "snatchRank", "cleanJerkRank", "totalRank",
+            "sinclair", "sinclairRank", "robi", "robiRank", "smm", "smmRank");
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    // distinguishes the versions of this run from those of a previous one.
+    private static final String RUN_ID = Long.toString(System.currentTimeMillis(), 36);
+
+    private static Logger logger = (Logger) LoggerFactory.getLogger(ResultsExportServlet.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    /**
+     * Write the results of the weighed-in athletes.
+     *
+     * @param session   an open session, in a transaction
+     * @param groupName the name of a group, or null for all the groups
+     * @param json      true for one JSON object per line, false for CSV
+     * @param out       where the rows are written, closed at the end
+     * @return the number of athletes written
+     * @throws IOException
+     */
+    public static int writeResults(Session session, String groupName, boolean json, OutputStream out)
+            throws IOException {
+        return json ? writeJson(session, groupName, out) : writeCsv(session, groupName, out);
+    }
+
+    private static Object[] toRow(PAthlete a) {
+        return new Object[] {
+                a._getAthlete().getId(),
+                a.getStartNumber(),
+                a.getLastName(),
+                a.getFirstName(),
+                a.getGender() != null ? a.getGender().name() : null,
+                a.getTeam(),
+                a.getCategory() != null ? a.getCategory().getComputedCode() : null,
+                a.getGroup() != null ? a.getGroup().getName() : null,
+                a.getBodyWeight(),
+                a.getSnatch1ActualLift(),
+                a.getSnatch2ActualLift(),
+                a.getSnatch3ActualLift(),
+                a.getCleanJerk1ActualLift(),
+                a.getCleanJerk2ActualLift(),
+                a.getCleanJerk3ActualLift(),
+                a.getBestSnatch(),
+                a.getBestCleanJerk(),
+                a.getTotal(),
+                a.getSnatchRank(),
+                a.getCleanJerkRank(),
+                a.getTotalRank(),
+                a.getSinclair(),
+                a.getSinclairRank(),
+                a.getRobi(),
+                a.getRobiRank(),
+                a.getSmm(),
+                a.getSmmRank()
+        };
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        OwlcmsFactory.waitDBInitialized();
+
+        boolean json = "json".equalsIgnoreCase(request.getParameter("format"))
+                || "ndjson".equalsIgnoreCase(request.getParameter("format"));
+        String groupName = request.getParameter("group");
+        String eTag = "\"" + RUN_ID + "-" + Competition.getResultsVersion() + (json ? "-j" : "-c")
+                + (groupName != null ? "-" + Integer.toHexString(groupName.hashCode()) : "") + "\"";
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null && (ifNoneMatch.contains(eTag) || ifNoneMatch.trim().equals("*"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader("ETag", eTag);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setHeader("ETag", eTag);
+        response.setHeader("Cache-Control", "no-cache");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        if (json) {
+            response.setContentType("application/x-ndjson");
+        } else {
+            response.setContentType("text/csv");
+            response.setHeader("Content-Disposition", "attachment;filename=\"results.csv\"");
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            int nbRows = JPAService.runInTransaction(em -> {
+                try {
+                    return writeResults(em.unwrap(Session.class), groupName, json, response.getOutputStream());
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            logger.debug("exported {} rows in {} ms", nbRows, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IOException) {
+                // client went away
+                logger.debug("export interrupted {}", e.getCause().getMessage());
+            } else {
+                LoggerUtils.logError(logger, e);
+                if (!response.isCommitted()) {
+                    response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                }
+            }
+        }
+    }
+
+    /**
+     * One row per athlete, using the participation for the athlete's own category (which holds the ranks). The
+     * athlete, category and group are fetched in the same statement; the persistence context is cleared periodically
+     * so memory stays flat whatever the number of athletes.
+     */
+    private static ScrollableResults scrollMainParticipations(Session session, String groupName) {
+        String hql = "select p from Participation p join fetch p.athlete a join fetch p.category c"
+                + " left join fetch a.group g"
+                + " where a.category = c and a.bodyWeight > 0"
+                + (groupName != null ? " and g.name = :groupName" : "")
+                + " order by c.code, a.lastName, a.firstName";
+        Query<Participation> query = session.createQuery(hql, Participation.class);
+        if (groupName != null) {
+            query.setParameter("groupName", groupName);
+        }
+        query.setReadOnly(true);
+        query.setFetchSize(FETCH_SIZE);
+        return query.scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    private static int writeCsv(Session session, String groupName, OutputStream out) throws IOException {
+        int nbRows = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try (CsvListWriter csvWriter = new CsvListWriter(writer, CsvPreference.STANDARD_PREFERENCE);
+                ScrollableResults results = scrollMainParticipations(session, groupName)) {
+            csvWriter.writeHeader(HEADERS.toArray(new String[0]));
+            while (results.next()) {
+                Participation p = (Participation) results.get(0);
+                csvWriter.write(toRow(new PAthlete(p)));
+                if (++nbRows % FETCH_SIZE == 0) {
+                    session.clear();
+                }
+            }
+        }
+        return nbRows;
+    }
+
+    private static int writeJson(Session session, String groupName, OutputStream out) throws IOException {
+        int nbRows = 0;
+        try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+                ScrollableResults results = scrollMainParticipations(session, groupName)) {
+            // one object per line
+            generator.setRootValueSeparator(null);
+            while (results.next()) {
+                Participation p = (Participation) results.get(0);
+                Object[] row = toRow(new PAthlete(p));
+                generator.writeStartObject();
+                for (int i = 0; i < row.length; i++) {
+                    Object value = row[i];
+                    String fieldName = HEADERS.get(i);
+                    if (value == null) {
+                        generator.writeNullField(fieldName);
+                    } else if (value instanceof Number) {
+                        generator.writeFieldName(fieldName);
+                        writeNumber(generator, (Number) value);
+                    } else {
+                        generator.writeStringField(fieldName, value.toString());
+                    }
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                if (++nbRows % FETCH_SIZE == 0) {
+                    session.clear();
+                }
+            }
+        }
+        return nbRows;
+    }
+
+    private static void writeNumber(JsonGenerator generator, Number value) throws IOException {
+        if (value instanceof Double || value instanceof Float) {
+            generator.writeNumber(value.doubleValue());
+        } else {
+            generator.writeNumber(value.longValue());
+        }
+    }
+
+}
@@ -0,0 +1,415 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.sound;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Collectors;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.SourceDataLine;
+
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.utils.LoggerUtils;
+import app.owlcms.utils.ResourceWalker;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Server-side sound output for one mixer.
+ *
+ * Sounds are decoded once into PCM and kept until the file they come from is replaced. Each audio format gets its own line, opened
+ * once and kept open, and its own playback thread: {@link #play(PCM)} only queues the samples, so the caller (the
+ * clock, a decision) is never delayed by opening a line or by the duration of the sound. Sounds with the same format
+ * are played one after the other; the wave files and the synthesized tones have different formats and can overlap.
+ *
+ * @author Jean-François Lamy
+ */
+public class SoundPlayer {
+
+    /**
+     * Obtains a line for a format. The default goes to the mixer; tests substitute their own.
+     */
+    @FunctionalInterface
+    public interface LineFactory {
+        SourceDataLine getLine(AudioFormat format) throws LineUnavailableException;
+    }
+
+    /**
+     * Decoded samples and their format.
+     */
+    public static class PCM {
+        private final String name;
+        private final AudioFormat format;
+        private final byte[] data;
+        /**
+         * the file the samples were decoded from, and its modification time.
+         */
+        private final String source;
+
+        PCM(String name, AudioFormat format, byte[] data) {
+            this(name, format, data, null);
+        }
+
+        PCM(String name, AudioFormat format, byte[] data, String source) {
+            this.name = name;
+            this.format = format;
+            this.data = data;
+            this.source = source;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public AudioFormat getFormat() {
+            return format;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static class Request {
+        final PCM pcm;
+        final long emitNanos;
+
+        Request(PCM pcm) {
+            this.pcm = pcm;
+            this.emitNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * An open line and the thread that writes to it.
+     */
+    private class Voice {
+        private final SourceDataLine line;
+        private final LinkedBlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+        private final Thread thread;
+        private volatile boolean closed;
+
+        Voice(AudioFormat format) throws LineUnavailableException {
+            line = lineFactory.getLine(format);
+            // room for 1/4 second; longer sounds block the voice thread, not the caller
+            int frames = (int) Math.max(format.getFrameRate() / 4, 1);
+            line.open(format, frames * format.getFrameSize());
+            line.start();
+            thread = new Thread(this::playRequests, "sound-" + name + "-" + (int) format.getSampleRate());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void close() {
+            closed = true;
+            requests.clear();
+            thread.interrupt();
+            // also interrupts a sound being written
+            line.close();
+        }
+
+        private void playRequests() {
+            while (true) {
+                Request r;
+                try {
+                    r = requests.take();
+                } catch (InterruptedException e) {
+                    line.close();
+                    return;
+                }
+                try {
+                    byte[] data = r.pcm.getData();
+                    boolean first = true;
+                    for (int offset = 0; offset < data.length && !closed;) {
+                        int nb = Math.min(line.getBufferSize(), data.length - offset);
+                        if (first) {
+                            recordLatency(r);
+                            first = false;
+                        }
+                        offset += line.write(data, offset, nb);
+                    }
+                    line.drain();
+                    logger.debug("{} played {}", name, r.pcm);
+                } catch (Throwable t) {
+                    if (closed) {
+                        return;
+                    }
+                    LoggerUtils.logError(logger, t);
+                }
+            }
+        }
+    }
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(SoundPlayer.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    private static Map<Mixer.Info, SoundPlayer> players = new ConcurrentHashMap<>();
+
+    /**
+     * @param mixer
+     * @return the player for the mixer, created on first use
+     */
+    public static SoundPlayer forMixer(Mixer mixer) {
+        return players.computeIfAbsent(mixer.getMixerInfo(),
+                (info) -> new SoundPlayer(info.getName(), (af) -> AudioSystem.getSourceDataLine(af, info)));
+    }
+
+    /**
+     * Close the players of the mixers that are no longer selected, with their lines and threads.
+     *
+     * @param selected the mixers still selected by a platform
+     */
+    public static void closeUnselected(Collection<Mixer> selected) {
+        Set<Mixer.Info> kept = selected.stream().filter(Objects::nonNull).map(Mixer::getMixerInfo)
+                .collect(Collectors.toSet());
+        Iterator<Map.Entry<Mixer.Info, SoundPlayer>> it = players.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Mixer.Info, SoundPlayer> e = it.next();
+            if (!kept.contains(e.getKey())) {
+                it.remove();
+                e.getValue().close();
+            }
+        }
+    }
+
+    /**
+     * Synthesize a sine wave, 8kHz 8-bit mono, with shaped front and back ends.
+     *
+     * @param hz
+     * @param msecs
+     * @param vol   0.0 to 1.0
+     * @return
+     */
+    static PCM synthesize(int hz, int msecs, double vol) {
+        if (vol > 1.0 || vol < 0.0) {
+            throw new IllegalArgumentException("Volume out of range 0.0 - 1.0");
+        }
+        byte[] buf = new byte[msecs * 8];
+
+        for (int i = 0; i < buf.length; i++) {
+            double angle = i / (8000.0 / hz) * 2.0 * Math.PI;
+            buf[i] = (byte) (Math.sin(angle) * 127.0 * vol);
+        }
+
+        // shape the front and back ends of the wave form
+        for (int i = 0; i < 20 && i < buf.length / 2; i++) {
+            buf[i] = (byte) (buf[i] * i / 20);
+            buf[buf.length - 1 - i] = (byte) (buf[buf.length - 1 - i] * i / 20);
+        }
+
+        return new PCM(hz + "Hz " + msecs + "ms", new AudioFormat(8000f, 8, 1, true, false), buf);
+    }
+
+    private final String name;
+    private final LineFactory lineFactory;
+    private final Map<String, PCM> sounds = new ConcurrentHashMap<>();
+    private final Map<String, PCM> tones = new ConcurrentHashMap<>();
+    private final Map<String, Voice> voices = new ConcurrentHashMap<>();
+
+    private long played;
+    private long lastLatencyNanos;
+    private long maxLatencyNanos;
+    // guarded by voices
+    private boolean closed;
+
+    public SoundPlayer(String name, LineFactory lineFactory) {
+        this.name = name;
+        this.lineFactory = lineFactory;
+    }
+
+    /**
+     * Close the lines and stop their threads. Sounds still waiting are not played. The player cannot be used again:
+     * sounds and tones created for it are ignored, {@link #forMixer(Mixer)} creates a new player.
+     */
+    public void close() {
+        synchronized (voices) {
+            closed = true;
+            for (Voice v : voices.values()) {
+                v.close();
+            }
+            voices.clear();
+        }
+        logger.debug("{} closed", name);
+    }
+
+    /**
+     * @return time between the last call to play and the first write of its samples to the line, in milliseconds
+     */
+    public synchronized double getLastLatencyMs() {
+        return lastLatencyNanos / 1000000.0;
+    }
+
+    /**
+     * @return longest time between a call to play and the first write of its samples to the line, in milliseconds
+     */
+    public synchronized double getMaxLatencyMs() {
+        return maxLatencyNanos / 1000000.0;
+    }
+
+    /**
+     * @return number of sounds that have started playing
+     */
+    public synchronized long getPlayed() {
+        return played;
+    }
+
+    /**
+     * @param soundRelativeURL file name under /sounds, possibly overridden in the local directory
+     * @return the decoded sound, read on first use and again when the file is replaced
+     */
+    public PCM getSound(String soundRelativeURL) {
+        String source = source(Sound.SOUND_PREFIX + soundRelativeURL);
+        return sounds.compute(soundRelativeURL,
+                (k, old) -> old != null && Objects.equals(old.source, source) ? old : decode(k, source));
+    }
+
+    /**
+     * @param hz
+     * @param msecs
+     * @param vol
+     * @return the synthesized tone, computed on first use
+     */
+    public PCM getTone(int hz, int msecs, double vol) {
+        return tones.computeIfAbsent(hz + "/" + msecs + "/" + vol, (k) -> synthesize(hz, msecs, vol));
+    }
+
+    /**
+     * Open the line for a format ahead of time, so that the first sound does not wait for it.
+     *
+     * @param format
+     * @throws LineUnavailableException
+     */
+    public void openLine(AudioFormat format) throws LineUnavailableException {
+        getVoice(format);
+    }
+
+    /**
+     * Queue a sound. Does not block. Ignored once the player is closed.
+     *
+     * @param pcm
+     */
+    public void play(PCM pcm) {
+        if (pcm == null) {
+            return;
+        }
+        try {
+            Voice v = getVoice(pcm.getFormat());
+            if (v == null) {
+                logger.debug("{} closed, {} not played", name, pcm);
+                return;
+            }
+            v.requests.add(new Request(pcm));
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            logger.error("{} cannot play {}: {}", name, pcm, e.getMessage());
+        }
+    }
+
+    /**
+     * Decode the sounds and open their lines.
+     *
+     * @param soundRelativeURLs
+     */
+    public void preload(String... soundRelativeURLs) {
+        for (String s : soundRelativeURLs) {
+            PCM pcm = getSound(s);
+            if (pcm == null) {
+                continue;
+            }
+            try {
+                openLine(pcm.getFormat());
+            } catch (LineUnavailableException | IllegalArgumentException e) {
+                logger.error("{} cannot open line for {}: {}", name, s, e.getMessage());
+            }
+        }
+    }
+
+    private PCM decode(String soundRelativeURL, String source) {
+        String soundURL = Sound.SOUND_PREFIX + soundRelativeURL;
+        try (InputStream resource = ResourceWalker.getResourceAsStream(soundURL)) {
+            // since we are reading from the jar, we need to avoid the mark/reset trial and
+            // error from AudioSystem.getAudioInputStream
+            // so we force WaveFileReader.
+            AudioInputStream inputStream = new WaveFileReader().getAudioInputStream(resource);
+            PCM pcm = new PCM(soundRelativeURL, inputStream.getFormat(), inputStream.readAllBytes(), source);
+            logger.debug("{} decoded {} {} bytes {}", name, soundRelativeURL, pcm.getData().length, pcm.getFormat());
+            return pcm;
+        } catch (Exception e) {
+            // not cached, the next attempt will report it again
+            logger.error("could not decode {} {}", soundURL, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the voice for the format, opened on first use; null if the player is closed
+     */
+    private Voice getVoice(AudioFormat format) throws LineUnavailableException {
+        String key = format.toString();
+        Voice v = voices.get(key);
+        if (v != null) {
+            return v;
+        }
+        synchronized (voices) {
+            if (closed) {
+                return null;
+            }
+            v = voices.get(key);
+            if (v == null) {
+                v = new Voice(format);
+                voices.put(key, v);
+            }
+            return v;
+        }
+    }
+
+    /**
+     * @param soundURL
+     * @return the file the sound is read from, a local one if the sound is overridden, and its modification time
+     */
+    private String source(String soundURL) {
+        Path path = ResourceWalker.findFileOrResourcePath(soundURL);
+        if (path == null) {
+            return null;
+        }
+        try {
+            return path.toUri() + "@" + Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return path.toUri().toString();
+        }
+    }
+
+    private synchronized void recordLatency(Request r) {
+        lastLatencyNanos = System.nanoTime() - r.emitNanos;
+        if (lastLatencyNanos > maxLatencyNanos) {
+            maxLatencyNanos = lastLatencyNanos;
+        }
+        played++;
+    }
+
+}
@@ -6,16 +6,16 @@
  *******************************************************************************/
 package app.owlcms.sound;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.Mixer;
-import javax.sound.sampled.SourceDataLine;
 
+/**
+ * Play a synthesized sine wave. The samples are computed once per mixer, and the line is opened when the tone is
+ * created, so that {@link #emit()} only queues the samples, see {@link SoundPlayer}.
+ */
 public class Tone {
-    private AudioFormat af;
-    private byte[] buf;
-    private SourceDataLine sdl;
+    private SoundPlayer player;
+    private SoundPlayer.PCM pcm;
 
     public Tone(Mixer mixer, int hz, int msecs, double vol) throws IllegalArgumentException, LineUnavailableException {
         if (mixer == null) {
@@ -25,20 +25,13 @@ public class Tone {
     }
 
     /**
-     * @param buf
-     * @param af
-     * @param sdl
-     * @throws LineUnavailableException
+     * Queue the tone for playing. Does not block.
      */
-    public void emit() throws IllegalArgumentException, LineUnavailableException {
-        if (sdl == null) {
+    public void emit() {
+        if (player == null) {
             return;
         }
-        sdl.open(af, buf.length);
-        sdl.start();
-        sdl.write(buf, 0, buf.length);
-        sdl.drain();
-        sdl.close();
+        player.play(pcm);
     }
 
     /**
@@ -49,24 +42,9 @@ public class Tone {
      */
     protected void init(int hz, int msecs, double vol, Mixer mixer)
             throws LineUnavailableException, IllegalArgumentException {
-        if (vol > 1.0 || vol < 0.0) {
-            throw new IllegalArgumentException("Volume out of range 0.0 - 1.0");
-        }
-        buf = new byte[msecs * 8];
-
-        for (int i = 0; i < buf.length; i++) {
-            double angle = i / (8000.0 / hz) * 2.0 * Math.PI;
-            buf[i] = (byte) (Math.sin(angle) * 127.0 * vol);
-        }
-
-        // shape the front and back ends of the wave form
-        for (int i = 0; i < 20 && i < buf.length / 2; i++) {
-            buf[i] = (byte) (buf[i] * i / 20);
-            buf[buf.length - 1 - i] = (byte) (buf[buf.length - 1 - i] * i / 20);
-        }
-
-        af = new AudioFormat(8000f, 8, 1, true, false);
-        sdl = AudioSystem.getSourceDataLine(af, mixer.getMixerInfo());
+        player = SoundPlayer.forMixer(mixer);
+        pcm = player.getTone(hz, msecs, vol);
+        player.openLine(pcm.getFormat());
     }
 
 }
@@ -20,7 +20,6 @@ import app.owlcms.data.athlete.Athlete;
 import app.owlcms.data.category.AgeDivision;
 import app.owlcms.data.competition.Competition;
 import app.owlcms.i18n.Translator;
-import app.owlcms.init.OwlcmsSession;
 import net.sf.jxls.transformer.XLSTransformer;
 
 /**
@@ -150,39 +149,39 @@ public class JXLSCompetitionBook extends JXLSWorkbookStreamSource {
         for (int sheetIndex = 0; sheetIndex < nbSheets; sheetIndex++) {
             Sheet curSheet = workbook.getSheetAt(sheetIndex);
             String sheetName = curSheet.getSheetName();
-            String translate = Translator.translateOrElseNull("CompetitionBook." + sheetName, OwlcmsSession.getLocale());
+            String translate = Translator.translateOrElseNull("CompetitionBook." + sheetName, getLocale());
             workbook.setSheetName(sheetIndex, translate != null ? translate : sheetName);
 
             // use translate so this shows as missing on the sheet.
             String leftHeader = Translator.translate("CompetitionBook." + sheetName + "_LeftHeader",
-                    OwlcmsSession.getLocale());
+                    getLocale());
             if (leftHeader != null) {
                 curSheet.getHeader().setLeft(leftHeader);
             }
             String centerHeader = Translator.translateOrElseNull("CompetitionBook." + sheetName + "_CenterHeader",
-                    OwlcmsSession.getLocale());
+                    getLocale());
             if (centerHeader != null) {
                 curSheet.getHeader().setCenter(centerHeader);
             }
             // use translate so this shows as missing on the sheet.
             String rightHeader = Translator.translate("CompetitionBook." + sheetName + "_RightHeader",
-                    OwlcmsSession.getLocale());
+                    getLocale());
             if (rightHeader != null) {
                 curSheet.getHeader().setRight(rightHeader);
             }
 
             String leftFooter = Translator.translateOrElseNull("CompetitionBook." + sheetName + "_LeftFooter",
-                    OwlcmsSession.getLocale());
+                    getLocale());
             if (leftFooter != null) {
                 curSheet.getFooter().setLeft(leftFooter);
             }
             String centerFooter = Translator.translateOrElseNull("CompetitionBook." + sheetName + "_CenterFooter",
-                    OwlcmsSession.getLocale());
+                    getLocale());
             if (centerFooter != null) {
                 curSheet.getFooter().setCenter(centerFooter);
             }
             String rightFooter = Translator.translateOrElseNull("CompetitionBook." + sheetName + "_RightFooter",
-                    OwlcmsSession.getLocale());
+                    getLocale());
             if (rightFooter != null) {
                 curSheet.getFooter().setRight(rightFooter);
             }
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.spreadsheet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.hibernate.Hibernate;
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.server.StreamResourceWriter;
+import com.vaadin.flow.server.VaadinSession;
+
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.category.AgeDivision;
+import app.owlcms.data.category.Category;
+import app.owlcms.data.category.Participation;
+import app.owlcms.data.competition.Competition;
+import app.owlcms.init.OwlcmsSession;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Final competition package as a single zip: the competition book (which includes the team results) and one result
+ * sheet per category.
+ *
+ * The rankings are computed once, under the session lock, and shared by all the documents. The lazy associations that
+ * the templates read are then loaded on the calling thread, so the documents only read loaded state and are rendered
+ * in parallel on a dedicated fork-join pool. A timings.txt entry records how long each part took. If a document cannot
+ * be rendered, the download fails rather than giving an incomplete package.
+ *
+ * @author Jean-François Lamy
+ */
+@SuppressWarnings("serial")
+public class JXLSFinalPackage implements StreamResourceWriter {
+
+    /**
+     * A document in the package, rendered to memory by a worker thread.
+     */
+    private class PackagePart {
+        private String entryName;
+        private Supplier<JXLSWorkbookStreamSource> sourceSupplier;
+        private byte[] content;
+        private long elapsedMillis;
+
+        PackagePart(String entryName, Supplier<JXLSWorkbookStreamSource> sourceSupplier) {
+            this.entryName = entryName;
+            this.sourceSupplier = sourceSupplier;
+        }
+
+        PackagePart render() throws IOException {
+            long start = System.currentTimeMillis();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            sourceSupplier.get().writeWorkbook(out);
+            content = out.toByteArray();
+            if (content.length == 0) {
+                // the error has been logged by the source, which writes nothing
+                throw new IOException("document could not be produced");
+            }
+            elapsedMillis = System.currentTimeMillis() - start;
+            return this;
+        }
+    }
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(JXLSFinalPackage.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    private AgeDivision ageDivision;
+    private String ageGroupPrefix;
+    private Category category;
+
+    public JXLSFinalPackage() {
+    }
+
+    /**
+     * Compute the rankings once, render the documents in parallel, write them as a zip.
+     *
+     * @see com.vaadin.flow.server.StreamResourceWriter#accept(java.io.OutputStream,
+     *      com.vaadin.flow.server.VaadinSession)
+     */
+    @Override
+    public void accept(OutputStream stream, VaadinSession session) throws IOException {
+        long start = System.currentTimeMillis();
+        Locale locale;
+        HashMap<String, Object> sharedBeans;
+        String bookTemplate;
+        String protocolTemplate;
+        try {
+            session.lock();
+            locale = OwlcmsSession.getLocale();
+            Competition competition = Competition.getCurrent();
+            // the Competition reuses its map, take a snapshot.
+            sharedBeans = new HashMap<>(competition.computeReportingInfo(ageGroupPrefix, ageDivision));
+            bookTemplate = "/templates/competitionBook/" + competition.getComputedFinalPackageTemplateFileName();
+            protocolTemplate = "/templates/protocol/" + competition.getComputedProtocolTemplateFileName();
+        } finally {
+            session.unlock();
+        }
+        loadAssociations(sharedBeans);
+        long rankingMillis = System.currentTimeMillis() - start;
+
+        List<PackagePart> parts = createParts(sharedBeans, locale, bookTemplate, protocolTemplate);
+        ForkJoinPool pool = new ForkJoinPool(
+                Math.max(1, Math.min(parts.size(), Runtime.getRuntime().availableProcessors())));
+        try (ZipOutputStream zipStream = new ZipOutputStream(stream)) {
+            List<ForkJoinTask<PackagePart>> tasks = new ArrayList<>(parts.size());
+            for (PackagePart part : parts) {
+                tasks.add(pool.submit(() -> part.render()));
+            }
+
+            StringBuilder timings = new StringBuilder();
+            timings.append(String.format("%-40s %8d ms%n", "rankings", rankingMillis));
+            // write in submission order so the zip content is deterministic
+            for (int i = 0; i < parts.size(); i++) {
+                PackagePart part = parts.get(i);
+                try {
+                    tasks.get(i).join();
+                } catch (RuntimeException e) {
+                    // the pool wraps the IOException of the part
+                    Throwable cause = e.getCause() instanceof IOException ? e.getCause() : e;
+                    logger.error("final package: cannot render {}: {}", part.entryName, cause.toString());
+                    throw new IOException(part.entryName + ": " + cause.getLocalizedMessage(), cause);
+                }
+                zipStream.putNextEntry(new ZipEntry(part.entryName));
+                zipStream.write(part.content);
+                zipStream.closeEntry();
+                timings.append(String.format("%-40s %8d ms%n", part.entryName, part.elapsedMillis));
+            }
+            long totalMillis = System.currentTimeMillis() - start;
+            timings.append(String.format("%-40s %8d ms%n", "total", totalMillis));
+
+            zipStream.putNextEntry(new ZipEntry("timings.txt"));
+            zipStream.write(timings.toString().getBytes(StandardCharsets.UTF_8));
+            zipStream.closeEntry();
+            logger.info("final package: {} parts in {} ms\n{}", parts.size(), totalMillis, timings);
+        } finally {
+            // the remaining parts are not needed if one failed
+            pool.shutdownNow();
+        }
+    }
+
+    public AgeDivision getAgeDivision() {
+        return ageDivision;
+    }
+
+    public String getAgeGroupPrefix() {
+        return ageGroupPrefix;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public void setAgeDivision(AgeDivision ageDivision) {
+        this.ageDivision = ageDivision;
+    }
+
+    public void setAgeGroupPrefix(String ageGroupPrefix) {
+        this.ageGroupPrefix = ageGroupPrefix;
+    }
+
+    public void setCategory(Category category) {
+        this.category = category;
+    }
+
+    /**
+     * The sources are created in the worker threads, but all the data they need is in the shared beans.
+     */
+    private List<PackagePart> createParts(HashMap<String, Object> sharedBeans, Locale locale, String bookTemplate,
+            String protocolTemplate) {
+        List<PackagePart> parts = new ArrayList<>();
+        if (category == null) {
+            parts.add(new PackagePart("competitionBook.xls", () -> {
+                JXLSCompetitionBook book = new JXLSCompetitionBook(null);
+                book.setAgeDivision(ageDivision);
+                book.setAgeGroupPrefix(ageGroupPrefix);
+                book.setLocale(locale);
+                book.setTemplateFileName(bookTemplate);
+                book.setSharedReportingInfo(sharedBeans);
+                return book;
+            }));
+        }
+
+        for (Map.Entry<String, List<Athlete>> entry : athletesByCategory(sharedBeans).entrySet()) {
+            List<Athlete> categoryAthletes = entry.getValue();
+            Category curCategory = categoryAthletes.get(0).getCategory();
+            String entryName = "results/" + entry.getKey().replaceAll("[:\\\\/*?|<>]", "_") + ".xls";
+            parts.add(new PackagePart(entryName, () -> {
+                JXLSResultSheet rs = new JXLSResultSheet();
+                rs.setAgeDivision(ageDivision);
+                rs.setAgeGroupPrefix(ageGroupPrefix);
+                rs.setCategory(curCategory);
+                rs.setLocale(locale);
+                rs.setTemplateFileName(protocolTemplate);
+                rs.setSortedAthletes(categoryAthletes);
+                rs.setSharedReportingInfo(sharedBeans);
+                return rs;
+            }));
+        }
+        return parts;
+    }
+
+    private void loadAssociations(Athlete a) {
+        loadCategory(a.getCategory());
+        for (Participation p : a.getParticipations()) {
+            loadCategory(p.getCategory());
+        }
+        if (a instanceof PAthlete) {
+            // the other getters go to the registered athlete
+            loadAssociations(((PAthlete) a)._getAthlete());
+        }
+    }
+
+    /**
+     * Load the lazy associations of the athletes in the shared beans, on this thread. Lazy loading outside a
+     * transaction opens a session, which cannot be shared by the worker threads.
+     */
+    private void loadAssociations(Map<String, Object> sharedBeans) {
+        Set<Athlete> loaded = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object bean : sharedBeans.values()) {
+            if (!(bean instanceof Collection)) {
+                continue;
+            }
+            for (Object o : (Collection<?>) bean) {
+                if (o instanceof Athlete && loaded.add((Athlete) o)) {
+                    loadAssociations((Athlete) o);
+                }
+            }
+        }
+    }
+
+    private void loadCategory(Category c) {
+        if (c != null) {
+            Hibernate.initialize(c);
+            Hibernate.initialize(c.getAgeGroup());
+        }
+    }
+
+    /**
+     * @return the athletes in the total ranking order, split by category (in order of first appearance).
+     */
+    private LinkedHashMap<String, List<Athlete>> athletesByCategory(HashMap<String, Object> sharedBeans) {
+        LinkedHashMap<String, List<Athlete>> byCategory = new LinkedHashMap<>();
+        @SuppressWarnings("unchecked")
+        List<Athlete> ranked = (List<Athlete>) sharedBeans.get("mwTot");
+        if (ranked == null) {
+            return byCategory;
+        }
+        for (Athlete a : ranked) {
+            Category c = a.getCategory();
+            if (c == null || (category != null && !c.getCode().equals(category.getCode()))) {
+                continue;
+            }
+            byCategory.computeIfAbsent(c.getCode(), (k) -> new ArrayList<>()).add(a);
+        }
+        return byCategory;
+    }
+
+}
@@ -15,6 +15,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.ObjectUtils;
@@ -72,6 +73,7 @@ public abstract class JXLSWorkbookStreamSource implements StreamResourceWriter {
     private boolean excludeNotWeighed;
     private Group group;
     private InputStream inputStream;
+    private Locale locale;
     private HashMap<String, Object> reportingBeans;
     private String templateFileName;
     private UI ui;
@@ -88,28 +90,50 @@ public abstract class JXLSWorkbookStreamSource implements StreamResourceWriter {
      * @see com.vaadin.flow.server.StreamResourceWriter#accept(java.io.OutputStream,
      *      com.vaadin.flow.server.VaadinSession)
      */
-    @SuppressWarnings("unchecked")
     @Override
     public void accept(OutputStream stream, VaadinSession session) throws IOException {
         try {
             session.lock();
-            Locale locale = OwlcmsSession.getLocale();
-            XLSTransformer transformer = new XLSTransformer();
-            configureTransformer(transformer);
-            Workbook workbook = null;
-            try {
-                // logger.debug("wsss setReportingInfo");
-                setReportingInfo();
-                HashMap<String, Object> reportingInfo = getReportingBeans();
-                List<Athlete> athletes = (List<Athlete>) reportingInfo.get("athletes");
-                if (athletes != null && (athletes.size() > 0 || isEmptyOk())) {
-                    workbook = transformer.transformXLS(getTemplate(locale), reportingInfo);
-                    if (workbook != null) {
-                        postProcess(workbook);
-                    }
-                } else {
-                    String noAthletes = Translator.translate("NoAthletes");
-                    logger./**/warn("no athletes: empty report.");
+            setLocale(OwlcmsSession.getLocale());
+            // logger.debug("wsss setReportingInfo");
+            setReportingInfo();
+            writeWorkbook(stream);
+        } catch (IOException e) {
+            // ignore
+        } catch (Throwable t) {
+            logger.error(LoggerUtils./**/stackTrace(t));
+        } finally {
+            session.unlock();
+        }
+    }
+
+    /**
+     * Transform the template using the reporting beans already present, and write the resulting workbook.
+     *
+     * The session is not locked. Several workbooks can be produced concurrently from reporting information computed
+     * beforehand (see {@link #setSharedReportingInfo(Map)}) only if the lazy associations of its athletes are already
+     * loaded, as {@link JXLSFinalPackage} does.
+     *
+     * @param stream
+     * @throws IOException
+     */
+    @SuppressWarnings("unchecked")
+    public void writeWorkbook(OutputStream stream) throws IOException {
+        XLSTransformer transformer = new XLSTransformer();
+        configureTransformer(transformer);
+        Workbook workbook = null;
+        try {
+            HashMap<String, Object> reportingInfo = getReportingBeans();
+            List<Athlete> athletes = (List<Athlete>) reportingInfo.get("athletes");
+            if (athletes != null && (athletes.size() > 0 || isEmptyOk())) {
+                workbook = transformer.transformXLS(getTemplate(getLocale()), reportingInfo);
+                if (workbook != null) {
+                    postProcess(workbook);
+                }
+            } else {
+                String noAthletes = Translator.translate("NoAthletes");
+                logger./**/warn("no athletes: empty report.");
+                if (ui != null) {
                     ui.access(() -> {
                         Notification notif = new Notification();
                         notif.addThemeVariants(NotificationVariant.LUMO_ERROR);
@@ -118,21 +142,15 @@ public abstract class JXLSWorkbookStreamSource implements StreamResourceWriter {
                         notif.setText(noAthletes);
                         notif.open();
                     });
-                    workbook = new HSSFWorkbook();
-                    workbook.createSheet().createRow(1).createCell(1).setCellValue(noAthletes);
                 }
-            } catch (Exception e) {
-                LoggerUtils.logError(logger, e);
-            }
-            if (workbook != null) {
-                workbook.write(stream);
+                workbook = new HSSFWorkbook();
+                workbook.createSheet().createRow(1).createCell(1).setCellValue(noAthletes);
             }
-        } catch (IOException e) {
-            // ignore
-        } catch (Throwable t) {
-            logger.error(LoggerUtils./**/stackTrace(t));
-        } finally {
-            session.unlock();
+        } catch (Exception e) {
+            LoggerUtils.logError(logger, e);
+        }
+        if (workbook != null) {
+            workbook.write(stream);
         }
     }
 
@@ -162,6 +180,13 @@ public abstract class JXLSWorkbookStreamSource implements StreamResourceWriter {
         return group;
     }
 
+    /**
+     * @return the locale used for the template and the translations, by default that of the current session.
+     */
+    public Locale getLocale() {
+        return locale != null ? locale : OwlcmsSession.getLocale();
+    }
+
     public HashMap<String, Object> getReportingBeans() {
         return reportingBeans;
     }
@@ -221,14 +246,41 @@ public abstract class JXLSWorkbookStreamSource implements StreamResourceWriter {
         this.inputStream = is;
     }
 
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+
     public void setReportingBeans(HashMap<String, Object> jXLSBeans) {
         this.reportingBeans = jXLSBeans;
     }
 
+    /**
+     * Use reporting information computed beforehand instead of recomputing it. The shared map is copied, and the
+     * entries specific to this document are added on top.
+     *
+     * @param sharedBeans beans as computed by {@link Competition#computeReportingInfo(String, AgeDivision)}
+     */
+    public void setSharedReportingInfo(Map<String, Object> sharedBeans) {
+        HashMap<String, Object> beans = new HashMap<>(sharedBeans);
+        List<Athlete> athletes = getSortedAthletes();
+        if (athletes != null) {
+            beans.put("athletes", athletes);
+            beans.put("lifters", athletes); // legacy
+        }
+        beans.put("session", getGroup()); // legacy
+        beans.put("group", getGroup());
+        beans.put("masters", Competition.getCurrent().isMasters());
+        setReportingBeans(beans);
+    }
+
     public void setSortedAthletes(List<Athlete> sortedAthletes) {
         this.sortedAthletes = sortedAthletes;
     }
 
+    public void setTemplateFileName(String templateFileName) {
+        this.templateFileName = templateFileName;
+    }
+
     /**
      * Attempt to erase a pair of adjoining cells.
      *
@@ -9,6 +9,7 @@ package app.owlcms.spreadsheet;
 import java.time.LocalDate;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -37,6 +38,7 @@ public class RAthlete {
 
     public static final String NoTeamMarker = "/NoTeam";
     private Pattern legacyPattern;
+    private Locale locale;
     Athlete a = new Athlete();
 
     final Logger logger = (Logger) LoggerFactory.getLogger(RAthlete.class);
@@ -68,6 +70,10 @@ public class RAthlete {
         return a.getFederationCodes();
     }
 
+    public Locale getLocale() {
+        return locale != null ? locale : OwlcmsSession.getLocale();
+    }
+
     /**
      * @param bodyWeight
      */
@@ -83,7 +89,7 @@ public class RAthlete {
     public void setCategory(String categoryName) throws Exception {
         if (categoryName == null || categoryName.isBlank()) {
             // no category, infer from age and body weight
-            a.computeMainAndEligibleCategories();
+            a.computeMainAndEligibleCategories(preloadedCategories());
             a.getParticipations().stream().forEach(p -> p.setTeamMember(true));
             return;
         }
@@ -113,6 +119,15 @@ public class RAthlete {
         return;
     }
 
+    /**
+     * @return the active categories loaded by {@link RCompetition#resetActiveCategories()}, null if not loaded (the
+     *         database is then queried for each athlete)
+     */
+    private List<Category> preloadedCategories() {
+        List<Category> activeCategoryList = RCompetition.getActiveCategoryList();
+        return activeCategoryList.isEmpty() ? null : activeCategoryList;
+    }
+
     private void processEligibilityAndTeams(String[] parts, Category c, boolean mainCategoryTeamMember)
             throws Exception {
         Set<Category> eligibleCategories = new LinkedHashSet<>();
@@ -135,7 +150,7 @@ public class RAthlete {
                     addIfEligible(eligibleCategories, teams, athleteQTotal, teamMember, c2);
                 } else {
                     throw new Exception(
-                            Translator.translate("Upload.CategoryNotFoundByName", eligibleName.trim()));
+                            Translator.translate("Upload.CategoryNotFoundByName", getLocale(), eligibleName.trim()));
                 }
             }
         }
@@ -209,7 +224,7 @@ public class RAthlete {
             return;
         } catch (NumberFormatException e) {
             // logger.debug("localized");
-            LocalDate parse = DateTimeUtils.parseLocalizedOrISO8601Date(content, OwlcmsSession.getLocale());
+            LocalDate parse = DateTimeUtils.parseLocalizedOrISO8601Date(content, getLocale());
             a.setFullBirthDate(parse);
         }
     }
@@ -252,7 +267,7 @@ public class RAthlete {
         if ((g = RCompetition.getActiveGroups().get(groupName)) != null) {
             a.setGroup(g);
         } else {
-            throw new Exception(Translator.translate("Upload.GroupNotDefined", groupName));
+            throw new Exception(Translator.translate("Upload.GroupNotDefined", getLocale(), groupName));
         }
     }
 
@@ -264,6 +279,15 @@ public class RAthlete {
         a.setLastName(lastName);
     }
 
+    /**
+     * Used when reading outside of the UI thread.
+     *
+     * @param locale for parsing dates and translating error messages
+     */
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+
     /**
      * @param lotNumber
      * @see app.owlcms.data.athlete.Athlete#setLotNumber(java.lang.Integer)
@@ -330,7 +354,8 @@ public class RAthlete {
             // letter present, should match gender
             if ((genderLetter.equalsIgnoreCase("f") && a.getGender() != Gender.F)
                     || (genderLetter.equalsIgnoreCase("m") && a.getGender() != Gender.M)) {
-                throw new Exception(Translator.translate("Upload.GenderMismatch", result.group(0), a.getGender()));
+                throw new Exception(
+                        Translator.translate("Upload.GenderMismatch", getLocale(), result.group(0), a.getGender()));
             }
         } else {
             // nothing to do gender is known and consistent.
@@ -345,11 +370,12 @@ public class RAthlete {
             // try by explicit name
             Category category = RCompetition.getActiveCategories().get(categoryName);
             if (category == null) {
-                throw new Exception(Translator.translate("Upload.CategoryNotFoundByName", categoryName));
+                throw new Exception(
+                        Translator.translate("Upload.CategoryNotFoundByName", getLocale(), categoryName));
             }
             if (category.getGender() != a.getGender()) {
                 throw new Exception(
-                        Translator.translate("Upload.GenderMismatch", categoryName, a.getGender()));
+                        Translator.translate("Upload.GenderMismatch", getLocale(), categoryName, a.getGender()));
             }
             a.setCategory(category);
             return;
@@ -383,7 +409,10 @@ public class RAthlete {
 
     private Category findByAgeBW(Matcher legacyResult, double searchBodyWeight, int age, int qualifyingTotal)
             throws Exception {
-        List<Category> found = CategoryRepository.findByGenderAgeBW(a.getGender(), age, searchBodyWeight);
+        List<Category> preloaded = preloadedCategories();
+        List<Category> found = preloaded != null
+                ? CategoryRepository.filterByGenderAgeBW(preloaded, a.getGender(), age, searchBodyWeight)
+                : CategoryRepository.findByGenderAgeBW(a.getGender(), age, searchBodyWeight);
         Set<Category> eligibles = new LinkedHashSet<>();
         eligibles = found.stream().filter(c -> qualifyingTotal >= c.getQualifyingTotal())
                 .collect(Collectors.toSet());
@@ -393,7 +422,7 @@ public class RAthlete {
         if (category == null) {
             throw new Exception(
                     Translator.translate(
-                            "Upload.CategoryNotFound", age, a.getGender(),
+                            "Upload.CategoryNotFound", getLocale(), age, a.getGender(),
                             legacyResult.group(2) + legacyResult.group(3)));
         }
         return category;
@@ -6,7 +6,10 @@
  *******************************************************************************/
 package app.owlcms.spreadsheet;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -24,6 +27,7 @@ import ch.qos.logback.classic.Logger;
 public class RCompetition {
 
     static Map<String, Category> activeCategories = new HashMap<>();
+    static List<Category> activeCategoryList = new ArrayList<>();
     static Map<String, Group> activeGroups = new HashMap<>();
     static Map<Long, Set<Category>> athleteToEligibles = new HashMap<>();
     static Map<Long, Set<Category>> athleteToTeams = new HashMap<>();
@@ -32,6 +36,13 @@ public class RCompetition {
         return activeCategories;
     }
 
+    /**
+     * @return the active categories, in registration preference order
+     */
+    public static List<Category> getActiveCategoryList() {
+        return activeCategoryList;
+    }
+
     public static Map<String, Group> getActiveGroups() {
         return activeGroups;
     }
@@ -46,7 +57,8 @@ public class RCompetition {
 
     public static void resetActiveCategories() {
         activeCategories.clear();
-        CategoryRepository.findActive().forEach(c -> {
+        activeCategoryList = CategoryRepository.findActive();
+        activeCategoryList.forEach(c -> {
             activeCategories.put(c.getName(), c);
         });
     }
@@ -70,10 +82,16 @@ public class RCompetition {
 
     Logger logger = (Logger) LoggerFactory.getLogger(RCompetition.class);
 
+    private Locale locale;
+
     public Competition getCompetition() {
         return c;
     }
 
+    public Locale getLocale() {
+        return locale != null ? locale : OwlcmsSession.getLocale();
+    }
+
     /**
      * @param competitionCity
      * @see app.owlcms.data.competition.Competition#setCompetitionCity(java.lang.String)
@@ -89,7 +107,7 @@ public class RCompetition {
         if (date == null || date.isBlank()) {
             return;
         }
-        c.setCompetitionDate(DateTimeUtils.parseExcelDate(date, OwlcmsSession.getLocale()));
+        c.setCompetitionDate(DateTimeUtils.parseExcelDate(date, getLocale()));
     }
 
     /**
@@ -169,4 +187,13 @@ public class RCompetition {
         c.setFederationWebSite(federationWebSite);
     }
 
+    /**
+     * Used when reading outside of the UI thread.
+     *
+     * @param locale for parsing dates
+     */
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+
 }
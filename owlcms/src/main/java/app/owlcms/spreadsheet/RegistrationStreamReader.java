@@ -0,0 +1,371 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.spreadsheet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.commons.beanutils.BeanUtils;
+import org.apache.poi.ss.util.CellReference;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import app.owlcms.i18n.Translator;
+import app.owlcms.utils.ResourceWalker;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Reads the registration spreadsheet with {@link StreamingSheetReader}, using the layout given by
+ * RegistrationReader.xml and GroupsReader.xml (or their local overrides). Each row is converted as soon as it is read,
+ * through the same {@link RAthlete}, {@link RGroup} and {@link RCompetition} setters as the jxls reader; a cell that
+ * cannot be converted is reported and the rest of the row is kept.
+ *
+ * Groups and categories are looked up in the maps loaded by {@link RCompetition#resetActiveGroups()} and
+ * {@link RCompetition#resetActiveCategories()}, so reading does not query the database for each row.
+ *
+ * @author Jean-François Lamy
+ */
+public class RegistrationStreamReader {
+
+    /**
+     * Converts a cell value and stores it in the bean.
+     */
+    @FunctionalInterface
+    private interface CellSetter<T> {
+        void set(T bean, String value) throws Exception;
+    }
+
+    private static class Column<T> {
+        int row;
+        int col;
+        CellSetter<T> setter;
+        boolean ignoreBlank;
+
+        Column(int row, int col, CellSetter<T> setter, boolean ignoreBlank) {
+            this.row = row;
+            this.col = col;
+            this.setter = setter;
+            this.ignoreBlank = ignoreBlank;
+        }
+    }
+
+    public static final String REGISTRATION_READER_SPEC = "/templates/registration/RegistrationReader.xml";
+    public static final String GROUPS_READER_SPEC = "/templates/registration/GroupsReader.xml";
+
+    /**
+     * Where the values are, as given by a jxls reader specification: a header section, then a loop of one row per
+     * bean that ends at the first row without a value in the break column.
+     */
+    private static class Layout<T> {
+        int sheet = 0;
+        int firstRow = 0;
+        int breakCol = 0;
+        List<Column<RCompetition>> header = new ArrayList<>();
+        List<Column<T>> columns = new ArrayList<>();
+    }
+
+    private static final int PROGRESS_INTERVAL = 100;
+
+    /**
+     * Setters for the properties found in the default specifications; other properties are set as jxls would, by
+     * name.
+     */
+    private static final Map<String, CellSetter<RCompetition>> COMPETITION_SETTERS = new HashMap<>();
+    private static final Map<String, CellSetter<RAthlete>> ATHLETE_SETTERS = new HashMap<>();
+    private static final Map<String, CellSetter<RGroup>> GROUP_SETTERS = new HashMap<>();
+    /**
+     * Athlete properties left untouched when the cell is empty.
+     */
+    private static final Set<String> ATHLETE_IGNORE_BLANK = Set.of("fullBirthDate");
+    static {
+        COMPETITION_SETTERS.put("federation", RCompetition::setFederation);
+        COMPETITION_SETTERS.put("federationAddress", RCompetition::setFederationAddress);
+        COMPETITION_SETTERS.put("federationWebSite", RCompetition::setFederationWebSite);
+        COMPETITION_SETTERS.put("federationEMail", RCompetition::setFederationEMail);
+        COMPETITION_SETTERS.put("competitionName", RCompetition::setCompetitionName);
+        COMPETITION_SETTERS.put("competitionSite", RCompetition::setCompetitionSite);
+        COMPETITION_SETTERS.put("competitionOrganizer", RCompetition::setCompetitionOrganizer);
+        COMPETITION_SETTERS.put("competitionDate", RCompetition::setCompetitionDate);
+        COMPETITION_SETTERS.put("competitionCity", RCompetition::setCompetitionCity);
+
+        ATHLETE_SETTERS.put("group", RAthlete::setGroup);
+        ATHLETE_SETTERS.put("membership", RAthlete::setMembership);
+        ATHLETE_SETTERS.put("lotNumber", RAthlete::setLotNumber);
+        ATHLETE_SETTERS.put("lastName", RAthlete::setLastName);
+        ATHLETE_SETTERS.put("firstName", RAthlete::setFirstName);
+        ATHLETE_SETTERS.put("team", RAthlete::setTeam);
+        ATHLETE_SETTERS.put("fullBirthDate", RAthlete::setFullBirthDate);
+        ATHLETE_SETTERS.put("gender", RAthlete::setGender);
+        ATHLETE_SETTERS.put("bodyWeight", (r, v) -> r.setBodyWeight(v != null ? Double.valueOf(v) : null));
+        ATHLETE_SETTERS.put("qualifyingTotal", (r, v) -> r.setQualifyingTotal(
+                v != null ? (int) Math.round(Double.parseDouble(v)) : null));
+        ATHLETE_SETTERS.put("category", RAthlete::setCategory);
+        ATHLETE_SETTERS.put("snatch1Declaration", RAthlete::setSnatch1Declaration);
+        ATHLETE_SETTERS.put("cleanJerk1Declaration", RAthlete::setCleanJerk1Declaration);
+        ATHLETE_SETTERS.put("coach", RAthlete::setCoach);
+        ATHLETE_SETTERS.put("custom1", RAthlete::setCustom1);
+        ATHLETE_SETTERS.put("custom2", RAthlete::setCustom2);
+        ATHLETE_SETTERS.put("federationCodes", RAthlete::setFederationCodes);
+
+        GROUP_SETTERS.put("groupName", RGroup::setGroupName);
+        GROUP_SETTERS.put("platform", RGroup::setPlatform);
+        GROUP_SETTERS.put("description", RGroup::setDescription);
+        GROUP_SETTERS.put("weighinTime", RGroup::setWeighinTime);
+        GROUP_SETTERS.put("competitionTime", RGroup::setCompetitionTime);
+        GROUP_SETTERS.put("weighInTO1", RGroup::setWeighInTO1);
+        GROUP_SETTERS.put("weighInTO2", RGroup::setWeighInTO2);
+        GROUP_SETTERS.put("announcer", RGroup::setAnnouncer);
+        GROUP_SETTERS.put("marshall", RGroup::setMarshall);
+        GROUP_SETTERS.put("marshal2", RGroup::setMarshal2);
+        GROUP_SETTERS.put("timekeeper", RGroup::setTimekeeper);
+        GROUP_SETTERS.put("techController", RGroup::setTechController);
+        GROUP_SETTERS.put("techController2", RGroup::setTechController2);
+        GROUP_SETTERS.put("ref1", RGroup::setRef1);
+        GROUP_SETTERS.put("ref2", RGroup::setRef2);
+        GROUP_SETTERS.put("ref3", RGroup::setRef3);
+        GROUP_SETTERS.put("jury1", RGroup::setJury1);
+        GROUP_SETTERS.put("jury2", RGroup::setJury2);
+        GROUP_SETTERS.put("jury3", RGroup::setJury3);
+        GROUP_SETTERS.put("jury4", RGroup::setJury4);
+        GROUP_SETTERS.put("jury5", RGroup::setJury5);
+        GROUP_SETTERS.put("reserve", RGroup::setReserve);
+    }
+
+    /**
+     * Read a jxls reader specification, as resolved by {@link ResourceWalker} so that a local override is used.
+     * Mappings are kept in the order of the specification, since some setters depend on values set before them.
+     *
+     * @param specName    the resource name of the specification
+     * @param setters     the setters for the properties of the loop beans
+     * @param ignoreBlank the properties of the loop beans left untouched when the cell is empty
+     * @return the layout
+     * @throws IOException if the specification cannot be read
+     */
+    private static <T> Layout<T> readLayout(String specName, Map<String, CellSetter<T>> setters,
+            Set<String> ignoreBlank) throws IOException {
+        Document spec;
+        try (InputStream xmlInputStream = ResourceWalker.getResourceAsStream(specName)) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            spec = factory.newDocumentBuilder().parse(xmlInputStream);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException(specName + ": " + e.getLocalizedMessage(), e);
+        }
+
+        Layout<T> layout = new Layout<>();
+        Element worksheet = (Element) spec.getElementsByTagName("worksheet").item(0);
+        if (worksheet == null) {
+            throw new IOException(specName + ": no worksheet");
+        }
+        layout.sheet = intAttribute(worksheet, "idx", 0);
+        for (Element child : childElements(worksheet)) {
+            if (child.getTagName().equals("section")) {
+                // the loop starts after the header, unless it says otherwise
+                layout.firstRow = intAttribute(child, "endRow", -1) + 1;
+                for (Element mapping : childElements(child, "mapping")) {
+                    CellReference cell = new CellReference(mapping.getAttribute("cell"));
+                    String property = property(mapping);
+                    CellSetter<RCompetition> setter = COMPETITION_SETTERS.getOrDefault(property,
+                            byName(property));
+                    layout.header.add(new Column<RCompetition>(cell.getRow(), cell.getCol(), setter, true));
+                }
+            } else if (child.getTagName().equals("loop")) {
+                layout.firstRow = intAttribute(child, "startRow", layout.firstRow);
+                for (Element section : childElements(child, "section")) {
+                    for (Element mapping : childElements(section, "mapping")) {
+                        String property = property(mapping);
+                        CellSetter<T> setter = setters.getOrDefault(property, byName(property));
+                        layout.columns.add(new Column<T>(layout.firstRow, intAttribute(mapping, "col", 0), setter,
+                                ignoreBlank.contains(property)));
+                    }
+                }
+                NodeList cellChecks = child.getElementsByTagName("cellcheck");
+                if (cellChecks.getLength() > 0) {
+                    layout.breakCol = intAttribute((Element) cellChecks.item(0), "offset", 0);
+                }
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * Same conversion as the jxls reader for properties that have no setter of their own.
+     */
+    private static <T> CellSetter<T> byName(String property) {
+        return (bean, value) -> BeanUtils.setProperty(bean, property, value);
+    }
+
+    private static List<Element> childElements(Element parent) {
+        List<Element> elements = new ArrayList<>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (nodes.item(i) instanceof Element) {
+                elements.add((Element) nodes.item(i));
+            }
+        }
+        return elements;
+    }
+
+    private static List<Element> childElements(Element parent, String tagName) {
+        List<Element> elements = childElements(parent);
+        elements.removeIf(e -> !e.getTagName().equals(tagName));
+        return elements;
+    }
+
+    private static int intAttribute(Element e, String name, int defaultValue) {
+        String value = e.getAttribute(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * @return the property, without the bean name ("a.lastName" gives "lastName")
+     */
+    private static String property(Element mapping) {
+        String expression = mapping.getTextContent().trim();
+        int dot = expression.indexOf('.');
+        return dot >= 0 ? expression.substring(dot + 1) : expression;
+    }
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(RegistrationStreamReader.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    private List<String> errors = new ArrayList<>();
+    private Locale locale;
+    private IntConsumer progress;
+
+    /**
+     * @param locale   used for dates and messages, since reading may take place outside of the UI thread
+     * @param progress called with the number of athletes read so far, may be null
+     */
+    public RegistrationStreamReader(Locale locale, IntConsumer progress) {
+        this.locale = locale;
+        this.progress = progress;
+    }
+
+    /**
+     * @return the conversion errors, one line per cell
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Read the competition header and the athletes from the first sheet. Reading stops at the first row without a
+     * last name.
+     *
+     * @param inputStream the workbook
+     * @param competition receives the header information
+     * @return the athletes
+     * @throws IOException
+     */
+    public List<RAthlete> readAthletes(InputStream inputStream, RCompetition competition) throws IOException {
+        Layout<RAthlete> layout = readLayout(REGISTRATION_READER_SPEC, ATHLETE_SETTERS, ATHLETE_IGNORE_BLANK);
+        List<RAthlete> athletes = new ArrayList<>();
+        competition.setLocale(locale);
+        int[] expectedRow = { layout.firstRow };
+        StreamingSheetReader.read(inputStream, layout.sheet, (rowNum, cells) -> {
+            if (rowNum < layout.firstRow) {
+                for (Column<RCompetition> hc : layout.header) {
+                    if (hc.row == rowNum && cells.containsKey(hc.col)) {
+                        setCell(competition, hc.setter, cells.get(hc.col), rowNum, hc.col);
+                    }
+                }
+                return true;
+            }
+            if (rowNum != expectedRow[0] || cells.get(layout.breakCol) == null) {
+                // blank row (missing or no last name) ends the list, as in the jxls loop break condition
+                return false;
+            }
+            expectedRow[0]++;
+
+            RAthlete r = new RAthlete();
+            r.setLocale(locale);
+            readRow(r, layout.columns, rowNum, cells);
+            athletes.add(r);
+            if (progress != null && athletes.size() % PROGRESS_INTERVAL == 0) {
+                progress.accept(athletes.size());
+            }
+            return true;
+        });
+        if (progress != null) {
+            progress.accept(athletes.size());
+        }
+        logger.debug("read {} athletes, {} errors", athletes.size(), errors.size());
+        return athletes;
+    }
+
+    /**
+     * Read the groups from the second sheet. Reading stops at the first row without a group name.
+     *
+     * @param inputStream the workbook
+     * @return the groups, empty if the sheet is absent (older registration format)
+     * @throws IOException
+     */
+    public List<RGroup> readGroups(InputStream inputStream) throws IOException {
+        Layout<RGroup> layout = readLayout(GROUPS_READER_SPEC, GROUP_SETTERS, Set.of());
+        List<RGroup> groups = new ArrayList<>();
+        int[] expectedRow = { layout.firstRow };
+        StreamingSheetReader.read(inputStream, layout.sheet, (rowNum, cells) -> {
+            if (rowNum < layout.firstRow) {
+                return true;
+            }
+            if (rowNum != expectedRow[0] || cells.get(layout.breakCol) == null) {
+                return false;
+            }
+            expectedRow[0]++;
+
+            RGroup g = new RGroup();
+            readRow(g, layout.columns, rowNum, cells);
+            groups.add(g);
+            return true;
+        });
+        return groups;
+    }
+
+    private <T> void readRow(T bean, List<Column<T>> columns, int rowNum, TreeMap<Integer, String> cells) {
+        for (Column<T> column : columns) {
+            String value = cells.get(column.col);
+            if (value == null && column.ignoreBlank) {
+                continue;
+            }
+            setCell(bean, column.setter, value, rowNum, column.col);
+        }
+    }
+
+    private <T> void setCell(T bean, CellSetter<T> setter, String value, int rowNum, int col) {
+        try {
+            setter.set(bean, value);
+        } catch (Exception e) {
+            String message = e.getLocalizedMessage();
+            if (message == null || message.isBlank() || message.contentEquals("text")) {
+                message = "Empty or invalid.";
+            }
+            String cellName = new CellReference(rowNum, col).formatAsString();
+            errors.add(Translator.translate("Cell", locale) + " " + cellName + ": " + message);
+            logger.debug("{} {}", cellName, message);
+        }
+    }
+
+}
@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.spreadsheet;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.TreeMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Reads one sheet of an Excel workbook as a stream of rows, using the POI event models (HSSF records for .xls, SAX over
+ * the sheet XML for .xlsx). No workbook object is built, so memory use does not depend on the number of rows.
+ *
+ * Cell values are delivered as strings, the way the jxls reader presented them to the R* beans: text as is, numbers
+ * (including dates) as their raw value so that the Excel date conversions in {@link app.owlcms.utils.DateTimeUtils}
+ * apply.
+ *
+ * @author Jean-François Lamy
+ */
+public class StreamingSheetReader {
+
+    /**
+     * Receives the non-empty rows of the sheet, in order. Row numbers are 0-based; rows with no cells are not
+     * delivered, so the handler must treat a gap in the numbering as blank rows.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        /**
+         * @param rowNum 0-based row number
+         * @param cells  cell values by 0-based column number
+         * @return false to stop reading
+         */
+        boolean row(int rowNum, TreeMap<Integer, String> cells) throws Exception;
+    }
+
+    /**
+     * Used to stop the event parsers once the handler has seen enough.
+     */
+    @SuppressWarnings("serial")
+    private static class StopReading extends RuntimeException {
+        StopReading() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Collects the cells of the current row and hands them over when the row changes.
+     */
+    private static class RowCollector {
+        private RowHandler handler;
+        private int currentRow = -1;
+        private TreeMap<Integer, String> cells = new TreeMap<>();
+
+        RowCollector(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        void cell(int row, int col, String value) {
+            if (row != currentRow) {
+                flush();
+                currentRow = row;
+            }
+            if (value != null && !value.isBlank()) {
+                cells.put(col, value);
+            }
+        }
+
+        void flush() {
+            if (currentRow >= 0 && !cells.isEmpty()) {
+                boolean more;
+                try {
+                    more = handler.row(currentRow, cells);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                if (!more) {
+                    throw new StopReading();
+                }
+            }
+            cells = new TreeMap<>();
+            currentRow = -1;
+        }
+    }
+
+    /**
+     * Numbers are returned raw; the XSSF handler goes through this formatter for every styled number.
+     */
+    private static class RawNumberFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            return rawNumber(value);
+        }
+    }
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(StreamingSheetReader.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    /**
+     * Read a sheet, calling the handler for each row.
+     *
+     * @param inputStream the workbook (.xls or .xlsx)
+     * @param sheetIndex  0-based index of the sheet
+     * @param handler     receives the rows
+     * @throws IOException if the workbook cannot be read
+     */
+    public static void read(InputStream inputStream, int sheetIndex, RowHandler handler) throws IOException {
+        InputStream is = FileMagic.prepareToCheckMagic(inputStream);
+        FileMagic fm = FileMagic.valueOf(is);
+        RowCollector collector = new RowCollector(handler);
+        try {
+            if (fm == FileMagic.OOXML) {
+                readXSSF(is, sheetIndex, collector);
+            } else if (fm == FileMagic.OLE2) {
+                readHSSF(is, sheetIndex, collector);
+            } else {
+                throw new IOException("not an Excel file (" + fm + ")");
+            }
+            collector.flush();
+        } catch (StopReading e) {
+            // handler is done
+        }
+    }
+
+    static String rawNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1.0E15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static void readHSSF(InputStream is, int sheetIndex, RowCollector collector) throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(is)) {
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(new HSSFListener() {
+                private SSTRecord sstRecord;
+                private int curSheet = -1;
+                private boolean inSheet = false;
+                private int nestedDepth = 0;
+                private FormulaRecord pendingFormula = null;
+
+                @Override
+                public void processRecord(Record record) {
+                    if (record instanceof BOFRecord) {
+                        if (inSheet) {
+                            // embedded chart or object inside the sheet
+                            nestedDepth++;
+                        } else if (((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET) {
+                            curSheet++;
+                            inSheet = (curSheet == sheetIndex);
+                        }
+                    } else if (record instanceof EOFRecord) {
+                        if (nestedDepth > 0) {
+                            nestedDepth--;
+                        } else if (inSheet) {
+                            collector.flush();
+                            throw new StopReading();
+                        }
+                    } else if (record instanceof SSTRecord) {
+                        // shared strings precede the sheets
+                        sstRecord = (SSTRecord) record;
+                    } else if (!inSheet || nestedDepth > 0) {
+                        return;
+                    } else if (record instanceof LabelSSTRecord) {
+                        LabelSSTRecord r = (LabelSSTRecord) record;
+                        collector.cell(r.getRow(), r.getColumn(), sstRecord.getString(r.getSSTIndex()).getString());
+                    } else if (record instanceof LabelRecord) {
+                        LabelRecord r = (LabelRecord) record;
+                        collector.cell(r.getRow(), r.getColumn(), r.getValue());
+                    } else if (record instanceof NumberRecord) {
+                        NumberRecord r = (NumberRecord) record;
+                        collector.cell(r.getRow(), r.getColumn(), rawNumber(r.getValue()));
+                    } else if (record instanceof BoolErrRecord) {
+                        BoolErrRecord r = (BoolErrRecord) record;
+                        if (r.isBoolean()) {
+                            collector.cell(r.getRow(), r.getColumn(), Boolean.toString(r.getBooleanValue()));
+                        }
+                    } else if (record instanceof FormulaRecord) {
+                        FormulaRecord r = (FormulaRecord) record;
+                        if (r.hasCachedResultString()) {
+                            // the value is in the StringRecord that follows
+                            pendingFormula = r;
+                        } else {
+                            collector.cell(r.getRow(), r.getColumn(), rawNumber(r.getValue()));
+                        }
+                    } else if (record instanceof StringRecord) {
+                        if (pendingFormula != null) {
+                            collector.cell(pendingFormula.getRow(), pendingFormula.getColumn(),
+                                    ((StringRecord) record).getString());
+                            pendingFormula = null;
+                        }
+                    }
+                }
+            });
+            new HSSFEventFactory().processWorkbookEvents(request, fs);
+        }
+    }
+
+    private static void readXSSF(InputStream is, int sheetIndex, RowCollector collector) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(is)) {
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader xssfReader = new XSSFReader(pkg);
+            StylesTable styles = xssfReader.getStylesTable();
+            Iterator<InputStream> sheets = xssfReader.getSheetsData();
+            for (int i = 0; sheets.hasNext(); i++) {
+                try (InputStream sheet = sheets.next()) {
+                    if (i != sheetIndex) {
+                        continue;
+                    }
+                    XMLReader parser = newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, new SheetContentsHandler() {
+                        @Override
+                        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+                            CellReference ref = new CellReference(cellReference);
+                            collector.cell(ref.getRow(), ref.getCol(), formattedValue);
+                        }
+
+                        @Override
+                        public void endRow(int rowNum) {
+                        }
+
+                        @Override
+                        public void startRow(int rowNum) {
+                        }
+                    }, new RawNumberFormatter(), false));
+                    parser.parse(new InputSource(new BufferedInputStream(sheet)));
+                    return;
+                }
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static XMLReader newXMLReader() throws ParserConfigurationException, SAXException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        return factory.newSAXParser().getXMLReader();
+    }
+
+}
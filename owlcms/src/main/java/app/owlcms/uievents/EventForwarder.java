@@ -604,7 +604,7 @@ public class EventForwarder implements BreakDisplay {
             BreakStarted bst = (BreakStarted) e;
             milliseconds = bst.isIndefinite() ? null : bst.getTimeRemaining();
         } else if (e instanceof BreakPaused) {
-            logger.trace("????? break paused {}", LoggerUtils.whereFrom());
+            logger.trace("????? break paused {}", LoggerUtils.caller());
             BreakPaused bst = (BreakPaused) e;
             milliseconds = bst.isIndefinite() ? null : bst.getTimeRemaining();
         } else if (e instanceof BreakDone) {
@@ -1140,7 +1140,7 @@ public class EventForwarder implements BreakDisplay {
 
     private void uiLog(UIEvent e) {
         uiEventLogger.debug("### {} {} {} {} {}", this.getClass().getSimpleName(), e.getClass().getSimpleName(),
-                null, e.getOrigin(), LoggerUtils.whereFrom());
+                null, e.getOrigin(), LoggerUtils.caller());
     }
 
     private String getNoLiftRanks() {
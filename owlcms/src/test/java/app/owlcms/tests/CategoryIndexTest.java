@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import app.owlcms.Main;
+import app.owlcms.data.agegroup.AgeGroup;
+import app.owlcms.data.agegroup.AgeGroupRepository;
+import app.owlcms.data.athlete.Gender;
+import app.owlcms.data.category.AgeDivision;
+import app.owlcms.data.category.Category;
+import app.owlcms.data.category.CategoryRepository;
+import app.owlcms.data.category.RegistrationPreferenceComparator;
+import app.owlcms.data.config.Config;
+import app.owlcms.data.jpa.JPAService;
+
+public class CategoryIndexTest {
+
+    private static final Integer[] AGES = { null, 13, 17, 20, 25, 35, 50, 70 };
+
+    @BeforeClass
+    public static void setupTests() {
+        Main.injectSuppliers();
+        JPAService.init(true, true);
+        Config.initConfig();
+        TestData.insertInitialData(5, true);
+    }
+
+    @AfterClass
+    public static void tearDownTests() {
+        JPAService.close();
+    }
+
+    /**
+     * Every 0.5kg, and every category limit, against the queries.
+     */
+    @Test
+    public void sameAsQueries() {
+        List<Double> weights = new ArrayList<>();
+        weights.add(null);
+        for (double bw = 30.0; bw <= 200.0; bw += 0.5) {
+            weights.add(bw);
+        }
+        for (Category c : CategoryRepository.findAll()) {
+            weights.add(c.getMinimumWeight());
+            weights.add(c.getMaximumWeight());
+        }
+        Gender[] genders = { null, Gender.F, Gender.M };
+        for (Gender g : genders) {
+            for (Integer age : AGES) {
+                for (Double bw : weights) {
+                    assertEquals(g + " " + age + " " + bw, queried(g, null, age, bw),
+                            codes(CategoryRepository.findByGenderAgeBW(g, age, bw)));
+                    assertEquals(g + " IWF " + age + " " + bw, queried(g, AgeDivision.IWF, age, bw),
+                            codes(CategoryRepository.findByGenderDivisionAgeBW(g, AgeDivision.IWF, age, bw)));
+                }
+            }
+        }
+        assertEquals(queried(null, null, null, null), codes(CategoryRepository.findActive()));
+    }
+
+    /**
+     * Deactivating an age group removes its categories from the results.
+     */
+    @Test
+    public void rebuiltOnChange() {
+        List<Category> before = CategoryRepository.findByGenderAgeBW(Gender.M, 25, 80.0);
+        assertTrue(before.size() > 0);
+        AgeGroup ag = before.get(0).getAgeGroup();
+        ag.setActive(false);
+        AgeGroupRepository.save(ag);
+        try {
+            List<String> after = codes(CategoryRepository.findByGenderAgeBW(Gender.M, 25, 80.0));
+            assertEquals(queried(Gender.M, null, 25, 80.0), after);
+            assertTrue(!after.contains(before.get(0).getCode()));
+        } finally {
+            ag.setActive(true);
+            AgeGroupRepository.save(ag);
+        }
+        assertEquals(codes(before), codes(CategoryRepository.findByGenderAgeBW(Gender.M, 25, 80.0)));
+    }
+
+    private List<String> codes(List<Category> categories) {
+        return categories.stream().map(Category::getCode).collect(Collectors.toList());
+    }
+
+    private List<String> queried(Gender g, AgeDivision ad, Integer age, Double bw) {
+        List<Category> l = CategoryRepository.findFiltered(null, g, ad, null, age, bw, true, -1, -1);
+        l.sort(new RegistrationPreferenceComparator());
+        return codes(l);
+    }
+
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import app.owlcms.Main;
+import app.owlcms.data.agegroup.AgeGroup;
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.AthleteRepository;
+import app.owlcms.data.athlete.Gender;
+import app.owlcms.data.athleteSort.AthleteSorter;
+import app.owlcms.data.category.AgeDivision;
+import app.owlcms.data.category.Category;
+import app.owlcms.data.config.Config;
+import app.owlcms.data.group.Group;
+import app.owlcms.data.group.GroupRepository;
+import app.owlcms.data.jpa.JPAService;
+import app.owlcms.data.jpa.QueryCounter;
+
+public class FilteredIdsTest {
+
+    @BeforeClass
+    public static void setupTests() {
+        Main.injectSuppliers();
+        JPAService.init(true, true);
+        Config.initConfig();
+        TestData.insertInitialData(5, true);
+    }
+
+    @AfterClass
+    public static void tearDownTests() {
+        JPAService.close();
+    }
+
+    /**
+     * Same athletes, in the same order, as the full query sorted in registration order.
+     */
+    @Test
+    public void sameAsSortedQuery() {
+        assertSame(null, null, null, null);
+        assertSame("s", null, null, null);
+        assertSame(null, null, Gender.F, null);
+        assertSame(null, null, null, true);
+        assertSame(null, null, null, false);
+        for (Group g : GroupRepository.findAll()) {
+            assertSame(null, g, null, null);
+            assertSame(null, g, Gender.M, true);
+        }
+    }
+
+    /**
+     * A new lot number is seen once the order is invalidated.
+     */
+    @Test
+    public void invalidated() {
+        List<Athlete> athletes = AthleteRepository.findAll();
+        assertTrue(athletes.size() > 1);
+        JPAService.runInTransaction(em -> {
+            for (Athlete a : AthleteRepository.doFindAll(em)) {
+                a.setLotNumber(1000 - a.getLotNumber());
+                em.merge(a);
+            }
+            em.flush();
+            return null;
+        });
+        AthleteRepository.invalidateRegistrationOrder();
+        assertSame(null, null, null, null);
+    }
+
+    /**
+     * A weigh-in save does not sort the athletes again, a new last name does.
+     */
+    @Test
+    public void saves() {
+        AthleteRepository.findFilteredIds(null, null, null, null, null, null, null);
+        Athlete a = AthleteRepository.findAll().get(0);
+        a.setValidation(false);
+        a.setSnatch1Declaration("60");
+        AthleteRepository.save(a);
+        try (QueryCounter.Scope s = QueryCounter.expectAtMost(1, "filtered ids after a weigh-in")) {
+            AthleteRepository.findFilteredIds(null, null, null, null, null, null, null);
+        }
+
+        a = AthleteRepository.findById(a.getId());
+        a.setLastName("Zzz");
+        AthleteRepository.save(a);
+        assertSame(null, null, null, null);
+    }
+
+    @Test
+    public void page() {
+        List<Long> ids = AthleteRepository.findFilteredIds(null, null, null, null, null, null, null);
+        List<Long> page = ids.subList(1, Math.min(4, ids.size()));
+        assertEquals(page, ids(AthleteRepository.findByIds(page)));
+    }
+
+    private void assertSame(String lastName, Group group, Gender gender, Boolean weighedIn) {
+        List<Athlete> expected = AthleteRepository.findFiltered(lastName, group, (Category) null, (AgeGroup) null,
+                (AgeDivision) null, gender, weighedIn, -1, -1);
+        AthleteSorter.registrationOrder(expected);
+        assertEquals(lastName + " " + group + " " + gender + " " + weighedIn, ids(expected),
+                AthleteRepository.findFilteredIds(lastName, group, null, null, null, gender, weighedIn));
+    }
+
+    private List<Long> ids(List<Athlete> athletes) {
+        return athletes.stream().map(Athlete::getId).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.utils.LoggerUtils;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * The lazy caller objects must format like the eager methods, and cost nothing when the level is disabled.
+ */
+public class LoggerUtilsTest {
+
+    private static final int ITERATIONS = 200_000;
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(LoggerUtilsTest.class);
+
+    private String loggingName = "A: ";
+
+    @Test
+    public void disabledLoggingDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        Level previous = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        try {
+            // warm up, so the measured loop is compiled
+            emitDown(ITERATIONS);
+            eagerEmitDown(ITERATIONS);
+
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            emitDown(ITERATIONS);
+            long lazyBytes = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+            before = threadBean.getThreadAllocatedBytes(threadId);
+            eagerEmitDown(ITERATIONS);
+            long eagerBytes = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+            logger.info("{} disabled debug statements: lazy {} bytes, eager {} bytes", ITERATIONS, lazyBytes,
+                    eagerBytes);
+            // allow for the measurement itself
+            assertTrue("lazy caller allocated " + lazyBytes + " bytes", lazyBytes < 1024);
+            assertTrue(eagerBytes > ITERATIONS);
+        } finally {
+            logger.setLevel(previous);
+        }
+    }
+
+    @Test
+    public void lazyMatchesEager() {
+        String[] where = locations();
+        assertEquals(where[0], where[1]);
+        assertTrue(where[0], where[0].contains("LoggerUtilsTest.java"));
+
+        String[] stacks = stacks();
+        assertEquals(stacks[0], stacks[1]);
+    }
+
+    /**
+     * Same statement as FieldOfPlay.pushOutUIEvent
+     */
+    private void emitDown(int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            logger.debug("{}Emitting down {}", loggingName, LoggerUtils.caller(2));
+        }
+    }
+
+    private void eagerEmitDown(int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            logger.debug("{}Emitting down {}", loggingName, LoggerUtils.whereFrom(2));
+        }
+    }
+
+    private String[] locations() {
+        return new String[] { LoggerUtils.whereFrom(), String.valueOf(LoggerUtils.caller()) };
+    }
+
+    private String[] stacks() {
+        return new String[] { LoggerUtils.stackTrace(), String.valueOf(LoggerUtils.callStack()) };
+    }
+
+}
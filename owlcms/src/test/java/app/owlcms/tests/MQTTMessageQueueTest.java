@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import app.owlcms.fieldofplay.MQTTMessageQueue;
+import app.owlcms.fieldofplay.MQTTMessageQueue.OverflowPolicy;
+
+public class MQTTMessageQueueTest {
+
+    private static final String CLOCK = "owlcms/clock/A";
+    private static final String DECISION = "owlcms/refbox/decision/A";
+
+    private List<String> handled = new CopyOnWriteArrayList<>();
+    private CountDownLatch release = new CountDownLatch(1);
+    private volatile Thread consumer;
+
+    @Test
+    public void coalescesIdempotentTopics() throws InterruptedException {
+        MQTTMessageQueue queue = blockedQueue(10, OverflowPolicy.DROP_NEWEST);
+        queue.offer(CLOCK, "start");
+        queue.offer(DECISION, "2 good");
+        queue.offer(CLOCK, "stop");
+        queue.offer(DECISION, "3 bad");
+        release.countDown();
+        awaitProcessed(queue, 4);
+
+        // the waiting "start" is removed, "stop" keeps its own arrival position
+        assertEquals(Arrays.asList(DECISION + " 1 good", DECISION + " 2 good", CLOCK + " stop", DECISION + " 3 bad"),
+                handled);
+        assertEquals(1, queue.getCoalesced());
+    }
+
+    @Test
+    public void closeStopsThread() throws InterruptedException {
+        MQTTMessageQueue queue = blockedQueue(10, OverflowPolicy.DROP_NEWEST);
+        queue.offer(DECISION, "2 good");
+        queue.close();
+        consumer.join(5000);
+        assertFalse(consumer.isAlive());
+        assertFalse(queue.offer(DECISION, "3 good"));
+
+        // the message being handled is finished, the waiting one is discarded
+        assertEquals(Arrays.asList(DECISION + " 1 good"), handled);
+        assertEquals(0, queue.getDepth());
+    }
+
+    @Test
+    public void dropsNewestWhenFull() throws InterruptedException {
+        MQTTMessageQueue queue = blockedQueue(2, OverflowPolicy.DROP_NEWEST);
+        assertTrue(queue.offer(DECISION, "2 good"));
+        assertTrue(queue.offer(DECISION, "3 good"));
+        assertFalse(queue.offer(DECISION, "3 bad"));
+        release.countDown();
+        awaitProcessed(queue, 3);
+
+        assertEquals(Arrays.asList(DECISION + " 1 good", DECISION + " 2 good", DECISION + " 3 good"), handled);
+        assertEquals(1, queue.getDropped());
+        assertEquals(2, queue.getMaxDepth());
+    }
+
+    @Test
+    public void dropsOldestWhenFull() throws InterruptedException {
+        MQTTMessageQueue queue = blockedQueue(2, OverflowPolicy.DROP_OLDEST);
+        queue.offer(DECISION, "2 good");
+        queue.offer(DECISION, "3 good");
+        queue.offer(DECISION, "3 bad");
+        release.countDown();
+        awaitProcessed(queue, 3);
+
+        assertEquals(Arrays.asList(DECISION + " 1 good", DECISION + " 3 good", DECISION + " 3 bad"), handled);
+        assertEquals(1, queue.getDropped());
+    }
+
+    private void awaitProcessed(MQTTMessageQueue queue, int nbMessages) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (queue.getProcessed() < nbMessages && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(nbMessages, queue.getProcessed());
+        assertEquals(0, queue.getDepth());
+    }
+
+    /**
+     * A queue whose handler is held on the first message, so that the following ones wait in the queue.
+     */
+    private MQTTMessageQueue blockedQueue(int capacity, OverflowPolicy policy)
+            throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        MQTTMessageQueue queue = new MQTTMessageQueue("A", capacity, policy, t -> t.startsWith("owlcms/clock/"),
+                (topic, payload) -> {
+                    consumer = Thread.currentThread();
+                    started.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                    }
+                    handled.add(topic + " " + payload);
+                });
+        queue.offer(DECISION, "1 good");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return queue;
+    }
+
+}
@@ -122,7 +122,7 @@ public class MockCountdownTimer implements IBreakTimer, IProxyTimer {
      */
     @Override
     public void setTimeRemaining(int timeRemaining, boolean indefinite) {
-        logger.debug("setting Time -- timeRemaining = {}\t[{}]", timeRemaining, LoggerUtils.whereFrom());
+        logger.debug("setting Time -- timeRemaining = {}\t[{}]", timeRemaining, LoggerUtils.caller());
         this.timeRemaining = timeRemaining;
     }
 
@@ -133,7 +133,7 @@ public class MockCountdownTimer implements IBreakTimer, IProxyTimer {
      */
     @Override
     public void start() {
-        logger.debug("starting Time -- timeRemaining = {} \t[{}]", timeRemaining, LoggerUtils.whereFrom());
+        logger.debug("starting Time -- timeRemaining = {} \t[{}]", timeRemaining, LoggerUtils.caller());
         timeRemainingAtLastStop = timeRemaining;
     }
 
@@ -144,7 +144,7 @@ public class MockCountdownTimer implements IBreakTimer, IProxyTimer {
      */
     @Override
     public void stop() {
-        logger.debug("stopping Time -- timeRemaining = {} \t[{}]", timeRemaining, LoggerUtils.whereFrom());
+        logger.debug("stopping Time -- timeRemaining = {} \t[{}]", timeRemaining, LoggerUtils.caller());
         timeRemaining = (getTimeRemaining() - 2000);
         timeRemainingAtLastStop = timeRemaining;
     }
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import app.owlcms.Main;
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.config.Config;
+import app.owlcms.data.jpa.JPAService;
+import app.owlcms.fieldofplay.LiftOrderReconstruction;
+import app.owlcms.fieldofplay.PastLiftOrder;
+
+/**
+ * The maintained past order must always give the same last lift as a full reconstruction.
+ */
+public class PastLiftOrderTest {
+
+    @BeforeClass
+    public static void setupTests() {
+        Main.injectSuppliers();
+        JPAService.init(true, true);
+        Config.initConfig();
+    }
+
+    @AfterClass
+    public static void tearDownTests() {
+        JPAService.close();
+    }
+
+    private Random random;
+
+    @Test
+    public void emptyGroup() {
+        PastLiftOrder past = new PastLiftOrder();
+        past.update(null);
+        assertNull(past.getLastLift());
+        past.update(new ArrayList<>());
+        assertNull(past.getLastLift());
+    }
+
+    /**
+     * Random lifts, corrections, start number changes and athletes leaving and joining, in any order.
+     */
+    @Test
+    public void sameAsReconstruction() {
+        for (long seed = 0; seed < 20; seed++) {
+            random = new Random(seed);
+            List<Athlete> group = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                Athlete a = new Athlete();
+                a.setValidation(false);
+                a.setLastName("A" + i);
+                // a few duplicate start numbers to create ties
+                a.setStartNumber(i % 10);
+                a.setLotNumber(random.nextInt(3));
+                group.add(a);
+            }
+            List<Athlete> liftingOrder = new ArrayList<>(group);
+            PastLiftOrder past = new PastLiftOrder();
+
+            for (int step = 0; step < 300; step++) {
+                Athlete a = group.get(random.nextInt(group.size()));
+                int op = random.nextInt(10);
+                if (op < 6) {
+                    nextLift(a);
+                } else if (op < 8) {
+                    correctLift(a);
+                } else if (op < 9) {
+                    a.setStartNumber(random.nextInt(12));
+                } else if (liftingOrder.contains(a)) {
+                    liftingOrder.remove(a);
+                } else {
+                    liftingOrder.add(a);
+                }
+                Collections.shuffle(liftingOrder, random);
+
+                past.update(liftingOrder);
+                assertEquals("seed " + seed + " step " + step,
+                        new LiftOrderReconstruction(liftingOrder).getLastLift(), past.getLastLift());
+            }
+        }
+    }
+
+    private void correctLift(Athlete a) {
+        int done = a.getAttemptsDone();
+        if (done == 0) {
+            return;
+        }
+        setLift(a, random.nextInt(done), randomLift());
+    }
+
+    private void nextLift(Athlete a) {
+        int done = a.getAttemptsDone();
+        if (done >= 6) {
+            return;
+        }
+        setLift(a, done, randomLift());
+    }
+
+    private String randomLift() {
+        int weight = 60 + random.nextInt(20);
+        return Integer.toString(random.nextBoolean() ? weight : -weight);
+    }
+
+    private void setLift(Athlete a, int liftNo, String value) {
+        switch (liftNo) {
+        case 0:
+            a.setSnatch1ActualLift(value);
+            break;
+        case 1:
+            a.setSnatch2ActualLift(value);
+            break;
+        case 2:
+            a.setSnatch3ActualLift(value);
+            break;
+        case 3:
+            a.setCleanJerk1ActualLift(value);
+            break;
+        case 4:
+            a.setCleanJerk2ActualLift(value);
+            break;
+        default:
+            a.setCleanJerk3ActualLift(value);
+            break;
+        }
+    }
+
+}
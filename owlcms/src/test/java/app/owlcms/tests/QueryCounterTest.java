@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import app.owlcms.Main;
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.AthleteRepository;
+import app.owlcms.data.config.Config;
+import app.owlcms.data.jpa.JPAService;
+import app.owlcms.data.jpa.QueryCounter;
+
+public class QueryCounterTest {
+
+    @BeforeClass
+    public static void setupTests() {
+        Main.injectSuppliers();
+        JPAService.init(true, true);
+        Config.initConfig();
+        TestData.insertInitialData(5, true);
+    }
+
+    @AfterClass
+    public static void tearDownTests() {
+        JPAService.close();
+    }
+
+    @Test
+    public void countsStatements() {
+        try (QueryCounter.Scope s = QueryCounter.expectAtMost(1, "count")) {
+            JPAService.runReadOnly(em -> em.createQuery("select count(a) from Athlete a").getSingleResult());
+            assertEquals(1, s.getCount());
+        }
+    }
+
+    /**
+     * The athletes are fetched in one statement; the eager group (and its platform) add at most one statement per
+     * group, whatever the number of athletes.
+     */
+    @Test
+    public void findAllByGroupAndWeighIn() {
+        List<Athlete> athletes = QueryCounter.expectAtMost(5,
+                () -> AthleteRepository.findAllByGroupAndWeighIn(null, true));
+        assertTrue(athletes.size() > 5);
+    }
+
+    /**
+     * Lazy participations loaded outside the transaction are one statement per athlete, and are counted.
+     */
+    @Test
+    public void lazyLoadingIsCounted() {
+        List<Athlete> athletes = AthleteRepository.findAllByGroupAndWeighIn(null, true);
+        assertTrue(athletes.size() > 1);
+        try (QueryCounter.Scope s = QueryCounter.expectAtMost(1, "participations")) {
+            for (Athlete a : athletes) {
+                a.getParticipations().size();
+            }
+            assertEquals(athletes.size(), s.getCount());
+        } catch (AssertionError e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("participations: expected at most 1 statements"));
+            return;
+        }
+        fail("N+1 selects not detected");
+    }
+
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import app.owlcms.Main;
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.AthleteRepository;
+import app.owlcms.data.config.Config;
+import app.owlcms.data.jpa.JPAService;
+
+public class ReadOnlyTransactionTest {
+
+    private static Statistics statistics;
+
+    @BeforeClass
+    public static void setupTests() {
+        Main.injectSuppliers();
+        JPAService.init(true, true);
+        Config.initConfig();
+        TestData.insertInitialData(5, true);
+        statistics = JPAService.getFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterClass
+    public static void tearDownTests() {
+        statistics.setStatisticsEnabled(false);
+        JPAService.close();
+    }
+
+    /**
+     * Number of loaded entities that keep a snapshot for dirty checking.
+     */
+    private static int snapshots(EntityManager em, List<Athlete> athletes) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        int nbSnapshots = 0;
+        for (Athlete a : athletes) {
+            if (session.getPersistenceContext().getEntry(a).getLoadedState() != null) {
+                nbSnapshots++;
+            }
+        }
+        return nbSnapshots;
+    }
+
+    @Test
+    public void readOnlyDoesNotSnapshotOrFlush() {
+        String original = AthleteRepository.findAll().get(0).getLastName();
+
+        long flushes = statistics.getFlushCount();
+        int nbSnapshots = JPAService.runReadOnly(em -> {
+            List<Athlete> athletes = AthleteRepository.doFindAll(em);
+            assertFalse(athletes.isEmpty());
+            // not dirty-checked, so never written
+            athletes.get(0).setLastName("Changed");
+            return snapshots(em, athletes);
+        });
+        assertEquals(0, nbSnapshots);
+        assertEquals(flushes, statistics.getFlushCount());
+        assertEquals(original, AthleteRepository.findAll().get(0).getLastName());
+    }
+
+    @Test
+    public void readWriteSnapshotsAndFlushes() {
+        long flushes = statistics.getFlushCount();
+        int[] nbAthletes = new int[1];
+        int nbSnapshots = JPAService.runInTransaction(em -> {
+            List<Athlete> athletes = AthleteRepository.doFindAll(em);
+            nbAthletes[0] = athletes.size();
+            return snapshots(em, athletes);
+        });
+        assertEquals(nbAthletes[0], nbSnapshots);
+        assertTrue(statistics.getFlushCount() > flushes);
+    }
+
+}
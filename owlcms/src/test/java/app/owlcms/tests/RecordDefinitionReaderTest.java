@@ -8,10 +8,15 @@ package app.owlcms.tests;
 
 import static app.owlcms.tests.AllTests.assertEqualsToReferenceFile;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
@@ -28,15 +33,20 @@ import org.xml.sax.SAXException;
 
 import app.owlcms.Main;
 import app.owlcms.data.athlete.Gender;
+import app.owlcms.data.athleteSort.Ranking;
 import app.owlcms.data.config.Config;
 import app.owlcms.data.jpa.JPAService;
+import app.owlcms.data.jpa.QueryCounter;
 import app.owlcms.data.records.RecordDefinitionReader;
+import app.owlcms.data.records.RecordDefinitionReader.RecordFile;
 import app.owlcms.data.records.RecordEvent;
+import app.owlcms.data.records.RecordFilter;
 import app.owlcms.data.records.RecordRepository;
 import app.owlcms.spreadsheet.JXLSExportRecords;
 import app.owlcms.utils.LoggerUtils;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
+import elemental.json.JsonValue;
 
 // subsequent tests depend on features tested in earlier tests
 // tests themselves do not depend on work done in earlier tests.
@@ -184,4 +194,45 @@ public class RecordDefinitionReaderTest {
         }
         
     }
+
+    @Test
+    public void _10_testUnchangedFilesSkipped() throws IOException {
+        List<RecordFile> files = RecordDefinitionReader.readRecordFiles();
+        assertTrue("record files in /records", files.size() > 0);
+        assertEquals(0, RecordDefinitionReader.resetRecords(files));
+        Set<Long> ids = RecordRepository.findAll().stream().map(RecordEvent::getId).collect(Collectors.toSet());
+        assertTrue(ids.size() > 0);
+
+        files = RecordDefinitionReader.readRecordFiles();
+        assertEquals("same content, already loaded", files.size(), RecordDefinitionReader.resetRecords(files));
+        assertEquals("not inserted again", ids,
+                RecordRepository.findAll().stream().map(RecordEvent::getId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void _11_testCachedRecords() throws IOException {
+        String zipURI = "/testData/records/IWF_EWF.zip";
+        InputStream zipStream = this.getClass().getResourceAsStream(zipURI);
+        RecordDefinitionReader.readZip(zipStream);
+        List<RecordEvent> results = RecordRepository.findCachedFiltered(Gender.M, 16, 66.0);
+        assertEquals("same as query", RecordRepository.findFiltered(Gender.M, 16, 66.0, null, null).size(),
+                results.size());
+
+        // the records and the table are in memory until the next change
+        JsonValue json = RecordFilter.buildRecordJson(results, Set.of(), null, null, null);
+        try (QueryCounter.Scope s = QueryCounter.expectAtMost(0, "cached records")) {
+            List<RecordEvent> again = RecordRepository.findCachedFiltered(Gender.M, 16, 66.0);
+            assertSame(json, RecordFilter.buildRecordJson(again, Set.of(), null, null, null));
+            RecordEvent snatch = again.stream().filter(r -> r.getRecordLift() == Ranking.SNATCH).findFirst()
+                    .get();
+            JsonValue highlighted = RecordFilter.buildRecordJson(again, Set.of(snatch),
+                    snatch.getRecordValue().intValue() + 1, null, null);
+            assertNotSame(json, highlighted);
+            assertTrue(highlighted.toJson().contains("snatchHighlight"));
+            assertFalse(json.toJson().contains("snatchHighlight"));
+        }
+
+        RecordRepository.clearLoadedRecords();
+        assertEquals("invalidated by delete", 0, RecordRepository.findCachedFiltered(Gender.M, 16, 66.0).size());
+    }
 }
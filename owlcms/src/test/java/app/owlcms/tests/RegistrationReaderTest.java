@@ -6,11 +6,14 @@
  *******************************************************************************/
 package app.owlcms.tests;
 
+import static org.junit.Assert.assertEquals;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -28,6 +31,7 @@ import app.owlcms.data.config.Config;
 import app.owlcms.data.jpa.JPAService;
 import app.owlcms.spreadsheet.RAthlete;
 import app.owlcms.spreadsheet.RCompetition;
+import app.owlcms.spreadsheet.RegistrationStreamReader;
 import ch.qos.logback.classic.Logger;
 import net.sf.jxls.reader.ReaderBuilder;
 import net.sf.jxls.reader.ReaderConfig;
@@ -87,4 +91,42 @@ public class RegistrationReaderTest {
         }
     }
 
+    @Test
+    public void streamingReaderMatchesJxls() throws IOException, SAXException, InvalidFormatException {
+        String streamURI = "/testData/registration.xls";
+
+        List<RAthlete> jxlsAthletes = new ArrayList<>();
+        try (InputStream xmlInputStream = this.getClass().getResourceAsStream(REGISTRATION_READER_SPEC);
+                InputStream xlsInputStream = this.getClass().getResourceAsStream(streamURI)) {
+            ReaderConfig readerConfig = ReaderConfig.getInstance();
+            readerConfig.setUseDefaultValuesForPrimitiveTypes(true);
+            readerConfig.setSkipErrors(true);
+            XLSReader reader = ReaderBuilder.buildFromXML(xmlInputStream);
+            Map<String, Object> beans = new HashMap<>();
+            beans.put("competition", new RCompetition());
+            beans.put("athletes", jxlsAthletes);
+            reader.read(xlsInputStream, beans);
+        } finally {
+            ReaderConfig.getInstance().setSkipErrors(false);
+        }
+
+        List<RAthlete> streamedAthletes;
+        try (InputStream xlsInputStream = this.getClass().getResourceAsStream(streamURI)) {
+            RegistrationStreamReader reader = new RegistrationStreamReader(Locale.ENGLISH, null);
+            streamedAthletes = reader.readAthletes(xlsInputStream, new RCompetition());
+        }
+
+        assertEquals(jxlsAthletes.size(), streamedAthletes.size());
+        for (int i = 0; i < jxlsAthletes.size(); i++) {
+            Athlete expected = jxlsAthletes.get(i).getAthlete();
+            Athlete actual = streamedAthletes.get(i).getAthlete();
+            assertEquals(expected.getLastName(), actual.getLastName());
+            assertEquals(expected.getFirstName(), actual.getFirstName());
+            assertEquals(expected.getTeam(), actual.getTeam());
+            assertEquals(expected.getGender(), actual.getGender());
+            assertEquals(expected.getBodyWeight(), actual.getBodyWeight());
+            assertEquals(expected.getYearOfBirth(), actual.getYearOfBirth());
+        }
+    }
+
 }
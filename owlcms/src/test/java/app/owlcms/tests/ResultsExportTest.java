@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import org.hibernate.Session;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.Main;
+import app.owlcms.data.config.Config;
+import app.owlcms.data.jpa.JPAService;
+import app.owlcms.servlet.ResultsExportServlet;
+import ch.qos.logback.classic.Logger;
+
+public class ResultsExportTest {
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(ResultsExportTest.class);
+
+    // two groups of this size
+    private static final int GROUP_SIZE = 2500;
+
+    @BeforeClass
+    public static void setupTests() {
+        Main.injectSuppliers();
+        JPAService.init(true, true);
+        Config.initConfig();
+        TestData.insertInitialData(GROUP_SIZE, true);
+    }
+
+    @AfterClass
+    public static void tearDownTests() {
+        JPAService.close();
+    }
+
+    @Test
+    public void csv() {
+        export(false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        int nbRows = export(false, out);
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+        assertEquals(2 * GROUP_SIZE, nbRows);
+        // one line per athlete, plus the header
+        assertEquals(nbRows + 1, out.toString(StandardCharsets.UTF_8).split("\r?\n").length);
+        logger.info("csv export of {} rows took {} ms", nbRows, elapsedMs);
+    }
+
+    @Test
+    public void json() {
+        export(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        int nbRows = export(true, out);
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+        assertEquals(2 * GROUP_SIZE, nbRows);
+        assertEquals(nbRows, out.toString(StandardCharsets.UTF_8).split("\n").length);
+        logger.info("json export of {} rows took {} ms", nbRows, elapsedMs);
+    }
+
+    /**
+     * First run, so that the measured one does not include class loading and query compilation.
+     */
+    private int export(boolean json) {
+        return export(json, new ByteArrayOutputStream());
+    }
+
+    private int export(boolean json, ByteArrayOutputStream out) {
+        return JPAService.runInTransaction(em -> {
+            try {
+                return ResultsExportServlet.writeResults(em.unwrap(Session.class), null, json, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+}
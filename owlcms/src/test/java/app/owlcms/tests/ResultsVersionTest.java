@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import app.owlcms.Main;
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.AthleteRepository;
+import app.owlcms.data.athlete.Gender;
+import app.owlcms.data.competition.Competition;
+import app.owlcms.data.config.Config;
+import app.owlcms.data.jpa.JPAService;
+
+public class ResultsVersionTest {
+
+    @BeforeClass
+    public static void setupTests() {
+        Main.injectSuppliers();
+        JPAService.init(true, true);
+        Config.initConfig();
+        TestData.insertInitialData(5, true);
+    }
+
+    @AfterClass
+    public static void tearDownTests() {
+        JPAService.close();
+    }
+
+    /**
+     * Reading the rankings, even when they must be recomputed, is not a change.
+     */
+    @Test
+    public void readingDoesNotChangeVersion() {
+        Competition competition = Competition.getCurrent();
+        competition.setRankingsInvalid(true);
+        long version = Competition.getResultsVersion();
+        competition.getGlobalSinclairRanking(Gender.M);
+        competition.getGlobalSinclairRanking(Gender.F);
+        assertEquals(version, Competition.getResultsVersion());
+        competition.getGlobalSinclairRanking(Gender.M);
+        assertEquals(version, Competition.getResultsVersion());
+    }
+
+    /**
+     * Saving an athlete is a change.
+     */
+    @Test
+    public void savingChangesVersion() {
+        List<Athlete> athletes = AthleteRepository.findAll();
+        assertTrue(athletes.size() > 0);
+        long version = Competition.getResultsVersion();
+        AthleteRepository.save(athletes.get(0));
+        assertTrue(Competition.getResultsVersion() > version);
+    }
+
+}
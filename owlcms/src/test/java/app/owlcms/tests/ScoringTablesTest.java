@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import app.owlcms.Main;
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.Gender;
+import app.owlcms.data.athlete.ScoringTables;
+import app.owlcms.data.athlete.SinclairCoefficients;
+import app.owlcms.data.category.Category;
+import app.owlcms.data.category.RobiCategories;
+import app.owlcms.data.config.Config;
+import app.owlcms.data.jpa.JPAService;
+
+public class ScoringTablesTest {
+
+    private static final Integer[] AGES = { null, 15, 17, 19, 20, 25, 45 };
+
+    @BeforeClass
+    public static void setupTests() {
+        Main.injectSuppliers();
+        JPAService.init(true, true);
+        Config.initConfig();
+        TestData.insertInitialData(5, true);
+    }
+
+    @AfterClass
+    public static void tearDownTests() {
+        JPAService.close();
+    }
+
+    /**
+     * Every 0.05kg, category limits included, for both genders and the age brackets.
+     */
+    @Test
+    public void robiSameAsReferenceCategories() {
+        ScoringTables tables = ScoringTables.get();
+        for (Athlete a : athletes()) {
+            Category c = RobiCategories.findRobiCategory(a);
+            Integer age = a.getAge();
+            int expected = c == null ? -1 : c.getWr(age != null ? age : 999);
+            assertEquals(a.getGender() + " " + a.getBodyWeight() + " " + age, expected,
+                    tables.robiWorldRecord(a.getGender(), a.getBodyWeight(), age));
+        }
+    }
+
+    @Test
+    public void sinclairSameAsCoefficients() {
+        ScoringTables tables = ScoringTables.get();
+        for (int year : new int[] { 2020, 2024 }) {
+            SinclairCoefficients sc = new SinclairCoefficients(year);
+            for (double bw = 30.0; bw <= 200.0; bw += 0.05) {
+                assertEquals(factor(bw, sc.menCoefficient(), sc.menMaxWeight()),
+                        tables.sinclairFactor(year, Gender.M, bw), 0.0D);
+                assertEquals(factor(bw, sc.womenCoefficient(), sc.womenMaxWeight()),
+                        tables.sinclairFactor(year, Gender.F, bw), 0.0D);
+            }
+        }
+    }
+
+    @Test
+    public void smfSameAsCoefficients() {
+        ScoringTables tables = ScoringTables.get();
+        SinclairCoefficients sc = new SinclairCoefficients(2020);
+        for (Gender g : Gender.values()) {
+            for (int age = 0; age <= 100; age++) {
+                assertEquals(g + " " + age, sc.getAgeGenderCoefficient(age, g), tables.smf(g, age), 0.0D);
+            }
+        }
+        assertEquals(0.0D, tables.smf(null, 40), 0.0D);
+        assertEquals(0.0D, tables.smf(Gender.F, null), 0.0D);
+    }
+
+    /**
+     * Lookups the way the rankings did them give the same values as the tables, for the same athletes.
+     */
+    @Test
+    public void sameAsLookups() {
+        SinclairCoefficients sc = new SinclairCoefficients(2020);
+        ScoringTables tables = ScoringTables.get();
+        for (Athlete a : athletes()) {
+            Integer age = a.getAge();
+            String where = a.getGender() + " " + a.getBodyWeight() + " " + age;
+            Category c = RobiCategories.findRobiCategory(a);
+            assertEquals(where, c != null ? c.getWr(age != null ? age : 999) : 0,
+                    Math.max(tables.robiWorldRecord(a.getGender(), a.getBodyWeight(), age), 0));
+            assertEquals(where, sc.getAgeGenderCoefficient(40, a.getGender()), tables.smf(a.getGender(), 40), 0.0D);
+            assertEquals(where, a.getGender() == Gender.M
+                    ? factor(a.getBodyWeight(), sc.menCoefficient(), sc.menMaxWeight())
+                    : factor(a.getBodyWeight(), sc.womenCoefficient(), sc.womenMaxWeight()),
+                    tables.sinclairFactor(2020, a.getGender(), a.getBodyWeight()), 0.0D);
+        }
+    }
+
+    private List<Athlete> athletes() {
+        List<Double> weights = new ArrayList<>();
+        for (double bw = 30.0; bw <= 200.0; bw += 0.05) {
+            weights.add(bw);
+        }
+        for (Category c : RobiCategories.getJrSrReferenceCategories()) {
+            weights.add(c.getMinimumWeight());
+            weights.add(c.getMaximumWeight());
+        }
+        int thisYear = LocalDate.now().getYear();
+        List<Athlete> athletes = new ArrayList<>();
+        for (Gender g : Gender.values()) {
+            for (Integer age : AGES) {
+                for (Double bw : weights) {
+                    Athlete a = new Athlete();
+                    a.setGender(g);
+                    a.setBodyWeight(bw);
+                    a.setYearOfBirth(age != null ? thisYear - age : null);
+                    athletes.add(a);
+                }
+            }
+        }
+        return athletes;
+    }
+
+    private double factor(Double bodyWeight, Double coefficient, Double maxWeight) {
+        if (bodyWeight >= maxWeight) {
+            return 1.0;
+        } else {
+            return Math.pow(10.0, coefficient * (Math.pow(Math.log10(bodyWeight / maxWeight), 2)));
+        }
+    }
+
+}
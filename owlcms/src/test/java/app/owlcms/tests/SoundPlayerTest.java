@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sound.sampled.SourceDataLine;
+
+import org.junit.Test;
+
+import app.owlcms.sound.SoundPlayer;
+import app.owlcms.sound.SoundPlayer.PCM;
+
+public class SoundPlayerTest {
+
+    private AtomicInteger linesOpened = new AtomicInteger();
+    private AtomicInteger linesClosed = new AtomicInteger();
+    // the samples of each sound, when its first part is written
+    private List<byte[]> written = new CopyOnWriteArrayList<>();
+    private CountDownLatch drained = new CountDownLatch(1);
+
+    @Test
+    public void decodesOnce() {
+        SoundPlayer player = new SoundPlayer("test", (af) -> recordingLine());
+        PCM down = player.getSound("down.wav");
+        assertNotNull(down);
+        assertSame(down, player.getSound("down.wav"));
+        assertEquals(44100f, down.getFormat().getSampleRate(), 0.1f);
+        assertSame(player.getTone(1100, 1200, 1.0), player.getTone(1100, 1200, 1.0));
+    }
+
+    /**
+     * Closing the player closes its lines; a closed player does not open new ones.
+     */
+    @Test
+    public void closeClosesLines() throws Exception {
+        SoundPlayer player = new SoundPlayer("test", (af) -> recordingLine());
+        player.preload("down.wav");
+        assertEquals(1, linesOpened.get());
+        player.close();
+        assertTrue(linesClosed.get() >= 1);
+
+        player.play(player.getSound("down.wav"));
+        player.play(player.getTone(1100, 1200, 1.0));
+        player.preload("timeOver.wav");
+        assertEquals(1, linesOpened.get());
+        assertEquals(0, player.getPlayed());
+    }
+
+    /**
+     * The sounds are written in the order they were queued; the wave files share the line opened ahead of time.
+     */
+    @Test
+    public void playsInOrder() throws Exception {
+        SoundPlayer player = new SoundPlayer("test", (af) -> recordingLine());
+        player.preload("down.wav");
+        PCM down = player.getSound("down.wav");
+        PCM timeOver = player.getSound("timeOver.wav");
+
+        player.play(down);
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+        assertEquals(1, player.getPlayed());
+
+        player.play(timeOver);
+        player.play(down);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (written.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of(down.getData(), timeOver.getData(), down.getData()), written);
+        assertEquals(3, player.getPlayed());
+        assertEquals("wave files share one line", 1, linesOpened.get());
+    }
+
+    /**
+     * A line that accepts everything immediately and records the sounds written.
+     */
+    private SourceDataLine recordingLine() {
+        return (SourceDataLine) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { SourceDataLine.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "open":
+                        linesOpened.incrementAndGet();
+                        return null;
+                    case "getBufferSize":
+                        return 44100;
+                    case "write":
+                        if ((Integer) args[1] == 0) {
+                            written.add((byte[]) args[0]);
+                        }
+                        return args[2];
+                    case "close":
+                        linesClosed.incrementAndGet();
+                        return null;
+                    case "drain":
+                        drained.countDown();
+                        return null;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "recordingLine";
+                    default:
+                        return null;
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import app.owlcms.utils.StartupPhases;
+
+public class StartupPhasesTest {
+
+    private List<String> done = new CopyOnWriteArrayList<>();
+
+    /**
+     * Each independent phase waits until the other one has started, which can only succeed if they run in parallel.
+     */
+    @Test
+    public void independentPhasesRunInParallel() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        StartupPhases phases = new StartupPhases("test", 2)
+                .add("a", () -> meet(bothStarted, "a"))
+                .add("b", () -> meet(bothStarted, "b"))
+                .add("c", () -> done.add("c"), "a", "b");
+        phases.run();
+
+        assertEquals(3, done.size());
+        assertEquals("c", done.get(2));
+        String report = phases.getReport();
+        for (String line : Arrays.asList("a", "b", "c")) {
+            assertTrue(report, report.contains("\n    " + line + " "));
+        }
+    }
+
+    @Test
+    public void failureSkipsDependents() {
+        StartupPhases phases = new StartupPhases("test", 2)
+                .add("broken", () -> {
+                    throw new IllegalStateException("broken");
+                })
+                .add("independent", () -> done.add("independent"))
+                .add("dependent", () -> done.add("dependent"), "broken");
+        try {
+            phases.run();
+            fail("failure not reported");
+        } catch (IllegalStateException e) {
+            assertEquals("broken", e.getMessage());
+        }
+        assertEquals(Arrays.asList("independent"), done);
+        assertTrue(phases.getReport(), phases.getReport().contains("skipped"));
+    }
+
+    @Test
+    public void dependenciesMustBeAddedFirst() {
+        try {
+            new StartupPhases("test", 2).add("late", () -> {
+            }, "missing");
+            fail("unknown dependency accepted");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("missing"));
+        }
+    }
+
+    private void meet(CountDownLatch bothStarted, String name) {
+        bothStarted.countDown();
+        try {
+            assertTrue(name + " ran alone", bothStarted.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        done.add(name);
+    }
+
+}
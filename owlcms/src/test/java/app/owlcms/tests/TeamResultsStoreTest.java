@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import app.owlcms.Main;
+import app.owlcms.data.agegroup.AgeGroupRepository;
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.AthleteRepository;
+import app.owlcms.data.athlete.Gender;
+import app.owlcms.data.athleteSort.AthleteSorter;
+import app.owlcms.data.athleteSort.Ranking;
+import app.owlcms.data.category.AgeDivision;
+import app.owlcms.data.competition.Competition;
+import app.owlcms.data.config.Config;
+import app.owlcms.data.group.Group;
+import app.owlcms.data.group.GroupRepository;
+import app.owlcms.data.jpa.JPAService;
+import app.owlcms.data.team.Team;
+import app.owlcms.data.team.TeamResultsStore;
+import app.owlcms.data.team.TeamResultsStore.Member;
+import app.owlcms.data.team.TeamResultsStore.TeamResult;
+
+public class TeamResultsStoreTest {
+
+    private static final String[] TEAMS = { "Alpha", "Bravo", "Charlie" };
+
+    @BeforeClass
+    public static void setupTests() {
+        Main.injectSuppliers();
+        JPAService.init(true, true);
+        Config.initConfig();
+        TestData.insertInitialData(5, true);
+    }
+
+    @AfterClass
+    public static void tearDownTests() {
+        JPAService.close();
+    }
+
+    /**
+     * Same teams, sums and members as a full reload, after saves, rank updates and a group being done.
+     */
+    @Test
+    public void sameAsReload() {
+        assertSameAsReload();
+        int i = 0;
+        for (Athlete a : AthleteRepository.findAll()) {
+            a.setTeam(TEAMS[i % TEAMS.length]);
+            AthleteRepository.save(a);
+            assertSameAsReload();
+            i++;
+        }
+
+        i = 0;
+        for (Athlete a : AthleteRepository.findAllByGroupAndWeighIn(null, true)) {
+            a.setValidation(false);
+            String weight = Integer.toString(50 + (i * 7) % 30);
+            a.setSnatch1Declaration(weight);
+            a.setSnatch1ActualLift(i % 4 == 3 ? "-" + weight : weight);
+            a.setCleanJerk1Declaration(Integer.toString(80 + (i * 11) % 30));
+            a.setCleanJerk1ActualLift(Integer.toString(80 + (i * 11) % 30));
+            AthleteRepository.save(a);
+            i++;
+        }
+        assertSameAsReload();
+
+        for (Group g : GroupRepository.findAll()) {
+            // the ranks of the group's categories are recomputed after each lift
+            updateRanks(g);
+            assertSameAsReload();
+        }
+
+        Group done = GroupRepository.findAll().get(0);
+        done.doDone(true);
+        assertSameAsReload();
+
+        // the athlete changes team, then lifts again
+        Athlete a = AthleteRepository.findAll().get(0);
+        a.setTeam(TEAMS[1]);
+        AthleteRepository.save(a);
+        assertSameAsReload();
+        a = AthleteRepository.findById(a.getId());
+        a.setValidation(false);
+        a.setSnatch2Declaration("100");
+        a.setSnatch2ActualLift("100");
+        AthleteRepository.save(a);
+        updateRanks(a.getGroup());
+        assertSameAsReload();
+    }
+
+    /**
+     * A save only recomputes the teams the athlete leaves or joins.
+     */
+    @Test
+    public void saveKeepsOtherTeams() {
+        List<Athlete> athletes = AthleteRepository.findAll();
+        int i = 0;
+        for (Athlete a : athletes) {
+            a.setTeam(TEAMS[i % 2]);
+            AthleteRepository.save(a);
+            i++;
+        }
+        List<TeamResult> before = TeamResultsStore.getTeams(null, AgeDivision.IWF, Gender.M, Ranking.SNATCH);
+        assertEquals(2, before.size());
+
+        Athlete a = AthleteRepository.findById(athletes.get(0).getId());
+        a.setBodyWeight(a.getBodyWeight() - 1.0D);
+        AthleteRepository.save(a);
+        List<TeamResult> after = TeamResultsStore.getTeams(null, AgeDivision.IWF, Gender.M, Ranking.SNATCH);
+        // not reloaded: the other team is the same object.
+        assertNotSame(before.get(0), after.get(0));
+        assertSame(before.get(1), after.get(1));
+    }
+
+    private void assertSameAsReload() {
+        List<List<TeamResult>> kept = new ArrayList<>();
+        List<List<TeamResult>> loaded = new ArrayList<>();
+        for (String prefix : prefixes()) {
+            for (Ranking ranking : List.of(Ranking.TOTAL, Ranking.BW_SINCLAIR)) {
+                kept.add(TeamResultsStore.getTeams(prefix, AgeDivision.IWF, Gender.M, ranking));
+            }
+        }
+        TeamResultsStore.clear();
+        for (String prefix : prefixes()) {
+            for (Ranking ranking : List.of(Ranking.TOTAL, Ranking.BW_SINCLAIR)) {
+                loaded.add(TeamResultsStore.getTeams(prefix, AgeDivision.IWF, Gender.M, ranking));
+            }
+        }
+        assertEquals(loaded.size(), kept.size());
+        for (int i = 0; i < loaded.size(); i++) {
+            assertSameTeams(loaded.get(i), kept.get(i));
+        }
+    }
+
+    private void assertSameTeams(List<TeamResult> expected, List<TeamResult> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Team e = expected.get(i).getTeam();
+            Team t = actual.get(i).getTeam();
+            assertEquals(e.getName(), t.getName());
+            assertEquals(e.getGender(), t.getGender());
+            assertEquals(e.getSize(), t.getSize());
+            assertEquals(e.getCounted(), t.getCounted());
+            assertEquals(e.getPoints(), t.getPoints());
+            assertEquals(e.getSinclairScore(), t.getSinclairScore(), 0.0001);
+            assertEquals(e.getSmfScore(), t.getSmfScore(), 0.0001);
+            assertEquals(e.getRobi(), t.getRobi(), 0.0001);
+            assertEquals(members(expected.get(i)), members(actual.get(i)));
+        }
+    }
+
+    private List<String> members(TeamResult r) {
+        List<String> members = new ArrayList<>();
+        for (Member m : r.getMembers()) {
+            Athlete a = m.getAthlete();
+            members.add(a.getId() + "/" + a.getCategory() + "/" + a.getTotalPoints() + "/" + m.isDone());
+        }
+        return members;
+    }
+
+    private List<String> prefixes() {
+        List<String> prefixes = new ArrayList<>();
+        // all the age groups of the division, then each age group
+        prefixes.add(null);
+        prefixes.addAll(AgeGroupRepository.findActiveAndUsed(AgeDivision.IWF));
+        assertTrue(prefixes.size() > 1);
+        return prefixes;
+    }
+
+    /**
+     * What a field of play does after a lift.
+     */
+    private void updateRanks(Group g) {
+        List<Athlete> athletes = JPAService.runInTransaction(em -> {
+            List<Athlete> nl = new LinkedList<>();
+            for (Athlete a : AthleteSorter.assignCategoryRanks(em, g)) {
+                nl.add(em.merge(a));
+            }
+            em.flush();
+            return nl;
+        });
+        TeamResultsStore.athletesUpdated(athletes, Competition.getCurrent().invalidateRankings());
+    }
+
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import app.owlcms.Main;
+import app.owlcms.data.athlete.Athlete;
+import app.owlcms.data.athlete.AthleteRepository;
+import app.owlcms.data.athlete.Gender;
+import app.owlcms.data.athleteSort.AthleteSorter;
+import app.owlcms.data.athleteSort.Ranking;
+import app.owlcms.data.athleteSort.TopSinclairStore;
+import app.owlcms.data.config.Config;
+import app.owlcms.data.jpa.JPAService;
+
+public class TopSinclairStoreTest {
+
+    @BeforeClass
+    public static void setupTests() {
+        Main.injectSuppliers();
+        JPAService.init(true, true);
+        Config.initConfig();
+        TestData.insertInitialData(5, true);
+    }
+
+    @AfterClass
+    public static void tearDownTests() {
+        JPAService.close();
+    }
+
+    /**
+     * Same athletes, in the same order, as the global ranking, after each lift.
+     */
+    @Test
+    public void sameAsGlobalRanking() {
+        assertSame(Gender.M);
+        List<Athlete> athletes = AthleteRepository.findAllByGroupAndWeighIn(null, true);
+        assertTrue(athletes.size() > 1);
+        int i = 0;
+        for (Athlete a : athletes) {
+            a.setValidation(false);
+            String weight = Integer.toString(50 + (i * 7) % 30);
+            a.setSnatch1Declaration(weight);
+            a.setSnatch1ActualLift(i % 4 == 3 ? "-" + weight : weight);
+            AthleteRepository.save(a);
+            assertSame(Gender.M);
+            i++;
+        }
+        i = 0;
+        for (Athlete a : AthleteRepository.findAllByGroupAndWeighIn(null, true)) {
+            a.setValidation(false);
+            String weight = Integer.toString(70 + (i * 11) % 30);
+            a.setCleanJerk1Declaration(weight);
+            a.setCleanJerk1ActualLift(weight);
+            AthleteRepository.save(a);
+            assertSame(Gender.M);
+            i++;
+        }
+        assertSame(Gender.F);
+    }
+
+    private void assertSame(Gender gender) {
+        List<Athlete> ranked = AthleteSorter
+                .resultsOrderCopy(AthleteRepository.findAllByGroupAndWeighIn(null, true), Ranking.BW_SINCLAIR)
+                .stream().filter(a -> a.getGender() == gender).collect(Collectors.toList());
+        AthleteSorter.TopSinclair expected = AthleteSorter.topSinclair(ranked, 5);
+        TopSinclairStore.Top top = TopSinclairStore.getTop(gender, 5);
+        assertEquals(ids(expected.topAthletes), ids(top.getAthletes()));
+        assertEquals(expected.best, top.getBest(), 0.0001);
+    }
+
+    private List<Long> ids(List<Athlete> athletes) {
+        return athletes.stream().map(Athlete::getId).collect(Collectors.toList());
+    }
+
+}
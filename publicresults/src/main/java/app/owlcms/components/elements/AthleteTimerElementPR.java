@@ -8,17 +8,15 @@ package app.owlcms.components.elements;
 
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.Subscribe;
 import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.ClientCallable;
 import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.UI;
 
 import app.owlcms.init.OwlcmsSession;
-import app.owlcms.publicresults.DecisionReceiverServlet;
-import app.owlcms.publicresults.TimerReceiverServlet;
-import app.owlcms.publicresults.UpdateReceiverServlet;
+import app.owlcms.publicresults.FopEventRouter;
 import app.owlcms.uievents.TimerEvent;
+import app.owlcms.uievents.TimerListener;
 import app.owlcms.uievents.UpdateEvent;
 import app.owlcms.utils.LoggerUtils;
 import ch.qos.logback.classic.Level;
@@ -27,7 +25,7 @@ import ch.qos.logback.classic.Logger;
 /**
  * Countdown timer element.
  */
-public class AthleteTimerElementPR extends TimerElementPR {
+public class AthleteTimerElementPR extends TimerElementPR implements TimerListener {
 
     final private static Logger logger = (Logger) LoggerFactory.getLogger(AthleteTimerElementPR.class);
     final private static Logger uiEventLogger = (Logger) LoggerFactory.getLogger("UI" + logger.getName());
@@ -49,7 +47,7 @@ public class AthleteTimerElementPR extends TimerElementPR {
     public AthleteTimerElementPR(Object origin) {
         super();
         this.setOrigin(origin);
-        logger.trace("### AthleteTimerElement new {} {}", origin, LoggerUtils.whereFrom());
+        logger.trace("### AthleteTimerElement new {} {}", origin, LoggerUtils.caller());
     }
 
     /**
@@ -119,7 +117,7 @@ public class AthleteTimerElementPR extends TimerElementPR {
     }
 
 
-    // we do not listen to the bus for this event. Score with leaders forwards this event
+    // we do not listen for this event. Score with leaders forwards this event
     // when appropriate
     public void slaveOrderUpdated(UpdateEvent e) {
         if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
@@ -129,35 +127,22 @@ public class AthleteTimerElementPR extends TimerElementPR {
         doSetTimer(e.getTimeAllowed());
     }
 
-    @Subscribe
+    @Override
     public void slaveSetTimer(TimerEvent.SetTime e) {
         Integer milliseconds = e.getTimeRemaining();
         uiEventLogger.debug(">>> set received {} {} {} {}", e, milliseconds, e.getFopName(), getFopName());
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
-            // event is not for us
-            return;
-        }
         doSetTimer(milliseconds);
     }
 
-    @Subscribe
+    @Override
     public void slaveStartTimer(TimerEvent.StartTime e) {
         Integer milliseconds = e.getTimeRemaining();
         // uiEventLogger.debug(">>> start received {} {} {} {}", e, milliseconds, e.getFopName(), getFopName());
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
-            // event is not for us
-            return;
-        }
-        
         doStartTimer(milliseconds, e.isSilent());  //check: original is e.isServerSound().
     }
 
-    @Subscribe
+    @Override
     public void slaveStopTimer(TimerEvent.StopTime e) {
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contains(e.getFopName())) {
-            // event is not for us
-            return;
-        }
         Integer milliseconds = e.getTimeRemaining();
         doStopTimer(milliseconds);
     }
@@ -180,25 +165,15 @@ public class AthleteTimerElementPR extends TimerElementPR {
     protected void onAttach(AttachEvent attachEvent) {
         init();
 
-        eventBusRegister(this, TimerReceiverServlet.getEventBus());
-        eventBusRegister(this, UpdateReceiverServlet.getEventBus());
-        eventBusRegister(this, DecisionReceiverServlet.getEventBus());
-
         ui = UI.getCurrent();
         this.setFopName(OwlcmsSession.getFopName());
+        fopEventRegister(this, getFopName());
     }
 
     @Override
     protected void onDetach(DetachEvent detachEvent) {
         super.onDetach(detachEvent);
-        try {
-            UpdateReceiverServlet.getEventBus().unregister(this);
-        } catch (Exception e) {
-        }
-        try {
-            TimerReceiverServlet.getEventBus().unregister(this);
-        } catch (Exception e) {
-        }
+        FopEventRouter.unregister(this);
     }
 
 }
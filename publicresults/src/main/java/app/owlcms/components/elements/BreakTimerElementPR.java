@@ -9,16 +9,16 @@ package app.owlcms.components.elements;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.Subscribe;
 import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.ClientCallable;
 import com.vaadin.flow.component.DetachEvent;
 
 import app.owlcms.init.OwlcmsSession;
-import app.owlcms.publicresults.TimerReceiverServlet;
-import app.owlcms.publicresults.UpdateReceiverServlet;
+import app.owlcms.publicresults.FopEventRouter;
 import app.owlcms.uievents.BreakTimerEvent;
+import app.owlcms.uievents.BreakTimerListener;
 import app.owlcms.uievents.UpdateEvent;
+import app.owlcms.uievents.UpdateListener;
 import app.owlcms.utils.IdUtils;
 import app.owlcms.utils.LoggerUtils;
 import ch.qos.logback.classic.Level;
@@ -27,7 +27,7 @@ import ch.qos.logback.classic.Logger;
 /**
  * Countdown timer element.
  */
-public class BreakTimerElementPR extends TimerElementPR {
+public class BreakTimerElementPR extends TimerElementPR implements BreakTimerListener, UpdateListener {
 
     public Long id;
     final private Logger logger = (Logger) LoggerFactory.getLogger(BreakTimerElementPR.class);
@@ -109,16 +109,12 @@ public class BreakTimerElementPR extends TimerElementPR {
         parentName = s;
     }
 
-    @Subscribe
+    @Override
     public void slaveBreakDone(BreakTimerEvent.BreakDone e) {
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
-            // event is not for us
-            return;
-        }
         doStopTimer(0);
     }
 
-    @Subscribe
+    @Override
     public void slaveBreakPause(BreakTimerEvent.BreakPaused e) {
         if (!parentName.startsWith("BreakManagement")) {
             uiEventLogger.trace("&&& breakTimerElement pause {} {}", parentName, e.getTimeRemaining());
@@ -126,38 +122,25 @@ public class BreakTimerElementPR extends TimerElementPR {
         doStopTimer(e.getTimeRemaining());
     }
 
-    @Subscribe
+    @Override
     public void slaveBreakSet(BreakTimerEvent.BreakSetTime e) {
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
-            // event is not for us
-            return;
-        }
-
         Integer milliseconds;
 
         milliseconds = e.isIndefinite() ? null : e.getTimeRemaining();
         uiEventLogger.debug("&&& breakTimer set {} {} {} {}", parentName, formatDuration(milliseconds),
-                e.isIndefinite(), LoggerUtils.whereFrom());
+                e.isIndefinite(), LoggerUtils.caller());
         doSetTimer(milliseconds);
     }
-    @Subscribe
+    @Override
     public void slaveBreakStart(BreakTimerEvent.BreakStart e) {
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
-            // event is not for us
-            return;
-        }
         Integer tr = e.isIndefinite() ? null : e.getTimeRemaining();
-        uiEventLogger.debug("&&& breakTimer start {} {} {}", parentName, tr, LoggerUtils.whereFrom());
+        uiEventLogger.debug("&&& breakTimer start {} {} {}", parentName, tr, LoggerUtils.caller());
         doStartTimer(tr, true); // true means "silent".
     }
     
-    @Subscribe
+    @Override
     // not clear why we listen to this event.
     public void slaveOrderUpdated(UpdateEvent e) {
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
-            // event is not for us
-            return;
-        }
         Integer breakRemaining = e.getBreakRemaining();
         if (e.isBreak() && breakRemaining > 0) {
             doSetTimer(breakRemaining);
@@ -185,24 +168,15 @@ public class BreakTimerElementPR extends TimerElementPR {
         this.ui = attachEvent.getUI();
         init();
 
-        eventBusRegister(this, TimerReceiverServlet.getEventBus());
-        eventBusRegister(this, UpdateReceiverServlet.getEventBus());
-
         setFopName(OwlcmsSession.getFopName());
+        fopEventRegister(this, getFopName());
     }
     
     @Override
     protected void onDetach(DetachEvent detachEvent) {
         super.onDetach(detachEvent);
         this.ui = null;
-        try {
-            UpdateReceiverServlet.getEventBus().unregister(this);
-        } catch (Exception e) {
-        }
-        try {
-            TimerReceiverServlet.getEventBus().unregister(this);
-        } catch (Exception e) {
-        }
+        FopEventRouter.unregister(this);
     }
 
 
@@ -9,7 +9,6 @@ package app.owlcms.components.elements;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.eventbus.EventBus;
-import com.google.common.eventbus.Subscribe;
 import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.Tag;
@@ -20,12 +19,13 @@ import com.vaadin.flow.templatemodel.TemplateModel;
 
 import app.owlcms.init.OwlcmsSession;
 import app.owlcms.prutils.SafeEventBusRegistrationPR;
-import app.owlcms.publicresults.DecisionReceiverServlet;
-import app.owlcms.publicresults.TimerReceiverServlet;
-import app.owlcms.publicresults.UpdateReceiverServlet;
+import app.owlcms.publicresults.FopEventRouter;
 import app.owlcms.uievents.BreakTimerEvent;
+import app.owlcms.uievents.BreakTimerListener;
 import app.owlcms.uievents.DecisionEvent;
+import app.owlcms.uievents.DecisionListener;
 import app.owlcms.uievents.TimerEvent;
+import app.owlcms.uievents.TimerListener;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 
@@ -36,7 +36,7 @@ import ch.qos.logback.classic.Logger;
 @Tag("decision-element-pr")
 @JsModule("./components/DecisionElementPR.js")
 public class DecisionElementPR extends PolymerTemplate<TemplateModel>
-        implements IFopName, SafeEventBusRegistrationPR {
+        implements IFopName, SafeEventBusRegistrationPR, TimerListener, BreakTimerListener, DecisionListener {
 
     /**
      * The Interface DecisionModel.
@@ -102,13 +102,8 @@ public class DecisionElementPR extends PolymerTemplate<TemplateModel>
         this.silenced = silenced;
     }
 
-    @Subscribe
+    @Override
     public void slaveDecision(DecisionEvent de) {
-        if (getFopName() == null || de.getFopName() == null || !getFopName().contentEquals(de.getFopName())) {
-            // logger.debug("slaveDecision self={}: {} ignored", getFopName(), de.getFopName());
-            // event is not for us
-            return;
-        }
         // logger.debug("DecisionElement DecisionEvent {} {} {}", de.getEventType(), System.identityHashCode(de), ui);
         if (ui == null || ui.isClosing()) {
             return;
@@ -143,13 +138,8 @@ public class DecisionElementPR extends PolymerTemplate<TemplateModel>
         });
     }
 
-    @Subscribe
-    public void slaveStartBreakTimer(BreakTimerEvent.BreakStart e) {
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
-            // event is not for us
-            return;
-        }
-
+    @Override
+    public void slaveBreakStart(BreakTimerEvent.BreakStart e) {
         if (ui == null || ui.isClosing()) {
             return;
         }
@@ -159,12 +149,8 @@ public class DecisionElementPR extends PolymerTemplate<TemplateModel>
         });
     }
 
-    @Subscribe
+    @Override
     public void slaveStartTimer(TimerEvent.StartTime e) {
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
-            // event is not for us
-            return;
-        }
         if (ui == null || ui.isClosing()) {
             return;
         }
@@ -173,12 +159,8 @@ public class DecisionElementPR extends PolymerTemplate<TemplateModel>
         });
     }
 
-    @Subscribe
-    public void slaveStopBreakTimer(BreakTimerEvent.BreakDone e) {
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
-            // event is not for us
-            return;
-        }
+    @Override
+    public void slaveBreakDone(BreakTimerEvent.BreakDone e) {
         if (ui == null || ui.isClosing()) {
             return;
         }
@@ -187,12 +169,8 @@ public class DecisionElementPR extends PolymerTemplate<TemplateModel>
         });
     }
 
-    @Subscribe
-    public void slaveStopBreakTimer(BreakTimerEvent.BreakPaused e) {
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
-            // event is not for us
-            return;
-        }
+    @Override
+    public void slaveBreakPause(BreakTimerEvent.BreakPaused e) {
         if (ui == null || ui.isClosing()) {
             return;
         }
@@ -201,12 +179,8 @@ public class DecisionElementPR extends PolymerTemplate<TemplateModel>
         });
     }
 
-    @Subscribe
+    @Override
     public void slaveStopTimer(TimerEvent.StopTime e) {
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
-            // event is not for us
-            return;
-        }
         if (ui == null || ui.isClosing()) {
             return;
         }
@@ -231,25 +205,15 @@ public class DecisionElementPR extends PolymerTemplate<TemplateModel>
         init();
 
         ui = attachEvent.getUI();
-        eventBusRegister(this, UpdateReceiverServlet.getEventBus());
-        eventBusRegister(this, DecisionReceiverServlet.getEventBus());
-        eventBusRegister(this, TimerReceiverServlet.getEventBus());
-
         setFopName(OwlcmsSession.getFopName());
+        fopEventRegister(this, getFopName());
     }
 
     @Override
     protected void onDetach(DetachEvent detachEvent) {
         super.onDetach(detachEvent);
         this.ui = null;
-        try {
-            DecisionReceiverServlet.getEventBus().unregister(this);
-        } catch (Exception e) {
-        }
-        try {
-            TimerReceiverServlet.getEventBus().unregister(this);
-        } catch (Exception e) {
-        }
+        FopEventRouter.unregister(this);
     }
 
     private void init() {
@@ -21,9 +21,7 @@ import com.vaadin.flow.templatemodel.TemplateModel;
 import app.owlcms.init.OwlcmsSession;
 import app.owlcms.prutils.DebugUtils;
 import app.owlcms.prutils.SafeEventBusRegistrationPR;
-import app.owlcms.publicresults.DecisionReceiverServlet;
-import app.owlcms.publicresults.TimerReceiverServlet;
-import app.owlcms.publicresults.UpdateReceiverServlet;
+import app.owlcms.publicresults.FopEventRouter;
 import app.owlcms.utils.LoggerUtils;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
@@ -110,7 +108,7 @@ public abstract class TimerElementPR extends PolymerTemplate<TemplateModel>
     }
 
     public void setSilenced(boolean b) {
-        logger.debug("{} silenced = {} from {}", this.getClass().getSimpleName(), b, LoggerUtils.whereFrom(1));
+        logger.debug("{} silenced = {} from {}", this.getClass().getSimpleName(), b, LoggerUtils.caller(1));
         silenced = b;
     }
 
@@ -194,9 +192,7 @@ public abstract class TimerElementPR extends PolymerTemplate<TemplateModel>
         this.ui = attachEvent.getUI();
         init();
 
-        eventBusRegister(this, TimerReceiverServlet.getEventBus());
-        eventBusRegister(this, UpdateReceiverServlet.getEventBus());
-        eventBusRegister(this, DecisionReceiverServlet.getEventBus());
+        fopEventRegister(this, getFopName());
     }
 
     @Override
@@ -204,10 +200,7 @@ public abstract class TimerElementPR extends PolymerTemplate<TemplateModel>
         super.onDetach(detachEvent);
         this.ui = null;
 
-        try {
-            TimerReceiverServlet.getEventBus().unregister(this);
-        } catch (Exception e) {
-        }
+        FopEventRouter.unregister(this);
 
         // tell the javascript to stay quiet
         setSilenced(true);
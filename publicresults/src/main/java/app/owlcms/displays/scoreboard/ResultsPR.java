@@ -10,7 +10,6 @@ import java.util.Timer;
 
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.Subscribe;
 import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.Component;
 import com.vaadin.flow.component.DetachEvent;
@@ -34,15 +33,17 @@ import app.owlcms.displays.options.DisplayOptions;
 import app.owlcms.i18n.Translator;
 import app.owlcms.prutils.SafeEventBusRegistrationPR;
 import app.owlcms.prutils.SoundUtils;
-import app.owlcms.publicresults.DecisionReceiverServlet;
-import app.owlcms.publicresults.TimerReceiverServlet;
+import app.owlcms.publicresults.FopEventRouter;
 import app.owlcms.publicresults.UpdateReceiverServlet;
 import app.owlcms.uievents.BreakTimerEvent;
 import app.owlcms.uievents.BreakTimerEvent.BreakStart;
+import app.owlcms.uievents.BreakTimerListener;
 import app.owlcms.uievents.BreakType;
 import app.owlcms.uievents.DecisionEvent;
 import app.owlcms.uievents.DecisionEventType;
+import app.owlcms.uievents.DecisionListener;
 import app.owlcms.uievents.UpdateEvent;
+import app.owlcms.uievents.UpdateListener;
 import app.owlcms.utils.StartupUtils;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
@@ -65,7 +66,8 @@ import elemental.json.impl.JreJsonFactory;
 
 
 public class ResultsPR extends PolymerTemplate<TemplateModel>
-        implements DisplayParameters, HasDynamicTitle, SafeEventBusRegistrationPR {
+        implements DisplayParameters, HasDynamicTitle, SafeEventBusRegistrationPR, BreakTimerListener,
+        DecisionListener, UpdateListener {
 
     final private static Logger logger = (Logger) LoggerFactory.getLogger(ResultsPR.class);
     final private static Logger uiEventLogger = (Logger) LoggerFactory.getLogger("UI" + logger.getName());
@@ -282,23 +284,15 @@ public class ResultsPR extends PolymerTemplate<TemplateModel>
         this.silenced = silenced;
     }
 
-    @Subscribe
+    @Override
     public void slaveBreakDone(BreakTimerEvent.BreakDone e) {
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
-            // event is not for us
-            return;
-        }
         logger.debug("### received BreakDone {}");
         this.getElement().callJsFunction("reset");
         needReset = false;
     }
 
-    @Subscribe
-    public void slaveDecisionEvent(DecisionEvent e) {
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
-            // event is not for us
-            return;
-        }
+    @Override
+    public void slaveDecision(DecisionEvent e) {
         // logger.debug("### Results received DecisionEvent {} {} {}", e.getEventType(), e.getRecordKind(),
         // e.getRecordMessage());
         DecisionEventType eventType = e.getEventType();
@@ -340,16 +334,12 @@ public class ResultsPR extends PolymerTemplate<TemplateModel>
         }
     }
 
-    @Subscribe
-    public void slaveGlobalRankingUpdated(UpdateEvent e) {
+    @Override
+    public void slaveOrderUpdated(UpdateEvent e) {
         if (StartupUtils.isDebugSetting()) {
             logger./**/warn("### {} received UpdateEvent {} {} {}", System.identityHashCode(this), getFopName(),
                     e.getFopName(), e);
         }
-        if (getFopName() == null || e.getFopName() == null || !getFopName().contentEquals(e.getFopName())) {
-            // event is not for us
-            return;
-        }
         String fopState = e.getFopState();
         BreakType breakType = e.getBreakType();
 
@@ -427,7 +417,7 @@ public class ResultsPR extends PolymerTemplate<TemplateModel>
                 // also trigger a break timer event to make sure we are in sync with owlcms
                 BreakStart breakStart = new BreakStart(e.getBreakRemaining(), e.isIndefinite());
                 breakStart.setFopName(e.getFopName());
-                TimerReceiverServlet.getEventBus().post(breakStart);
+                FopEventRouter.post(breakStart);
                 needReset = true;
             } else if (!needReset) {
                 // logger.debug("no reset");
@@ -450,14 +440,12 @@ public class ResultsPR extends PolymerTemplate<TemplateModel>
 
         ui = UI.getCurrent();
 
-        eventBusRegister(this, TimerReceiverServlet.getEventBus());
-        eventBusRegister(this, DecisionReceiverServlet.getEventBus());
-        eventBusRegister(this, UpdateReceiverServlet.getEventBus());
+        fopEventRegister(this, getFopName());
 
         // setDarkMode(this, isDarkMode(), false);
         UpdateEvent initEvent = UpdateReceiverServlet.sync(getFopName());
         if (initEvent != null) {
-            slaveGlobalRankingUpdated(initEvent);
+            slaveOrderUpdated(initEvent);
             timer.slaveOrderUpdated(initEvent);
         } else {
             getElement().setProperty("fulName", Translator.translate("WaitingForSite"));
@@ -470,18 +458,7 @@ public class ResultsPR extends PolymerTemplate<TemplateModel>
     @Override
     protected void onDetach(DetachEvent detachEvent) {
         super.onDetach(detachEvent);
-        try {
-            UpdateReceiverServlet.getEventBus().unregister(this);
-        } catch (Exception e) {
-        }
-        try {
-            DecisionReceiverServlet.getEventBus().unregister(this);
-        } catch (Exception e) {
-        }
-        try {
-            TimerReceiverServlet.getEventBus().unregister(this);
-        } catch (Exception e) {
-        }
+        FopEventRouter.unregister(this);
     }
 
     private void doDone(String str) {
@@ -42,7 +42,7 @@ public class ServiceListener implements VaadinServiceInitListener {
      */
     @Override
     public void serviceInit(ServiceInitEvent event) {
-        logger.debug("Vaadin Service Startup Configuration. {} {}", event.toString(), LoggerUtils.whereFrom());
+        logger.debug("Vaadin Service Startup Configuration. {} {}", event.toString(), LoggerUtils.caller());
         event.getSource()
                 .addSessionInitListener(sessionInitEvent -> {
                     sessionInit(sessionInitEvent);
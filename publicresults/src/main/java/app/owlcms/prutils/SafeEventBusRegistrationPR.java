@@ -8,11 +8,11 @@ package app.owlcms.prutils;
 
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.EventBus;
 import com.vaadin.flow.component.Component;
 import com.vaadin.flow.component.UI;
 
 import app.owlcms.components.elements.unload.UnloadObserver;
+import app.owlcms.publicresults.FopEventRouter;
 import app.owlcms.utils.LoggerUtils;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
@@ -22,31 +22,36 @@ public interface SafeEventBusRegistrationPR {
 
 	Logger logger = (Logger) LoggerFactory.getLogger(SafeEventBusRegistrationPR.class);
 
-	public default EventBus eventBusRegister(Component c, EventBus bus) {
+	/**
+	 * Register a component for the events of a platform, and unregister it when the page is closed or left.
+	 *
+	 * @param c the component, which implements the listener interfaces for the events it needs
+	 * @param fopName the platform
+	 */
+	public default void fopEventRegister(Component c, String fopName) {
 
 		{logger.setLevel(Level.INFO);}
 
-		logger.debug("registering {} on bus {} {}",c, bus.identifier(), LoggerUtils.whereFrom());
+		logger.debug("registering {} for platform {} {}",c, fopName, LoggerUtils.caller());
 		UI ui = c.getUI().get();
-		bus.register(c);
+		FopEventRouter.register(fopName, c);
 
         UnloadObserver unloadObserver = UnloadObserver.get(false);
         unloadObserver.addUnloadListener((e) -> {
-            logger.debug("closing: unregister {} from {}", c, bus.identifier());
-            try {bus.unregister(c);} catch (Exception ex) {}
+            logger.debug("closing: unregister {} from {}", c, fopName);
+            FopEventRouter.unregister(c);
             UnloadObserver.remove();
         });
         ui.add(unloadObserver);
 
 		ui.addBeforeLeaveListener((e) -> {
-			logger.debug("leaving: unregister {} from {}", c, bus.identifier());
-			try {bus.unregister(c);} catch (Exception ex) {}
+			logger.debug("leaving: unregister {} from {}", c, fopName);
+			FopEventRouter.unregister(c);
 		});
 		ui.addDetachListener((e) -> {
-			logger.debug("detaching: unregister {} from {}", c, bus.identifier());
-			try {bus.unregister(c);} catch (Exception ex) {}
+			logger.debug("detaching: unregister {} from {}", c, fopName);
+			FopEventRouter.unregister(c);
 		});
-		return bus;
 	}
 
 }
\ No newline at end of file
@@ -10,7 +10,6 @@ import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.Executors;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -20,9 +19,6 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.AsyncEventBus;
-import com.google.common.eventbus.EventBus;
-
 import app.owlcms.uievents.DecisionEvent;
 import app.owlcms.uievents.DecisionEventType;
 import app.owlcms.utils.ProxyUtils;
@@ -33,12 +29,6 @@ import ch.qos.logback.classic.Logger;
 public class DecisionReceiverServlet extends HttpServlet {
 
     private static String defaultFopName;
-    static EventBus eventBus = new AsyncEventBus(DecisionReceiverServlet.class.getSimpleName(),
-            Executors.newCachedThreadPool());
-
-    public static EventBus getEventBus() {
-        return eventBus;
-    }
 
     Logger logger = (Logger) LoggerFactory.getLogger(DecisionReceiverServlet.class);
 
@@ -105,7 +95,7 @@ public class DecisionReceiverServlet extends HttpServlet {
 
         String fopName = decisionEvent.getFopName();
 
-        eventBus.post(decisionEvent);
+        FopEventRouter.post(decisionEvent);
 
         if (defaultFopName == null) {
             defaultFopName = fopName;
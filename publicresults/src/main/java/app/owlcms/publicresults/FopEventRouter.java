@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.publicresults;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.LoggerFactory;
+
+import app.owlcms.uievents.BreakTimerEvent;
+import app.owlcms.uievents.BreakTimerListener;
+import app.owlcms.uievents.DecisionEvent;
+import app.owlcms.uievents.DecisionListener;
+import app.owlcms.uievents.TimerEvent;
+import app.owlcms.uievents.TimerListener;
+import app.owlcms.uievents.UpdateEvent;
+import app.owlcms.uievents.UpdateListener;
+import app.owlcms.utils.LoggerUtils;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Delivers the events received from owlcms to the displays watching the platform they concern.
+ *
+ * Listeners are kept per platform and per listener interface, so an event only reaches the sessions of its platform,
+ * through a plain method call. Each delivery runs as its own task, as it did with the event buses, so a slow session
+ * does not hold back the others. The number of listeners and the time taken to reach all of them are kept for each
+ * platform.
+ *
+ * @author Jean-François Lamy
+ */
+public class FopEventRouter {
+
+    /**
+     * The listeners of a platform, and the fan-out counters.
+     */
+    private static class Route {
+        final CopyOnWriteArrayList<TimerListener> timerListeners = new CopyOnWriteArrayList<>();
+        final CopyOnWriteArrayList<BreakTimerListener> breakTimerListeners = new CopyOnWriteArrayList<>();
+        final CopyOnWriteArrayList<DecisionListener> decisionListeners = new CopyOnWriteArrayList<>();
+        final CopyOnWriteArrayList<UpdateListener> updateListeners = new CopyOnWriteArrayList<>();
+        final AtomicInteger listenerCount = new AtomicInteger();
+        final AtomicLong events = new AtomicLong();
+        final AtomicLong deliveries = new AtomicLong();
+        final AtomicLong fanOutNanos = new AtomicLong();
+        final AtomicLong maxFanOutNanos = new AtomicLong();
+
+        void add(Object listener) {
+            listenerCount.incrementAndGet();
+            if (listener instanceof TimerListener) {
+                timerListeners.addIfAbsent((TimerListener) listener);
+            }
+            if (listener instanceof BreakTimerListener) {
+                breakTimerListeners.addIfAbsent((BreakTimerListener) listener);
+            }
+            if (listener instanceof DecisionListener) {
+                decisionListeners.addIfAbsent((DecisionListener) listener);
+            }
+            if (listener instanceof UpdateListener) {
+                updateListeners.addIfAbsent((UpdateListener) listener);
+            }
+        }
+
+        void fannedOut(int size, long nanos) {
+            events.incrementAndGet();
+            deliveries.addAndGet(size);
+            fanOutNanos.addAndGet(nanos);
+            maxFanOutNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        void remove(Object listener) {
+            listenerCount.decrementAndGet();
+            timerListeners.remove(listener);
+            breakTimerListeners.remove(listener);
+            decisionListeners.remove(listener);
+            updateListeners.remove(listener);
+        }
+
+        @Override
+        public String toString() {
+            long n = events.get();
+            return "listeners=" + listenerCount.get() + " events=" + n + " deliveries=" + deliveries.get()
+                    + String.format(" fanOut avg=%.1fms max=%.1fms", n > 0 ? fanOutNanos.get() / 1000000.0 / n : 0.0,
+                            maxFanOutNanos.get() / 1000000.0);
+        }
+    }
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(FopEventRouter.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    private static final Map<String, Route> routes = new ConcurrentHashMap<>();
+    // listeners interested in every platform
+    private static final Route allFops = new Route();
+    private static final Map<Object, Route> registrations = Collections.synchronizedMap(new IdentityHashMap<>());
+    private static final ExecutorService executor = Executors.newCachedThreadPool();
+
+    /**
+     * @return one line per platform with the number of listeners and the fan-out counters
+     */
+    public static String getStatistics() {
+        StringBuilder sb = new StringBuilder();
+        for (Entry<String, Route> e : new TreeMap<>(routes).entrySet()) {
+            sb.append(e.getKey()).append(": ").append(e.getValue()).append(System.lineSeparator());
+        }
+        sb.append("*: ").append(allFops).append(System.lineSeparator());
+        return sb.toString();
+    }
+
+    /**
+     * @param fopName
+     * @return the number of listeners registered for the platform
+     */
+    public static int getSubscriberCount(String fopName) {
+        Route r = fopName != null ? routes.get(fopName) : null;
+        return r != null ? r.listenerCount.get() : 0;
+    }
+
+    public static void post(BreakTimerEvent e) {
+        if (e instanceof BreakTimerEvent.BreakDone) {
+            BreakTimerEvent.BreakDone be = (BreakTimerEvent.BreakDone) e;
+            fanOut(e.getFopName(), r -> r.breakTimerListeners, l -> l.slaveBreakDone(be));
+        } else if (e instanceof BreakTimerEvent.BreakPaused) {
+            BreakTimerEvent.BreakPaused be = (BreakTimerEvent.BreakPaused) e;
+            fanOut(e.getFopName(), r -> r.breakTimerListeners, l -> l.slaveBreakPause(be));
+        } else if (e instanceof BreakTimerEvent.BreakSetTime) {
+            BreakTimerEvent.BreakSetTime be = (BreakTimerEvent.BreakSetTime) e;
+            fanOut(e.getFopName(), r -> r.breakTimerListeners, l -> l.slaveBreakSet(be));
+        } else if (e instanceof BreakTimerEvent.BreakStart) {
+            BreakTimerEvent.BreakStart be = (BreakTimerEvent.BreakStart) e;
+            fanOut(e.getFopName(), r -> r.breakTimerListeners, l -> l.slaveBreakStart(be));
+        }
+    }
+
+    public static void post(DecisionEvent e) {
+        fanOut(e.getFopName(), r -> r.decisionListeners, l -> l.slaveDecision(e));
+    }
+
+    public static void post(TimerEvent e) {
+        if (e instanceof TimerEvent.SetTime) {
+            TimerEvent.SetTime te = (TimerEvent.SetTime) e;
+            fanOut(e.getFopName(), r -> r.timerListeners, l -> l.slaveSetTimer(te));
+        } else if (e instanceof TimerEvent.StartTime) {
+            TimerEvent.StartTime te = (TimerEvent.StartTime) e;
+            fanOut(e.getFopName(), r -> r.timerListeners, l -> l.slaveStartTimer(te));
+        } else if (e instanceof TimerEvent.StopTime) {
+            TimerEvent.StopTime te = (TimerEvent.StopTime) e;
+            fanOut(e.getFopName(), r -> r.timerListeners, l -> l.slaveStopTimer(te));
+        }
+    }
+
+    public static void post(UpdateEvent e) {
+        fanOut(e.getFopName(), r -> r.updateListeners, l -> l.slaveOrderUpdated(e));
+    }
+
+    /**
+     * Register a listener for the events of a platform, in place of any previous registration.
+     *
+     * The listener receives the events of each listener interface it implements.
+     *
+     * @param fopName  the platform; nothing is received if null
+     * @param listener
+     */
+    public static void register(String fopName, Object listener) {
+        unregister(listener);
+        if (fopName == null) {
+            logger.debug("no platform for {}, not registered", listener);
+            return;
+        }
+        synchronized (registrations) {
+            Route r = routes.computeIfAbsent(fopName, (k) -> new Route());
+            r.add(listener);
+            registrations.put(listener, r);
+        }
+    }
+
+    /**
+     * Register a listener for the events of every platform.
+     *
+     * @param listener
+     */
+    public static void registerForAllFops(Object listener) {
+        unregister(listener);
+        synchronized (registrations) {
+            allFops.add(listener);
+            registrations.put(listener, allFops);
+        }
+    }
+
+    public static void unregister(Object listener) {
+        synchronized (registrations) {
+            Route r = registrations.remove(listener);
+            if (r != null) {
+                r.remove(listener);
+            }
+        }
+    }
+
+    private static <L> void fanOut(String fopName, Function<Route, CopyOnWriteArrayList<L>> listeners,
+            Consumer<L> delivery) {
+        long start = System.nanoTime();
+        Route route = fopName != null ? routes.computeIfAbsent(fopName, (k) -> new Route()) : allFops;
+        Object[] targets = listeners.apply(route).toArray();
+        Object[] everyFop = route != allFops ? listeners.apply(allFops).toArray() : new Object[0];
+        int size = targets.length + everyFop.length;
+        if (size == 0) {
+            return;
+        }
+        AtomicInteger remaining = new AtomicInteger(size);
+        for (Object[] ls : new Object[][] { targets, everyFop }) {
+            for (Object l : ls) {
+                executor.execute(() -> {
+                    try {
+                        @SuppressWarnings("unchecked")
+                        L listener = (L) l;
+                        delivery.accept(listener);
+                    } catch (Exception e) {
+                        logger.error(LoggerUtils.stackTrace(e));
+                    } finally {
+                        if (remaining.decrementAndGet() == 0) {
+                            long elapsed = System.nanoTime() - start;
+                            route.fannedOut(size, elapsed);
+                            logger.trace("{} delivered to {} listeners in {}ms", fopName, size,
+                                    elapsed / 1000000.0);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+}
@@ -19,6 +19,7 @@ import com.google.common.util.concurrent.Runnables;
 
 import app.owlcms.i18n.Translator;
 import app.owlcms.servlet.EmbeddedJetty;
+import app.owlcms.servlet.ServerStatisticsHandler;
 import app.owlcms.utils.ResourceWalker;
 import app.owlcms.utils.StartupUtils;
 import ch.qos.logback.classic.Logger;
@@ -91,6 +92,7 @@ public class Main {
         });
 
         // technical initializations
+        ServerStatisticsHandler.addSection("platform events", FopEventRouter::getStatistics);
         //System.setProperty("java.net.preferIPv4Stack", "true");
         
 
@@ -14,7 +14,6 @@ import java.util.Set;
 
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.Subscribe;
 import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.Text;
@@ -28,12 +27,13 @@ import com.vaadin.flow.router.Route;
 import app.owlcms.displays.scoreboard.ResultsPR;
 import app.owlcms.i18n.Translator;
 import app.owlcms.uievents.UpdateEvent;
+import app.owlcms.uievents.UpdateListener;
 import app.owlcms.utils.URLUtils;
 import ch.qos.logback.classic.Logger;
 
 @Route
 
-public class MainView extends VerticalLayout {
+public class MainView extends VerticalLayout implements UpdateListener {
 
     static Text text;
 
@@ -49,8 +49,8 @@ public class MainView extends VerticalLayout {
         }
     }
 
-    @Subscribe
-    public void update(UpdateEvent e) {
+    @Override
+    public void slaveOrderUpdated(UpdateEvent e) {
         if (ui == null) {
             logger.error("ui is null!?");
             return;
@@ -65,16 +65,13 @@ public class MainView extends VerticalLayout {
         logger.debug("onAttach");
         super.onAttach(attachEvent);
         ui = UI.getCurrent();
-        UpdateReceiverServlet.getEventBus().register(this);
+        FopEventRouter.registerForAllFops(this);
     }
 
     @Override
     protected void onDetach(DetachEvent detachEvent) {
         super.onDetach(detachEvent);
-        try {
-            UpdateReceiverServlet.getEventBus().unregister(this);
-        } catch (Exception e) {
-        }
+        FopEventRouter.unregister(this);
     }
 
     private void buildHomePage() {
@@ -10,7 +10,6 @@ import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.Executors;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -21,9 +20,6 @@ import javax.servlet.http.HttpServletResponse;
 import org.eclipse.jetty.util.Utf8Appendable.NotUtf8Exception;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.AsyncEventBus;
-import com.google.common.eventbus.EventBus;
-
 import app.owlcms.uievents.BreakTimerEvent;
 import app.owlcms.uievents.TimerEvent;
 import app.owlcms.utils.LoggerUtils;
@@ -35,12 +31,6 @@ import ch.qos.logback.classic.Logger;
 public class TimerReceiverServlet extends HttpServlet {
 
     private static String defaultFopName;
-    static EventBus eventBus = new AsyncEventBus(TimerReceiverServlet.class.getSimpleName(),
-            Executors.newCachedThreadPool());
-
-    public static EventBus getEventBus() {
-        return eventBus;
-    }
 
     Logger logger = (Logger) LoggerFactory.getLogger(TimerReceiverServlet.class);
 
@@ -117,11 +107,11 @@ public class TimerReceiverServlet extends HttpServlet {
 
             if (timerEvent != null) {
                 timerEvent.setFopName(fopName);
-                eventBus.post(timerEvent);
+                FopEventRouter.post(timerEvent);
             }
             if (breakTimerEvent != null) {
                 breakTimerEvent.setFopName(fopName);
-                eventBus.post(breakTimerEvent);
+                FopEventRouter.post(breakTimerEvent);
             }
 
             if (defaultFopName == null) {
@@ -11,7 +11,6 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.Executors;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -21,9 +20,6 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.AsyncEventBus;
-import com.google.common.eventbus.EventBus;
-
 import app.owlcms.uievents.BreakType;
 import app.owlcms.uievents.UpdateEvent;
 import app.owlcms.utils.LoggerUtils;
@@ -37,15 +33,9 @@ import ch.qos.logback.classic.Logger;
 public class UpdateReceiverServlet extends HttpServlet {
 
     private static String defaultFopName;
-    static EventBus eventBus = new AsyncEventBus(UpdateReceiverServlet.class.getSimpleName(),
-            Executors.newCachedThreadPool());
     private static Map<String, UpdateEvent> updateCache = new HashMap<>();
     static long lastUpdate = 0;
 
-    public static EventBus getEventBus() {
-        return eventBus;
-    }
-
     public static Map<String, UpdateEvent> getUpdateCache() {
         return updateCache;
     }
@@ -176,11 +166,11 @@ public class UpdateReceiverServlet extends HttpServlet {
                     logger./**/warn("duplicate event ignored");
                 } else {
                     updateCache.put(fopName, updateEvent);
-                    eventBus.post(updateEvent);
+                    FopEventRouter.post(updateEvent);
                 }
             } else {
                 updateCache.put(fopName, updateEvent);
-                eventBus.post(updateEvent);
+                FopEventRouter.post(updateEvent);
             }
 
             if (defaultFopName == null) {
@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.uievents;
+
+/**
+ * Receives the break timer events of the platform it is registered for.
+ */
+public interface BreakTimerListener {
+
+    public default void slaveBreakDone(BreakTimerEvent.BreakDone e) {
+    }
+
+    public default void slaveBreakPause(BreakTimerEvent.BreakPaused e) {
+    }
+
+    public default void slaveBreakSet(BreakTimerEvent.BreakSetTime e) {
+    }
+
+    public default void slaveBreakStart(BreakTimerEvent.BreakStart e) {
+    }
+
+}
@@ -0,0 +1,16 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.uievents;
+
+/**
+ * Receives the referee decisions of the platform it is registered for.
+ */
+public interface DecisionListener {
+
+    public void slaveDecision(DecisionEvent e);
+
+}
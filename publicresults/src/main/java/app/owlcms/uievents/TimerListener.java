@@ -0,0 +1,23 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.uievents;
+
+/**
+ * Receives the athlete timer events of the platform it is registered for.
+ */
+public interface TimerListener {
+
+    public default void slaveSetTimer(TimerEvent.SetTime e) {
+    }
+
+    public default void slaveStartTimer(TimerEvent.StartTime e) {
+    }
+
+    public default void slaveStopTimer(TimerEvent.StopTime e) {
+    }
+
+}
@@ -26,10 +26,12 @@ import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.handler.ContextHandler.Context;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
 import org.eclipse.jetty.servlet.ErrorPageErrorHandler;
-import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.webapp.Configuration;
 import org.eclipse.jetty.webapp.FragmentConfiguration;
 import org.eclipse.jetty.webapp.JettyWebXmlConfiguration;
@@ -119,10 +121,8 @@ public class EmbeddedJetty {
         servletContext.setExtendedListenerTypes(true);
         context.addEventListener(new ServletContextListeners());
 
-        server = new Server(port);
-        server.setHandler(context);
-        ServletContextHandler scHandler = (ServletContextHandler) server.getHandler();
-        scHandler.getServletHandler().addFilterWithMapping(HttpsEnforcer.class, "/*",
+        server = createServer(port, context);
+        context.getServletHandler().addFilterWithMapping(HttpsEnforcer.class, "/*",
                 EnumSet.of(DispatcherType.REQUEST));
 
         initConfig.run();
@@ -172,6 +172,54 @@ public class EmbeddedJetty {
         return this;
     }
 
+    /**
+     * Create the server with an explicitly sized thread pool and connector.
+     *
+     * The sizes come from the parameters below (environment variable OWLCMS_JETTYMAXTHREADS, or -DjettyMaxThreads, and
+     * so on); the defaults are Jetty's. A negative number of acceptors or selectors lets Jetty choose according to the
+     * number of processors, an accept queue of 0 uses the operating system default.
+     * <ul>
+     * <li>jettyMinThreads, jettyMaxThreads, jettyThreadIdleTimeout (ms)</li>
+     * <li>jettyAcceptors, jettySelectors, jettyIdleTimeout (ms), jettyAcceptQueue</li>
+     * </ul>
+     * Requests are counted by a {@link StatisticsHandler} and their latency by a {@link ServerStatisticsHandler},
+     * reported at {@link ServerStatisticsHandler#STATISTICS_PATH} to local requests.
+     *
+     * @param port
+     * @param context
+     * @return the server
+     */
+    private Server createServer(int port, WebAppContext context) {
+        QueuedThreadPool threadPool = new QueuedThreadPool(
+                StartupUtils.getIntegerParam("jettyMaxThreads", 200),
+                StartupUtils.getIntegerParam("jettyMinThreads", 8),
+                StartupUtils.getIntegerParam("jettyThreadIdleTimeout", 60000));
+        threadPool.setName("jetty");
+        Server server = new Server(threadPool);
+
+        ServerConnector connector = new ServerConnector(server,
+                StartupUtils.getIntegerParam("jettyAcceptors", -1),
+                StartupUtils.getIntegerParam("jettySelectors", -1));
+        connector.setPort(port);
+        connector.setIdleTimeout(StartupUtils.getIntegerParam("jettyIdleTimeout", 30000));
+        connector.setAcceptQueueSize(StartupUtils.getIntegerParam("jettyAcceptQueue", 0));
+        server.addConnector(connector);
+
+        StatisticsHandler statisticsHandler = new StatisticsHandler();
+        ServerStatisticsHandler latencyHandler = new ServerStatisticsHandler(threadPool, connector,
+                statisticsHandler);
+        latencyHandler.setHandler(context);
+        statisticsHandler.setHandler(latencyHandler);
+        server.setHandler(statisticsHandler);
+
+        getStartLogger().info(
+                "threads min={} max={} idleTimeout={}ms, connector acceptors={} selectors={} idleTimeout={}ms acceptQueue={}",
+                threadPool.getMinThreads(), threadPool.getMaxThreads(), threadPool.getIdleTimeout(),
+                connector.getAcceptors(), connector.getSelectorManager().getSelectorCount(),
+                connector.getIdleTimeout(), connector.getAcceptQueueSize());
+        return server;
+    }
+
     /**
      * Don't reveal version number in headers.
      *
@@ -20,21 +20,27 @@
 
 package app.owlcms.servlet;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletException;
@@ -62,6 +68,10 @@ import ch.qos.logback.classic.Logger;
  * Modified to fetch files under the ./local directory relative to the startup directory and, failing that, as a
  * resource on the classpath.
  *
+ * The metadata and the gzip encoding of each file are kept in a bounded cache, so the styles, scripts and translations
+ * that every display fetches when it (re)connects are compressed once per version of the file. The cache is emptied
+ * when the local override directory changes.
+ *
  * @author Jean-François Lamy
  *
  */
@@ -93,12 +103,33 @@ public class FileServlet extends HttpServlet {
 
     }
 
+    /**
+     * Metadata of a file, and its gzip encoding once requested. Replaced when the file changes.
+     */
+    private static class CachedResource {
+        final long length;
+        final long lastModified;
+        final String eTag;
+        final String gzipETag;
+        volatile byte[] gzipped;
+
+        CachedResource(String fileName, long length, long lastModified) {
+            this.length = length;
+            this.lastModified = lastModified;
+            String tag = fileName + "_" + length + "_" + lastModified;
+            this.eTag = "\"" + tag + "\"";
+            this.gzipETag = "\"" + tag + "_gz\"";
+        }
+    }
+
     // Constants ----------------------------------------------------------------------------------
 
     private static final long serialVersionUID = -4889625575833532034L;
 
     private static final int DEFAULT_BUFFER_SIZE = 10240; // ..bytes = 10KB.
     private static final long DEFAULT_EXPIRE_TIME = 604800000L; // ..ms = 1 week.
+    private static final int MAX_CACHED_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_CACHED_FILE_SIZE = 2 * 1024 * 1024; // larger files are compressed on the fly.
 
     // Properties ---------------------------------------------------------------------------------
 
@@ -108,9 +139,24 @@ public class FileServlet extends HttpServlet {
 
     private static boolean ignoreCaching = false;
 
+    // access-ordered, the least recently used entries are evicted first.
+    private static final LinkedHashMap<Path, CachedResource> resourceCache = new LinkedHashMap<>(64, 0.75f, true);
+    private static long cachedBytes = 0;
+    private static Path cachedLocalDir = null;
+
     private static Logger logger = (Logger) LoggerFactory.getLogger(FileServlet.class);
 //    { logger.setLevel(Level.DEBUG); }
 
+    /**
+     * Forget all cached metadata and encodings.
+     */
+    public static void clearCache() {
+        synchronized (resourceCache) {
+            resourceCache.clear();
+            cachedBytes = 0;
+        }
+    }
+
     /**
      * @return the ignoreCaching
      */
@@ -159,6 +205,20 @@ public class FileServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Returns true for content worth compressing.
+     *
+     * @param contentType The content type, without parameters.
+     * @return True if the content is text.
+     */
+    private static boolean compressible(String contentType) {
+        return contentType.startsWith("text")
+                || contentType.equals("application/javascript")
+                || contentType.equals("application/json")
+                || contentType.equals("application/xml")
+                || contentType.equals("image/svg+xml");
+    }
+
     /**
      * Copy the given byte range of the given input to the given output.
      *
@@ -191,6 +251,95 @@ public class FileServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Get the metadata for the file, reading it from disk only when not cached. Files on the default file system may
+     * be edited in place, so their attributes are checked; the classpath resources and the in-memory override
+     * directory do not change while it is in use.
+     *
+     * @param file The file.
+     * @return The cached metadata, current for the file.
+     * @throws IOException If the attributes cannot be read.
+     */
+    private static CachedResource getCachedResource(Path file) throws IOException {
+        boolean mutable = file.getFileSystem() == FileSystems.getDefault();
+        CachedResource cached;
+        synchronized (resourceCache) {
+            Path localDir = ResourceWalker.getLocalDirPath();
+            if (!Objects.equals(localDir, cachedLocalDir)) {
+                clearCache();
+                cachedLocalDir = localDir;
+            }
+            cached = resourceCache.get(file);
+        }
+        if (cached != null && !mutable) {
+            return cached;
+        }
+
+        BasicFileAttributes attr = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attr.size();
+        long lastModified = attr.lastModifiedTime().toMillis();
+        if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+            return cached;
+        }
+        CachedResource current = new CachedResource(file.getFileName().toString(), length, lastModified);
+        synchronized (resourceCache) {
+            CachedResource previous = resourceCache.put(file, current);
+            if (previous != null && previous.gzipped != null) {
+                cachedBytes -= previous.gzipped.length;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Get the gzip encoding of the file, compressing it on first use.
+     *
+     * @param file   The file.
+     * @param cached Its cache entry.
+     * @return The compressed bytes.
+     * @throws IOException If the file cannot be read.
+     */
+    private static byte[] getGzipped(Path file, CachedResource cached) throws IOException {
+        byte[] gzipped = cached.gzipped;
+        if (gzipped != null) {
+            return gzipped;
+        }
+        synchronized (cached) {
+            if (cached.gzipped != null) {
+                return cached.gzipped;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) (cached.length / 3) + 64);
+            // compressed once, so take the time to compress well.
+            try (GZIPOutputStream gzip = new GZIPOutputStream(bytes, DEFAULT_BUFFER_SIZE) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                Files.copy(file, gzip);
+            }
+            gzipped = bytes.toByteArray();
+            cached.gzipped = gzipped;
+        }
+
+        synchronized (resourceCache) {
+            if (resourceCache.get(file) == cached) {
+                cachedBytes += gzipped.length;
+                Iterator<Map.Entry<Path, CachedResource>> it = resourceCache.entrySet().iterator();
+                while (cachedBytes > MAX_CACHED_BYTES && it.hasNext()) {
+                    CachedResource eldest = it.next().getValue();
+                    if (eldest != cached) {
+                        it.remove();
+                        if (eldest.gzipped != null) {
+                            cachedBytes -= eldest.gzipped.length;
+                        }
+                    }
+                }
+            }
+        }
+        logger.debug("compressed {} {} -> {}", file, cached.length, gzipped.length);
+        return gzipped;
+    }
+
     /**
      * Returns true if the given match header matches the given value.
      *
@@ -323,8 +472,8 @@ public class FileServlet extends HttpServlet {
     }
 
     private Path getPathForResource(HttpServletResponse response, String resourceName)
-            throws IOException, FileNotFoundException {
-        Path target = ResourceWalker.getFileOrResourcePath(resourceName);
+            throws IOException {
+        Path target = ResourceWalker.findFileOrResourcePath(resourceName);
         if (target == null) {
             logger./**/error("resource or override not found {}", resourceName);
             response.sendError(HttpServletResponse.SC_NOT_FOUND);
@@ -355,13 +504,13 @@ public class FileServlet extends HttpServlet {
             return;
         }
 
-        // Prepare some variables. The ETag is an unique identifier of the file.
+        // Prepare some variables. The ETag is an unique identifier of the file, the gzip encoding has its own.
         String fileName = file.getFileName().toString();
-        BasicFileAttributes attr = Files.readAttributes(file, BasicFileAttributes.class);
+        CachedResource cached = getCachedResource(file);
 
-        long length = attr.size();
-        long lastModified = attr.lastModifiedTime().toMillis();
-        String eTag = fileName + "_" + length + "_" + lastModified;
+        long length = cached.length;
+        long lastModified = cached.lastModified;
+        String eTag = cached.eTag;
         long expires;
         if (isIgnoreCaching()) {
             expires = System.currentTimeMillis() - 2000; // already expired to force reload
@@ -369,6 +518,27 @@ public class FileServlet extends HttpServlet {
             expires = System.currentTimeMillis() + DEFAULT_EXPIRE_TIME;
         }
 
+        // Get content type by file name and determine GZIP support -------------------------------
+
+        String contentType = getServletContext().getMimeType(fileName);
+
+        // If content type is unknown, then set the default value.
+        // For all content types, see: http://www.w3schools.com/media/media_mimeref.asp
+        // To add new content types, add new mime-mapping entry in web.xml.
+        if (contentType == null) {
+            contentType = "application/octet-stream";
+        }
+
+        // If content type is text, then determine whether GZIP content encoding is supported by
+        // the browser.
+        boolean compressible = compressible(contentType);
+        boolean acceptsGzip = false;
+        if (compressible) {
+            String acceptEncoding = request.getHeader("Accept-Encoding");
+            acceptsGzip = acceptEncoding != null && accepts(acceptEncoding, "gzip");
+        }
+        String responseETag = acceptsGzip ? cached.gzipETag : eTag;
+
         // Validate request headers for caching ---------------------------------------------------
 
         // Cache-Control
@@ -380,9 +550,9 @@ public class FileServlet extends HttpServlet {
         if (!noCache) {
             // If-None-Match header should contain "*" or ETag. If so, then return 304.
             String ifNoneMatch = request.getHeader("If-None-Match");
-            if (ifNoneMatch != null && matches(ifNoneMatch, eTag)) {
+            if (ifNoneMatch != null && (matches(ifNoneMatch, responseETag) || matches(ifNoneMatch, eTag))) {
                 response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-                response.setHeader("ETag", eTag); // Required in 304.
+                response.setHeader("ETag", responseETag); // Required in 304.
                 response.setDateHeader("Expires", expires); // Postpone cache with 1 week.
                 return;
             }
@@ -392,7 +562,7 @@ public class FileServlet extends HttpServlet {
             long ifModifiedSince = request.getDateHeader("If-Modified-Since");
             if (ifNoneMatch == null && ifModifiedSince != -1 && ifModifiedSince + 1000 > lastModified) {
                 response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-                response.setHeader("ETag", eTag); // Required in 304.
+                response.setHeader("ETag", responseETag); // Required in 304.
                 response.setDateHeader("Expires", expires); // Postpone cache with 1 week.
                 return;
             }
@@ -402,7 +572,7 @@ public class FileServlet extends HttpServlet {
 
         // If-Match header should contain "*" or ETag. If not, then return 412.
         String ifMatch = request.getHeader("If-Match");
-        if (ifMatch != null && !matches(ifMatch, eTag)) {
+        if (ifMatch != null && !matches(ifMatch, eTag) && !matches(ifMatch, responseETag)) {
             response.sendError(HttpServletResponse.SC_PRECONDITION_FAILED);
             return;
         }
@@ -475,29 +645,17 @@ public class FileServlet extends HttpServlet {
 
         // Prepare and initialize response --------------------------------------------------------
 
-        // Get content type by file name and set default GZIP support and content disposition.
-        String contentType = getServletContext().getMimeType(fileName);
-        boolean acceptsGzip = false;
+        // Set content disposition.
         String disposition = "inline";
 
-        // If content type is unknown, then set the default value.
-        // For all content types, see: http://www.w3schools.com/media/media_mimeref.asp
-        // To add new content types, add new mime-mapping entry in web.xml.
-        if (contentType == null) {
-            contentType = "application/octet-stream";
-        }
-
-        // If content type is text, then determine whether GZIP content encoding is supported by
-        // the browser and expand content type with the one and right character encoding.
+        // If content type is text, then expand content type with the one and right character encoding.
         if (contentType.startsWith("text")) {
-            String acceptEncoding = request.getHeader("Accept-Encoding");
-            acceptsGzip = acceptEncoding != null && accepts(acceptEncoding, "gzip");
             contentType += ";charset=UTF-8";
         }
 
         // Else, expect for images, determine content disposition. If content type is supported by
         // the browser, then set to inline, else attachment which will pop a 'save as' dialogue.
-        else if (!contentType.startsWith("image")) {
+        else if (!contentType.startsWith("image") && !compressible) {
             String accept = request.getHeader("Accept");
             disposition = accept != null && accepts(accept, contentType) ? "inline" : "attachment";
         }
@@ -507,7 +665,9 @@ public class FileServlet extends HttpServlet {
         response.setBufferSize(DEFAULT_BUFFER_SIZE);
         response.setHeader("Content-Disposition", disposition + ";filename=\"" + fileName + "\"");
         response.setHeader("Accept-Ranges", "bytes");
-        response.setHeader("ETag", eTag);
+        if (compressible) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
         response.setDateHeader("Last-Modified", lastModified);
         response.setDateHeader("Expires", expires);
 
@@ -528,21 +688,31 @@ public class FileServlet extends HttpServlet {
                 // Return full file.
                 Range r = full;
                 response.setContentType(contentType);
-
-                if (content) {
-                    if (acceptsGzip) {
-                        // The browser accepts GZIP, so GZIP the content.
-                        response.setHeader("Content-Encoding", "gzip");
+                response.setHeader("ETag", responseETag);
+                response.setStatus(HttpServletResponse.SC_OK);
+
+                if (acceptsGzip && length <= MAX_CACHED_FILE_SIZE) {
+                    // The browser accepts GZIP, send the cached encoding.
+                    byte[] gzipped = getGzipped(file, cached);
+                    response.setHeader("Content-Encoding", "gzip");
+                    response.setHeader("Content-Length", String.valueOf(gzipped.length));
+                    if (content) {
+                        output.write(gzipped);
+                    }
+                } else if (acceptsGzip) {
+                    // Too large to keep, GZIP on the fly.
+                    // Content length is not directly predictable in that case, else browser will hang.
+                    response.setHeader("Content-Encoding", "gzip");
+                    if (content) {
                         output = new GZIPOutputStream(output, DEFAULT_BUFFER_SIZE);
-                    } else {
-                        // Content length is not directly predictable in case of GZIP.
-                        // So only add it if there is no means of GZIP, else browser will hang.
-                        response.setHeader("Content-Length", String.valueOf(r.length));
+                        copy(in, output, r.start, r.length);
+                    }
+                } else {
+                    response.setHeader("Content-Length", String.valueOf(r.length));
+                    if (content) {
+                        // Copy full range.
+                        copy(in, output, r.start, r.length);
                     }
-                    response.setStatus(HttpServletResponse.SC_OK);
-
-                    // Copy full range.
-                    copy(in, output, r.start, r.length);
                 }
 
             } else if (ranges.size() == 1) {
@@ -550,6 +720,7 @@ public class FileServlet extends HttpServlet {
                 // Return single part of file.
                 Range r = ranges.get(0);
                 response.setContentType(contentType);
+                response.setHeader("ETag", eTag);
                 response.setHeader("Content-Range", "bytes " + r.start + "-" + r.end + "/" + r.total);
                 response.setHeader("Content-Length", String.valueOf(r.length));
                 response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT); // 206.
@@ -563,6 +734,7 @@ public class FileServlet extends HttpServlet {
 
                 // Return multiple parts of file.
                 response.setContentType("multipart/byteranges; boundary=" + MULTIPART_BOUNDARY);
+                response.setHeader("ETag", eTag);
                 response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT); // 206.
 
                 if (content) {
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.servlet;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Durations counted in fixed buckets, from 1ms to 10s.
+ *
+ * Recording does not lock and does not allocate, so it can be done on every request. Percentiles are given as the upper
+ * bound of the bucket that contains them.
+ *
+ * @author Jean-François Lamy
+ */
+class LatencyHistogram {
+
+    // upper bounds, in ms; the last bucket counts everything above
+    private static final long[] BOUNDS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        long ms = nanos / 1000000;
+        int i = 0;
+        while (i < BOUNDS.length && ms >= BOUNDS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return count, mean, percentiles and maximum, in ms
+     */
+    @Override
+    public String toString() {
+        long[] counts = new long[buckets.length];
+        long n = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            n += counts[i];
+        }
+        return String.format("count=%d mean=%.1fms p50%s p90%s p99%s max=%.1fms", n,
+                n > 0 ? totalNanos.sum() / 1000000.0 / n : 0.0,
+                percentile(counts, n, 0.50), percentile(counts, n, 0.90), percentile(counts, n, 0.99),
+                maxNanos.get() / 1000000.0);
+    }
+
+    private String percentile(long[] counts, long n, double p) {
+        if (n == 0) {
+            return "=-";
+        }
+        long rank = (long) Math.ceil(p * n);
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return i < BOUNDS.length ? "<" + BOUNDS[i] + "ms" : ">=" + BOUNDS[BOUNDS.length - 1] + "ms";
+            }
+        }
+        return ">=" + BOUNDS[BOUNDS.length - 1] + "ms";
+    }
+
+}
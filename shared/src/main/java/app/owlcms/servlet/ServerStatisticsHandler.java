@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.servlet;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Request latency per path, and a report of the server statistics at {@link #STATISTICS_PATH}.
+ *
+ * For each request, two durations are recorded: the wait between the moment the request was read and the moment a
+ * thread started handling it, which grows when the thread pool is starved, and the time spent in the handlers, by first
+ * path segment. For asynchronous requests (push), only the time until the handler thread is released is counted; the
+ * {@link StatisticsHandler} counts the full request.
+ *
+ * The report is only given to requests from the local machine that did not go through a proxy.
+ *
+ * @author Jean-François Lamy
+ */
+public class ServerStatisticsHandler extends HandlerWrapper {
+
+    public static final String STATISTICS_PATH = "/jetty/statistics";
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(ServerStatisticsHandler.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    // distinct paths beyond this are counted together
+    private static final int MAX_PATHS = 64;
+    private static final String OTHER_PATHS = "(other)";
+
+    private static final Map<String, Supplier<String>> sections = new ConcurrentHashMap<>();
+
+    /**
+     * Add a section to the report, such as the statistics of an application component.
+     *
+     * @param title
+     * @param content called on every report
+     */
+    public static void addSection(String title, Supplier<String> content) {
+        sections.put(title, content);
+    }
+
+    private final QueuedThreadPool threadPool;
+    private final ServerConnector connector;
+    private final StatisticsHandler statisticsHandler;
+    private final LatencyHistogram dispatchWait = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> byPath = new ConcurrentHashMap<>();
+
+    public ServerStatisticsHandler(QueuedThreadPool threadPool, ServerConnector connector,
+            StatisticsHandler statisticsHandler) {
+        this.threadPool = threadPool;
+        this.connector = connector;
+        this.statisticsHandler = statisticsHandler;
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        if (STATISTICS_PATH.equals(target) && isLocal(request)) {
+            baseRequest.setHandled(true);
+            report(response);
+            return;
+        }
+        long start = System.nanoTime();
+        if (baseRequest.getDispatcherType() == DispatcherType.REQUEST && baseRequest.getTimeStamp() > 0) {
+            dispatchWait.record((System.currentTimeMillis() - baseRequest.getTimeStamp()) * 1000000);
+        }
+        try {
+            super.handle(target, baseRequest, request, response);
+        } finally {
+            histogram(target).record(System.nanoTime() - start);
+        }
+    }
+
+    private LatencyHistogram histogram(String target) {
+        String key = pathKey(target);
+        LatencyHistogram h = byPath.get(key);
+        if (h == null) {
+            if (byPath.size() >= MAX_PATHS) {
+                key = OTHER_PATHS;
+            }
+            h = byPath.computeIfAbsent(key, (k) -> new LatencyHistogram());
+        }
+        return h;
+    }
+
+    private boolean isLocal(HttpServletRequest request) {
+        if (request.getHeader("X-Forwarded-For") != null || request.getHeader(HttpsEnforcer.X_FORWARDED_PROTO) != null) {
+            return false;
+        }
+        try {
+            // the remote address is numeric, no lookup takes place.
+            return InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private String pathKey(String target) {
+        if (target == null || target.length() <= 1) {
+            return "/";
+        }
+        int slash = target.indexOf('/', 1);
+        return slash > 0 ? target.substring(0, slash) : target;
+    }
+
+    private void report(HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain;charset=UTF-8");
+        PrintWriter w = response.getWriter();
+        w.printf("threads: min=%d max=%d current=%d busy=%d idle=%d queued=%d maxAvailable=%d lowOnThreads=%b%n",
+                threadPool.getMinThreads(), threadPool.getMaxThreads(), threadPool.getThreads(),
+                threadPool.getBusyThreads(), threadPool.getIdleThreads(), threadPool.getQueueSize(),
+                threadPool.getMaxAvailableThreads(), threadPool.isLowOnThreads());
+        w.printf("connector: acceptors=%d selectors=%d idleTimeout=%dms acceptQueue=%d%n",
+                connector.getAcceptors(), connector.getSelectorManager().getSelectorCount(),
+                connector.getIdleTimeout(), connector.getAcceptQueueSize());
+        StatisticsHandler s = statisticsHandler;
+        w.printf("requests: total=%d active=%d maxActive=%d mean=%.1fms max=%dms%n",
+                s.getRequests(), s.getRequestsActive(), s.getRequestsActiveMax(), s.getRequestTimeMean(),
+                s.getRequestTimeMax());
+        w.printf("dispatched: total=%d active=%d maxActive=%d mean=%.1fms max=%dms%n",
+                s.getDispatched(), s.getDispatchedActive(), s.getDispatchedActiveMax(), s.getDispatchedTimeMean(),
+                s.getDispatchedTimeMax());
+        w.printf("async: total=%d waiting=%d maxWaiting=%d expires=%d%n",
+                s.getAsyncRequests(), s.getAsyncRequestsWaiting(), s.getAsyncRequestsWaitingMax(), s.getExpires());
+        w.printf("responses: 1xx=%d 2xx=%d 3xx=%d 4xx=%d 5xx=%d bytes=%d%n",
+                s.getResponses1xx(), s.getResponses2xx(), s.getResponses3xx(), s.getResponses4xx(),
+                s.getResponses5xx(), s.getResponsesBytesTotal());
+        w.printf("since: %ds%n", s.getStatsOnMs() / 1000);
+        w.println();
+        w.printf("wait for a thread: %s%n", dispatchWait);
+        w.println();
+        w.println("handler time by path:");
+        for (Entry<String, LatencyHistogram> e : new TreeMap<>(byPath).entrySet()) {
+            w.printf("%s: %s%n", e.getKey(), e.getValue());
+        }
+        for (Entry<String, Supplier<String>> e : new TreeMap<>(sections).entrySet()) {
+            w.println();
+            w.printf("%s:%n", e.getKey());
+            try {
+                w.print(e.getValue().get());
+            } catch (RuntimeException ex) {
+                logger.error("statistics section {}: {}", e.getKey(), ex.toString());
+            }
+        }
+        w.flush();
+    }
+
+}
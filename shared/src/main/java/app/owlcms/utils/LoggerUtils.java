@@ -8,14 +8,89 @@ package app.owlcms.utils;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.lang.StackWalker.StackFrame;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import ch.qos.logback.classic.Logger;
 
 /**
  * The Class LoggerUtils.
+ *
+ * {@link #caller()} and {@link #callStack()} are meant as logging arguments: they return shared objects that only walk
+ * the stack when the message is actually formatted, so a disabled debug or trace statement costs nothing.
  */
 public class LoggerUtils {
 
+    /**
+     * Renders the caller of the logging method (or the call stack) when converted to a string. Must be formatted by
+     * the thread that logs, which is what happens when it is passed as a logging argument.
+     */
+    private static final class LazyCaller {
+        private final int depth;
+        private final boolean wholeStack;
+
+        private LazyCaller(int depth, boolean wholeStack) {
+            this.depth = depth;
+            this.wholeStack = wholeStack;
+        }
+
+        @Override
+        public String toString() {
+            return walker.walk(frames -> {
+                // skip this class, the string conversions and the logging framework to get to the logging method.
+                Stream<StackFrame> fromLoggingMethod = frames.dropWhile(LoggerUtils::isLoggingFrame);
+                if (wholeStack) {
+                    return format(fromLoggingMethod.takeWhile(NOT_VAADIN));
+                }
+                return fromLoggingMethod.skip(1L + depth).findFirst().map(LoggerUtils::where).orElse("");
+            });
+        }
+    }
+
+    private static final StackWalker walker = StackWalker.getInstance();
+
+    private static final Predicate<StackFrame> NOT_VAADIN = f -> !f.getClassName().startsWith("com.vaadin.flow.server.")
+            && !f.getClassName().startsWith("com.vaadin.flow.internal");
+
+    private static final LazyCaller[] CALLERS = {
+            new LazyCaller(0, false),
+            new LazyCaller(1, false),
+            new LazyCaller(2, false),
+            new LazyCaller(3, false) };
+
+    private static final LazyCaller CALL_STACK = new LazyCaller(0, true);
+
+    /**
+     * Lazy equivalent of {@link #stackTrace()}, for use as a logging argument.
+     *
+     * @return an object whose string value is the call stack of the logging method
+     */
+    public static Object callStack() {
+        return CALL_STACK;
+    }
+
+    /**
+     * Lazy equivalent of {@link #whereFrom()}, for use as a logging argument.
+     *
+     * @return an object whose string value is the location that called the logging method
+     */
+    public static Object caller() {
+        return CALLERS[0];
+    }
+
+    /**
+     * Lazy equivalent of {@link #whereFrom(int)}, for use as a logging argument.
+     *
+     * @param depth additional depth
+     * @return an object whose string value is the location that called the logging method, depth levels up
+     */
+    public static Object caller(int depth) {
+        return depth < CALLERS.length ? CALLERS[depth] : new LazyCaller(depth, false);
+    }
+
     /**
      * @param e1
      * @return
@@ -44,23 +119,26 @@ public class LoggerUtils {
      * @return the string
      */
     public static String stackTrace() {
-        StringWriter sw = new StringWriter();
-        PrintWriter pw = new PrintWriter(sw);
-        StackTraceElement[] trace = Thread.currentThread().getStackTrace();
-        int i = 0;
-        for (StackTraceElement ste : trace) {
-            String string = ste.toString();
-            if (string.startsWith("com.vaadin.flow.server.")
-                    || string.startsWith("com.vaadin.flow.internal")) {
-                break;
-            }
-            if (i > 1) {
-                pw.println("\t" + string);
-            }
-
-            i++;
-        }
-        return sw.toString();
+        return format(stackFrames(1));
+    }
+
+    /**
+     * The frames of the caller's stack, up to the Vaadin request handling. Cheaper than {@link #stackTrace()} when
+     * the frames are kept for later formatting.
+     *
+     * @param depth number of frames to skip, 0 to start at the caller
+     * @return the frames
+     */
+    public static List<StackFrame> stackFrames(int depth) {
+        return walker.walk(frames -> frames.skip(1L + depth).takeWhile(NOT_VAADIN).collect(Collectors.toList()));
+    }
+
+    /**
+     * @param frames
+     * @return the frames, one per line, in the format of {@link #stackTrace()}
+     */
+    public static String format(List<StackFrame> frames) {
+        return format(frames.stream());
     }
 
     /**
@@ -90,8 +168,33 @@ public class LoggerUtils {
      * @return the string
      */
     public static String whereFrom(int depth) {
-        String where = Thread.currentThread().getStackTrace()[3 + depth].toString();
+        return walker.walk(frames -> frames.skip(2L + depth).findFirst().map(LoggerUtils::where).orElse(""));
+    }
+
+    /**
+     * @param frame
+     * @return the frame in the format of {@link #whereFrom()}
+     */
+    public static String where(StackFrame frame) {
+        String where = frame.toStackTraceElement().toString();
         int firstBracketIx = where.indexOf('(');
         return where.substring(firstBracketIx);
     }
+
+    private static String format(Stream<StackFrame> frames) {
+        StringWriter sw = new StringWriter();
+        PrintWriter pw = new PrintWriter(sw);
+        frames.forEach(f -> pw.println("\t" + f.toStackTraceElement()));
+        return sw.toString();
+    }
+
+    private static boolean isLoggingFrame(StackFrame f) {
+        String className = f.getClassName();
+        return className.startsWith("app.owlcms.utils.LoggerUtils")
+                || className.startsWith("ch.qos.logback.")
+                || className.startsWith("org.slf4j.")
+                || className.startsWith("java.")
+                || className.startsWith("jdk.internal.")
+                || className.startsWith("sun.");
+    }
 }
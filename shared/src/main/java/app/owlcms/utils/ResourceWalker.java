@@ -13,6 +13,7 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystemAlreadyExistsException;
 import java.nio.file.FileSystemNotFoundException;
@@ -22,6 +23,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -30,6 +35,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -50,8 +57,40 @@ import ch.qos.logback.classic.Logger;
  */
 public class ResourceWalker {
 
+    /**
+     * Where a name was found: in the local override directory, on the classpath, or nowhere.
+     */
+    private static class Resolution {
+        final Path path;
+        final boolean local;
+
+        Resolution(Path path, boolean local) {
+            this.path = path;
+            this.local = local;
+        }
+    }
+
+    private static final Resolution NOT_FOUND = new Resolution(null, false);
+
+    /**
+     * Bound on the number of remembered names; names come from team names and the like, so this is a safeguard.
+     */
+    private static final int MAX_RESOLUTIONS = 10000;
+
     static Logger logger = (Logger) LoggerFactory.getLogger(ResourceWalker.class);
 
+    /**
+     * Resolved names, including the ones that were not found. Emptied whenever the override directory changes.
+     */
+    private static final Map<String, Resolution> resolutions = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on invalidation, so a lookup that overlaps an invalidation does not store a stale result.
+     */
+    private static final AtomicLong resolutionGeneration = new AtomicLong();
+
+    private static WatchService localDirWatcher;
+
     private static boolean initializedLocalDir = false;
 
     private static Path localDirPath = null;
@@ -100,6 +139,17 @@ public class ResourceWalker {
         }
     }
 
+    /**
+     * Look for a file in the local override directory structure and, failing that, as a resource on the classpath.
+     * The result is remembered, including when nothing is found, until the override directory changes.
+     *
+     * @param name the file or directory name, relative to the override directory or to the classpath root
+     * @return the path, null if not found
+     */
+    public static Path findFileOrResourcePath(String name) {
+        return resolve(name).path;
+    }
+
     /**
      * Fetch a named file content. First looking in a local override directory structure, and if not found, as a
      * resource on the classpath.
@@ -109,23 +159,19 @@ public class ResourceWalker {
      * @throws FileNotFoundException
      */
     public static InputStream getFileOrResource(String name) throws FileNotFoundException {
-        InputStream is = null;
-        String relativeName;
-        if (name.startsWith("/")) {
-            relativeName = name.substring(1);
-        } else {
-            relativeName = name;
-        }
-        Path localDirPath2 = getLocalDirPath();
-        Path target = null;
-        if (localDirPath2 != null) {
-            target = localDirPath2.resolve(relativeName);
+        if (!name.startsWith("/")) {
+            // the classpath lookup is relative to this class, not cached.
+            return getUncachedFileOrResource(name);
         }
-        if (target != null && Files.exists(target)) {
+        Resolution resolution = resolve(name);
+        if (resolution.path == null) {
+            logger.trace("not found {} {}", name, LoggerUtils.caller(1));
+            throw new FileNotFoundException(name);
+        } else if (resolution.local) {
             try {
-                logger.trace("found overridden resource {} at {} {}", name, target.toAbsolutePath(),
-                        LoggerUtils.whereFrom(1));
-                return Files.newInputStream(target);
+                logger.trace("found overridden resource {} at {} {}", name, resolution.path.toAbsolutePath(),
+                        LoggerUtils.caller(1));
+                return Files.newInputStream(resolution.path);
             } catch (IOException e) {
                 if (name.trim().contentEquals("/") || name.isBlank()) {
                     // exists but is top level
@@ -135,15 +181,13 @@ public class ResourceWalker {
                 }
             }
         } else {
-            is = ResourceWalker.class.getResourceAsStream(name);
-            if (is != null) {
-                logger.trace("found classpath resource {} {}", name, LoggerUtils.whereFrom(1));
-            } else {
-                logger.trace("not found {} {}", name, LoggerUtils.whereFrom(1));
+            InputStream is = ResourceWalker.class.getResourceAsStream(name);
+            if (is == null) {
                 throw new FileNotFoundException(name);
             }
+            logger.trace("found classpath resource {} {}", name, LoggerUtils.caller(1));
+            return is;
         }
-        return is;
     }
 
     /**
@@ -155,31 +199,9 @@ public class ResourceWalker {
      * @throws FileNotFoundException
      */
     public static Path getFileOrResourcePath(String name) throws FileNotFoundException {
-        String relativeName;
-        if (name.startsWith("/")) {
-            relativeName = name.substring(1);
-        } else {
-            relativeName = name;
-        }
-        Path localDirPath2 = getLocalDirPath();
-        Path target = null;
-        if (localDirPath2 != null) {
-            target = localDirPath2.resolve(relativeName);
-        }
-        if (target != null && Files.exists(target)) {
-            logger.trace("found overridden resource {} at {} {}", name, target.toAbsolutePath(),
-                    LoggerUtils.whereFrom(1));
-            return target;
-        } else {
-            String resName = "/" + relativeName;
-            target = getResourcePath(resName);
-            if (target != null) {
-                logger.trace("found classpath resource {} {}", name, LoggerUtils.whereFrom(1));
-            } else {
-                logger.trace("not found {} {}", target, resName);
-                throw new FileNotFoundException(name);
-            }
-
+        Path target = findFileOrResourcePath(name);
+        if (target == null) {
+            throw new FileNotFoundException(name);
         }
         return target;
     }
@@ -199,114 +221,23 @@ public class ResourceWalker {
     }
 
     public static InputStream getLocalizedResourceAsStream(String resourceName) {
-        int extensionPos = resourceName.lastIndexOf('.');
-        String extension = resourceName.substring(extensionPos);
-        String baseName = resourceName.substring(0, extensionPos);
-
-        Locale locale = getLocaleSupplier().get();
-
-        String suffix = "_" + locale.getLanguage() + "_" + locale.getCountry() + "_" + locale.getVariant();
-        InputStream result;
-        try {
-            result = getResourceAsStream(baseName + suffix + extension);
-            return result;
-        } catch (FileNotFoundException e1) {
-            // ignore
-        }
-
-        suffix = "_" + locale.getLanguage() + "_" + locale.getCountry();
-        try {
-            result = getResourceAsStream(baseName + suffix + extension);
-            return result;
-        } catch (FileNotFoundException e) {
-            // ignore
-        }
-
-        suffix = "_" + locale.getLanguage();
-        try {
-            result = getResourceAsStream(baseName + suffix + extension);
-            return result;
-        } catch (FileNotFoundException e) {
-            // ignore
-        }
-
-        suffix = "_en";
-        try {
-            result = getResourceAsStream(baseName + suffix + extension);
-            return result;
-        } catch (FileNotFoundException e) {
-            // ignore
+        String name = findLocalizedName(resourceName);
+        if (name == null) {
+            return null;
         }
-
         try {
-            suffix = "";
-            result = getResourceAsStream(baseName + suffix + extension);
-            return result;
+            return getResourceAsStream(name);
         } catch (FileNotFoundException e) {
             return null;
         }
-
     }
 
     public static String getLocalizedResourceName(String rawName) throws FileNotFoundException {
-        int extensionPos = rawName.lastIndexOf('.');
-        String extension = rawName.substring(extensionPos);
-        String baseName = rawName.substring(0, extensionPos);
-
-        Locale locale = getLocaleSupplier().get();
-
-        String suffix = "_" + locale.getLanguage() + "_" + locale.getCountry() + "_" + locale.getVariant();
-        String name = baseName + suffix + extension;
-        InputStream result;
-        try {
-            result = getResourceAsStream(name);
-            if (result != null) {
-                return name;
-            }
-        } catch (FileNotFoundException e) {
-            // ignore
-        }
-
-        suffix = "_" + locale.getLanguage() + "_" + locale.getCountry();
-        name = baseName + suffix + extension;
-        try {
-            result = getResourceAsStream(name);
-            if (result != null) {
-                return name;
-            }
-        } catch (FileNotFoundException e) {
-            // ignore
-        }
-
-        suffix = "_" + locale.getLanguage();
-        name = baseName + suffix + extension;
-        try {
-            result = getResourceAsStream(name);
-            if (result != null) {
-                return name;
-            }
-        } catch (FileNotFoundException e) {
-            // ignore
+        String name = findLocalizedName(rawName);
+        if (name == null) {
+            throw new FileNotFoundException(rawName);
         }
-
-        suffix = "_en";
-        name = baseName + suffix + extension;
-        try {
-            result = getResourceAsStream(name);
-            if (result != null) {
-                return name;
-            }
-        } catch (FileNotFoundException e) {
-            // ignore
-        }
-
-        suffix = "";
-        name = baseName + suffix + extension;
-        result = getResourceAsStream(name);
-        if (result != null) {
-            return name;
-        }
-        return null;
+        return name;
     }
 
     public static Supplier<byte[]> getLocalZipBlobSupplier() {
@@ -376,8 +307,19 @@ public class ResourceWalker {
         return filePath.toString().substring(rootPath.toString().length() + 1);
     }
 
+    /**
+     * Forget the resolved names, after the content of the override directory has changed.
+     */
+    public static void invalidateResolutions() {
+        resolutionGeneration.incrementAndGet();
+        resolutions.clear();
+        logger.debug("resource resolutions cleared");
+    }
+
     public static void setLocalDirPath(Path curDir) {
         localDirPath = curDir;
+        invalidateResolutions();
+        watchLocalDir(curDir);
     }
 
     /**
@@ -415,6 +357,147 @@ public class ResourceWalker {
         logger.info("new in-memory override path {}", getLocalDirPath().normalize());
     }
 
+    /**
+     * Try the locale-specific variants of the name, most specific first, then English, then the name itself.
+     *
+     * @param rawName a name with an extension
+     * @return the first name that exists, null if none
+     */
+    private static String findLocalizedName(String rawName) {
+        int extensionPos = rawName.lastIndexOf('.');
+        String extension = rawName.substring(extensionPos);
+        String baseName = rawName.substring(0, extensionPos);
+
+        Locale locale = getLocaleSupplier().get();
+        String[] suffixes = {
+                "_" + locale.getLanguage() + "_" + locale.getCountry() + "_" + locale.getVariant(),
+                "_" + locale.getLanguage() + "_" + locale.getCountry(),
+                "_" + locale.getLanguage(),
+                "_en",
+                "" };
+        for (String suffix : suffixes) {
+            String name = baseName + suffix + extension;
+            if (findFileOrResourcePath(name) != null) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private static InputStream getUncachedFileOrResource(String name) throws FileNotFoundException {
+        Path localDirPath2 = getLocalDirPath();
+        Path target = null;
+        if (localDirPath2 != null) {
+            target = localDirPath2.resolve(name);
+        }
+        if (target != null && Files.exists(target)) {
+            try {
+                return Files.newInputStream(target);
+            } catch (IOException e) {
+                throw new RuntimeException("can't happen '" + name + "'", e);
+            }
+        }
+        InputStream is = ResourceWalker.class.getResourceAsStream(name);
+        if (is == null) {
+            throw new FileNotFoundException(name);
+        }
+        return is;
+    }
+
+    private static Resolution lookup(String relativeName) {
+        Path localDirPath2 = getLocalDirPath();
+        if (localDirPath2 != null) {
+            Path target = localDirPath2.resolve(relativeName);
+            if (Files.exists(target)) {
+                return new Resolution(target, true);
+            }
+        }
+        Path target = getResourcePath("/" + relativeName);
+        return target != null ? new Resolution(target, false) : NOT_FOUND;
+    }
+
+    /**
+     * Watch a directory and its subdirectories.
+     */
+    private static void registerTree(WatchService watcher, Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static Resolution resolve(String name) {
+        String relativeName = name.startsWith("/") ? name.substring(1) : name;
+        Resolution resolution = resolutions.get(relativeName);
+        if (resolution != null) {
+            return resolution;
+        }
+        long generation = resolutionGeneration.get();
+        resolution = lookup(relativeName);
+        if (resolutions.size() >= MAX_RESOLUTIONS) {
+            resolutions.clear();
+        }
+        if (generation == resolutionGeneration.get()) {
+            resolutions.put(relativeName, resolution);
+        }
+        return resolution;
+    }
+
+    /**
+     * Files can be added to a local directory on disk while the program runs; watch it so the resolutions are
+     * invalidated. In-memory directories come from a zip and are replaced as a whole, which goes through
+     * {@link #setLocalDirPath(Path)}.
+     */
+    private static synchronized void watchLocalDir(Path dir) {
+        if (localDirWatcher != null) {
+            try {
+                localDirWatcher.close();
+            } catch (IOException e) {
+                // ignored
+            }
+            localDirWatcher = null;
+        }
+        if (dir == null || dir.getFileSystem() != FileSystems.getDefault() || !Files.isDirectory(dir)) {
+            return;
+        }
+        try {
+            WatchService watcher = dir.getFileSystem().newWatchService();
+            registerTree(watcher, dir);
+            localDirWatcher = watcher;
+            Thread t = new Thread(() -> watchLoop(watcher), "local-dir-watcher");
+            t.setDaemon(true);
+            t.start();
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("cannot watch {}, changes will not be seen until restart: {}", dir, e.toString());
+        }
+    }
+
+    private static void watchLoop(WatchService watcher) {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                        Path created = ((Path) key.watchable()).resolve((Path) event.context());
+                        if (Files.isDirectory(created)) {
+                            registerTree(watcher, created);
+                        }
+                    }
+                }
+                key.reset();
+                invalidateResolutions();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // replaced or shutting down
+        } catch (IOException e) {
+            logger.warn("stopped watching the local directory: {}", e.toString());
+        }
+    }
+
     /**
      * Register an additional file system for the resources
      *
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2023 Jean-François Lamy
+ *
+ * Licensed under the Non-Profit Open Software License version 3.0  ("NPOSL-3.0")
+ * License text at https://opensource.org/licenses/NPOSL-3.0
+ *******************************************************************************/
+package app.owlcms.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Initialization steps run as a small dependency graph.
+ *
+ * A phase starts as soon as the phases it depends on are done, so independent phases run in parallel on a bounded
+ * pool. Dependencies must be added first, which rules out cycles. When a phase fails, the phases that depend on it are
+ * skipped and {@link #run()} rethrows the failure after all the others are finished. A table of the phase durations
+ * is logged at the end.
+ *
+ * @author Jean-François Lamy
+ */
+public class StartupPhases {
+
+    private static class Phase {
+        final String name;
+        final Runnable action;
+        final List<String> after;
+        CompletableFuture<Void> done;
+        long startNanos;
+        long endNanos;
+        String threadName;
+        Throwable failure;
+
+        Phase(String name, Runnable action, String[] after) {
+            this.name = name;
+            this.action = action;
+            this.after = Arrays.asList(after);
+        }
+
+        void execute() {
+            threadName = Thread.currentThread().getName();
+            startNanos = System.nanoTime();
+            try {
+                action.run();
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                throw e;
+            } finally {
+                endNanos = System.nanoTime();
+            }
+        }
+
+        String status() {
+            if (failure != null) {
+                return "failed";
+            } else if (startNanos == 0) {
+                return "skipped";
+            }
+            return "ok";
+        }
+    }
+
+    final private static Logger logger = (Logger) LoggerFactory.getLogger(StartupPhases.class);
+    static {
+        logger.setLevel(Level.INFO);
+    }
+
+    private final String name;
+    private final int nbThreads;
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private Logger reportLogger = logger;
+    private long startNanos;
+    private long endNanos;
+
+    /**
+     * @param name      for the threads and the report
+     * @param nbThreads maximum number of phases running at the same time
+     */
+    public StartupPhases(String name, int nbThreads) {
+        this.name = name;
+        this.nbThreads = nbThreads;
+    }
+
+    /**
+     * @param phaseName
+     * @param action
+     * @param after     names of the phases that must be done first, already added
+     * @return this, for chaining
+     */
+    public StartupPhases add(String phaseName, Runnable action, String... after) {
+        if (phases.containsKey(phaseName)) {
+            throw new IllegalArgumentException("duplicate phase " + phaseName);
+        }
+        for (String dependency : after) {
+            if (!phases.containsKey(dependency)) {
+                throw new IllegalArgumentException(phaseName + ": unknown phase " + dependency);
+            }
+        }
+        phases.put(phaseName, new Phase(phaseName, action, after));
+        return this;
+    }
+
+    /**
+     * @return one line per phase in the order they were added: start offset and duration in milliseconds, thread,
+     *         status
+     */
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s startup %d ms, %d threads%n", name, millis(startNanos, endNanos), nbThreads));
+        sb.append(String.format("    %-24s %10s %10s  %-18s %s", "phase", "start (ms)", "time (ms)", "thread",
+                "status"));
+        for (Phase p : phases.values()) {
+            boolean ran = p.startNanos != 0;
+            sb.append(String.format("%n    %-24s %10s %10s  %-18s %s", p.name,
+                    ran ? millis(startNanos, p.startNanos) : "",
+                    ran ? millis(p.startNanos, p.endNanos) : "",
+                    ran ? p.threadName : "",
+                    p.status()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Run all the phases and wait for them. Logs the report.
+     *
+     * @throws RuntimeException the failure of the first phase that failed, in the order they were added
+     */
+    public void run() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads, r -> {
+            Thread t = new Thread(r, name + "-startup-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        startNanos = System.nanoTime();
+        try {
+            for (Phase p : phases.values()) {
+                CompletableFuture<?>[] dependencies = p.after.stream().map(n -> phases.get(n).done)
+                        .toArray(CompletableFuture[]::new);
+                p.done = CompletableFuture.allOf(dependencies).thenRunAsync(p::execute, executor);
+            }
+            for (Phase p : phases.values()) {
+                try {
+                    p.done.join();
+                } catch (CompletionException e) {
+                    // recorded in the phase, reported below
+                }
+            }
+        } finally {
+            endNanos = System.nanoTime();
+            executor.shutdown();
+        }
+        reportLogger.info(getReport());
+
+        List<Phase> failed = new ArrayList<>();
+        for (Phase p : phases.values()) {
+            if (p.failure != null) {
+                failed.add(p);
+            }
+        }
+        if (failed.isEmpty()) {
+            return;
+        }
+        Throwable first = failed.get(0).failure;
+        for (Phase p : failed.subList(1, failed.size())) {
+            reportLogger.error("startup phase {} failed: {}", p.name, LoggerUtils.stackTrace(p.failure));
+        }
+        if (first instanceof Error) {
+            throw (Error) first;
+        }
+        throw (RuntimeException) first;
+    }
+
+    /**
+     * @param reportLogger where the report goes, instead of this class's logger
+     * @return this, for chaining
+     */
+    public StartupPhases setReportLogger(Logger reportLogger) {
+        this.reportLogger = reportLogger;
+        return this;
+    }
+
+    private long millis(long fromNanos, long toNanos) {
+        return (toNanos - fromNanos) / 1000000;
+    }
+
+}